@@ -0,0 +1,18 @@
+#!/bin/sh
+# compiles the app into bin, where Eclipse builds it too. The vector
+# kernels in src-vector are only compiled when the JDK has the
+# jdk.incubator.vector module; without them the app falls back to its
+# other pixel kernels.
+set -e
+cd "$(dirname "$0")"
+sources=$(mktemp)
+trap 'rm -f "$sources"' EXIT
+find src -name '*.java' > "$sources"
+if java --list-modules 2>/dev/null | grep -q '^jdk.incubator.vector@'; then
+	find src-vector -name '*.java' >> "$sources"
+	javac -Xlint:all --add-modules jdk.incubator.vector -d bin @"$sources"
+	echo "built with the vector kernels; run with --add-modules jdk.incubator.vector to use them"
+else
+	javac -Xlint:all -d bin @"$sources"
+	echo "built without the vector kernels"
+fi
@@ -0,0 +1,331 @@
+package utilities;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Class <code>VectorKernels</code> is the set of pixel kernels that
+ * works on a whole vector register of pixels at once with the
+ * incubating Vector API. Each channel is taken out of its lane with a
+ * shift and a mask and worked on with the same arithmetic as the
+ * scalar kernels, so the pixels come out exactly the same. The pixels
+ * left over at the end of a row, and the odd group of pixels that needs
+ * a division, are done one at a time.
+ *
+ * This class needs the <code>jdk.incubator.vector</code> module both to
+ * compile and to run, so it is kept in a source folder of its own that
+ * is only compiled when the module is there, and
+ * <code>PixelKernels</code> only ever loads it by name and falls back
+ * to its other kernels when it can't be loaded.
+ *
+ * @version 0.1.1 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ * 		-- moved to the src-vector source folder
+ */
+final class VectorKernels extends PixelKernels {
+	// the widest vectors of ints the machine has, and vectors of bytes
+	// with at least as many lanes for reading coverage
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64.length() >= INTS.length()
+			? ByteVector.SPECIES_64
+			: VectorSpecies.of(byte.class, VectorShape.forBitSize(INTS.length() * 8));
+
+	// the rounding added to a product before it is shifted down to the
+	// value Java2D gives it
+	private static final int PRODUCT_ROUNDING = 1 << 23;
+
+	// the unpremultiplied value of each channel under each alpha
+	private final byte[] quotients;
+
+	/**
+	 * Constructs the vector kernels. This fails with a
+	 * <code>LinkageError</code> if the running JVM doesn't have the
+	 * Vector API.
+	 */
+	VectorKernels() {
+		quotients = new byte[256 * 256];
+		for (int a = 0; a < 256; a++) {
+			for (int c = 0; c < 256; c++) {
+				quotients[a << 8 | c] = (byte) (a == 0 ? 0 : Math.min(255, (c * 255 + a / 2) / a));
+			}
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "vector";
+	}
+
+	@Override
+	public int getLanes() {
+		return INTS.length();
+	}
+
+	@Override
+	public void fill(int[] pixels, int offset, int length, int argb) {
+		IntVector color = IntVector.broadcast(INTS, argb);
+		int i = 0;
+		for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+			color.intoArray(pixels, offset + i);
+		}
+		Arrays.fill(pixels, offset + i, offset + length, argb);
+	}
+
+	@Override
+	public void blend(int[] source, int sourceOffset, int[] pixels, int offset, int length) {
+		int i = 0;
+		for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+			IntVector color = IntVector.fromArray(INTS, source, sourceOffset + i);
+			IntVector pixel = IntVector.fromArray(INTS, pixels, offset + i);
+			IntVector alpha = color.lanewise(VectorOperators.LSHR, 24);
+			if (needsDivision(alpha, pixel)) {
+				for (int j = i; j < i + INTS.length(); j++) {
+					pixels[offset + j] = blendOne(source[sourceOffset + j], pixels[offset + j]);
+				}
+				continue;
+			}
+			blendOpaque(color, alpha, pixel).blend(color, alpha.compare(VectorOperators.EQ, 255))
+					.blend(pixel, alpha.compare(VectorOperators.EQ, 0)).intoArray(pixels, offset + i);
+		}
+		for (; i < length; i++) {
+			pixels[offset + i] = blendOne(source[sourceOffset + i], pixels[offset + i]);
+		}
+	}
+
+	@Override
+	public void copyPremultiplied(int[] source, int sourceOffset, int[] pixels, int offset,
+			int length) {
+		int i = 0;
+		for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+			IntVector pixel = IntVector.fromArray(INTS, source, sourceOffset + i);
+			premultiply(pixel).intoArray(pixels, offset + i);
+		}
+		for (; i < length; i++) {
+			pixels[offset + i] = premultiplyOne(source[sourceOffset + i]);
+		}
+	}
+
+	@Override
+	public void blendCoverage(byte[] coverage, int coverageOffset, int[] pixels, int offset,
+			int length, int argb) {
+		int colorAlpha = argb >>> 24;
+		IntVector color = IntVector.broadcast(INTS, argb);
+		int step = Math.max(INTS.length(), BYTES.length());
+		int i = 0;
+		for (; i + step <= length; i += INTS.length()) {
+			IntVector covered = (IntVector) ByteVector.fromArray(BYTES, coverage, coverageOffset + i)
+					.convertShape(VectorOperators.B2I, INTS, 0);
+			IntVector alpha = divide255(covered.and(0xFF).mul(colorAlpha));
+			IntVector pixel = IntVector.fromArray(INTS, pixels, offset + i);
+			if (needsDivision(alpha, pixel)) {
+				for (int j = i; j < i + INTS.length(); j++) {
+					pixels[offset + j] = blendCovered(coverage[coverageOffset + j], pixels[offset + j], argb);
+				}
+				continue;
+			}
+			blendOpaque(color, alpha, pixel).blend(color, alpha.compare(VectorOperators.EQ, 255))
+					.blend(pixel, alpha.compare(VectorOperators.EQ, 0)).intoArray(pixels, offset + i);
+		}
+		for (; i < length; i++) {
+			pixels[offset + i] = blendCovered(coverage[coverageOffset + i], pixels[offset + i], argb);
+		}
+	}
+
+	@Override
+	public void premultiply(int[] pixels, int offset, int length) {
+		int i = 0;
+		for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+			premultiply(IntVector.fromArray(INTS, pixels, offset + i)).intoArray(pixels, offset + i);
+		}
+		for (; i < length; i++) {
+			pixels[offset + i] = premultiplyOne(pixels[offset + i]);
+		}
+	}
+
+	@Override
+	public void unpremultiply(int[] pixels, int offset, int length) {
+		// there is no division of ints in the Vector API, so the
+		// quotients are looked up one pixel at a time
+		for (int i = offset; i < offset + length; i++) {
+			int pixel = pixels[i];
+			int alpha = pixel >>> 24;
+			if (alpha == 0) {
+				pixels[i] = 0;
+			} else if (alpha != 255) {
+				int row = alpha << 8;
+				pixels[i] = alpha << 24 | (quotients[row | ((pixel >> 16) & 0xFF)] & 0xFF) << 16
+						| (quotients[row | ((pixel >> 8) & 0xFF)] & 0xFF) << 8
+						| (quotients[row | (pixel & 0xFF)] & 0xFF);
+			}
+		}
+	}
+
+	@Override
+	public void toRGB(int[] source, int sourceOffset, int[] rgb, int offset, int length,
+			int background) {
+		IntVector backgroundRed = IntVector.broadcast(INTS, (background >> 16) & 0xFF);
+		IntVector backgroundGreen = IntVector.broadcast(INTS, (background >> 8) & 0xFF);
+		IntVector backgroundBlue = IntVector.broadcast(INTS, background & 0xFF);
+		int i = 0;
+		for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+			IntVector pixel = IntVector.fromArray(INTS, source, sourceOffset + i);
+			IntVector alpha = pixel.lanewise(VectorOperators.LSHR, 24);
+			IntVector kept = alpha.neg().add(255);
+			IntVector red = multiply8(alpha, channel(pixel, 16)).add(multiply8(kept, backgroundRed));
+			IntVector green = multiply8(alpha, channel(pixel, 8)).add(multiply8(kept, backgroundGreen));
+			IntVector blue = multiply8(alpha, channel(pixel, 0)).add(multiply8(kept, backgroundBlue));
+			pack(IntVector.zero(INTS), red, green, blue).intoArray(rgb, offset + i);
+		}
+		for (; i < length; i++) {
+			rgb[offset + i] = flattenPixel(source[sourceOffset + i], background);
+		}
+	}
+
+	@Override
+	public void toRGBPremultiplied(int[] source, int sourceOffset, int[] rgb, int offset,
+			int length, int background) {
+		IntVector backgroundRed = IntVector.broadcast(INTS, (background >> 16) & 0xFF);
+		IntVector backgroundGreen = IntVector.broadcast(INTS, (background >> 8) & 0xFF);
+		IntVector backgroundBlue = IntVector.broadcast(INTS, background & 0xFF);
+		IntVector backgroundOnly = IntVector.broadcast(INTS, background & 0xFFFFFF);
+		int i = 0;
+		for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+			IntVector pixel = IntVector.fromArray(INTS, source, sourceOffset + i);
+			IntVector alpha = pixel.lanewise(VectorOperators.LSHR, 24);
+			IntVector kept = alpha.neg().add(255);
+			IntVector red = channel(pixel, 16).add(multiply8(kept, backgroundRed));
+			IntVector green = channel(pixel, 8).add(multiply8(kept, backgroundGreen));
+			IntVector blue = channel(pixel, 0).add(multiply8(kept, backgroundBlue));
+			pack(IntVector.zero(INTS), red, green, blue).blend(backgroundOnly, alpha.compare(VectorOperators.EQ, 0))
+					.intoArray(rgb, offset + i);
+		}
+		for (; i < length; i++) {
+			rgb[offset + i] = flattenPremultipliedPixel(source[sourceOffset + i], background);
+		}
+	}
+
+	@Override
+	public int countDifferences(int[] expected, int expectedOffset, int[] actual,
+			int offset, int length, int tolerance) {
+		int different = 0;
+		int i = 0;
+		for (int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+			IntVector a = IntVector.fromArray(INTS, expected, expectedOffset + i);
+			IntVector b = IntVector.fromArray(INTS, actual, offset + i);
+			VectorMask<Integer> outside = INTS.maskAll(false);
+			for (int shift = 0; shift < 32; shift += 8) {
+				IntVector difference = channel(a, shift).sub(channel(b, shift)).abs();
+				outside = outside.or(difference.compare(VectorOperators.GT, tolerance));
+			}
+			different += outside.trueCount();
+		}
+		for (; i < length; i++) {
+			int a = expected[expectedOffset + i];
+			int b = actual[offset + i];
+			for (int shift = 0; shift < 32; shift += 8) {
+				if (Math.abs(((a >>> shift) & 0xFF) - ((b >>> shift) & 0xFF)) > tolerance) {
+					different++;
+					break;
+				}
+			}
+		}
+		return different;
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// checks whether any lane blends a translucent color onto a pixel
+	// that isn't opaque, which needs a division by the resulting alpha
+	private static boolean needsDivision(IntVector alpha, IntVector pixel) {
+		VectorMask<Integer> translucent = alpha.compare(VectorOperators.NE, 0)
+				.and(alpha.compare(VectorOperators.NE, 255));
+		return translucent.and(pixel.lanewise(VectorOperators.LSHR, 24).compare(VectorOperators.NE, 255))
+				.anyTrue();
+	}
+
+	// blends colors with the given alphas onto opaque pixels
+	private static IntVector blendOpaque(IntVector color, IntVector alpha, IntVector pixel) {
+		IntVector kept = alpha.neg().add(255);
+		IntVector red = divide255(channel(color, 16).mul(alpha).add(channel(pixel, 16).mul(kept)));
+		IntVector green = divide255(channel(color, 8).mul(alpha).add(channel(pixel, 8).mul(kept)));
+		IntVector blue = divide255(channel(color, 0).mul(alpha).add(channel(pixel, 0).mul(kept)));
+		return pack(IntVector.broadcast(alpha.species(), 255), red, green, blue);
+	}
+
+	// blends one pixel of a layer the way the scalar kernels do
+	private static int blendOne(int color, int pixel) {
+		int alpha = color >>> 24;
+		if (alpha == 255) {
+			return color;
+		} else if (alpha == 0) {
+			return pixel;
+		}
+		return blendPixel(color, alpha, pixel);
+	}
+
+	// blends one covered pixel of a brush dab the way the scalar
+	// kernels do
+	private static int blendCovered(byte covered, int pixel, int argb) {
+		int alpha = divide255((argb >>> 24) * (covered & 0xFF));
+		if (alpha == 255) {
+			return argb;
+		} else if (alpha == 0) {
+			return pixel;
+		}
+		return blendPixel(argb, alpha, pixel);
+	}
+
+	// multiplies the color channels of every lane by its alpha
+	private static IntVector premultiply(IntVector pixels) {
+		IntVector alpha = pixels.lanewise(VectorOperators.LSHR, 24);
+		return pack(alpha, divide255(channel(pixels, 16).mul(alpha)), divide255(channel(pixels, 8).mul(alpha)),
+				divide255(channel(pixels, 0).mul(alpha)));
+	}
+
+	// multiplies the color channels of one pixel by its alpha the way
+	// the scalar kernels do
+	private static int premultiplyOne(int pixel) {
+		int alpha = pixel >>> 24;
+		return alpha << 24 | divide255(((pixel >> 16) & 0xFF) * alpha) << 16
+				| divide255(((pixel >> 8) & 0xFF) * alpha) << 8 | divide255((pixel & 0xFF) * alpha);
+	}
+
+	// takes the channel at the given shift out of every lane
+	private static IntVector channel(IntVector pixels, int shift) {
+		return pixels.lanewise(VectorOperators.LSHR, shift).and(0xFF);
+	}
+
+	// puts the four channels of every lane back together
+	private static IntVector pack(IntVector alpha, IntVector red, IntVector green, IntVector blue) {
+		return alpha.lanewise(VectorOperators.LSHL, 24).or(red.lanewise(VectorOperators.LSHL, 16))
+				.or(green.lanewise(VectorOperators.LSHL, 8)).or(blue);
+	}
+
+	// divides every lane by 255 and rounds it, the same as divide255
+	private static IntVector divide255(IntVector values) {
+		IntVector rounded = values.add(128);
+		return rounded.add(rounded.lanewise(VectorOperators.LSHR, 8)).lanewise(VectorOperators.LSHR, 8);
+	}
+
+	// Java2D's product of two channels in every lane, the same as
+	// multiply8. The product may pass the largest int, but the shift
+	// treats it as unsigned so it comes out right.
+	private static IntVector multiply8(IntVector a, IntVector b) {
+		return a.mul(b).mul(0x010101).add(PRODUCT_ROUNDING).lanewise(VectorOperators.LSHR, 24);
+	}
+}
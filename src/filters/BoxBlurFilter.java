@@ -0,0 +1,39 @@
+package filters;
+
+import java.util.Arrays;
+
+/**
+ * Class <code>BoxBlurFilter</code> blurs pixels by averaging each one
+ * with every pixel in the square around it.
+ * 
+ * @version 0.1.0 [10/19/26]
+ * 
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class BoxBlurFilter extends SeparableFilter {
+	
+	/**
+	 * Constructs a new box blur with the given radius
+	 * @param radius the distance from the center of the box to its edge
+	 * @throws IllegalArgumentException if the radius is negative
+	 */
+	public BoxBlurFilter(int radius) {
+		super(createKernel(radius));
+	}
+	
+	// creates a kernel with equal weights
+	private static float[] createKernel(int radius) {
+		if (radius < 0) {
+			throw new IllegalArgumentException("invalid radius: " + radius);
+		}
+		float[] kernel = new float[2 * radius + 1];
+		Arrays.fill(kernel, 1.0f / kernel.length);
+		return kernel;
+	}
+}
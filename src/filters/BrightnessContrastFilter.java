@@ -0,0 +1,51 @@
+package filters;
+
+/**
+ * Class <code>BrightnessContrastFilter</code> changes the brightness
+ * and contrast of every pixel. Contrast stretches each color channel
+ * away from or towards the middle of its range, and brightness is
+ * then added to it. Both are looked up in a table built when the
+ * filter is created.
+ * 
+ * @version 0.1.0 [10/19/26]
+ * 
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class BrightnessContrastFilter extends PointFilter {
+	// the new value of each channel value
+	private int[] levels;
+	
+	/**
+	 * Constructs a new filter that changes brightness and contrast by
+	 * the given amounts
+	 * @param brightness the amount added to each channel, from -255
+	 * to 255
+	 * @param contrast how much each channel is stretched away from the
+	 * middle of its range; 1 leaves the contrast as it is
+	 * @throws IllegalArgumentException if the contrast is negative
+	 */
+	public BrightnessContrastFilter(int brightness, double contrast) {
+		if (contrast < 0) {
+			throw new IllegalArgumentException("invalid contrast: " + contrast);
+		}
+		levels = new int[256];
+		for (int i = 0; i < levels.length; i++) {
+			int level = (int) Math.round((i - 128) * contrast + 128 + brightness);
+			levels[i] = Math.max(0, Math.min(255, level));
+		}
+	}
+
+	@Override
+	protected int filterPixel(int argb) {
+		return (argb & 0xFF000000)
+				| (levels[(argb >> 16) & 0xFF] << 16)
+				| (levels[(argb >> 8) & 0xFF] << 8)
+				| levels[argb & 0xFF];
+	}
+}
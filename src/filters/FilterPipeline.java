@@ -0,0 +1,210 @@
+package filters;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class <code>FilterPipeline</code> runs a chain of filters over an
+ * image in a single pass. The image is split into square tiles and
+ * each tile is read once, with enough of the pixels around it to cover
+ * the halos of every filter in the chain, and is then run through the
+ * whole chain before being written out. No image-sized buffers are
+ * made between the filters, only tile-sized ones.
+ * 
+ * Tiles are independent of each other, so they are filtered in
+ * parallel on a <code>ForkJoinPool</code>. Each filter treats the
+ * pixels outside of the image as copies of the nearest edge pixel of
+ * the image it is given, so the part of a tile's halo that is outside
+ * of the image is filled from the edge again after every filter that
+ * has a halo. The chain gives the same image as running the filters
+ * over the whole image one after another.
+ * 
+ * @version 0.1.1 [10/19/26]
+ * 
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ * 		-- edges are clamped after every filter instead of only once
+ * 		before the chain
+ */
+public class FilterPipeline {
+	/**
+	 * The width and height of a tile in pixels, not counting its halo
+	 */
+	public static final int TILE_SIZE = 128;
+	
+	// the filters in the order they are run
+	private ImageFilter[] filters;
+	
+	// the halo needed by the whole chain
+	private int halo;
+	
+	/**
+	 * Constructs a new pipeline that runs the given filters in order
+	 * @param filters the filters to run
+	 * @throws IllegalArgumentException if no filters are given
+	 */
+	public FilterPipeline(ImageFilter... filters) {
+		if (filters.length == 0) {
+			throw new IllegalArgumentException("no filters to run");
+		}
+		this.filters = filters.clone();
+		for (int i = 0; i < filters.length; i++) {
+			halo += filters[i].getHalo();
+		}
+	}
+	
+	/**
+	 * Gets how many pixels around each pixel the whole chain needs to
+	 * look at to compute it
+	 * @return the size of the halo in pixels
+	 */
+	public int getHalo() {
+		return halo;
+	}
+	
+	/**
+	 * Filters the given image into the result using the given pool.
+	 * The source and the result must be different arrays.
+	 * @param source the pixels of the image, row by row
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param result the array the filtered image is written to
+	 * @param pool the pool that the tiles are filtered on
+	 * @throws IllegalArgumentException if the source and result are
+	 * the same array
+	 */
+	public void apply(int[] source, int width, int height, int[] result, ForkJoinPool pool) {
+		if (source == result) {
+			throw new IllegalArgumentException("can't filter an image in place");
+		}
+		int tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE;
+		int tilesDown = (height + TILE_SIZE - 1) / TILE_SIZE;
+		if (tilesAcross == 0 || tilesDown == 0) {
+			return;
+		}
+		pool.invoke(new TileTask(source, width, height, result, tilesAcross,
+				0, tilesAcross * tilesDown));
+	}
+	
+	/**
+	 * Filters the given image into the result using the common pool
+	 * @param source the pixels of the image, row by row
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param result the array the filtered image is written to
+	 */
+	public void apply(int[] source, int width, int height, int[] result) {
+		apply(source, width, height, result, ForkJoinPool.commonPool());
+	}
+	
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+	
+	// filters the tile whose upper-left corner is at the given location
+	private void filterTile(int[] source, int width, int height, int[] result,
+			int tileX, int tileY) {
+		int tileWidth = Math.min(TILE_SIZE, width - tileX);
+		int tileHeight = Math.min(TILE_SIZE, height - tileY);
+		int bufferWidth = tileWidth + 2 * halo;
+		int bufferHeight = tileHeight + 2 * halo;
+		int[] buffer = new int[bufferWidth * bufferHeight];
+		for (int y = 0; y < bufferHeight; y++) {
+			int sourceY = Math.max(0, Math.min(height - 1, tileY + y - halo));
+			int row = sourceY * width;
+			for (int x = 0; x < bufferWidth; x++) {
+				int sourceX = Math.max(0, Math.min(width - 1, tileX + x - halo));
+				buffer[y * bufferWidth + x] = source[row + sourceX];
+			}
+		}
+		int margin = halo;
+		for (int i = 0; i < filters.length; i++) {
+			int filterHalo = filters[i].getHalo();
+			if (filterHalo == 0) {
+				// filters without a halo can work in place
+				filters[i].filter(buffer, bufferWidth, bufferHeight, buffer);
+			} else {
+				bufferWidth -= 2 * filterHalo;
+				bufferHeight -= 2 * filterHalo;
+				margin -= filterHalo;
+				int[] filtered = new int[bufferWidth * bufferHeight];
+				filters[i].filter(buffer, bufferWidth + 2 * filterHalo,
+						bufferHeight + 2 * filterHalo, filtered);
+				buffer = filtered;
+				// the next filters see the edge of this one's output
+				clampEdges(buffer, bufferWidth, bufferHeight, tileX - margin, tileY - margin,
+						width, height);
+			}
+		}
+		for (int y = 0; y < tileHeight; y++) {
+			System.arraycopy(buffer, y * tileWidth, result, (tileY + y) * width + tileX, tileWidth);
+		}
+	}
+	
+	// copies the nearest pixel inside of the image over every pixel of
+	// the buffer that is outside of it. The buffer's upper-left corner
+	// is at the given location in the image.
+	private static void clampEdges(int[] buffer, int bufferWidth, int bufferHeight,
+			int left, int top, int width, int height) {
+		int firstX = Math.max(0, -left);
+		int lastX = Math.min(bufferWidth - 1, width - 1 - left);
+		int firstY = Math.max(0, -top);
+		int lastY = Math.min(bufferHeight - 1, height - 1 - top);
+		if (firstX == 0 && firstY == 0 && lastX == bufferWidth - 1 && lastY == bufferHeight - 1) {
+			return;
+		}
+		for (int y = firstY; y <= lastY; y++) {
+			int row = y * bufferWidth;
+			Arrays.fill(buffer, row, row + firstX, buffer[row + firstX]);
+			Arrays.fill(buffer, row + lastX + 1, row + bufferWidth, buffer[row + lastX]);
+		}
+		for (int y = 0; y < firstY; y++) {
+			System.arraycopy(buffer, firstY * bufferWidth, buffer, y * bufferWidth, bufferWidth);
+		}
+		for (int y = lastY + 1; y < bufferHeight; y++) {
+			System.arraycopy(buffer, lastY * bufferWidth, buffer, y * bufferWidth, bufferWidth);
+		}
+	}
+	
+	/****************************************************************
+	 * HELPER CLASSES
+	 ***************************************************************/
+	
+	// filters a range of tiles, splitting it in half until only one
+	// tile is left
+	private class TileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int[] source, result;
+		private int width, height, tilesAcross;
+		private int first, last;
+		
+		public TileTask(int[] source, int width, int height, int[] result,
+				int tilesAcross, int first, int last) {
+			this.source = source;
+			this.width = width;
+			this.height = height;
+			this.result = result;
+			this.tilesAcross = tilesAcross;
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected void compute() {
+			if (last - first == 1) {
+				filterTile(source, width, height, result,
+						(first % tilesAcross) * TILE_SIZE, (first / tilesAcross) * TILE_SIZE);
+			} else {
+				int middle = (first + last) >>> 1;
+				invokeAll(new TileTask(source, width, height, result, tilesAcross, first, middle),
+						new TileTask(source, width, height, result, tilesAcross, middle, last));
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package filters;
+
+/**
+ * Class <code>GaussianBlurFilter</code> blurs pixels with a Gaussian
+ * kernel. The kernel reaches out three standard deviations, which
+ * covers all but a sliver of its weight.
+ * 
+ * @version 0.1.0 [10/19/26]
+ * 
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class GaussianBlurFilter extends SeparableFilter {
+	
+	/**
+	 * Constructs a new Gaussian blur with the given standard deviation
+	 * @param sigma the standard deviation of the blur in pixels
+	 * @throws IllegalArgumentException if sigma is not positive
+	 */
+	public GaussianBlurFilter(double sigma) {
+		super(createKernel(sigma));
+	}
+	
+	// creates a normalized Gaussian kernel with the given deviation
+	private static float[] createKernel(double sigma) {
+		if (sigma <= 0) {
+			throw new IllegalArgumentException("invalid sigma: " + sigma);
+		}
+		int radius = (int) Math.ceil(3 * sigma);
+		float[] kernel = new float[2 * radius + 1];
+		double total = 0;
+		for (int i = -radius; i <= radius; i++) {
+			double weight = Math.exp(-(i * i) / (2 * sigma * sigma));
+			kernel[i + radius] = (float) weight;
+			total += weight;
+		}
+		for (int i = 0; i < kernel.length; i++) {
+			kernel[i] /= total;
+		}
+		return kernel;
+	}
+}
@@ -0,0 +1,43 @@
+package filters;
+
+/**
+ * Defines the behavior of all filters that can be run over the pixels
+ * of the canvas. Filters work on packed, non-premultiplied ARGB pixels
+ * and are run one tile at a time, so a filter that needs the pixels
+ * around the one it is computing declares how far it looks with its
+ * halo. Each tile is handed to the filter with that many extra pixels
+ * on every side, and the filter produces only the pixels of the tile.
+ * 
+ * Filters with no halo must also work when the source and the result
+ * are the same array, so they can be run in place.
+ * 
+ * @version 0.1.0 [10/19/26]
+ * 
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public interface ImageFilter {
+	/**
+	 * Gets how many pixels around each pixel this filter needs to look
+	 * at to compute it
+	 * @return the size of the halo in pixels
+	 */
+	public int getHalo();
+	
+	/**
+	 * Filters the given pixels into the result. The result is smaller
+	 * than the source by the halo on every side, so it is
+	 * <code>width - 2 * getHalo()</code> pixels wide and
+	 * <code>height - 2 * getHalo()</code> pixels tall.
+	 * @param source the pixels to filter, row by row
+	 * @param width the width of the source
+	 * @param height the height of the source
+	 * @param result the array the filtered pixels are written to
+	 */
+	public void filter(int[] source, int width, int height, int[] result);
+}
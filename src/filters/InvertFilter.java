@@ -0,0 +1,23 @@
+package filters;
+
+/**
+ * Class <code>InvertFilter</code> inverts the color of every pixel,
+ * leaving its transparency alone.
+ * 
+ * @version 0.1.0 [10/19/26]
+ * 
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class InvertFilter extends PointFilter {
+
+	@Override
+	protected int filterPixel(int argb) {
+		return argb ^ 0x00FFFFFF;
+	}
+}
@@ -0,0 +1,39 @@
+package filters;
+
+/**
+ * Abstract class <code>PointFilter</code> is the base of filters that
+ * change each pixel without looking at any of the pixels around it,
+ * like inverting or changing brightness. Point filters have no halo.
+ * 
+ * @version 0.1.0 [10/19/26]
+ * 
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public abstract class PointFilter implements ImageFilter {
+
+	@Override
+	public int getHalo() {
+		return 0;
+	}
+
+	@Override
+	public void filter(int[] source, int width, int height, int[] result) {
+		int size = width * height;
+		for (int i = 0; i < size; i++) {
+			result[i] = filterPixel(source[i]);
+		}
+	}
+	
+	/**
+	 * Filters a single pixel
+	 * @param argb the packed, non-premultiplied ARGB pixel to filter
+	 * @return the filtered pixel
+	 */
+	protected abstract int filterPixel(int argb);
+}
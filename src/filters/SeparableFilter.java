@@ -0,0 +1,119 @@
+package filters;
+
+/**
+ * Class <code>SeparableFilter</code> convolves pixels with a kernel
+ * that is the same horizontally and vertically, like a blur. Instead
+ * of one square pass, it runs a horizontal pass and then a vertical
+ * pass, so each pixel costs two times the kernel width rather than the
+ * kernel width squared.
+ * 
+ * Colors are weighted by their transparency while they are combined,
+ * so transparent pixels don't darken the edges of what is drawn.
+ * 
+ * @version 0.1.0 [10/19/26]
+ * 
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class SeparableFilter implements ImageFilter {
+	// the weights of the kernel, which add up to 1
+	private float[] kernel;
+	
+	// the distance from the center of the kernel to its edge
+	private int radius;
+	
+	/**
+	 * Constructs a new filter with the given kernel. The kernel must
+	 * have an odd length and its weights should add up to 1.
+	 * @param kernel the weights of the kernel
+	 * @throws IllegalArgumentException if the kernel has an even length
+	 */
+	public SeparableFilter(float[] kernel) {
+		if (kernel.length % 2 == 0) {
+			throw new IllegalArgumentException("kernel must have an odd length");
+		}
+		this.kernel = kernel.clone();
+		this.radius = kernel.length / 2;
+	}
+
+	@Override
+	public int getHalo() {
+		return radius;
+	}
+
+	@Override
+	public void filter(int[] source, int width, int height, int[] result) {
+		int resultWidth = width - 2 * radius;
+		int resultHeight = height - 2 * radius;
+		
+		// horizontal pass into premultiplied channels
+		int passSize = resultWidth * height;
+		float[] alpha = new float[passSize];
+		float[] red = new float[passSize];
+		float[] green = new float[passSize];
+		float[] blue = new float[passSize];
+		for (int y = 0; y < height; y++) {
+			int row = y * width;
+			for (int x = 0; x < resultWidth; x++) {
+				float a = 0, r = 0, g = 0, b = 0;
+				for (int k = 0; k < kernel.length; k++) {
+					int argb = source[row + x + k];
+					float weight = kernel[k] * (argb >>> 24);
+					a += weight;
+					r += weight * ((argb >> 16) & 0xFF);
+					g += weight * ((argb >> 8) & 0xFF);
+					b += weight * (argb & 0xFF);
+				}
+				int i = y * resultWidth + x;
+				alpha[i] = a;
+				red[i] = r;
+				green[i] = g;
+				blue[i] = b;
+			}
+		}
+		
+		// vertical pass back into pixels
+		for (int y = 0; y < resultHeight; y++) {
+			for (int x = 0; x < resultWidth; x++) {
+				float a = 0, r = 0, g = 0, b = 0;
+				for (int k = 0; k < kernel.length; k++) {
+					int i = (y + k) * resultWidth + x;
+					float weight = kernel[k];
+					a += weight * alpha[i];
+					r += weight * red[i];
+					g += weight * green[i];
+					b += weight * blue[i];
+				}
+				result[y * resultWidth + x] = pack(a, r, g, b);
+			}
+		}
+	}
+	
+	/**
+	 * Packs the given premultiplied channels into a non-premultiplied
+	 * ARGB pixel
+	 * @param a the alpha of the pixel from 0 to 255
+	 * @param r the red channel multiplied by alpha
+	 * @param g the green channel multiplied by alpha
+	 * @param b the blue channel multiplied by alpha
+	 * @return the packed pixel
+	 */
+	static int pack(float a, float r, float g, float b) {
+		int alpha = clamp(Math.round(a));
+		if (alpha == 0) {
+			return 0;
+		}
+		return (alpha << 24) | (clamp(Math.round(r / a)) << 16)
+				| (clamp(Math.round(g / a)) << 8) | clamp(Math.round(b / a));
+	}
+	
+	// clamps the given value to the range of a channel
+	private static int clamp(int value) {
+		return Math.max(0, Math.min(255, value));
+	}
+}
@@ -0,0 +1,64 @@
+package filters;
+
+/**
+ * Class <code>SharpenFilter</code> sharpens pixels by subtracting the
+ * four pixels next to each one from it, which strengthens edges. The
+ * amount controls how strongly the edges are pushed apart.
+ * 
+ * Colors are weighted by their transparency while they are combined,
+ * the same as the blurs.
+ * 
+ * @version 0.1.0 [10/19/26]
+ * 
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class SharpenFilter implements ImageFilter {
+	// the weight of each of the four neighbors
+	private float amount;
+	
+	/**
+	 * Constructs a new sharpen filter with the given strength
+	 * @param amount how much of each neighbor is subtracted
+	 * @throws IllegalArgumentException if the amount is negative
+	 */
+	public SharpenFilter(double amount) {
+		if (amount < 0) {
+			throw new IllegalArgumentException("invalid amount: " + amount);
+		}
+		this.amount = (float) amount;
+	}
+
+	@Override
+	public int getHalo() {
+		return 1;
+	}
+
+	@Override
+	public void filter(int[] source, int width, int height, int[] result) {
+		int resultWidth = width - 2;
+		int resultHeight = height - 2;
+		int[] offsets = {0, -width, -1, 1, width};
+		float[] weights = {1 + 4 * amount, -amount, -amount, -amount, -amount};
+		for (int y = 0; y < resultHeight; y++) {
+			for (int x = 0; x < resultWidth; x++) {
+				int i = (y + 1) * width + x + 1;
+				float a = 0, r = 0, g = 0, b = 0;
+				for (int n = 0; n < offsets.length; n++) {
+					int argb = source[i + offsets[n]];
+					float weight = weights[n] * (argb >>> 24);
+					a += weight;
+					r += weight * ((argb >> 16) & 0xFF);
+					g += weight * ((argb >> 8) & 0xFF);
+					b += weight * (argb & 0xFF);
+				}
+				result[y * resultWidth + x] = SeparableFilter.pack(a, r, g, b);
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package gui;
+
+import shapes.CanvasEntity;
+
+/**
+ * Class <code>AddEdit</code> is the edit of adding an entity to a
+ * <code>PaintCanvas</code>, whether it was drawn or made by running
+ * filters over the canvas. Undoing it takes the entity off the canvas
+ * again, and redoing it puts the same entity back where it was.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+class AddEdit implements CanvasEdit {
+	// the canvas the entity was added to, and the entity
+	private final PaintCanvas canvas;
+	private final CanvasEntity entity;
+
+	/**
+	 * Creates the edit of adding the given entity, which has already
+	 * been added to the canvas
+	 * @param canvas the canvas the entity was added to
+	 * @param entity the entity that was added
+	 */
+	public AddEdit(PaintCanvas canvas, CanvasEntity entity) {
+		this.canvas = canvas;
+		this.entity = entity;
+	}
+
+	@Override
+	public void undo() {
+		canvas.removeEntity(entity);
+		canvas.redrawRegion(entity.getBounds());
+	}
+
+	@Override
+	public void redo() {
+		canvas.restoreEntity(entity);
+		canvas.redrawRegion(entity.getBounds());
+	}
+}
@@ -0,0 +1,323 @@
+package gui;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import utilities.FileUtilities;
+
+/**
+ * Class <code>BackgroundLayer</code> represents an image that has been
+ * opened as the background of a <code>PaintCanvas</code>. The image is
+ * never decoded in full. Instead, a preview that is subsampled down to
+ * the size of the canvas is read when the layer is opened, and when the
+ * layer is painted at a scale that needs more detail than the preview
+ * has, the visible tiles are read at the resolution that is needed on a
+ * background thread and drawn over the preview as they arrive. The
+ * canvas paints the layer at the scale that fits it, which the preview
+ * already covers, so tiles are only read when the layer is painted
+ * larger than that, such as by a view that zooms in on it. The layer is
+ * painted under the canvas image both on screen and when the canvas is
+ * saved.
+ *
+ * Layers are created with a <code>Loader</code>, which reads the
+ * preview off of the event dispatch thread and reports its progress
+ * through the usual <code>SwingWorker</code> progress property.
+ *
+ * @version 0.1.2 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ * 		-- full-resolution tiles are no longer read, since the canvas
+ * 		always paints the layer at a scale the preview already covers
+ * 		-- tiles are read again when the layer is painted at a larger
+ * 		scale than the canvas paints it at
+ */
+public class BackgroundLayer {
+	/**
+	 * The width and height, in pixels of the decoded tile, of the tiles
+	 * that are read when more detail than the preview is needed
+	 */
+	public static final int TILE_SIZE = 512;
+
+	// the most tiles that are kept in memory at once
+	private static final int MAX_TILES = 32;
+
+	// the file the image is read from
+	private File imageFile;
+
+	// the size of the full image
+	private int imageWidth, imageHeight;
+
+	// the image read at the size of the canvas
+	private BufferedImage preview;
+
+	// how many image pixels each preview pixel covers in each direction
+	private int previewSubsampling;
+
+	// the tiles that have been read, least recently used first
+	private LinkedHashMap<Long, BufferedImage> tiles;
+
+	// the tiles that are waiting to be read
+	private HashSet<Long> pendingTiles;
+
+	// the thread that reads tiles in the background
+	private ExecutorService tileLoader;
+
+	// the component to repaint when a tile arrives
+	private JComponent owner;
+
+	// creates a layer from an image whose preview has been read
+	private BackgroundLayer(File imageFile, Dimension imageSize, BufferedImage preview,
+			int previewSubsampling, JComponent owner) {
+		this.imageFile = imageFile;
+		this.imageWidth = imageSize.width;
+		this.imageHeight = imageSize.height;
+		this.preview = preview;
+		this.previewSubsampling = previewSubsampling;
+		this.owner = owner;
+		tiles = new LinkedHashMap<Long, BufferedImage>(MAX_TILES, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+				return size() > MAX_TILES;
+			}
+		};
+		pendingTiles = new HashSet<Long>();
+		tileLoader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "background tile loader");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Gets the width of the full image
+	 * @return the width of the image in pixels
+	 */
+	public int getImageWidth() {
+		return imageWidth;
+	}
+
+	/**
+	 * Gets the height of the full image
+	 * @return the height of the image in pixels
+	 */
+	public int getImageHeight() {
+		return imageHeight;
+	}
+
+	/**
+	 * Gets the largest scale, no larger than 1, at which the whole image
+	 * fits in an area of the given size
+	 * @param width the width of the area
+	 * @param height the height of the area
+	 * @return the scale that fits the image in the area
+	 */
+	public double getFitScale(int width, int height) {
+		double scale = Math.min((double) width / imageWidth, (double) height / imageHeight);
+		return Math.min(1, scale);
+	}
+
+	/**
+	 * Paints this layer with its upper-left corner at the origin, with
+	 * every image pixel covering <code>scale</code> pixels of the
+	 * graphics. The preview is always painted. When the scale needs at
+	 * least twice the detail that the preview has, the tiles inside the
+	 * clip are painted over it, and those that haven't been read yet are
+	 * queued to be read.
+	 * @param g the graphics to paint the layer with
+	 * @param scale the size of an image pixel on the graphics
+	 */
+	public void paint(Graphics2D g, double scale) {
+		int drawnWidth = (int) Math.round(imageWidth * scale);
+		int drawnHeight = (int) Math.round(imageHeight * scale);
+		g.drawImage(preview, 0, 0, drawnWidth, drawnHeight, null);
+		if (scale * previewSubsampling < 2) {
+			return;
+		}
+		int subsampling = Math.max(1, (int) Math.floor(1 / scale));
+		int span = TILE_SIZE * subsampling; // image pixels covered by a tile
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) {
+			clip = new Rectangle(0, 0, drawnWidth, drawnHeight);
+		}
+		int firstCol = Math.max(0, (int) Math.floor(clip.x / scale / span));
+		int firstRow = Math.max(0, (int) Math.floor(clip.y / scale / span));
+		int lastCol = Math.min((imageWidth - 1) / span, (int) ((clip.x + clip.width) / scale / span));
+		int lastRow = Math.min((imageHeight - 1) / span, (int) ((clip.y + clip.height) / scale / span));
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int col = firstCol; col <= lastCol; col++) {
+				Long key = tileKey(subsampling, col, row);
+				Rectangle region = new Rectangle(col * span, row * span,
+						Math.min(span, imageWidth - col * span), Math.min(span, imageHeight - row * span));
+				Rectangle destination = toCanvas(region, scale);
+				BufferedImage tile = tiles.get(key);
+				if (tile != null) {
+					g.drawImage(tile, destination.x, destination.y,
+							destination.width, destination.height, null);
+				} else if (!pendingTiles.contains(key)) {
+					requestTile(key, region, subsampling, destination);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops reading tiles and lets go of every image this layer holds.
+	 * The layer should not be painted after it has been disposed.
+	 */
+	public void dispose() {
+		tileLoader.shutdownNow();
+		tiles.clear();
+		pendingTiles.clear();
+		preview = null;
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// queues the given region of the image to be read in the
+	// background, repainting where it is drawn once it has been read
+	private void requestTile(final Long key, final Rectangle region, final int subsampling,
+			final Rectangle destination) {
+		pendingTiles.add(key);
+		tileLoader.execute(new Runnable() {
+			@Override
+			public void run() {
+				BufferedImage read = null;
+				try {
+					read = FileUtilities.readImage(imageFile, region, subsampling, null);
+				} catch (IOException ex) {
+					System.err.println("a tile of the background could not be read");
+				}
+				final BufferedImage tile = read;
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						pendingTiles.remove(key);
+						if (tile != null && preview != null) {
+							tiles.put(key, tile);
+							owner.repaint(destination);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	// gets where the given region of the image is drawn at the given
+	// scale
+	private static Rectangle toCanvas(Rectangle region, double scale) {
+		int left = (int) Math.floor(region.x * scale);
+		int top = (int) Math.floor(region.y * scale);
+		int right = (int) Math.ceil((region.x + region.width) * scale);
+		int bottom = (int) Math.ceil((region.y + region.height) * scale);
+		return new Rectangle(left, top, right - left, bottom - top);
+	}
+
+	// packs the subsampling, column and row of a tile into a key
+	private static Long tileKey(int subsampling, int col, int row) {
+		return ((long) subsampling << 48) | ((long) col << 24) | row;
+	}
+
+	/****************************************************************
+	 * HELPER CLASSES
+	 ***************************************************************/
+
+	/**
+	 * The "loader" reads the size of an image and a preview of it that
+	 * fits in a given area, then creates the layer for it. The progress
+	 * of the read is reported from 0 to 100 through the progress
+	 * property.
+	 */
+	public static class Loader extends SwingWorker<BackgroundLayer, Void>
+			implements IIOReadProgressListener {
+		private File imageFile;
+		private int maxWidth, maxHeight;
+		private JComponent owner;
+
+		/**
+		 * Constructs a loader for the given image whose preview fits in
+		 * the given area
+		 * @param imageFile the image to load
+		 * @param maxWidth the largest width the preview can have
+		 * @param maxHeight the largest height the preview can have
+		 * @param owner the component that paints the layer
+		 */
+		public Loader(File imageFile, int maxWidth, int maxHeight, JComponent owner) {
+			this.imageFile = imageFile;
+			this.maxWidth = Math.max(1, maxWidth);
+			this.maxHeight = Math.max(1, maxHeight);
+			this.owner = owner;
+		}
+
+		@Override
+		protected BackgroundLayer doInBackground() throws IOException {
+			Dimension size = FileUtilities.readImageSize(imageFile);
+			int subsampling = (int) Math.max(
+					Math.ceil((double) size.width / maxWidth),
+					Math.ceil((double) size.height / maxHeight));
+			subsampling = Math.max(1, subsampling);
+			BufferedImage preview = FileUtilities.readImage(imageFile, null, subsampling, this);
+			return new BackgroundLayer(imageFile, size, preview, subsampling, owner);
+		}
+
+		@Override
+		public void imageProgress(ImageReader source, float percentageDone) {
+			setProgress(Math.max(0, Math.min(100, (int) percentageDone)));
+		}
+
+		@Override
+		public void imageComplete(ImageReader source) {
+			setProgress(100);
+		}
+
+		@Override
+		public void imageStarted(ImageReader source, int imageIndex) {}
+
+		@Override
+		public void sequenceStarted(ImageReader source, int minIndex) {}
+
+		@Override
+		public void sequenceComplete(ImageReader source) {}
+
+		@Override
+		public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {}
+
+		@Override
+		public void thumbnailProgress(ImageReader source, float percentageDone) {}
+
+		@Override
+		public void thumbnailComplete(ImageReader source) {}
+
+		@Override
+		public void readAborted(ImageReader source) {}
+	}
+}
@@ -0,0 +1,467 @@
+package gui;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import shapes.AbstractRectangle;
+import shapes.CanvasEntity;
+import shapes.Ellipse;
+import shapes.Line;
+import shapes.StylePalette;
+import structures.EntityScene;
+import structures.ShapeStore;
+
+/**
+ * Class <code>BatchRenderer</code> paints entities in order the way
+ * calling <code>paintShape</code> on each of them would, but with as
+ * few changes to the graphics as it can. Entities that are drawn with
+ * the same brush and color and are either all filled or all outlined
+ * are painted as a group, so the graphics only has its stroke and
+ * color set, and its pipeline checked, once for the whole group
+ * instead of once for every entity. Straight segments in a group are
+ * painted together as one path.
+ *
+ * An entity joins the group of an earlier entity when every entity it
+ * would be painted ahead of has bounds that it doesn't touch, so the
+ * groups never change which entity ends up on top. Painting a group
+ * only gives the same pixels as painting its members one at a time
+ * when the color is opaque and nothing is blended at the edges, so
+ * groups are only made when anti-aliasing is off, the composite is
+ * plain source-over, and the color has no transparency. Anything else,
+ * including patches and translucent shapes, is painted on its own.
+ *
+ * When the renderer is given the image that it paints on, filled
+ * rectangles and ellipses, and patches on premultiplied images, are
+ * written straight into its pixels by a <code>DirectRasterizer</code>
+ * whenever the graphics allows it. Only entities that come out exactly
+ * as Java2D would paint them are written that way, so the image looks
+ * the same however it was painted. Lines drawn with round brushes are
+ * only written that way too, with or without anti-aliasing, when the
+ * rasterizer has been asked to draw lines, since they only come out
+ * close to what Java2D would draw.
+ *
+ * A scene is painted through its <code>Painter</code>, so the runs of
+ * rectangles and ellipses that it keeps in a <code>ShapeStore</code>
+ * are painted by a loop down the columns of the store, without a view
+ * being made for any of them.
+ *
+ * @version 0.1.9 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ * 		-- Filled rectangles and ellipses can be written straight into
+ * 		the pixels of the target image
+ * 		-- Lines drawn with round brushes can be drawn straight into the
+ * 		target image, and single entities can be painted on their own
+ * 		-- Lines are painted through Java2D again so that every way of
+ * 		painting the canvas gives the same pixels
+ * 		-- Patches are copied straight into premultiplied target images
+ * 		-- Only entities from the same palette are grouped, since style
+ * 		ids from different palettes can't be compared
+ * 		-- The target image can be a piece of the canvas
+ * 		-- Entities are grouped by their style ids alone, which tell
+ * 		their palettes apart
+ * 		-- Scenes are painted with their stored shapes read straight
+ * 		from the columns, and can be painted within a region
+ * 		-- Lines can be drawn straight into the target image again when
+ * 		the rasterizer is asked to draw them
+ */
+public class BatchRenderer {
+	// the most entities that are grouped together at once
+	private static final int WINDOW_SIZE = 256;
+
+	// the most entities that a group may be painted ahead of
+	private static final int MAX_SKIPPED = 32;
+
+	// the key of entities that are always painted on their own
+	private static final int SOLO = -1;
+
+	// the entities waiting to be painted, their group keys and bounds,
+	// and whether they have been painted yet
+	private CanvasEntity[] window;
+	private int[] keys;
+	private int[] minX, minY, maxX, maxY;
+	private boolean[] painted;
+	private int count;
+
+	// the entities the current group is being painted ahead of, and the
+	// members of the current group
+	private int[] skipped;
+	private int[] members;
+
+	// the path that the straight segments of a group are gathered into
+	private Path2D.Float path;
+
+	// whether entities may be grouped with the current graphics
+	private boolean grouping;
+
+	// fills shapes straight into the target image, and whether it may
+	// with the current graphics
+	private DirectRasterizer raster;
+	private boolean direct;
+
+	// the amount of times the last paint set the brush and color
+	private int styleChanges;
+
+	// walks scenes for the renderer, and fills their stored shapes
+	// straight into the target image
+	private ScenePainter scenePainter;
+	private ShapeStore.Filler filler;
+
+	/**
+	 * Constructs a new <code>BatchRenderer</code>. A renderer keeps its
+	 * buffers between calls and should only be used by one thread.
+	 */
+	public BatchRenderer() {
+		window = new CanvasEntity[WINDOW_SIZE];
+		keys = new int[WINDOW_SIZE];
+		minX = new int[WINDOW_SIZE];
+		minY = new int[WINDOW_SIZE];
+		maxX = new int[WINDOW_SIZE];
+		maxY = new int[WINDOW_SIZE];
+		painted = new boolean[WINDOW_SIZE];
+		skipped = new int[MAX_SKIPPED];
+		members = new int[WINDOW_SIZE];
+		path = new Path2D.Float(Path2D.WIND_NON_ZERO, 1024);
+		raster = new DirectRasterizer();
+		scenePainter = new ScenePainter();
+		filler = new ShapeStore.Filler() {
+			@Override
+			public boolean fill(int x, int y, int width, int height, boolean ellipse, Color color,
+					Stroke brush) {
+				return raster.fill(x, y, width, height, ellipse, color, brush);
+			}
+		};
+	}
+
+	/**
+	 * Sets the image that the graphics given to paint draw on, so that
+	 * filled shapes can be written straight into its pixels
+	 * @param image the image painted on, or null if there is none
+	 * @return true if shapes can be filled directly into the image
+	 */
+	public boolean setTarget(BufferedImage image) {
+		return raster.setTarget(image);
+	}
+
+	/**
+	 * Sets the image that the graphics given to paint draw on when the
+	 * image is the piece of the canvas whose upper-left corner is at the
+	 * given point, and the graphics are translated to match
+	 * @param image the image painted on, or null if there is none
+	 * @param originX the x-coordinate of the piece on the canvas
+	 * @param originY the y-coordinate of the piece on the canvas
+	 * @return true if shapes can be filled directly into the image
+	 */
+	public boolean setTarget(BufferedImage image, int originX, int originY) {
+		return raster.setTarget(image, originX, originY);
+	}
+
+	/**
+	 * Sets whether lines drawn with round brushes are written straight
+	 * into the target image, which is faster but only close to what
+	 * Java2D would draw. It starts out as the <code>paint.lines</code>
+	 * system property asks.
+	 * @param drawsLines true to draw lines directly, false to leave
+	 * them to Java2D
+	 */
+	public void setDrawingLines(boolean drawsLines) {
+		raster.setDrawingLines(drawsLines);
+	}
+
+	/**
+	 * Paints every entity in the scene in order
+	 * @param g the graphics to paint with
+	 * @param scene the entities to paint
+	 */
+	public void paint(Graphics2D g, EntityScene scene) {
+		paint(g, scene, null);
+	}
+
+	/**
+	 * Paints every entity in the scene whose bounds overlap the given
+	 * region in order
+	 * @param g the graphics to paint with
+	 * @param scene the entities to paint
+	 * @param region the region to paint, or null to paint the whole
+	 * scene
+	 */
+	public void paint(Graphics2D g, EntityScene scene, Rectangle region) {
+		begin(g);
+		scenePainter.graphics = g;
+		scenePainter.region = region;
+		scene.paint(region, scenePainter);
+		scenePainter.graphics = null;
+		scenePainter.region = null;
+		flush(g);
+	}
+
+	/**
+	 * Paints every entity in the list in order
+	 * @param g the graphics to paint with
+	 * @param entities the entities to paint
+	 */
+	public void paint(Graphics2D g, List<? extends CanvasEntity> entities) {
+		begin(g);
+		for (int i = 0; i < entities.size(); i++) {
+			add(g, entities.get(i));
+		}
+		flush(g);
+	}
+
+	/**
+	 * Paints a single entity, straight into the target image if it can
+	 * be, so that it looks the same as when it is painted with the rest
+	 * of the scene
+	 * @param g the graphics to paint with
+	 * @param entity the entity to paint
+	 */
+	public void paint(Graphics2D g, CanvasEntity entity) {
+		begin(g);
+		add(g, entity);
+		flush(g);
+	}
+
+	/**
+	 * Gets the amount of times the last paint set the brush and color of
+	 * the graphics, which is the amount of entities painted when none of
+	 * them could be grouped
+	 * @return the amount of groups and single entities last painted
+	 */
+	public int getStyleChanges() {
+		return styleChanges;
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// checks whether the graphics paints a group the same way as its
+	// members one at a time
+	private void begin(Graphics2D g) {
+		Composite composite = g.getComposite();
+		grouping = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING) != RenderingHints.VALUE_ANTIALIAS_ON
+				&& composite instanceof AlphaComposite
+				&& ((AlphaComposite) composite).getRule() == AlphaComposite.SRC_OVER
+				&& ((AlphaComposite) composite).getAlpha() == 1f;
+		direct = raster.accepts(g);
+		styleChanges = 0;
+		count = 0;
+	}
+
+	// adds an entity to the window, painting the window once it is full
+	private void add(Graphics2D g, CanvasEntity entity) {
+		if (!grouping) {
+			if (!paintDirect(entity)) {
+				entity.paintShape(g);
+			}
+			styleChanges++;
+			return;
+		}
+		if (count == WINDOW_SIZE) {
+			flush(g);
+		}
+		Rectangle bounds = entity.getBounds();
+		window[count] = entity;
+		keys[count] = getKey(entity);
+		minX[count] = bounds.x;
+		minY[count] = bounds.y;
+		maxX[count] = bounds.x + bounds.width;
+		maxY[count] = bounds.y + bounds.height;
+		painted[count] = false;
+		count++;
+	}
+
+	// paints every entity in the window. The first entity that hasn't
+	// been painted starts a group, and each later entity with the same
+	// key joins it unless it touches an entity that the group has
+	// skipped over, since joining would paint it ahead of that entity.
+	private void flush(Graphics2D g) {
+		for (int head = 0; head < count; head++) {
+			if (painted[head]) {
+				continue;
+			}
+			painted[head] = true;
+			int key = keys[head];
+			int size = 1;
+			members[0] = head;
+			if (key != SOLO) {
+				int skips = 0;
+				for (int i = head + 1; i < count; i++) {
+					if (painted[i]) {
+						continue;
+					}
+					if (keys[i] == key && !touchesSkipped(i, skips)) {
+						painted[i] = true;
+						members[size++] = i;
+					} else if (skips == MAX_SKIPPED) {
+						break;
+					} else {
+						skipped[skips++] = i;
+					}
+				}
+			}
+			paintGroup(g, key, size);
+		}
+		for (int i = 0; i < count; i++) {
+			window[i] = null;
+		}
+		count = 0;
+	}
+
+	// checks whether an entity's bounds touch any of the skipped entities
+	private boolean touchesSkipped(int entity, int skips) {
+		for (int i = 0; i < skips; i++) {
+			int other = skipped[i];
+			if (minX[entity] < maxX[other] && minX[other] < maxX[entity]
+					&& minY[entity] < maxY[other] && minY[other] < maxY[entity]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// paints the members of a group, or the entity on its own if the
+	// group only has one member. The brush and color are only set once
+	// for the whole group. Straight segments drawn with a wide brush are
+	// gathered into one path, but anything longer is painted with its
+	// own call, since Java2D strokes one path of many polylines far
+	// slower than the polylines one at a time.
+	private void paintGroup(Graphics2D g, int key, int size) {
+		CanvasEntity first = window[members[0]];
+		styleChanges++;
+		if (size == 1) {
+			if (!paintDirect(first)) {
+				first.paintShape(g);
+			}
+			return;
+		}
+		Stroke brush = first.getBrushType();
+		boolean gather = !isThin((BasicStroke) brush);
+		g.setStroke(brush);
+		g.setColor(first.getColor());
+		path.reset();
+		int segments = 0;
+		for (int i = 0; i < size; i++) {
+			CanvasEntity member = window[members[i]];
+			if (paintDirect(member)) {
+				continue;
+			}
+			if (gather && member instanceof Line && ((Line) member).getSize() == 2) {
+				Line line = (Line) member;
+				path.moveTo(line.getXCoordinates()[0], line.getYCoordinates()[0]);
+				path.lineTo(line.getXCoordinates()[1], line.getYCoordinates()[1]);
+				segments++;
+			} else {
+				paintMember(g, member);
+			}
+		}
+		if (segments > 0) {
+			g.draw(path);
+		}
+	}
+
+	// paints an entity straight into the target image if the graphics
+	// allows it and the rasterizer can paint that kind of entity,
+	// including the views of stored shapes
+	private boolean paintDirect(CanvasEntity entity) {
+		return direct && (raster.fill(entity) || raster.copy(entity)
+				|| ShapeStore.fill(entity, filler) || raster.draw(entity));
+	}
+
+	// paints an entity with the brush and color already set, the same
+	// way that its paint shape method would
+	private static void paintMember(Graphics2D g, CanvasEntity entity) {
+		if (entity instanceof Line) {
+			Line line = (Line) entity;
+			g.drawPolyline(line.getXCoordinates(), line.getYCoordinates(), line.getSize());
+			return;
+		}
+		AbstractRectangle shape = (AbstractRectangle) entity;
+		int x = shape.getX();
+		int y = shape.getY();
+		if (entity instanceof Ellipse) {
+			if (shape.isFilled()) {
+				g.fillOval(x, y, shape.getWidth(), shape.getHeight());
+			} else {
+				g.drawOval(x, y, shape.getWidth(), shape.getHeight());
+			}
+		} else if (shape.isFilled()) {
+			g.fillRect(x, y, shape.getWidth(), shape.getHeight());
+		} else {
+			g.drawRect(x, y, shape.getWidth(), shape.getHeight());
+		}
+	}
+
+	// gets the key that an entity is grouped by, which is its style id,
+	// which tells its palette apart as well, and whether it is filled.
+	// Java2D fills ovals differently under thin and wide brushes, so
+	// even filled shapes are grouped by their brush. Entities that can't
+	// be painted as part of a path get no key.
+	private static int getKey(CanvasEntity entity) {
+		int style = entity.getStyleId();
+		StylePalette palette = StylePalette.forStyle(style);
+		Color color = palette.getStyleColor(style);
+		Stroke stroke = palette.getStyleStroke(style);
+		if (color == null || color.getAlpha() != 255 || !(stroke instanceof BasicStroke)) {
+			return SOLO;
+		}
+		if (entity instanceof shapes.Rectangle || entity instanceof Ellipse) {
+			AbstractRectangle shape = (AbstractRectangle) entity;
+			if (shape.getWidth() <= 0 || shape.getHeight() <= 0) {
+				return SOLO; // degenerate shapes are drawn as lines or not at all
+			}
+			if (shape.isFilled()) {
+				return style << 1 | 1;
+			}
+		} else if (!(entity instanceof Line)) {
+			return SOLO;
+		}
+		return style << 1;
+	}
+
+	// checks whether a brush is thin enough that Java2D draws polylines
+	// with it using its own line loops instead of stroking a path, which
+	// lights different pixels than drawing the same segments as a path
+	private static boolean isThin(BasicStroke stroke) {
+		return stroke.getLineWidth() <= 1f;
+	}
+
+	/****************************************************************
+	 * HELPER CLASSES
+	 ****************************************************************/
+
+	// hands the entities of a scene to the window, and paints its runs
+	// of stored shapes from the columns of the store once the window is
+	// painted, since the window ahead of them may not be reordered past
+	// them
+	private class ScenePainter implements EntityScene.Painter {
+		private Graphics2D graphics;
+		private Rectangle region;
+
+		@Override
+		public void paintEntity(CanvasEntity entity) {
+			add(graphics, entity);
+		}
+
+		@Override
+		public void paintShapes(ShapeStore shapes, int from, int to) {
+			flush(graphics);
+			styleChanges += shapes.paint(graphics, from, to, region, direct ? filler : null);
+		}
+	}
+}
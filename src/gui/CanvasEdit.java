@@ -0,0 +1,31 @@
+package gui;
+
+/**
+ * Defines the behavior of a change that was made to a
+ * <code>PaintCanvas</code> and that can be undone and redone. Every
+ * action the user takes on the canvas, like drawing, moving, or
+ * deleting entities, is recorded as one edit so that undo reverses
+ * the whole action at once.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public interface CanvasEdit {
+	/**
+	 * Reverses this edit, putting the canvas back the way it was
+	 * before the edit was made
+	 */
+	public void undo();
+
+	/**
+	 * Makes this edit again after it has been undone
+	 */
+	public void redo();
+}
@@ -0,0 +1,1024 @@
+package gui;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+import shapes.AbstractRectangle;
+import shapes.CanvasEntity;
+import shapes.Ellipse;
+import shapes.Line;
+import shapes.RasterPatch;
+import utilities.PixelKernels;
+
+/**
+ * Class <code>DirectRasterizer</code> paints filled rectangles and
+ * ellipses by writing their pixels straight into the int array behind
+ * an image, skipping the Java2D pipeline. Rectangles are filled row by
+ * row. Ellipses are cut into the same line segments that Java2D's span
+ * iterator makes from the curves of an <code>Ellipse2D.Float</code>,
+ * with the same float arithmetic, and filled one scanline span at a
+ * time, so the pixels come out exactly as <code>fillOval</code> would
+ * paint them. Patches are copied onto images of premultiplied pixels
+ * with the same products Java2D uses, so they too come out the same
+ * as <code>drawImage</code> would paint them.
+ *
+ * Only the cases that can be matched exactly are handled: no
+ * anti-aliasing, an identity transform, a rectangular clip, plain
+ * source-over with an opaque color, and an image of int ARGB pixels.
+ * Java2D fills ovals with a different rasterizer when the brush is a
+ * thin one, so ellipses are only handled under brushes wider than a
+ * pixel. The fill methods report when they can't handle an entity so
+ * that the caller can paint it through Java2D instead. Spans are filled
+ * and copied with the shared pixel kernels.
+ *
+ * Lines drawn with round brushes can be drawn directly too, with or
+ * without anti-aliasing, but only when that is asked for with the
+ * <code>paint.lines</code> system property set to <code>direct</code>
+ * or with <code>setDrawingLines</code>. Those lines are close to but
+ * not exactly what Java2D would draw, so they are left to Java2D
+ * unless the speed is worth more than matching it.
+ *
+ * Getting at the pixels of an image keeps Java2D from caching it in
+ * video memory, which the canvas image never is anyway since it is
+ * drawn on as often as it is shown.
+ *
+ * @version 0.1.6 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ * 		-- smooth lines are blended with the shared pixel kernels
+ * 		-- lines are left to Java2D again, since they could only be
+ * 		drawn close to the way it draws them and not exactly
+ * 		-- spans are filled with the pixel kernels, and patches are
+ * 		copied onto premultiplied images with them
+ * 		-- the target can be a piece of the canvas that starts at any
+ * 		point, painted through a graphics translated to match
+ * 		-- shapes can be filled from their location, size and style, so
+ * 		shapes kept in columns can be filled without an entity
+ * 		-- lines can be drawn directly again when that is asked for,
+ * 		since they are faster that way even if they aren't exact
+ */
+public class DirectRasterizer {
+	// the largest error in Java2D's fixed point stepping along an edge
+	private static final int ERROR_STEP = 0x7FFFFFFF;
+
+	// the flatness that curves are cut down to, and the deepest they
+	// are cut, the same as in Java2D's span iterator
+	private static final float MAX_FLAT_SQUARED = 1f;
+	private static final int MAX_SUBDIVISIONS = 10;
+
+	// the control points of the four curves of an ellipse, as fractions
+	// of its bounds, the same as in Java2D's ellipse iterator
+	private static final double CONTROL = 0.5522847498307933;
+	private static final double PCV = 0.5 + CONTROL * 0.5;
+	private static final double NCV = 0.5 - CONTROL * 0.5;
+	private static final double[][] CURVES = {
+		{1.0, PCV, PCV, 1.0, 0.5, 1.0},
+		{NCV, 1.0, 0.0, PCV, 0.0, 0.5},
+		{0.0, NCV, NCV, 0.0, 0.5, 0.0},
+		{PCV, 0.0, 1.0, NCV, 1.0, 0.5}
+	};
+
+	// the pixels of the target image, how they are laid out, and
+	// whether they are premultiplied. The offset is that of the point
+	// at the origin of the canvas, which is outside of the image when
+	// the image is a piece of the canvas.
+	private int[] pixels;
+	private int offset, stride;
+	private int width, height;
+	private boolean premultiplied;
+
+	// the point of the canvas that the upper-left corner of the target
+	// image shows
+	private int originX, originY;
+
+	// the loops that fill and blend spans of pixels
+	private PixelKernels kernels;
+
+	// the region that may be painted, set by accepts
+	private int clipX0, clipY0, clipX1, clipY1;
+
+	// the edges of the ellipse being filled, with the row each one
+	// starts at and the row after its last, the pixel it crosses its
+	// first row at with its error, how far it moves and the error it
+	// gains each row, and which way it winds
+	private int[] startRows, endRows, crossings, errors, steps, stepErrors, windings;
+	private int edgeCount;
+
+	// the first row any edge crosses and the row after the last
+	private int firstRow, lastRow;
+
+	// the amount of edges that cross each row and where the first two
+	// of them cross it
+	private int[] rowCounts, rowFirst, rowSecond;
+
+	// the crossings of the ellipse's edges with each row, packed with
+	// the row, column and winding so that sorting puts them in order
+	private long[] spans;
+
+	// the current pen position and the amount it was moved to land on
+	// a quarter pixel, while the ellipse is being cut into edges
+	private float penX, penY, adjustX, adjustY;
+
+	// whether lines are drawn directly, and whether the accepted
+	// graphics anti-aliases
+	private boolean drawsLines;
+	private boolean smooth;
+
+	// the brush width the disc stamped at each point of a polyline was
+	// made for, how many rows it reaches above and below the point, and
+	// the first and last column it covers in each of its rows
+	private float discWidth;
+	private int discRadius;
+	private int[] discLeft, discRight;
+
+	// the corners of the disc while it is being cut from its curves
+	private double[] corners;
+	private int cornerCount;
+
+	// the coverage of each pixel in the bounds of a smooth polyline,
+	// the bounds, and the columns each of their rows covers
+	private byte[] coverage;
+	private int coverX, coverY, coverWidth, coverHeight;
+	private int[] coverLeft, coverRight;
+
+	/**
+	 * Constructs a new <code>DirectRasterizer</code> with no image to
+	 * paint into
+	 */
+	public DirectRasterizer() {
+		startRows = new int[64];
+		endRows = new int[64];
+		crossings = new int[64];
+		errors = new int[64];
+		steps = new int[64];
+		stepErrors = new int[64];
+		windings = new int[64];
+		spans = new long[256];
+		rowCounts = new int[256];
+		rowFirst = new int[256];
+		rowSecond = new int[256];
+		discLeft = new int[0];
+		discRight = new int[0];
+		corners = new double[64];
+		coverage = new byte[4096];
+		coverLeft = new int[64];
+		coverRight = new int[64];
+		kernels = PixelKernels.getInstance();
+		drawsLines = "direct".equals(System.getProperty("paint.lines"));
+	}
+
+	/**
+	 * Sets whether lines drawn with round brushes are drawn directly,
+	 * which is faster but not exactly what Java2D would draw. It starts
+	 * out as the <code>paint.lines</code> system property asks.
+	 * @param drawsLines true to draw lines directly, false to leave
+	 * them to Java2D
+	 */
+	public void setDrawingLines(boolean drawsLines) {
+		this.drawsLines = drawsLines;
+	}
+
+	/**
+	 * Gets whether lines drawn with round brushes are drawn directly
+	 * @return true if lines are drawn directly, false otherwise
+	 */
+	public boolean isDrawingLines() {
+		return drawsLines;
+	}
+
+	/**
+	 * Sets the image that entities are painted into
+	 * @param image the image to paint into, or null for none
+	 * @return true if the pixels of the image can be written directly,
+	 * false if every entity will have to go through Java2D
+	 */
+	public boolean setTarget(BufferedImage image) {
+		return setTarget(image, 0, 0);
+	}
+
+	/**
+	 * Sets the image that entities are painted into, which holds the
+	 * piece of the canvas whose upper-left corner is at the given point.
+	 * The graphics painting into it must be translated by the opposite
+	 * of that point.
+	 * @param image the image to paint into, or null for none
+	 * @param originX the x-coordinate of the piece on the canvas
+	 * @param originY the y-coordinate of the piece on the canvas
+	 * @return true if the pixels of the image can be written directly,
+	 * false if every entity will have to go through Java2D
+	 */
+	public boolean setTarget(BufferedImage image, int originX, int originY) {
+		pixels = null;
+		if (image == null || (image.getType() != BufferedImage.TYPE_INT_ARGB
+				&& image.getType() != BufferedImage.TYPE_INT_ARGB_PRE)) {
+			return false;
+		}
+		WritableRaster raster = image.getRaster();
+		if (!(raster.getDataBuffer() instanceof DataBufferInt)
+				|| !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+			return false;
+		}
+		stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+		offset = raster.getDataBuffer().getOffset()
+				- raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX()
+				- originY * stride - originX;
+		this.originX = originX;
+		this.originY = originY;
+		width = image.getWidth();
+		height = image.getHeight();
+		premultiplied = image.isAlphaPremultiplied();
+		pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+		return true;
+	}
+
+	/**
+	 * Checks whether the given graphics, which must draw into the target
+	 * image, paints in a way that this rasterizer can match, and takes
+	 * its clip if it does. Graphics that anti-aliases is only accepted
+	 * when lines are drawn directly, and then only lines are painted.
+	 * @param g the graphics that would otherwise be used
+	 * @return true if entities may be painted directly, false otherwise
+	 */
+	public boolean accepts(Graphics2D g) {
+		AffineTransform transform = g.getTransform();
+		if (pixels == null || (transform.getType() & ~AffineTransform.TYPE_TRANSLATION) != 0
+				|| transform.getTranslateX() != -originX || transform.getTranslateY() != -originY
+				|| g.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL) == RenderingHints.VALUE_STROKE_PURE) {
+			return false;
+		}
+		smooth = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING) == RenderingHints.VALUE_ANTIALIAS_ON;
+		if (smooth && !drawsLines) {
+			return false;
+		}
+		Composite composite = g.getComposite();
+		if (!(composite instanceof AlphaComposite)
+				|| ((AlphaComposite) composite).getRule() != AlphaComposite.SRC_OVER
+				|| ((AlphaComposite) composite).getAlpha() != 1f) {
+			return false;
+		}
+		Shape clip = g.getClip();
+		if (clip != null && !(clip instanceof Rectangle)) {
+			return false;
+		}
+		Rectangle image = new Rectangle(originX, originY, width, height);
+		Rectangle bounds = clip == null ? image : ((Rectangle) clip).intersection(image);
+		clipX0 = bounds.x;
+		clipY0 = bounds.y;
+		clipX1 = Math.max(bounds.x, bounds.x + bounds.width);
+		clipY1 = Math.max(bounds.y, bounds.y + bounds.height);
+		return true;
+	}
+
+	/**
+	 * Fills the given entity directly into the target image if it is a
+	 * filled rectangle or ellipse that can be painted exactly. The
+	 * graphics must have been checked with <code>accepts</code>.
+	 * @param entity the entity to fill
+	 * @return true if the entity was filled, false if it must be painted
+	 * through Java2D instead
+	 */
+	public boolean fill(CanvasEntity entity) {
+		if (!(entity instanceof shapes.Rectangle || entity instanceof Ellipse)) {
+			return false;
+		}
+		AbstractRectangle shape = (AbstractRectangle) entity;
+		return shape.isFilled() && fill(shape.getX(), shape.getY(), shape.getWidth(),
+				shape.getHeight(), entity instanceof Ellipse, shape.getColor(), shape.getBrushType());
+	}
+
+	/**
+	 * Fills a filled rectangle or ellipse with the given color and
+	 * brush directly into the target image if it can be painted
+	 * exactly. The graphics must have been checked with
+	 * <code>accepts</code>.
+	 * @param x the x-coordinate of the upper-left corner
+	 * @param y the y-coordinate of the upper-left corner
+	 * @param width the width of the shape
+	 * @param height the height of the shape
+	 * @param ellipse whether the shape is an ellipse
+	 * @param color the color the shape is filled with
+	 * @param brush the brush the shape is painted with
+	 * @return true if the shape was filled, false if it must be painted
+	 * through Java2D instead
+	 */
+	public boolean fill(int x, int y, int width, int height, boolean ellipse, Color color,
+			Stroke brush) {
+		if (smooth || color == null || color.getAlpha() != 255 || width <= 0 || height <= 0) {
+			return false;
+		}
+		if (!ellipse) {
+			fillRect(x, y, width, height, color.getRGB());
+			return true;
+		}
+		if (!(brush instanceof BasicStroke) || ((BasicStroke) brush).getLineWidth() <= 1f) {
+			return false;
+		}
+		fillOval(x, y, width, height, color.getRGB());
+		return true;
+	}
+
+	/**
+	 * Copies the given entity directly into the target image if it is a
+	 * patch of plain ARGB pixels and the target image is premultiplied.
+	 * Patches replace the pixels under them, so this is the same as
+	 * drawing them with the source rule. The graphics must have been
+	 * checked with <code>accepts</code>.
+	 * @param entity the entity to copy
+	 * @return true if the entity was copied, false if it must be
+	 * painted through Java2D instead
+	 */
+	public boolean copy(CanvasEntity entity) {
+		if (smooth || !premultiplied || !(entity instanceof RasterPatch)) {
+			return false;
+		}
+		BufferedImage image = ((RasterPatch) entity).getPixels();
+		WritableRaster raster = image.getRaster();
+		if (image.getType() != BufferedImage.TYPE_INT_ARGB
+				|| !(raster.getDataBuffer() instanceof DataBufferInt)
+				|| !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+			return false;
+		}
+		Rectangle bounds = entity.getBounds();
+		int x0 = Math.max(bounds.x, clipX0);
+		int x1 = (int) Math.min((long) bounds.x + bounds.width, clipX1);
+		int y0 = Math.max(bounds.y, clipY0);
+		int y1 = (int) Math.min((long) bounds.y + bounds.height, clipY1);
+		int sourceStride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+		int sourceOffset = raster.getDataBuffer().getOffset()
+				- raster.getSampleModelTranslateY() * sourceStride - raster.getSampleModelTranslateX();
+		int[] source = ((DataBufferInt) raster.getDataBuffer()).getData();
+		for (int row = y0; row < y1 && x0 < x1; row++) {
+			kernels.copyPremultiplied(source, sourceOffset + (row - bounds.y) * sourceStride + x0 - bounds.x,
+					pixels, offset + row * stride + x0, x1 - x0);
+		}
+		return true;
+	}
+
+	/**
+	 * Fills a rectangle with the given opaque color, the same as
+	 * <code>fillRect</code>
+	 * @param x the x-coordinate of the upper-left corner
+	 * @param y the y-coordinate of the upper-left corner
+	 * @param width the width of the rectangle
+	 * @param height the height of the rectangle
+	 * @param argb the color to fill with
+	 */
+	public void fillRect(int x, int y, int width, int height, int argb) {
+		int x0 = Math.max(x, clipX0);
+		int x1 = (int) Math.min((long) x + width, clipX1);
+		int y0 = Math.max(y, clipY0);
+		int y1 = (int) Math.min((long) y + height, clipY1);
+		if (x0 >= x1) {
+			return;
+		}
+		for (int row = y0; row < y1; row++) {
+			int start = offset + row * stride;
+			kernels.fill(pixels, start + x0, x1 - x0, argb);
+		}
+	}
+
+	/**
+	 * Fills an ellipse with the given opaque color, the same as
+	 * <code>fillOval</code> under a wide brush
+	 * @param x the x-coordinate of the upper-left corner of its bounds
+	 * @param y the y-coordinate of the upper-left corner of its bounds
+	 * @param width the width of the ellipse
+	 * @param height the height of the ellipse
+	 * @param argb the color to fill with
+	 */
+	public void fillOval(int x, int y, int width, int height, int argb) {
+		edgeCount = 0;
+		firstRow = Integer.MAX_VALUE;
+		lastRow = Integer.MIN_VALUE;
+		double[] last = CURVES[3];
+		float startX = (float) (x + last[4] * width);
+		float startY = (float) (y + last[5] * height);
+		penX = snap(startX);
+		penY = snap(startY);
+		adjustX = penX - startX;
+		adjustY = penY - startY;
+		for (int i = 0; i < CURVES.length; i++) {
+			double[] curve = CURVES[i];
+			curveTo((float) (x + curve[0] * width), (float) (y + curve[1] * height),
+					(float) (x + curve[2] * width), (float) (y + curve[3] * height),
+					(float) (x + curve[4] * width), (float) (y + curve[5] * height));
+		}
+		fillEdges(argb);
+	}
+
+	/**
+	 * Draws the given entity directly into the target image if it is a
+	 * line drawn with a round brush and lines are drawn directly.
+	 * Without anti-aliasing the line must be opaque and wider than a
+	 * pixel, since Java2D draws thin lines with its own line loops. The
+	 * graphics must have been checked with <code>accepts</code>.
+	 * @param entity the entity to draw
+	 * @return true if the entity was drawn, false if it must be painted
+	 * through Java2D instead
+	 */
+	public boolean draw(CanvasEntity entity) {
+		if (!drawsLines || !(entity instanceof Line)) {
+			return false;
+		}
+		Line line = (Line) entity;
+		Color color = line.getColor();
+		Stroke brush = line.getBrushType();
+		if (color == null || !(brush instanceof BasicStroke)) {
+			return false;
+		}
+		BasicStroke stroke = (BasicStroke) brush;
+		if (stroke.getEndCap() != BasicStroke.CAP_ROUND || stroke.getLineJoin() != BasicStroke.JOIN_ROUND
+				|| stroke.getDashArray() != null || stroke.getLineWidth() <= 0f) {
+			return false;
+		}
+		if (smooth) {
+			drawSmoothPolyline(line.getXCoordinates(), line.getYCoordinates(), line.getSize(),
+					stroke.getLineWidth(), color.getRGB());
+			return true;
+		}
+		if (color.getAlpha() != 255 || stroke.getLineWidth() <= 1f) {
+			return false;
+		}
+		drawPolyline(line.getXCoordinates(), line.getYCoordinates(), line.getSize(),
+				stroke.getLineWidth(), color.getRGB());
+		return true;
+	}
+
+	/**
+	 * Draws a polyline with a round brush of the given width in an
+	 * opaque color, without anti-aliasing. A disc is stamped at every
+	 * point and the band between each pair of points is filled, lighting
+	 * the pixels whose centers fall within half the width of the line
+	 * after it is moved onto the quarter pixel Java2D normalizes it to.
+	 * The disc is cut from the same curves Java2D rounds a line with,
+	 * but Java2D turns its round ends and corners to follow the line,
+	 * so the odd pixel along the edge of an end or a corner is lit
+	 * differently than <code>drawPolyline</code> would light it.
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param count the amount of points
+	 * @param lineWidth the width of the brush
+	 * @param argb the color to draw with
+	 */
+	public void drawPolyline(int[] xs, int[] ys, int count, float lineWidth, int argb) {
+		if (count < 2) {
+			return;
+		}
+		if (discWidth != lineWidth || discLeft.length == 0) {
+			createDisc(lineWidth);
+		}
+		double radius = lineWidth / 2.0;
+		int lastX = xs[0];
+		int lastY = ys[0];
+		stampDisc(lastX, lastY, argb);
+		for (int i = 1; i < count; i++) {
+			int x = xs[i];
+			int y = ys[i];
+			if (x != lastX || y != lastY) {
+				fillBand(lastX, lastY, x, y, radius, argb);
+				stampDisc(x, y, argb);
+				lastX = x;
+				lastY = y;
+			}
+		}
+	}
+
+	/**
+	 * Draws a polyline with a round brush of the given width, blending
+	 * its edges by how much of each pixel the line covers. The coverage
+	 * of a pixel is worked out from the distance between its center and
+	 * the nearest segment of the line, and the pixels are only blended
+	 * once all of the segments are in, so the line is evenly colored
+	 * where its segments overlap. The result is close to, but not the
+	 * same as, Java2D's anti-aliasing.
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param count the amount of points
+	 * @param lineWidth the width of the brush
+	 * @param argb the color to draw with, which may be translucent
+	 */
+	public void drawSmoothPolyline(int[] xs, int[] ys, int count, float lineWidth, int argb) {
+		if (count < 2) {
+			return;
+		}
+		double reach = lineWidth / 2.0 + 0.5;
+		int minX = xs[0];
+		int minY = ys[0];
+		int maxX = minX;
+		int maxY = minY;
+		for (int i = 1; i < count; i++) {
+			minX = Math.min(minX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		int pad = (int) Math.ceil(reach);
+		coverX = Math.max(minX - pad, clipX0);
+		coverY = Math.max(minY - pad, clipY0);
+		coverWidth = Math.min(maxX + pad + 1, clipX1) - coverX;
+		coverHeight = Math.min(maxY + pad + 1, clipY1) - coverY;
+		if (coverWidth <= 0 || coverHeight <= 0) {
+			return;
+		}
+		if (coverage.length < coverWidth * coverHeight) {
+			coverage = new byte[Math.max(coverWidth * coverHeight, coverage.length * 2)];
+		}
+		if (coverLeft.length < coverHeight) {
+			coverLeft = new int[Math.max(coverHeight, coverLeft.length * 2)];
+			coverRight = new int[coverLeft.length];
+		}
+		Arrays.fill(coverLeft, 0, coverHeight, Integer.MAX_VALUE);
+		Arrays.fill(coverRight, 0, coverHeight, Integer.MIN_VALUE);
+		int lastX = xs[0];
+		int lastY = ys[0];
+		boolean moved = false;
+		for (int i = 1; i < count; i++) {
+			if (xs[i] != lastX || ys[i] != lastY) {
+				coverSegment(lastX, lastY, xs[i], ys[i], reach);
+				lastX = xs[i];
+				lastY = ys[i];
+				moved = true;
+			}
+		}
+		if (!moved) {
+			coverSegment(lastX, lastY, lastX, lastY, reach);
+		}
+		blendCoverage(argb);
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// works out the spans of the disc stamped at the points of a line.
+	// Java2D rounds the ends and corners of a line with curves that are
+	// cut into straight edges before they are filled, so the disc is
+	// the same four curves of a circle of half the brush width, cut down
+	// the same way, with the pixels lit whose centers fall inside it
+	// once the point has been moved a quarter pixel right and down. Like
+	// Java2D, a pixel on the left or top edge is lit and one on the
+	// right or bottom edge isn't.
+	private void createDisc(float lineWidth) {
+		double radius = lineWidth / 2.0;
+		double control = CONTROL * radius;
+		discWidth = lineWidth;
+		discRadius = (int) Math.ceil(radius) + 1;
+		discLeft = new int[2 * discRadius + 1];
+		discRight = new int[2 * discRadius + 1];
+		cornerCount = 0;
+		flatten(0, radius, 0, radius, control, control, radius, 0, radius);
+		flatten(0, 0, radius, -control, radius, -radius, control, -radius, 0);
+		flatten(0, -radius, 0, -radius, -control, -control, -radius, 0, -radius);
+		flatten(0, 0, -radius, control, -radius, radius, -control, radius, 0);
+		for (int dy = -discRadius; dy <= discRadius; dy++) {
+			double offsetY = dy + 0.25;
+			double left = Double.POSITIVE_INFINITY;
+			double right = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < cornerCount; i++) {
+				int next = (i + 1) % cornerCount;
+				double x0 = corners[2 * i];
+				double y0 = corners[2 * i + 1];
+				double x1 = corners[2 * next];
+				double y1 = corners[2 * next + 1];
+				if (offsetY >= Math.min(y0, y1) && offsetY < Math.max(y0, y1)) {
+					double x = x0 + (offsetY - y0) * (x1 - x0) / (y1 - y0);
+					left = Math.min(left, x);
+					right = Math.max(right, x);
+				}
+			}
+			int index = dy + discRadius;
+			if (left > right) {
+				discLeft[index] = 1;
+				discRight[index] = 0;
+			} else {
+				discLeft[index] = (int) Math.ceil(left - 0.25);
+				discRight[index] = (int) Math.ceil(right - 0.25);
+			}
+		}
+	}
+
+	// cuts a curve of the disc in half until it is flat enough, the same
+	// as subdivide does, adding the start of each piece as a corner
+	private void flatten(int level, double x0, double y0, double x1, double y1,
+			double x2, double y2, double x3, double y3) {
+		float startX = (float) x0;
+		float startY = (float) y0;
+		float endX = (float) x3;
+		float endY = (float) y3;
+		if (level < MAX_SUBDIVISIONS
+				&& (distanceSquared(startX, startY, endX, endY, (float) x1, (float) y1) > MAX_FLAT_SQUARED
+				|| distanceSquared(startX, startY, endX, endY, (float) x2, (float) y2) > MAX_FLAT_SQUARED)) {
+			double leftX1 = (x0 + x1) / 2;
+			double leftY1 = (y0 + y1) / 2;
+			double middleX = (x1 + x2) / 2;
+			double middleY = (y1 + y2) / 2;
+			double rightX2 = (x2 + x3) / 2;
+			double rightY2 = (y2 + y3) / 2;
+			double leftX2 = (leftX1 + middleX) / 2;
+			double leftY2 = (leftY1 + middleY) / 2;
+			double rightX1 = (middleX + rightX2) / 2;
+			double rightY1 = (middleY + rightY2) / 2;
+			double splitX = (leftX2 + rightX1) / 2;
+			double splitY = (leftY2 + rightY1) / 2;
+			flatten(level + 1, x0, y0, leftX1, leftY1, leftX2, leftY2, splitX, splitY);
+			flatten(level + 1, splitX, splitY, rightX1, rightY1, rightX2, rightY2, x3, y3);
+			return;
+		}
+		if (2 * cornerCount + 2 > corners.length) {
+			corners = Arrays.copyOf(corners, corners.length * 2);
+		}
+		corners[2 * cornerCount] = x0;
+		corners[2 * cornerCount + 1] = y0;
+		cornerCount++;
+	}
+
+	// stamps the disc at a point of a line
+	private void stampDisc(int x, int y, int argb) {
+		int row0 = Math.max(y - discRadius, clipY0);
+		int row1 = Math.min(y + discRadius + 1, clipY1);
+		for (int row = row0; row < row1; row++) {
+			int index = row - y + discRadius;
+			int x0 = Math.max(x + discLeft[index], clipX0);
+			int x1 = Math.min(x + discRight[index], clipX1);
+			if (x0 < x1) {
+				int base = offset + row * stride;
+				kernels.fill(pixels, base + x0, x1 - x0, argb);
+			}
+		}
+	}
+
+	// fills the band of the given radius around the segment between two
+	// points, which are moved a quarter pixel right and down like the
+	// centers of the discs. Each row is lit between where the row's
+	// center line enters and leaves both the strip along the segment and
+	// the strip across it.
+	private void fillBand(int ax, int ay, int bx, int by, double radius, int argb) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double length = Math.sqrt(dx * dx + dy * dy);
+		double ux = dx / length;
+		double uy = dy / length;
+		double reachY = Math.abs(ux) * radius;
+		int row0 = Math.max((int) Math.ceil(Math.min(ay, by) - reachY - 0.25), clipY0);
+		int row1 = Math.min((int) Math.ceil(Math.max(ay, by) + reachY - 0.25), clipY1);
+		for (int row = row0; row < row1; row++) {
+			double offsetY = row + 0.25 - ay;
+			double left = Double.NEGATIVE_INFINITY;
+			double right = Double.POSITIVE_INFINITY;
+			// along the segment, 0 <= (x - ax) * ux + offsetY * uy <= length
+			if (ux != 0) {
+				double start = ax - offsetY * uy / ux;
+				double end = start + length / ux;
+				left = Math.min(start, end);
+				right = Math.max(start, end);
+			} else if (offsetY * uy < 0 || offsetY * uy > length) {
+				continue;
+			}
+			// across the segment, -radius <= offsetY * ux - (x - ax) * uy <= radius
+			if (uy != 0) {
+				double middle = ax + offsetY * ux / uy;
+				double half = Math.abs(radius / uy);
+				left = Math.max(left, middle - half);
+				right = Math.min(right, middle + half);
+			} else if (Math.abs(offsetY) >= radius) {
+				continue;
+			}
+			int x0 = Math.max((int) Math.ceil(left - 0.25), clipX0);
+			int x1 = Math.min((int) Math.ceil(right - 0.25), clipX1);
+			if (x0 < x1) {
+				int base = offset + row * stride;
+				kernels.fill(pixels, base + x0, x1 - x0, argb);
+			}
+		}
+	}
+
+	// adds the coverage of a segment of a smooth line to the coverage of
+	// the pixels around it, keeping whichever is greater. A pixel whose
+	// center is a distance d from the segment is covered by about
+	// radius + 1/2 - d of it, which is the reach less d.
+	private void coverSegment(int ax, int ay, int bx, int by, double reach) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double lengthSquared = dx * dx + dy * dy;
+		// pixels this close are covered completely and pixels this far
+		// not at all, which saves taking the root for most of them
+		double inside = reach > 1 ? (reach - 1) * (reach - 1) : -1;
+		double outside = reach * reach;
+		int row0 = Math.max((int) Math.floor(Math.min(ay, by) - reach), coverY);
+		int row1 = Math.min((int) Math.ceil(Math.max(ay, by) + reach) + 1, coverY + coverHeight);
+		for (int row = row0; row < row1; row++) {
+			// the part of the segment within reach of this row, widened by the reach
+			double t0 = 0;
+			double t1 = 1;
+			if (dy != 0) {
+				double enter = (row - reach - ay) / dy;
+				double leave = (row + reach - ay) / dy;
+				t0 = Math.max(0, Math.min(enter, leave));
+				t1 = Math.min(1, Math.max(enter, leave));
+				if (t0 > t1) {
+					continue;
+				}
+			}
+			int x0 = Math.max((int) Math.floor(Math.min(ax + dx * t0, ax + dx * t1) - reach), coverX);
+			int x1 = Math.min((int) Math.ceil(Math.max(ax + dx * t0, ax + dx * t1) + reach) + 1,
+					coverX + coverWidth);
+			int index = (row - coverY) * coverWidth - coverX;
+			int line = row - coverY;
+			for (int x = x0; x < x1; x++) {
+				double px = x - ax;
+				double py = row - ay;
+				double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSquared));
+				px -= t * dx;
+				py -= t * dy;
+				double distanceSquared = px * px + py * py;
+				if (distanceSquared >= outside) {
+					continue;
+				}
+				int value = distanceSquared <= inside ? 255
+						: (int) ((reach - Math.sqrt(distanceSquared)) * 255 + 0.5);
+				if (value > (coverage[index + x] & 0xFF)) {
+					coverage[index + x] = (byte) value;
+				}
+				coverLeft[line] = Math.min(coverLeft[line], x);
+				coverRight[line] = Math.max(coverRight[line], x + 1);
+			}
+		}
+	}
+
+	// blends the color into every covered pixel by its coverage and
+	// clears the coverage for the next line
+	private void blendCoverage(int argb) {
+		for (int line = 0; line < coverHeight; line++) {
+			int left = coverLeft[line];
+			int right = coverRight[line];
+			if (left >= right) {
+				continue;
+			}
+			int index = line * coverWidth - coverX;
+			int base = offset + (coverY + line) * stride;
+			if (premultiplied) {
+				blendPremultiplied(index, base, left, right, argb);
+			} else {
+				kernels.blendCoverage(coverage, index + left, pixels, base + left, right - left, argb);
+			}
+			Arrays.fill(coverage, index + left, index + right, (byte) 0);
+		}
+	}
+
+	// blends the color into the covered pixels of one row of a target
+	// image with premultiplied pixels
+	private void blendPremultiplied(int index, int base, int left, int right, int argb) {
+		int alpha = argb >>> 24;
+		int red = (argb >> 16) & 0xFF;
+		int green = (argb >> 8) & 0xFF;
+		int blue = argb & 0xFF;
+		for (int x = left; x < right; x++) {
+			int source = (alpha * (coverage[index + x] & 0xFF) + 127) / 255;
+			if (source == 0) {
+				continue;
+			}
+			int destination = pixels[base + x];
+			int kept = 255 - source;
+			int resultAlpha = source + ((destination >>> 24) * kept + 127) / 255;
+			int r = (red * source + ((destination >> 16) & 0xFF) * kept + 127) / 255;
+			int g = (green * source + ((destination >> 8) & 0xFF) * kept + 127) / 255;
+			int b = (blue * source + (destination & 0xFF) * kept + 127) / 255;
+			pixels[base + x] = resultAlpha << 24 | r << 16 | g << 8 | b;
+		}
+	}
+
+	// moves a point onto the nearest quarter pixel the way Java2D does
+	// when it normalizes a path
+	private static float snap(float value) {
+		return (float) Math.floor(value + 0.25f) + 0.25f;
+	}
+
+	// adds a normalized curve from the pen to the given end point
+	private void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+		float endX = snap(x3);
+		float endY = snap(y3);
+		x1 += adjustX;
+		y1 += adjustY;
+		adjustX = endX - x3;
+		adjustY = endY - y3;
+		x2 += adjustX;
+		y2 += adjustY;
+		subdivide(0, penX, penY, x1, y1, x2, y2, endX, endY);
+		penX = endX;
+		penY = endY;
+	}
+
+	// cuts a curve in half until both of its control points are close
+	// enough to the line between its ends, then adds that line
+	private void subdivide(int level, float x0, float y0, float x1, float y1,
+			float x2, float y2, float x3, float y3) {
+		if (level < MAX_SUBDIVISIONS && (distanceSquared(x0, y0, x3, y3, x1, y1) > MAX_FLAT_SQUARED
+				|| distanceSquared(x0, y0, x3, y3, x2, y2) > MAX_FLAT_SQUARED)) {
+			float leftX1 = (x0 + x1) / 2f;
+			float leftY1 = (y0 + y1) / 2f;
+			float middleX = (x1 + x2) / 2f;
+			float middleY = (y1 + y2) / 2f;
+			float rightX2 = (x2 + x3) / 2f;
+			float rightY2 = (y2 + y3) / 2f;
+			float leftX2 = (leftX1 + middleX) / 2f;
+			float leftY2 = (leftY1 + middleY) / 2f;
+			float rightX1 = (middleX + rightX2) / 2f;
+			float rightY1 = (middleY + rightY2) / 2f;
+			float splitX = (leftX2 + rightX1) / 2f;
+			float splitY = (leftY2 + rightY1) / 2f;
+			subdivide(level + 1, x0, y0, leftX1, leftY1, leftX2, leftY2, splitX, splitY);
+			subdivide(level + 1, splitX, splitY, rightX1, rightY1, rightX2, rightY2, x3, y3);
+			return;
+		}
+		addEdge(x0, y0, x3, y3);
+	}
+
+	// the squared distance from a point to a line segment, in floats
+	private static float distanceSquared(float x0, float y0, float x1, float y1, float px, float py) {
+		x1 -= x0;
+		y1 -= y0;
+		px -= x0;
+		py -= y0;
+		float dot = px * x1 + py * y1;
+		float projected;
+		if (dot <= 0f) {
+			projected = 0f;
+		} else {
+			px = x1 - px;
+			py = y1 - py;
+			dot = px * x1 + py * y1;
+			projected = dot <= 0f ? 0f : dot * dot / (x1 * x1 + y1 * y1);
+		}
+		return Math.max(0f, px * px + py * py - projected);
+	}
+
+	// adds an edge that crosses the centers of the rows from the first
+	// row center below its top to the last one above its bottom
+	private void addEdge(float x0, float y0, float x1, float y1) {
+		int winding = 1;
+		if (y0 > y1) {
+			float swap = x0;
+			x0 = x1;
+			x1 = swap;
+			swap = y0;
+			y0 = y1;
+			y1 = swap;
+			winding = -1;
+		}
+		int startRow = (int) Math.ceil(y0 - 0.5f);
+		int endRow = (int) Math.ceil(y1 - 0.5f);
+		if (startRow >= endRow) {
+			return;
+		}
+		float dx = x1 - x0;
+		float dy = y1 - y0;
+		float slope = dx / dy;
+		x0 += (startRow + 0.5f - y0) * dx / dy;
+		int crossing = (int) Math.ceil(x0 - 0.5f);
+		if (edgeCount == startRows.length) {
+			growEdges();
+		}
+		startRows[edgeCount] = startRow;
+		endRows[edgeCount] = endRow;
+		crossings[edgeCount] = crossing;
+		errors[edgeCount] = (int) ((x0 - (crossing - 0.5f)) * (double) ERROR_STEP);
+		steps[edgeCount] = (int) Math.floor(slope);
+		stepErrors[edgeCount] = (int) ((slope - Math.floor(slope)) * (double) ERROR_STEP);
+		windings[edgeCount] = winding;
+		edgeCount++;
+		firstRow = Math.min(firstRow, startRow);
+		lastRow = Math.max(lastRow, endRow);
+	}
+
+	// steps every edge down its rows and fills between the two edges
+	// that cross each row. An ellipse crosses every row twice, but if
+	// the edges ever cross a row any other way the rows are filled by
+	// their winding instead.
+	private void fillEdges(int argb) {
+		int top = Math.max(firstRow, clipY0);
+		int rows = Math.min(lastRow, clipY1) - top;
+		if (rows <= 0) {
+			return;
+		}
+		if (rowCounts.length < rows) {
+			rowCounts = new int[rows];
+			rowFirst = new int[rows];
+			rowSecond = new int[rows];
+		}
+		Arrays.fill(rowCounts, 0, rows, 0);
+		for (int i = 0; i < edgeCount; i++) {
+			int x = crossings[i];
+			int error = errors[i];
+			for (int row = startRows[i] - top; row < endRows[i] - top; row++) {
+				if (row >= 0 && row < rows) {
+					int count = rowCounts[row]++;
+					if (count == 0) {
+						rowFirst[row] = x;
+					} else if (count == 1) {
+						rowSecond[row] = x;
+					}
+				}
+				error += stepErrors[i];
+				x += steps[i];
+				if (error < 0) {
+					x++;
+					error &= ERROR_STEP;
+				}
+			}
+		}
+		for (int row = 0; row < rows; row++) {
+			if (rowCounts[row] != 0 && rowCounts[row] != 2) {
+				fillByWinding(argb);
+				return;
+			}
+		}
+		for (int row = 0; row < rows; row++) {
+			if (rowCounts[row] == 2) {
+				int x0 = Math.max(Math.min(rowFirst[row], rowSecond[row]), clipX0);
+				int x1 = Math.min(Math.max(rowFirst[row], rowSecond[row]), clipX1);
+				if (x0 < x1) {
+					int base = offset + (row + top) * stride;
+					kernels.fill(pixels, base + x0, x1 - x0, argb);
+				}
+			}
+		}
+	}
+
+	// steps every edge down its rows, then sorts the crossings of each
+	// row and fills between them where the winding isn't zero
+	private void fillByWinding(int argb) {
+		int count = 0;
+		for (int i = 0; i < edgeCount; i++) {
+			int x = crossings[i];
+			int error = errors[i];
+			for (int row = startRows[i]; row < endRows[i]; row++) {
+				if (row >= clipY0 && row < clipY1) {
+					if (count == spans.length) {
+						spans = Arrays.copyOf(spans, spans.length * 2);
+					}
+					spans[count++] = ((long) (row - clipY0) << 34)
+							| (((long) x - clipX0 + (1 << 30)) << 2) | (windings[i] + 1);
+				}
+				error += stepErrors[i];
+				x += steps[i];
+				if (error < 0) {
+					x++;
+					error &= ERROR_STEP;
+				}
+			}
+		}
+		Arrays.sort(spans, 0, count);
+		int i = 0;
+		while (i < count) {
+			int row = (int) (spans[i] >>> 34);
+			int start = 0;
+			int winding = 0;
+			for (; i < count && (int) (spans[i] >>> 34) == row; i++) {
+				int x = (int) ((spans[i] >>> 2) & 0xFFFFFFFFL) - (1 << 30) + clipX0;
+				if (winding == 0) {
+					start = x;
+				}
+				winding += (int) (spans[i] & 3) - 1;
+				if (winding == 0) {
+					int x0 = Math.max(start, clipX0);
+					int x1 = Math.min(x, clipX1);
+					if (x0 < x1) {
+						int base = offset + (row + clipY0) * stride;
+						kernels.fill(pixels, base + x0, x1 - x0, argb);
+					}
+				}
+			}
+		}
+	}
+
+	// doubles the room for edges
+	private void growEdges() {
+		int capacity = startRows.length * 2;
+		startRows = Arrays.copyOf(startRows, capacity);
+		endRows = Arrays.copyOf(endRows, capacity);
+		crossings = Arrays.copyOf(crossings, capacity);
+		errors = Arrays.copyOf(errors, capacity);
+		steps = Arrays.copyOf(steps, capacity);
+		stepErrors = Arrays.copyOf(stepErrors, capacity);
+		windings = Arrays.copyOf(windings, capacity);
+	}
+}
@@ -0,0 +1,50 @@
+package gui;
+
+import shapes.CanvasEntity;
+
+/**
+ * Class <code>MoveEdit</code> is the edit of dragging a selected entity
+ * across a <code>PaintCanvas</code>. The whole drag is one edit, so
+ * undoing it moves the entity back to where the drag started.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+class MoveEdit implements CanvasEdit {
+	// the canvas the entity is on, the entity, and how far it was moved
+	private final PaintCanvas canvas;
+	private final CanvasEntity entity;
+	private final int dx, dy;
+
+	/**
+	 * Creates the edit of moving the given entity, which has already
+	 * been moved, by the given amounts
+	 * @param canvas the canvas the entity is on
+	 * @param entity the entity that was moved
+	 * @param dx how far the entity was moved along the x-axis
+	 * @param dy how far the entity was moved along the y-axis
+	 */
+	public MoveEdit(PaintCanvas canvas, CanvasEntity entity, int dx, int dy) {
+		this.canvas = canvas;
+		this.entity = entity;
+		this.dx = dx;
+		this.dy = dy;
+	}
+
+	@Override
+	public void undo() {
+		canvas.moveEntity(entity, -dx, -dy);
+	}
+
+	@Override
+	public void redo() {
+		canvas.moveEntity(entity, dx, dy);
+	}
+}
@@ -1,30 +1,50 @@
 package gui;
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
+import java.awt.Transparency;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.RenderedImage;
+import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ExecutionException;
 
 import javax.imageio.ImageIO;
-import javax.swing.JLabel;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
 import javax.swing.JPanel;
 
+import filters.FilterPipeline;
+import filters.ImageFilter;
+import shapes.AbstractRectangle;
 import shapes.CanvasEntity;
 import shapes.Ellipse;
 import shapes.Line;
+import shapes.RasterPatch;
 import shapes.Rectangle;
-import structures.ArrStack;
-import structures.LLEntityStack;
-import structures.SimpleStack;
+import shapes.StylePalette;
+import structures.ContentRegistry;
+import structures.EntityScene;
+import structures.MappedTileBuffer;
+import utilities.GeometryUtilities;
+import utilities.PixelKernels;
 
 /**
  * Class <code>PaintCanvas</code> represents a blank rectangular area
@@ -35,9 +55,39 @@ import structures.SimpleStack;
  * 
  * This canvas supports anti-aliasing, but this features is not enabled
  * by default. The user must choose to enable it because anti-aliasing
- * can cause performance issues on slower machines.
+ * can cause performance issues on slower machines. By default it is
+ * adaptive: while the user is drawing, everything is painted without
+ * anti-aliasing, and once the input has been idle for
+ * <code>REFINE_DELAY</code> milliseconds a <code>TileRefiner</code>
+ * paints the parts of the image that were painted that way again with
+ * anti-aliasing on a background thread and swaps them in.
  * 
- * @version 0.4.1 [8/24/15]
+ * Every change the user makes is kept as a <code>CanvasEdit</code>, so
+ * drawing, moving, erasing and deleting can all be undone and redone.
+ * 
+ * Canvases with more than <code>OFF_HEAP_PIXELS</code> pixels keep
+ * their image outside of the Java heap in a <code>MappedTileBuffer</code>,
+ * so their size isn't limited by the heap. Their image is painted a
+ * tile at a time through a copy on the heap, and is saved a strip at
+ * a time, so neither goes through the tiles a pixel at a time or needs
+ * the whole image on the heap. Smaller canvases keep it as
+ * premultiplied pixels, which Java2D blends and copies without
+ * converting them, and show it on screen through a copy in the
+ * screen's own format that is only brought up to date where the image
+ * has changed.
+ * 
+ * The canvas can also be rendered actively by a <code>RenderLoop</code>
+ * at a steady frame rate. While it is, changes to the image are queued
+ * as damaged tiles instead of being painted right away, and each frame
+ * paints as many of them as fit in its budget before showing what
+ * changed, so a burst of changes is spread over several frames instead
+ * of holding up one.
+ * 
+ * A session on the canvas can be recorded to a file by a
+ * <code>SessionRecorder</code> and replayed on another canvas by a
+ * <code>SessionPlayer</code>, which makes drawing sessions repeatable.
+ * 
+ * @version 0.6.1 [10/19/26]
  * 
  * @author Michael Davis
  */
@@ -46,10 +96,80 @@ import structures.SimpleStack;
  * Version Notes:
  * 		-- Consolidated all painting code into one method that
  * 		paints the appropriate entity
+ * 		-- Entities can be selected, moved, and deleted after they
+ * 		have been drawn. Hit-testing goes through the scene's spatial
+ * 		index and only the damaged region of the image is redrawn.
+ * 		-- Undo and redo work on whole edits instead of single entities
+ * 		-- Added an eraser that removes whole entities along the path
+ * 		of the mouse as a single edit
+ * 		-- Images can be opened as the background of the canvas
+ * 		-- Very large canvases keep their image in memory-mapped tiles,
+ * 		which are painted a tile at a time and saved a strip at a time
+ * 		-- Filters can be run over the visible part of the canvas
+ * 		-- Entities are frozen when they are finished, and copies of
+ * 		earlier entities share their geometry
+ * 		-- The canvas owns the style palette of its entities and takes
+ * 		its brushes from it, and starts a new one when it is cleared
+ * 		-- Entities are painted by a batch renderer, which paints
+ * 		entities that share a style in groups and fills rectangles and
+ * 		ellipses straight into the pixels of the image. Lines are
+ * 		drawn through Java2D, so a line looks the same while it is
+ * 		drawn, once it is finished, and when it is redrawn.
+ * 		-- The canvas image is premultiplied and is shown through a
+ * 		copy in the screen's format that is updated in dirty regions
+ * 		-- Saving flattens the canvas image onto the background color
+ * 		directly when there is nothing else to paint
+ * 		-- Anti-aliasing can be adaptive, leaving it off while the user
+ * 		draws and adding it in the background once they stop
+ * 		-- Added active rendering, which paints damaged tiles within a
+ * 		budget on every frame of a render loop
+ * 		-- The coordinates of the mouse go to a status line, which also
+ * 		shows statistics that the scene keeps up to date
+ * 		-- Tells its listeners when it is painted for the first time
+ * 		-- Dragging out a shape allocates nothing, and only repaints the
+ * 		part of the canvas that the brush can have touched
+ * 		-- Sessions can be recorded to a file and replayed, and the
+ * 		canvas can be flattened into an image the way it is saved,
+ * 		including pieces that are still being refined
+ * 		-- The edits and the refinement of the image are kept in their
+ * 		own classes
+ * 		-- Rectangles and ellipses are kept in the columns of the scene
+ * 		once drawn, and the canvas works with the views of them
  */
 public final class PaintCanvas extends JPanel implements MouseListener, MouseMotionListener {
 	private static final long serialVersionUID = 6815403541551122174L;
 	
+	/**
+	 * The largest amount of pixels a canvas can have before its image
+	 * is kept outside of the heap
+	 */
+	public static final long OFF_HEAP_PIXELS = 4096L * 4096L;
+	
+	/**
+	 * How long the input has to be idle, in milliseconds, before the
+	 * parts of the image painted without anti-aliasing are refined
+	 */
+	public static final int REFINE_DELAY = 250;
+	
+	/**
+	 * The property that changes, from false to true, when the canvas is
+	 * painted for the first time
+	 */
+	public static final String FIRST_PAINT_PROPERTY = "firstPaint";
+	
+	// the width and height of the damaged tiles queued while the canvas
+	// is rendered actively, which is small enough for a frame to paint
+	// several of them
+	private static final int RENDER_TILE = 128;
+	
+	// how far away from an entity, in pixels, a click can be and still
+	// select it
+	private static final int SELECTION_TOLERANCE = 3;
+	
+	// the brush used to outline the selected entity
+	private static final Stroke SELECTION_BRUSH = new BasicStroke(1,
+			BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10, new float[] {4, 4}, 0);
+	
 	// the width and height of the canvas and its image
 	private int width, height;
 	
@@ -59,12 +179,15 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	// the color of the paint being used
 	private Color paintColor;
 	
-	// the label where the mouses's coordinates will be displayed
-	private JLabel mouseCoordinates;
+	// the status line where the mouse's coordinates will be displayed
+	private StatusLine statusLine;
 	
 	// the type of brush being used
 	private Stroke brushType;
 	
+	// the brushes and colors of the entities drawn on this canvas
+	private StylePalette palette;
+	
 	// the line that is currently being drawn on the canvas
 	private Line currentLine;
 	
@@ -74,20 +197,93 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	// the ellipse currently being drawn on the canvas
 	private Ellipse currentEllipse;
 	
-	// storage for the entities that have been added to or removed from
-	// the canvas
-	private SimpleStack garbageEntities, entities;
+	// the entities that have been drawn on the canvas
+	private EntityScene entities;
+	
+	// finds entities that are copies of ones drawn before
+	private ContentRegistry contents;
+	
+	// the edits that can be undone and the edits that can be redone
+	private ArrayDeque<CanvasEdit> undoHistory, redoHistory;
+	
+	// the entity that is currently selected, if any
+	private CanvasEntity selectedEntity;
+	
+	// how far the selected entity has been moved during the current drag
+	private int movedX, movedY;
+	
+	// paints entities that share a style together when redrawing
+	private BatchRenderer renderer;
 	
 	// flags to tell which entity is currently being drawn
 	private boolean drawRectangles, drawLines, drawOvals;
 	private boolean filledRects, filledOvals;
 	
+	// flag for selecting entities instead of drawing them
+	private boolean selecting;
+	
+	// flag for erasing entities instead of drawing them
+	private boolean erasing;
+	
+	// the entities removed so far by the current sweep of the eraser
+	private ArrayList<CanvasEntity> erasedEntities;
+	
 	// flag for anti-aliasing
 	private boolean isPretty;
 	
+	// flag for leaving out anti-aliasing while the user is working and
+	// adding it once they stop
+	private boolean adaptive;
+	
+	// adds the anti-aliasing that adaptive anti-aliasing leaves out
+	private TileRefiner refiner;
+	
+	// counts the changes to the image, so that refinements painted from
+	// an older image are thrown away
+	private int imageVersion;
+	
+	// the loop that renders the canvas actively, or null if Swing
+	// repaints it whenever it is asked to
+	private RenderLoop renderLoop;
+	
+	// the damaged tiles of the image that the render loop hasn't
+	// painted yet, in the order they were damaged
+	private LinkedHashSet<java.awt.Rectangle> pendingTiles;
+	
+	// the part of the canvas to show on the next frame, which is only
+	// meaningful while the screen is damaged. It is grown in place so
+	// that repainting allocates nothing.
+	private java.awt.Rectangle pendingScreen;
+	private boolean screenDamaged;
+	
+	// how long the canvas image last took to paint, in nanoseconds
+	private long lastRenderTime;
+	
+	// records the session to a file, or null if it isn't recorded
+	private SessionRecorder recorder;
+	
+	// whether the canvas has been painted yet
+	private boolean painted;
+	
 	// the canvas image
 	private BufferedImage doodle;
 	
+	// a copy of the canvas image in the screen's own format, which
+	// Java2D can keep in video memory since its pixels are never
+	// touched directly, or null if there is no screen to match
+	private BufferedImage displayCopy;
+	
+	// the part of the display copy that is out of date, or null if
+	// none of it is
+	private java.awt.Rectangle displayDirty;
+	
+	// the off-heap tiles behind the canvas image for very large
+	// canvases, null otherwise
+	private MappedTileBuffer tileStore;
+	
+	// the image opened as the background of the canvas, if any
+	private BackgroundLayer background;
+	
 	/**
 	 * Creates a new blank paint canvas of given width and height
 	 * with a white background
@@ -100,8 +296,17 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 		this.height = height;
 		this.width = width;
 		setBackground(Color.WHITE);
-		entities = new LLEntityStack();
-		garbageEntities = new ArrStack();
+		entities = new EntityScene();
+		contents = new ContentRegistry();
+		undoHistory = new ArrayDeque<CanvasEdit>();
+		redoHistory = new ArrayDeque<CanvasEdit>();
+		renderer = new BatchRenderer();
+		erasedEntities = new ArrayList<CanvasEntity>();
+		pendingTiles = new LinkedHashSet<java.awt.Rectangle>();
+		pendingScreen = new java.awt.Rectangle();
+		
+		adaptive = true;
+		refiner = new TileRefiner(this);
 		
 		setCursor(new Cursor(Cursor.HAND_CURSOR));
 		
@@ -110,7 +315,8 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 		drawOvals = false;
 			
 		paintColor = Color.BLACK;
-		brushType = new BasicStroke(3, BasicStroke.CAP_ROUND, 
+		palette = new StylePalette();
+		brushType = palette.getBrush(3, BasicStroke.CAP_ROUND, 
 				BasicStroke.JOIN_ROUND);
 		addMouseListener(this);
 		addMouseMotionListener(this);
@@ -124,31 +330,88 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	/**
 	 * Clears all of the entities on the canvas by clearing the lists
 	 * that store them. Also eliminates any shapes that are currently
-	 * being draw.
+	 * being draw, and starts a new style palette so that the brushes and
+	 * colors of the cleared entities aren't kept.
 	 */
 	public void clear() {
+		recordAction(SessionRecorder.CLEAR);
 		entities.empty();
-		garbageEntities.empty();
+		undoHistory.clear();
+		redoHistory.clear();
+		selectedEntity = null;
 		currentRect = null;
 		currentEllipse = null;
 		currentLine = null;
-		doodle = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		if (background != null) {
+			background.dispose();
+			background = null;
+		}
+		palette = new StylePalette();
+		brushType = palette.getBrush(GeometryUtilities.getStrokeWidth(brushType),
+				BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+		createDoodle();
 		repaint();
 	}
 
 	/**
-	 * Associates a label with this canvas that will show a representation
-	 * of the mouse cursor's location on the  canvas
-	 * @param mouseCoordinates the label that will be associated to this canvas
+	 * Gets the amount of entities on the canvas
+	 * @return the amount of entities
+	 */
+	public int getEntityCount() {
+		return entities.getSize();
+	}
+	
+	/**
+	 * Gets the amount of points in all of the lines on the canvas
+	 * @return the amount of points
+	 */
+	public int getPointCount() {
+		return entities.getPointCount();
+	}
+	
+	/**
+	 * Gets a rough estimate of the memory the canvas takes on the heap,
+	 * which is its images and its entities. Tiles kept off the heap
+	 * aren't counted.
+	 * @return the estimated amount of bytes
+	 */
+	public long getMemoryEstimate() {
+		long imageBytes = 0;
+		if (doodle != null && tileStore == null) {
+			imageBytes += 4L * width * height;
+		}
+		if (displayCopy != null) {
+			imageBytes += 4L * width * height;
+		}
+		return entities.getEntityBytes() + imageBytes;
+	}
+	
+	/**
+	 * Gets how long the canvas image last took to paint, whether it was
+	 * a new entity, a damaged region, a frame of the render loop or the
+	 * whole image
+	 * @return the time in nanoseconds
 	 */
-	public void associateLabel(JLabel mouseCoordinates) {
-		this.mouseCoordinates = mouseCoordinates;
+	public long getLastRenderTime() {
+		return lastRenderTime;
 	}
 	
-	// updates the label associated with the coordinates of the mouse
-	// to the coordinates of the mouse at the given event location
+	/**
+	 * Associates a status line with this canvas that will show the mouse
+	 * cursor's location on the canvas
+	 * @param statusLine the status line that will be associated to this
+	 * canvas
+	 */
+	public void associateStatusLine(StatusLine statusLine) {
+		this.statusLine = statusLine;
+	}
+	
+	// passes the coordinates of the mouse at the given event location
+	// on to the status line, which shows them when it next refreshes
 	private void updateLabel(MouseEvent e) {
-		mouseCoordinates.setText(e.getX() + " x " + e.getY());		
+		if (statusLine != null) {
+			statusLine.setCoordinates(e.getX(), e.getY());
+		}
 	}
 	
 	/**
@@ -158,14 +421,109 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	 * @param isPretty whether or not anti-aliasing is enabled
 	 */
 	public void setPretty(boolean isPretty) {
+		recordFlag(SessionRecorder.PRETTY, this.isPretty, isPretty);
 		this.isPretty = isPretty;
 	}
 	
+	/**
+	 * Sets whether anti-aliasing is adaptive. Adaptive anti-aliasing is
+	 * left out while the user is drawing and added on a background
+	 * thread once the input has been idle for a moment. It has no effect
+	 * unless anti-aliasing is enabled.
+	 * @param adaptive whether or not anti-aliasing is adaptive
+	 */
+	public void setAdaptive(boolean adaptive) {
+		recordFlag(SessionRecorder.ADAPTIVE, this.adaptive, adaptive);
+		this.adaptive = adaptive;
+	}
+	
+	/**
+	 * Starts or stops rendering the canvas actively with a render loop
+	 * at the default frame rate. Changes made while the canvas is
+	 * rendered actively are painted and shown on the next frames of the
+	 * loop rather than right away.
+	 * @param active whether or not the canvas is rendered actively
+	 */
+	public void setActiveRendering(boolean active) {
+		if (active && renderLoop == null) {
+			renderLoop = new RenderLoop(this);
+			renderLoop.start();
+		} else if (!active && renderLoop != null) {
+			renderLoop.stop();
+			renderLoop = null;
+			screenDamaged = false;
+			renderPending();
+			repaint();
+		}
+	}
+	
+	/**
+	 * Gets whether the canvas is rendered actively
+	 * @return true if a render loop renders the canvas, false otherwise
+	 */
+	public boolean isActiveRendering() {
+		return renderLoop != null;
+	}
+	
+	/**
+	 * Gets the loop that renders the canvas actively, for reading its
+	 * frame statistics
+	 * @return the render loop, or null if the canvas isn't rendered
+	 * actively
+	 */
+	public RenderLoop getRenderLoop() {
+		return renderLoop;
+	}
+	
+	/**
+	 * Gets the amount of damaged tiles that the render loop hasn't
+	 * painted yet
+	 * @return the amount of tiles waiting to be painted
+	 */
+	public int getPendingTiles() {
+		return pendingTiles.size();
+	}
+	
+	/**
+	 * Queues the given region of the canvas to be shown on the next
+	 * frame while it is rendered actively, and otherwise asks Swing to
+	 * repaint it
+	 * @param tm the most time, in milliseconds, before Swing repaints
+	 * @param x the x coordinate of the region
+	 * @param y the y coordinate of the region
+	 * @param w the width of the region
+	 * @param h the height of the region
+	 */
+	@Override
+	public void repaint(long tm, int x, int y, int w, int h) {
+		if (renderLoop == null) {
+			super.repaint(tm, x, y, w, h);
+			return;
+		}
+		if (!screenDamaged) {
+			pendingScreen.setBounds(x, y, w, h);
+			screenDamaged = true;
+		} else {
+			pendingScreen.add(x, y);
+			pendingScreen.add(x + w, y + h);
+		}
+	}
+	
+	/**
+	 * Gets whether anti-aliasing is adaptive
+	 * @return true if anti-aliasing is only added once the user stops
+	 * drawing, false otherwise
+	 */
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+	
 	/**
 	 * Sets the background to the given color.
 	 * @param c the color that the background should will
 	 */
 	public void setBackgroundColor(Color c) {
+		recordValue(SessionRecorder.BACKGROUND_COLOR, getBackground().getRGB(), c.getRGB());
 		super.setBackground(c);
 		repaint();
 	}
@@ -174,60 +532,161 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	 * Saves the current canvas and its contents as the given file. 
 	 * If there is no file extension given, then the file will be 
 	 * saved as the given file type as defined by the current filter
-	 * that is selected
+	 * that is selected. The canvas is saved the way it is painted, so
+	 * an opened background is saved under the drawing.
 	 * @param saveFile the file to which this image is to be saved
 	 * @param fileType the file extension that defines the type of
 	 * the file that is to be saved
 	 */
 	public void save(File saveFile, String fileType) {
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(fileType);
+		if (!writers.hasNext()) {
+			System.err.println("the file could not be saved");
+			return;
+		}
+		ImageWriter writer = writers.next();
 		try {
-			BufferedImage savedDoodle = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-			paintComponent(savedDoodle.getGraphics());
-			ImageIO.write(savedDoodle, fileType, saveFile);
+			saveFile.delete();
+			ImageOutputStream output = ImageIO.createImageOutputStream(saveFile);
+			try {
+				writer.setOutput(output);
+				writer.write(getSavedImage());
+			} finally {
+				output.close();
+			}
 		} catch (IOException ex) {
 			System.err.println("the file could not be saved");
+		} finally {
+			writer.dispose();
+		}
+	}
+	
+	// gets the image that is saved. When the canvas image is kept in
+	// off-heap tiles it is painted a strip at a time as the writer asks
+	// for it, since a flattened copy might not fit on the heap.
+	private RenderedImage getSavedImage() {
+		if (tileStore == null) {
+			return getFlattenedImage();
+		}
+		renderPending();
+		refiner.refineNow();
+		return new StripedImage(width, height) {
+			@Override
+			protected void paintStrip(Graphics2D g, java.awt.Rectangle bounds) {
+				paintComponent(g);
+			}
+		};
+	}
+	
+	/**
+	 * Gets the canvas and its contents flattened onto its background
+	 * color, the way it is saved. Anything still waiting to be painted
+	 * or refined is finished first, so the image doesn't depend on how
+	 * far along the canvas was.
+	 * @return a new image of the canvas without an alpha channel
+	 */
+	public BufferedImage getFlattenedImage() {
+		renderPending();
+		refiner.refineNow();
+		BufferedImage flattened = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		if (!flattenDoodle(flattened)) {
+			Graphics g = flattened.getGraphics();
+			paintComponent(g);
+			g.dispose();
+		}
+		return flattened;
+	}
+	
+	/**
+	 * Opens the given image as the background of this canvas, replacing
+	 * the current background. The image is read in the background at
+	 * the size of the canvas, and the progress of the read, from 0 to
+	 * 100, is reported to the given listener as the "progress" property.
+	 * @param imageFile the image to open
+	 * @param progressListener the listener told about the progress of
+	 * the read, or null if nobody is interested
+	 */
+	public void openBackground(File imageFile, PropertyChangeListener progressListener) {
+		BackgroundLayer.Loader loader = new BackgroundLayer.Loader(imageFile,
+				getWidth(), getHeight(), this) {
+			@Override
+			protected void done() {
+				try {
+					BackgroundLayer opened = get();
+					if (background != null) {
+						background.dispose();
+					}
+					background = opened;
+					repaint();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException ex) {
+					System.err.println("the file could not be opened");
+				}
+			}
+		};
+		if (progressListener != null) {
+			loader.addPropertyChangeListener(progressListener);
 		}
+		loader.execute();
 	}
 	
 	/**
-	 * Removes the last painted line from the canvas. This removes it
-	 * from the list of lines this canvas is keeping and places it in
-	 * another list for safe keeping, just in case
+	 * Reverses the last edit that was made to the canvas, whether it
+	 * was drawing, moving, or deleting an entity. The edit is kept so
+	 * that it can be redone.
 	 */
 	public void undo() {
-		if (!entities.isEmpty()) {
-			garbageEntities.push(entities.pop());
-			redrawImage();
+		recordAction(SessionRecorder.UNDO);
+		if (!undoHistory.isEmpty()) {
+			CanvasEdit edit = undoHistory.pop();
+			edit.undo();
+			redoHistory.push(edit);
 		}
 	}
 	
 	/**
-	 * Adds the last thing that was just removed from the canvas. This
-	 * can only be done if there is something in the garbage entities list
-	 * to begin with.
+	 * Makes the last edit that was undone again. This can only be done
+	 * if nothing new has been drawn since the edit was undone.
 	 */
 	public void redo() {
-		if (!garbageEntities.isEmpty()) {
-			entities.push(garbageEntities.pop());
-			redrawImage();
+		recordAction(SessionRecorder.REDO);
+		if (!redoHistory.isEmpty()) {
+			CanvasEdit edit = redoHistory.pop();
+			edit.redo();
+			undoHistory.push(edit);
 		}
 	}
 	
+	// records the given edit, which has already been made, so that it
+	// can be undone
+	private void recordEdit(CanvasEdit edit) {
+		undoHistory.push(edit);
+		redoHistory.clear();
+	}
+	
 	@Override
 	protected void paintComponent(Graphics g) {
 		super.paintComponent(g);
 		Graphics2D g2 = (Graphics2D) g;
-		if (isPretty) {
+		if (isSmooth()) {
 			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
 					RenderingHints.VALUE_ANTIALIAS_ON);
 		}
 		if (doodle == null) {
 			width = this.getWidth();
 			height = this.getHeight();
-			doodle = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			createDoodle();
 
 		}
-		g2.drawImage(doodle, null, 0, 0);
+		if (background != null) {
+			background.paint(g2, background.getFitScale(width, height));
+		}
+		if (tileStore != null) {
+			tileStore.drawTiles(g2, g2.getClipBounds());
+		} else {
+			g2.drawImage(updateDisplayCopy(), null, 0, 0);
+		}
 		if (currentLine != null) {
 			currentLine.paintShape(g2);
 		} else if (currentRect != null) {
@@ -235,6 +694,16 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 		} else if (currentEllipse != null) {
 			currentEllipse.paintShape(g2);
 		}
+		if (selectedEntity != null) {
+			java.awt.Rectangle bounds = selectedEntity.getBounds();
+			g2.setStroke(SELECTION_BRUSH);
+			g2.setColor(Color.GRAY);
+			g2.drawRect(bounds.x, bounds.y, bounds.width - 1, bounds.height - 1);
+		}
+		if (!painted) {
+			painted = true;
+			firePropertyChange(FIRST_PAINT_PROPERTY, false, true);
+		}
 	}
 	
 	/****************************************************************
@@ -254,16 +723,19 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	 * @param c the current color of the paint being used
 	 */
 	public void setPaintColor(Color c) {
+		recordValue(SessionRecorder.PAINT_COLOR, paintColor.getRGB(), c.getRGB());
 		paintColor = c;
 	}
 
 	/**
-	 * Takes a given value and sets the style of the brush to a new
-	 * style with the given size as the size of the new <code>brushType</code>
+	 * Takes a given value and sets the style of the brush to the
+	 * palette's brush with the given size as the size of the
+	 * <code>brushType</code>
 	 * @param size the width of the brush being used
 	 */
 	public void setBrushSize(int size) {
-		brushType = new BasicStroke(size, BasicStroke.CAP_ROUND, 
+		recordValue(SessionRecorder.BRUSH_SIZE, brushSize(), size);
+		brushType = palette.getBrush(size, BasicStroke.CAP_ROUND, 
 				BasicStroke.JOIN_ROUND);
 	}
 	
@@ -284,27 +756,338 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	 * changed.
 	 */
 	public void redrawImage() {
-		LLEntityStack temp = new LLEntityStack();
-		while (!entities.isEmpty()) {
-			temp.push(entities.pop());
-		}
-		doodle = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-		while (!temp.isEmpty()) {
-			CanvasEntity tempEntity = temp.pop();
-			drawToDoodle(tempEntity);
-			entities.push(tempEntity);
+		recordAction(SessionRecorder.REDRAW);
+		long start = System.nanoTime();
+		createDoodle();
+		if (tileStore != null) {
+			paintRegion(new java.awt.Rectangle(0, 0, width, height), isSmooth());
+		} else {
+			Graphics2D g2 = doodle.createGraphics();
+			if (isSmooth()) {
+				g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+						RenderingHints.VALUE_ANTIALIAS_ON);
+			}
+			renderer.paint(g2, entities);
+			g2.dispose();
 		}
+		lastRenderTime = System.nanoTime() - start;
+		pendingTiles.clear();
+		imageChanged(new java.awt.Rectangle(0, 0, width, height));
 		repaint();
 	}
 	
-	// draws the given entity to the canvas
-	private void drawToDoodle(CanvasEntity entity) {
-		Graphics2D g2 = (Graphics2D)doodle.getGraphics();
-		if (isPretty) {
+	// Redraws only the given region of the image. The region is
+	// cleared and every entity that overlaps it is painted again in
+	// order, clipped to the region, so the result is the same as
+	// redrawing the whole image.
+	void redrawRegion(java.awt.Rectangle region) {
+		if (doodle == null) {
+			repaint();
+			return;
+		}
+		if (renderLoop != null) {
+			pendingTiles.addAll(tiles(region, RENDER_TILE, true));
+			return;
+		}
+		long start = System.nanoTime();
+		paintRegion(region, isSmooth());
+		lastRenderTime = System.nanoTime() - start;
+		imageChanged(region);
+		repaint(region);
+	}
+	
+	/**
+	 * Renders one frame of the render loop. Damaged tiles are painted in
+	 * the order they were damaged until the given deadline has passed,
+	 * and the rest are left for the next frame. Then everything that
+	 * changed is shown.
+	 * @param deadline the time, in the terms of <code>System.nanoTime</code>,
+	 * after which no more tiles are painted
+	 */
+	void renderFrame(long deadline) {
+		Iterator<java.awt.Rectangle> pending = pendingTiles.iterator();
+		long start = System.nanoTime();
+		if (pending.hasNext()) {
+			while (pending.hasNext() && System.nanoTime() < deadline) {
+				java.awt.Rectangle tile = pending.next();
+				pending.remove();
+				paintRegion(tile, isSmooth());
+				imageChanged(tile);
+				repaint(tile);
+			}
+			lastRenderTime = System.nanoTime() - start;
+		}
+		if (screenDamaged) {
+			screenDamaged = false;
+			paintImmediately(pendingScreen);
+		}
+	}
+	
+	// paints every damaged tile that the render loop hasn't painted yet
+	private void renderPending() {
+		for (java.awt.Rectangle tile : pendingTiles) {
+			paintRegion(tile, isSmooth());
+			imageChanged(tile);
+			repaint(tile);
+		}
+		pendingTiles.clear();
+	}
+	
+	// splits the part of the given region that is on the canvas into
+	// tiles of the given size. Aligned tiles are cut from a grid over
+	// the whole canvas, so the same tile damaged twice is equal to
+	// itself; otherwise they start at the corner of the region.
+	ArrayList<java.awt.Rectangle> tiles(java.awt.Rectangle region, int size, boolean aligned) {
+		ArrayList<java.awt.Rectangle> tiles = new ArrayList<java.awt.Rectangle>();
+		java.awt.Rectangle bounds = region.intersection(new java.awt.Rectangle(0, 0, width, height));
+		if (bounds.isEmpty()) {
+			return tiles;
+		}
+		int left = aligned ? bounds.x - bounds.x % size : bounds.x;
+		int top = aligned ? bounds.y - bounds.y % size : bounds.y;
+		for (int y = top; y < bounds.y + bounds.height; y += size) {
+			for (int x = left; x < bounds.x + bounds.width; x += size) {
+				java.awt.Rectangle tile = new java.awt.Rectangle(x, y, size, size);
+				tiles.add(aligned ? tile.intersection(new java.awt.Rectangle(0, 0, width, height))
+						: tile.intersection(bounds));
+			}
+		}
+		return tiles;
+	}
+	
+	// clears the given region of the image and paints every entity that
+	// overlaps it again, clipped to the region. Off-heap tiles are
+	// painted one at a time, each with the entities over its own part
+	// of the region.
+	private void paintRegion(java.awt.Rectangle region, final boolean smooth) {
+		if (tileStore != null) {
+			tileStore.paintTiles(region, new MappedTileBuffer.TilePainter() {
+				@Override
+				public void paintTile(Graphics2D g, BufferedImage tile, int x, int y) {
+					renderer.setTarget(tile, x, y);
+					paintRegion(g, g.getClipBounds(), smooth);
+				}
+			});
+			renderer.setTarget(doodle);
+			return;
+		}
+		Graphics2D g2 = doodle.createGraphics();
+		paintRegion(g2, region, smooth);
+		g2.dispose();
+	}
+	
+	// clears the given region with the given graphics and paints every
+	// entity that overlaps it again, clipped to the region
+	private void paintRegion(Graphics2D g2, java.awt.Rectangle region, boolean smooth) {
+		g2.setComposite(AlphaComposite.Clear);
+		g2.fill(region);
+		g2.setComposite(AlphaComposite.SrcOver);
+		g2.clip(region);
+		if (smooth) {
 			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
 					RenderingHints.VALUE_ANTIALIAS_ON);
 		}
-		entity.paintShape(g2);
+		renderer.paint(g2, entities, region);
+	}
+	
+	// whether the image is painted with anti-aliasing right now, rather
+	// than being refined later
+	private boolean isSmooth() {
+		return isPretty && !adaptive;
+	}
+	
+	// notes that the given region of the image has changed. If it was
+	// painted without the anti-aliasing it should have, it is refined
+	// once the input has been idle for long enough.
+	private void imageChanged(java.awt.Rectangle region) {
+		imageVersion++;
+		displayChanged(region);
+		if (isPretty && adaptive) {
+			refiner.roughen(region);
+		}
+	}
+	
+	// whether parts of the image are painted without anti-aliasing and
+	// refined later, and there is an image to refine
+	boolean needsRefining() {
+		return isPretty && adaptive && doodle != null;
+	}
+	
+	// the palette of the entities drawn on the canvas
+	StylePalette getPalette() {
+		return palette;
+	}
+	
+	// the amount of changes made to the image so far
+	int getImageVersion() {
+		return imageVersion;
+	}
+	
+	// adds every entity that overlaps the given region to the given list
+	// in the order they are painted
+	void queryEntities(java.awt.Rectangle region, ArrayList<CanvasEntity> found) {
+		entities.query(region, found);
+	}
+	
+	// copies a piece of the image that was painted again with
+	// anti-aliasing into the image and shows it
+	void drawRefined(final BufferedImage refined, final java.awt.Rectangle tile) {
+		if (tileStore != null) {
+			tileStore.paintTiles(tile, new MappedTileBuffer.TilePainter() {
+				@Override
+				public void paintTile(Graphics2D g, BufferedImage image, int x, int y) {
+					g.setComposite(AlphaComposite.Src);
+					g.drawImage(refined, tile.x, tile.y, null);
+				}
+			});
+		} else {
+			Graphics2D g2 = doodle.createGraphics();
+			g2.setComposite(AlphaComposite.Src);
+			g2.drawImage(refined, tile.x, tile.y, null);
+			g2.dispose();
+		}
+		displayChanged(tile);
+		repaint(tile);
+	}
+	
+	// creates a new blank canvas image, keeping it in off-heap tiles if
+	// the canvas is too large for the heap
+	private void createDoodle() {
+		if (tileStore != null) {
+			tileStore.dispose();
+			tileStore = null;
+		}
+		if ((long) width * height > OFF_HEAP_PIXELS) {
+			tileStore = new MappedTileBuffer(width, height);
+			doodle = tileStore.createImage();
+		} else {
+			doodle = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		}
+		displayCopy = null;
+		displayDirty = null;
+		renderer.setTarget(doodle);
+		refiner.discard();
+		imageVersion++;
+	}
+	
+	// brings the out of date part of the display copy up to date and
+	// returns the image to show, which is the canvas image itself when
+	// there is no screen to make a copy for
+	private BufferedImage updateDisplayCopy() {
+		if (displayCopy == null) {
+			GraphicsConfiguration config = GraphicsEnvironment.isHeadless() ? null
+					: getGraphicsConfiguration();
+			if (config == null) {
+				return doodle;
+			}
+			displayCopy = config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+			displayDirty = new java.awt.Rectangle(0, 0, width, height);
+		}
+		if (displayDirty != null) {
+			Graphics2D g2 = displayCopy.createGraphics();
+			g2.setComposite(AlphaComposite.Src);
+			g2.clip(displayDirty);
+			g2.drawImage(doodle, 0, 0, null);
+			g2.dispose();
+			displayDirty = null;
+		}
+		return displayCopy;
+	}
+	
+	// notes that the given region of the display copy is out of date
+	private void displayChanged(java.awt.Rectangle region) {
+		if (displayCopy != null) {
+			displayDirty = displayDirty == null ? new java.awt.Rectangle(region)
+					: displayDirty.union(region);
+		}
+	}
+	
+	// flattens the canvas image onto the background color, which gives
+	// the same pixels as painting the canvas when nothing is drawn under
+	// or over the image
+	private boolean flattenDoodle(BufferedImage saved) {
+		if (doodle == null || tileStore != null || background != null || selectedEntity != null
+				|| currentLine != null || currentRect != null || currentEllipse != null
+				|| (doodle.getType() != BufferedImage.TYPE_INT_ARGB
+				&& doodle.getType() != BufferedImage.TYPE_INT_ARGB_PRE)) {
+			return false;
+		}
+		int[] source = ((DataBufferInt) doodle.getRaster().getDataBuffer()).getData();
+		int[] rgb = ((DataBufferInt) saved.getRaster().getDataBuffer()).getData();
+		int color = getBackground().getRGB();
+		PixelKernels kernels = PixelKernels.getInstance();
+		for (int y = 0; y < height; y++) {
+			if (doodle.isAlphaPremultiplied()) {
+				kernels.toRGBPremultiplied(source, y * width, rgb, y * width, width, color);
+			} else {
+				kernels.toRGB(source, y * width, rgb, y * width, width, color);
+			}
+		}
+		return true;
+	}
+	
+	// draws the given entity to the canvas
+	private void drawToDoodle(final CanvasEntity entity) {
+		long start = System.nanoTime();
+		if (tileStore != null) {
+			tileStore.paintTiles(entity.getBounds(), new MappedTileBuffer.TilePainter() {
+				@Override
+				public void paintTile(Graphics2D g, BufferedImage tile, int x, int y) {
+					if (isSmooth()) {
+						g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+								RenderingHints.VALUE_ANTIALIAS_ON);
+					}
+					renderer.setTarget(tile, x, y);
+					renderer.paint(g, entity);
+				}
+			});
+			renderer.setTarget(doodle);
+		} else {
+			Graphics2D g2 = (Graphics2D)doodle.getGraphics();
+			if (isSmooth()) {
+				g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+						RenderingHints.VALUE_ANTIALIAS_ON);
+			}
+			renderer.paint(g2, entity);
+		}
+		lastRenderTime = System.nanoTime() - start;
+		imageChanged(entity.getBounds());
+	}
+	
+	/**
+	 * Runs the given filters, in order, over the visible part of the
+	 * canvas in a single pass. The filtered pixels are added to the
+	 * canvas as a patch, so the filters can be undone like any other
+	 * edit.
+	 * @param filters the filters to run
+	 */
+	public void applyFilters(ImageFilter... filters) {
+		if (doodle == null) {
+			return;
+		}
+		renderPending();
+		refiner.refineNow();
+		java.awt.Rectangle region = getVisibleRect().intersection(
+				new java.awt.Rectangle(0, 0, width, height));
+		if (region.isEmpty()) {
+			return;
+		}
+		int[] source = new int[region.width * region.height];
+		if (tileStore != null) {
+			tileStore.getPixels(region, source);
+		} else {
+			doodle.getRaster().getDataElements(region.x, region.y,
+					region.width, region.height, source);
+		}
+		if (doodle.isAlphaPremultiplied()) {
+			PixelKernels.getInstance().unpremultiply(source, 0, source.length);
+		}
+		BufferedImage filtered = new BufferedImage(region.width, region.height,
+				BufferedImage.TYPE_INT_ARGB);
+		int[] result = ((DataBufferInt) filtered.getRaster().getDataBuffer()).getData();
+		new FilterPipeline(filters).apply(source, region.width, region.height, result);
+		commitEntity(new RasterPatch(filtered, region.x, region.y));
+		repaint(region);
 	}
 	
 	/****************************************************************
@@ -318,50 +1101,79 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 		int currX = evt.getX();
 		int currY = evt.getY();
 		if (this.currentLine != null) {
-			repaint();
 			currentLine.add(currX, currY);
+			repaintAround(oldX, oldY, currX, currY, brushReach(currentLine.getBrushType()));
 			oldX = currX;
 			oldY = currY;
 		} else {
-			int entityWidth = 0;
-			int entityHeight = 0;
-			if (this.currentRect != null) {
-				currentRect.setSize(currX - oldX, currY - oldY);
-				entityWidth = currentRect.getWidth();
-				entityHeight = currentRect.getHeight();
-			} else {
-				currentEllipse.setSize(currX - oldX, currY - oldY);
-				entityWidth = currentEllipse.getWidth();
-				entityHeight = currentEllipse.getHeight();
-			}
-			int[] xWidth = transform(oldX, entityWidth);
-			int[] yHeight = transform(oldY, entityHeight);
-	        
-	        if (this.currentRect != null) {
-		        currentRect.setBounds(xWidth[0], yHeight[0], xWidth[1], yHeight[1]);
-			} else {
-		        currentEllipse.setBounds(xWidth[0], yHeight[0], xWidth[1], yHeight[1]);
+			AbstractRectangle shape = currentRect != null ? currentRect : currentEllipse;
+			int lastLeft = shape.getX();
+			int lastTop = shape.getY();
+			int lastRight = lastLeft + shape.getWidth();
+			int lastBottom = lastTop + shape.getHeight();
+			shape.setSize(currX - oldX, currY - oldY);
+			int entityWidth = shape.getWidth();
+			int entityHeight = shape.getHeight();
+			shape.setBounds(flipCoordinate(oldX, entityWidth), flipCoordinate(oldY, entityHeight),
+					flipDimension(oldX, entityWidth), flipDimension(oldY, entityHeight));
+			repaintAround(Math.min(lastLeft, shape.getX()), Math.min(lastTop, shape.getY()),
+					Math.max(lastRight, shape.getX() + shape.getWidth()),
+					Math.max(lastBottom, shape.getY() + shape.getHeight()),
+					brushReach(shape.getBrushType()));
+		}
+	}
+	
+	// Returns the result of flipping the given coordinate across the
+	// appropriate axis when its corresponding dimension is negative.
+	// Essentially, the dimension that corresponds to the x coordinate
+	// is a shape's width, and the one that corresponds to the y
+	// coordinate is the height. The coordinate is kept on the canvas.
+	private static int flipCoordinate(int coordinate, int dimension) {
+		if (dimension < 0) {
+			coordinate = coordinate + dimension + 1;
+			if (coordinate < 0) {
+				coordinate = 0;
 			}
-	        repaint();
 		}
+		return coordinate;
 	}
 	
-	// Returns the result of transforming the given coordinate and
-	// corresponding dimension. Essentially, the dimension that 
-	// corresponds to the x coordinate is a shape's width, and the one
-	// that corresponds to the y coordinate is the height. The
-	// resulting transform represents a flip of the shape across the
-	// appropriate axis.
-	private int[] transform(int coordinate, int dimension) {
+	// Returns the dimension that goes with the coordinate returned by
+	// flipCoordinate, which is never negative and is cut short where
+	// the coordinate was kept on the canvas
+	private static int flipDimension(int coordinate, int dimension) {
 		if (dimension < 0) {
 			dimension = 0 - dimension;
-			coordinate = coordinate - dimension + 1; 
-            if (coordinate < 0) {
-            	dimension += coordinate; 
-            	coordinate = 0;
-            }
-        }
-		return new int[] {coordinate, dimension};
+			coordinate = coordinate - dimension + 1;
+			if (coordinate < 0) {
+				dimension += coordinate;
+			}
+		}
+		return dimension;
+	}
+	
+	// how far past its points or edges the given brush can paint, in
+	// pixels, counting its sharpest joins and the blending at its edges,
+	// or -1 if that isn't known
+	private static int brushReach(Stroke brush) {
+		if (!(brush instanceof BasicStroke)) {
+			return -1;
+		}
+		BasicStroke stroke = (BasicStroke) brush;
+		double corner = stroke.getLineJoin() == BasicStroke.JOIN_MITER
+				? Math.max(stroke.getMiterLimit(), Math.sqrt(2)) : Math.sqrt(2);
+		return (int) Math.ceil(stroke.getLineWidth() / 2 * corner) + 2;
+	}
+	
+	// repaints the box between the two given corners widened by the
+	// given reach, or the whole canvas if the reach isn't known
+	private void repaintAround(int x0, int y0, int x1, int y1, int reach) {
+		if (reach < 0) {
+			repaint();
+			return;
+		}
+		repaint(Math.min(x0, x1) - reach, Math.min(y0, y1) - reach,
+				Math.abs(x1 - x0) + 2 * reach + 1, Math.abs(y1 - y0) + 2 * reach + 1);
 	}
 	
 	/**
@@ -369,6 +1181,7 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	 * @param bool whether or not the brush is set to draw a rectangle
 	 */
 	public void setDrawRectangles(boolean bool) {
+		recordFlag(SessionRecorder.DRAW_RECTANGLES, drawRectangles, bool);
 		drawRectangles = bool;
 	}
 	
@@ -377,6 +1190,7 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	 * @param bool whether or not the brush is set to draw a line
 	 */
 	public void setDrawLines(boolean bool) {
+		recordFlag(SessionRecorder.DRAW_LINES, drawLines, bool);
 		drawLines = bool;
 	}
 	
@@ -385,9 +1199,101 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	 * @param bool whether or not the brush is set to draw an oval
 	 */
 	public void setDrawOvals(boolean bool) {
+		recordFlag(SessionRecorder.DRAW_OVALS, drawOvals, bool);
 		drawOvals = bool;
 	}
 	
+	/**
+	 * Sets whether or not the mouse selects and moves entities that
+	 * have already been drawn instead of drawing new ones. Turning
+	 * selection off clears the current selection.
+	 * @param bool whether or not the brush is set to select entities
+	 */
+	public void setSelecting(boolean bool) {
+		recordFlag(SessionRecorder.SELECTING, selecting, bool);
+		selecting = bool;
+		if (!selecting) {
+			select(null);
+		}
+	}
+	
+	/**
+	 * Sets whether or not the mouse erases entities instead of drawing
+	 * them. The eraser removes every entity it touches as a whole, and
+	 * is as wide as the current brush.
+	 * @param bool whether or not the brush is set to erase entities
+	 */
+	public void setErasing(boolean bool) {
+		recordFlag(SessionRecorder.ERASING, erasing, bool);
+		erasing = bool;
+	}
+	
+	// erases every entity the eraser touches on its way between the
+	// given points and redraws the region they covered
+	private void eraseAlong(int x1, int y1, int x2, int y2) {
+		int start = erasedEntities.size();
+		// the eraser is as wide as the brush, so it reaches half of that
+		// to either side of the mouse
+		int radius = (int) Math.ceil(GeometryUtilities.getStrokeWidth(brushType) / 2);
+		if (entities.erase(x1, y1, x2, y2, radius, erasedEntities) > 0) {
+			java.awt.Rectangle damage = erasedEntities.get(start).getBounds();
+			for (int i = start + 1; i < erasedEntities.size(); i++) {
+				damage.add(erasedEntities.get(i).getBounds());
+			}
+			redrawRegion(damage);
+		}
+	}
+	
+	/**
+	 * Deletes the entity that is currently selected from the canvas.
+	 * Nothing happens if no entity is selected.
+	 */
+	public void deleteSelection() {
+		recordAction(SessionRecorder.DELETE_SELECTION);
+		if (selectedEntity != null) {
+			CanvasEdit edit = new RemoveEdit(this, new CanvasEntity[] {selectedEntity});
+			select(null);
+			edit.redo();
+			recordEdit(edit);
+		}
+	}
+	
+	// selects the given entity, repainting the outlines of the old and
+	// new selections
+	private void select(CanvasEntity entity) {
+		if (selectedEntity != null) {
+			repaint(selectedEntity.getBounds());
+		}
+		selectedEntity = entity;
+		if (selectedEntity != null) {
+			repaint(selectedEntity.getBounds());
+		}
+	}
+	
+	// moves the given entity by the given amounts, redrawing where it
+	// was and where it ends up
+	void moveEntity(CanvasEntity entity, int dx, int dy) {
+		java.awt.Rectangle damage = entity.getBounds();
+		entities.translate(entity, dx, dy);
+		redrawRegion(damage.union(entity.getBounds()));
+	}
+	
+	// takes the given entity off the canvas, letting go of it first if
+	// it is selected. The region it covered isn't redrawn. Stored shapes
+	// can have more than one view, so the selection is matched by id.
+	void removeEntity(CanvasEntity entity) {
+		if (selectedEntity != null && entity.getId() == selectedEntity.getId()) {
+			select(null);
+		}
+		entities.remove(entity);
+	}
+	
+	// puts an entity that was taken off the canvas back in its place.
+	// The region it covers isn't redrawn.
+	void restoreEntity(CanvasEntity entity) {
+		entities.restore(entity);
+	}
+	
 	/**
 	 * Sets whether or not the type of shape to be drawn is a filled
 	 * rectangle.
@@ -395,6 +1301,7 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	 * otherwise
 	 */
 	public void setFilledRects(boolean bool) {
+		recordFlag(SessionRecorder.FILLED_RECTS, filledRects, bool);
 		setDrawRectangles(bool);
 		filledRects = bool;
 	}
@@ -406,6 +1313,7 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 	 * otherwise
 	 */
 	public void setFilledOvals(boolean bool) {
+		recordFlag(SessionRecorder.FILLED_OVALS, filledOvals, bool);
 		setDrawOvals(bool);
 		filledOvals = bool;
 	}
@@ -422,25 +1330,35 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 
 	@Override
 	public void mouseClicked(MouseEvent evt) {
+		recordMouse(SessionRecorder.MOUSE_CLICKED, evt);
 		repaint();
 	}
 	
 	@Override
 	public void mousePressed(MouseEvent evt) {
+		recordMouse(SessionRecorder.MOUSE_PRESSED, evt);
+		refiner.inputReceived();
 		oldX = evt.getX();
 		oldY = evt.getY();
-		if (drawLines) {
-			currentLine = new Line();
+		if (selecting) {
+			select(entities.hitTest(oldX, oldY, SELECTION_TOLERANCE));
+			movedX = 0;
+			movedY = 0;
+		} else if (erasing) {
+			erasedEntities.clear();
+			eraseAlong(oldX, oldY, oldX, oldY);
+		} else if (drawLines) {
+			currentLine = new Line(palette);
 			currentLine.add(oldX, oldY);
 			currentLine.setBrushStyle(brushType);
 			currentLine.setColor(paintColor);
 		} else if (drawRectangles) {
-			currentRect = new Rectangle(oldX, oldY, 0, 0);
+			currentRect = new Rectangle(palette, oldX, oldY, 0, 0);
 			currentRect.setFilled(filledRects);
 			currentRect.setColor(paintColor);
 			currentRect.setBrushStyle(brushType);
 		} else if (drawOvals) {
-			currentEllipse = new Ellipse(oldX, oldY, 0, 0);
+			currentEllipse = new Ellipse(palette, oldX, oldY, 0, 0);
 			currentEllipse.setFilled(filledOvals);
 			currentEllipse.setColor(paintColor);
 			currentEllipse.setBrushStyle(brushType);
@@ -449,29 +1367,152 @@ public final class PaintCanvas extends JPanel implements MouseListener, MouseMot
 
 	@Override
 	public void mouseReleased(MouseEvent evt) {
-		if (drawLines) {
-			drawToDoodle(currentLine);
-			entities.push(currentLine);
+		recordMouse(SessionRecorder.MOUSE_RELEASED, evt);
+		if (selecting) {
+			if (selectedEntity != null && (movedX != 0 || movedY != 0)) {
+				recordEdit(new MoveEdit(this, selectedEntity, movedX, movedY));
+			}
+		} else if (erasing) {
+			if (!erasedEntities.isEmpty()) {
+				recordEdit(new RemoveEdit(this, erasedEntities.toArray(
+						new CanvasEntity[erasedEntities.size()])));
+				erasedEntities.clear();
+			}
+		} else if (drawLines) {
+			commitEntity(currentLine);
 			currentLine = null;
 		} else if (drawRectangles) {
-			drawToDoodle(currentRect);
-			entities.push(currentRect);
+			commitEntity(currentRect);
 			currentRect = null;
 		} else if (drawOvals) {
-			drawToDoodle(currentEllipse);
-			entities.push(currentEllipse);
+			commitEntity(currentEllipse);
 			currentEllipse = null;
 		}
 	}
+	
+	// adds the given entity, which has just been drawn, to the canvas.
+	// From then on the canvas works with the entity as the scene keeps it.
+	private void commitEntity(CanvasEntity entity) {
+		entity.freeze();
+		contents.intern(entity);
+		drawToDoodle(entity);
+		recordEdit(new AddEdit(this, entities.add(entity)));
+	}
 
 	@Override
 	public void mouseDragged(MouseEvent evt) {
-		drawEntity(evt);
+		recordMouse(SessionRecorder.MOUSE_DRAGGED, evt);
+		refiner.inputReceived();
+		if (selecting) {
+			if (selectedEntity != null) {
+				int dx = evt.getX() - oldX;
+				int dy = evt.getY() - oldY;
+				moveEntity(selectedEntity, dx, dy);
+				movedX += dx;
+				movedY += dy;
+				oldX = evt.getX();
+				oldY = evt.getY();
+			}
+		} else if (erasing) {
+			eraseAlong(oldX, oldY, evt.getX(), evt.getY());
+			oldX = evt.getX();
+			oldY = evt.getY();
+		} else {
+			drawEntity(evt);
+		}
 		updateLabel(evt);
 	}
 
 	@Override
 	public void mouseMoved(MouseEvent evt) {
+		recordMouse(SessionRecorder.MOUSE_MOVED, evt);
 		updateLabel(evt);
 	}
+	
+	/****************************************************************
+	 * RECORDING
+	 ***************************************************************/
+	
+	/**
+	 * Starts recording the session to the given file, replacing any
+	 * recording that is going on. The current tool, colors, brush and
+	 * anti-aliasing are recorded first, and from then on every mouse
+	 * event and every change to them, along with undo, redo, clearing,
+	 * deleting and redrawing. Filters and opened backgrounds are not
+	 * recorded, and neither is what is already on the canvas, so a
+	 * session replays the way it was drawn when it is started on a
+	 * blank canvas.
+	 * @param file the file to record the session to
+	 * @throws IOException if the file can't be written
+	 */
+	public void startRecording(File file) throws IOException {
+		stopRecording();
+		recorder = new SessionRecorder(file, width, height);
+		recorder.recordFlag(SessionRecorder.FILLED_RECTS, filledRects);
+		recorder.recordFlag(SessionRecorder.FILLED_OVALS, filledOvals);
+		recorder.recordFlag(SessionRecorder.DRAW_LINES, drawLines);
+		recorder.recordFlag(SessionRecorder.DRAW_RECTANGLES, drawRectangles);
+		recorder.recordFlag(SessionRecorder.DRAW_OVALS, drawOvals);
+		recorder.recordFlag(SessionRecorder.SELECTING, selecting);
+		recorder.recordFlag(SessionRecorder.ERASING, erasing);
+		recorder.recordFlag(SessionRecorder.PRETTY, isPretty);
+		recorder.recordFlag(SessionRecorder.ADAPTIVE, adaptive);
+		recorder.recordValue(SessionRecorder.PAINT_COLOR, paintColor.getRGB());
+		recorder.recordValue(SessionRecorder.BRUSH_SIZE, brushSize());
+		recorder.recordValue(SessionRecorder.BACKGROUND_COLOR, getBackground().getRGB());
+	}
+	
+	/**
+	 * Stops recording the session and closes the file it was recorded
+	 * to. Nothing happens if the session isn't being recorded.
+	 */
+	public void stopRecording() {
+		if (recorder != null) {
+			recorder.close();
+			recorder = null;
+		}
+	}
+	
+	/**
+	 * Gets whether the session is being recorded
+	 * @return true if the session is being recorded, false otherwise
+	 */
+	public boolean isRecording() {
+		return recorder != null && recorder.isRecording();
+	}
+	
+	// records the given mouse event if the session is being recorded
+	private void recordMouse(int type, MouseEvent evt) {
+		if (recorder != null) {
+			recorder.recordMouse(type, evt);
+		}
+	}
+	
+	// records a flag if the session is being recorded and the flag is
+	// changing
+	private void recordFlag(int type, boolean oldFlag, boolean flag) {
+		if (recorder != null && oldFlag != flag) {
+			recorder.recordFlag(type, flag);
+		}
+	}
+	
+	// records a value if the session is being recorded and the value
+	// is changing
+	private void recordValue(int type, int oldValue, int value) {
+		if (recorder != null && oldValue != value) {
+			recorder.recordValue(type, value);
+		}
+	}
+	
+	// records an action if the session is being recorded
+	private void recordAction(int type) {
+		if (recorder != null) {
+			recorder.recordAction(type);
+		}
+	}
+	
+	// the width of the current brush in whole pixels
+	private int brushSize() {
+		return Math.round(GeometryUtilities.getStrokeWidth(brushType));
+	}
 }
\ No newline at end of file
@@ -3,13 +3,17 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Cursor;
-import java.awt.Font;
+import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 
 import javax.swing.ButtonGroup;
 import javax.swing.Icon;
@@ -19,18 +23,27 @@ import javax.swing.JColorChooser;
 import javax.swing.JDialog;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
-import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JRadioButton;
+import javax.swing.JScrollPane;
 import javax.swing.JSlider;
 import javax.swing.JToolBar;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.KeyStroke;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import javax.swing.filechooser.FileSystemView;
 
+import filters.BoxBlurFilter;
+import filters.BrightnessContrastFilter;
+import filters.GaussianBlurFilter;
+import filters.InvertFilter;
+import filters.SharpenFilter;
 import utilities.FileUtilities;
 
 /**
@@ -38,7 +51,7 @@ import utilities.FileUtilities;
  * application which allows the user to paint on and make various
  * interactions with the canvas
  * 
- * @version 0.4.1 [8/25/2015]
+ * @version 0.5.0 [10/19/2026]
  * 
  * @author Michael Davis
  *
@@ -47,6 +60,22 @@ import utilities.FileUtilities;
 /*
  * Version Notes:
  * 		-- The size of the paint brush can't be larger than 10px
+ * 		-- Added a select tool and a delete menu item for moving and
+ * 		deleting entities that have already been drawn
+ * 		-- Added an eraser tool
+ * 		-- Added an open menu item for opening an image as the
+ * 		background of the canvas
+ * 		-- The canvas can be larger than the window, in which case it
+ * 		is scrolled
+ * 		-- Added a filters menu
+ * 		-- Added a toggle for only anti-aliasing once the user stops
+ * 		drawing
+ * 		-- Added a toggle for rendering the canvas with a render loop
+ * 		-- The status bar shows statistics about the canvas and only
+ * 		refreshes a few times a second
+ * 		-- The file chooser and the color dialog are created after the
+ * 		window is up, and the startup time can be reported
+ * 		-- The session can be recorded to a file
  */
 public final class PaintFrame extends JFrame implements ActionListener, ChangeListener {
 	private static final long serialVersionUID = 8701478026870551725L;
@@ -70,16 +99,25 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 	private JMenuBar menuBar;
 
 	// menus for the program
-	private JMenu file, edit, customize, help;
+	private JMenu file, edit, filters, customize, help;
 
 	// an item for clearing the drawings currently on the canvas
 	private JMenuItem clear;
 
 	// an item for saving the drawings to a file
 	private JMenuItem save;
+	
+	// an item for opening an image as the background of the canvas
+	private JMenuItem open;
 
 	// menu items for undoing and redoing edits to the canvas
 	private JMenuItem undo, redo;
+	
+	// a menu item for deleting the selected entity
+	private JMenuItem delete;
+
+	// menu items for running filters over the canvas
+	private JMenuItem blur, boxBlur, sharpen, brighten, darken, moreContrast, invert;
 
 	// a menu item that exits the program
 	private JMenuItem exit;
@@ -89,9 +127,14 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 
 	// buttons for toggling shapes to draw
 	private JRadioButton lines, rectangles, ovals, fillRects, fillOvals;
+	
+	// buttons for selecting and erasing entities that have already
+	// been drawn
+	private JRadioButton select, eraser;
 
-	// a toggle for anti-aliasing when rendering drawings
-	private JCheckBox antialiasing;
+	// a toggle for anti-aliasing when rendering drawings, and one for
+	// only adding it once the user stops drawing
+	private JCheckBox antialiasing, adaptive, activeRendering;
 	
 	// a toggle for locking the toolbar
 	private JCheckBox lockToolbar;
@@ -116,8 +159,11 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 	// a dialog for picking the color of the paint
 	private JDialog colorDialog;
 
-	// coordinates for the mouse's location on the canvas
-	private JLabel mouseCoordinates;
+	// the mouse's location on the canvas and the canvas statistics
+	private StatusLine statusLine;
+	
+	// shows the progress of opening an image
+	private JProgressBar openProgress;
 
 	// a color chooser
 	private JColorChooser colorChooser;
@@ -134,6 +180,10 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 	
 	// flags for if we're changing paint or background color
 	private boolean changingPaint, changingBackground;
+	
+	// when the frame started being built and how long it took, and
+	// when it was shown, for the startup report
+	private long constructionStart, constructionTime, shownAt;
 
 	/**
 	 *  Alternate constructor that constructs a paint frame with 
@@ -151,37 +201,45 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 	 * @throws IllegalArgumentException if width or height is negative.
 	 */
 	public PaintFrame(int width, int height, String title) {
-		if (width < 0 || height < 0) {
+		this(width, height, title, width, height);
+	}
+
+	/**
+	 * Constructs a paint frame with given width, height, and title
+	 * whose canvas has the given size. If the canvas is larger than the
+	 * window, it is shown in a scrolling view.
+	 * @param width the width of the application window
+	 * @param height the height of the application window
+	 * @param title the title of the application
+	 * @param canvasWidth the width of the canvas
+	 * @param canvasHeight the height of the canvas
+	 * @throws IllegalArgumentException if any dimension is negative.
+	 */
+	public PaintFrame(int width, int height, String title, int canvasWidth, int canvasHeight) {
+		if (width < 0 || height < 0 || canvasWidth < 0 || canvasHeight < 0) {
 			throw new IllegalArgumentException("invalid dimensions: "
 					+ "w-" + width + "h-" + height);
 		}
+		constructionStart = System.nanoTime();
 		createMenu();
-		chooser = new JFileChooser();
-		chooser.setAcceptAllFileFilterUsed(false);
-		chooser.addChoosableFileFilter(FileUtilities.PNG_FILTER);
-		chooser.addChoosableFileFilter(FileUtilities.JPG_FILTER);
-		chooser.addChoosableFileFilter(FileUtilities.JPEG_FILTER);
 		createToolbar();
 
-		// constructs the color chooser and creates the corresponding
-		// dialog that houses it
-		colorChooser = new JColorChooser();
-		colorDialog = JColorChooser.createDialog(colorChooser, "Color Chooser", 
-				true, colorChooser, this, null);
+		// constructs the canvas
+		canvas = new PaintCanvas(canvasWidth, canvasHeight);
 
-		// creates the label that houses the coordinates of the mouse on
-		// the canvas
-		mouseCoordinates = new JLabel("0 x 0");
-		mouseCoordinates.setFont(new Font(Font.MONOSPACED, Font.ITALIC, 12));
+		// creates the status line that shows the coordinates of the
+		// mouse on the canvas and its statistics, and associates it
+		// with the canvas
+		statusLine = new StatusLine(canvas);
+		canvas.associateStatusLine(statusLine);
 
 		statusBar = new JPanel(new BorderLayout());
 
-		statusBar.add(mouseCoordinates, BorderLayout.SOUTH);
-
-		// constructs the canvas and associates the coordinate label
-		// with it
-		canvas = new PaintCanvas(width, height);
-		canvas.associateLabel(mouseCoordinates);
+		statusBar.add(statusLine, BorderLayout.SOUTH);
+		
+		openProgress = new JProgressBar(0, 100);
+		openProgress.setVisible(false);
+		statusBar.add(openProgress, BorderLayout.EAST);
 		
 		// sets up the frame with the proper components
 		setTitle(title);
@@ -189,20 +247,129 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 		setLayout(new BorderLayout());
 		setLocationByPlatform(true);
 		add(toolBar, BorderLayout.NORTH);
-		add(canvas, BorderLayout.CENTER);
+		if (canvasWidth > width || canvasHeight > height) {
+			JScrollPane canvasView = new JScrollPane(canvas);
+			canvasView.setPreferredSize(new Dimension(width, height));
+			add(canvasView, BorderLayout.CENTER);
+		} else {
+			add(canvas, BorderLayout.CENTER);
+		}
 		add(statusBar, BorderLayout.SOUTH);
 		setJMenuBar(menuBar);
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		pack();
+		constructionTime = System.nanoTime() - constructionStart;
 	}
 
 	/**
-	 * Starts the program by showing the <code>PaintFrame</code>
+	 * Starts the program by showing the <code>PaintFrame</code>. Once
+	 * the canvas has been painted for the first time, the file chooser
+	 * and the color dialog are made ready in the background. If the
+	 * <code>paint.startup</code> system property is true, how long it
+	 * took to get there is reported on the standard output. If the
+	 * <code>paint.record</code> system property names a file, the
+	 * session is recorded to it until the program exits.
 	 */
 	public void start() {
+		shownAt = System.nanoTime();
+		String sessionFile = System.getProperty("paint.record");
+		if (sessionFile != null) {
+			startRecording(new File(sessionFile));
+		}
+		canvas.addPropertyChangeListener(PaintCanvas.FIRST_PAINT_PROPERTY, new PropertyChangeListener() {
+			@Override
+			public void propertyChange(PropertyChangeEvent evt) {
+				canvas.removePropertyChangeListener(PaintCanvas.FIRST_PAINT_PROPERTY, this);
+				if (Boolean.getBoolean("paint.startup")) {
+					reportStartup();
+				}
+				prepareDialogs();
+			}
+		});
 		setVisible(true);
 	}
 	
+	// records the session on the canvas to the given file, finishing
+	// the file when the program exits
+	private void startRecording(File sessionFile) {
+		try {
+			canvas.startRecording(sessionFile);
+		} catch (IOException ex) {
+			System.err.println("the session could not be recorded");
+			return;
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				canvas.stopRecording();
+			}
+		}));
+	}
+	
+	// gets the file chooser used for saving and opening, creating it
+	// the first time it is needed
+	private JFileChooser getFileChooser() {
+		if (chooser == null) {
+			chooser = new JFileChooser();
+			chooser.setAcceptAllFileFilterUsed(false);
+			chooser.addChoosableFileFilter(FileUtilities.PNG_FILTER);
+			chooser.addChoosableFileFilter(FileUtilities.JPG_FILTER);
+			chooser.addChoosableFileFilter(FileUtilities.JPEG_FILTER);
+		}
+		return chooser;
+	}
+	
+	// gets the color chooser, creating it and the dialog that houses
+	// it the first time it is needed
+	private JColorChooser getColorChooser() {
+		if (colorChooser == null) {
+			colorChooser = new JColorChooser();
+			colorDialog = JColorChooser.createDialog(colorChooser, "Color Chooser", 
+					true, colorChooser, this, null);
+		}
+		return colorChooser;
+	}
+	
+	// Gets the file chooser and the color dialog ready without holding
+	// up the window. Part of the time it takes to create a file chooser
+	// goes into looking at the file system, so that is done first on a
+	// background thread. The dialogs themselves have to be created on
+	// the event thread, so they are created afterwards one at a time,
+	// letting any input in between, unless they were needed before then.
+	private void prepareDialogs() {
+		new SwingWorker<Void, Void>() {
+			@Override
+			protected Void doInBackground() {
+				FileSystemView view = FileSystemView.getFileSystemView();
+				File home = view.getDefaultDirectory();
+				view.getFiles(home, true);
+				view.getRoots();
+				return null;
+			}
+			
+			@Override
+			protected void done() {
+				getFileChooser();
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						getColorChooser();
+					}
+				});
+			}
+		}.execute();
+	}
+	
+	// prints how long the frame took to build and how long it took for
+	// the canvas to be painted after the frame was shown and after the
+	// program was launched
+	private void reportStartup() {
+		long firstPaint = System.nanoTime() - shownAt;
+		System.out.println("startup: frame built in " + constructionTime / 1000000
+				+ "ms, canvas first painted " + firstPaint / 1000000 + "ms after showing, "
+				+ ManagementFactory.getRuntimeMXBean().getUptime() + "ms after launch");
+	}
+	
 	/****************************************************************
 	 * GUI SETUP FUNCTIONS
 	 ***************************************************************/
@@ -212,11 +379,13 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 		
 		createFileMenu();
 		createEditMenu();
+		createFiltersMenu();
 		createCustomizeMenu();
 		help = new JMenu("Help");
 
 		menuBar.add(file);
 		menuBar.add(edit);
+		menuBar.add(filters);
 		menuBar.add(customize);
 		menuBar.add(help);
 	}
@@ -228,9 +397,14 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 		save.addActionListener(this);
 		save.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, ActionEvent.CTRL_MASK));
 		
+		open = new JMenuItem("Open");
+		open.addActionListener(this);
+		open.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O, ActionEvent.CTRL_MASK));
+		
 		exit = new JMenuItem("Exit");
 		exit.addActionListener(this);
 		
+		file.add(open);
 		file.add(save);
 		file.add(exit);
 	}
@@ -249,14 +423,61 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 		redo.addActionListener(this);
 		redo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, ActionEvent.CTRL_MASK));
 		
+		delete = new JMenuItem("Delete");
+		delete.addActionListener(this);
+		delete.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0));
+		
 		antialiasing = new JCheckBox("Antialiasing");
 		antialiasing.addChangeListener(this);
 		
+		adaptive = new JCheckBox("Antialias When Idle", true);
+		adaptive.addChangeListener(this);
+		
+		activeRendering = new JCheckBox("Active Rendering");
+		activeRendering.addChangeListener(this);
+		
 		edit.add(clear);
 		edit.add(undo);
 		edit.add(redo);
+		edit.add(delete);
 		edit.addSeparator();
 		edit.add(antialiasing);
+		edit.add(adaptive);
+		edit.add(activeRendering);
+	}
+	
+	private void createFiltersMenu() {
+		filters = new JMenu("Filters");
+		
+		blur = new JMenuItem("Blur");
+		blur.addActionListener(this);
+		
+		boxBlur = new JMenuItem("Box Blur");
+		boxBlur.addActionListener(this);
+		
+		sharpen = new JMenuItem("Sharpen");
+		sharpen.addActionListener(this);
+		
+		brighten = new JMenuItem("Brighten");
+		brighten.addActionListener(this);
+		
+		darken = new JMenuItem("Darken");
+		darken.addActionListener(this);
+		
+		moreContrast = new JMenuItem("More Contrast");
+		moreContrast.addActionListener(this);
+		
+		invert = new JMenuItem("Invert");
+		invert.addActionListener(this);
+		
+		filters.add(blur);
+		filters.add(boxBlur);
+		filters.add(sharpen);
+		filters.addSeparator();
+		filters.add(brighten);
+		filters.add(darken);
+		filters.add(moreContrast);
+		filters.add(invert);
 	}
 	
 	private void createCustomizeMenu() {
@@ -314,12 +535,20 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 		
 		fillOvals = new JRadioButton("filled ovals");
 		fillOvals.addChangeListener(this);
+		
+		select = new JRadioButton("select");
+		select.addChangeListener(this);
+		
+		eraser = new JRadioButton("eraser");
+		eraser.addChangeListener(this);
 
 		group.add(lines);
 		group.add(rectangles);
 		group.add(ovals);
 		group.add(fillRects);
 		group.add(fillOvals);
+		group.add(select);
+		group.add(eraser);
 		
 		chooseColor = new JButton();
 		chooseColor.setToolTipText("choose paint color");
@@ -333,6 +562,8 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 		toolBar.add(fillRects);
 		toolBar.add(ovals);
 		toolBar.add(fillOvals);
+		toolBar.add(select);
+		toolBar.add(eraser);
 		toolBar.addSeparator();
 		
 		createSizeSlider();
@@ -365,12 +596,12 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 			canvas.clear();
 			canvas.repaint();
 		} else if (action.getSource() == chooseColor) {
-			colorChooser.setColor(canvas.getPaintColor());
+			getColorChooser().setColor(canvas.getPaintColor());
 			changingPaint = true;
 			colorDialog.setVisible(true);
 			pci.setColor(canvas.getPaintColor());
 		} else if(action.getSource() == save) {
-			chooser.showSaveDialog(this);
+			getFileChooser().showSaveDialog(this);
 			File saveFile = chooser.getSelectedFile();
 			if (saveFile != null && chooser.getFileFilter().accept(saveFile)) {
 				String fileExtension = 
@@ -379,10 +610,43 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 			} else {
 				System.err.println("not an acceptable format");
 			}
+		} else if (action.getSource() == open) {
+			if (getFileChooser().showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+				File openFile = chooser.getSelectedFile();
+				openProgress.setValue(0);
+				openProgress.setVisible(true);
+				canvas.openBackground(openFile, new PropertyChangeListener() {
+					@Override
+					public void propertyChange(PropertyChangeEvent evt) {
+						if ("progress".equals(evt.getPropertyName())) {
+							openProgress.setValue((Integer) evt.getNewValue());
+						} else if ("state".equals(evt.getPropertyName())
+								&& evt.getNewValue() == SwingWorker.StateValue.DONE) {
+							openProgress.setVisible(false);
+						}
+					}
+				});
+			}
 		} else if (action.getSource() == undo) {
 			canvas.undo();
 		} else if (action.getSource() == redo) {
 			canvas.redo();
+		} else if (action.getSource() == delete) {
+			canvas.deleteSelection();
+		} else if (action.getSource() == blur) {
+			canvas.applyFilters(new GaussianBlurFilter(2));
+		} else if (action.getSource() == boxBlur) {
+			canvas.applyFilters(new BoxBlurFilter(2));
+		} else if (action.getSource() == sharpen) {
+			canvas.applyFilters(new SharpenFilter(1));
+		} else if (action.getSource() == brighten) {
+			canvas.applyFilters(new BrightnessContrastFilter(20, 1));
+		} else if (action.getSource() == darken) {
+			canvas.applyFilters(new BrightnessContrastFilter(-20, 1));
+		} else if (action.getSource() == moreContrast) {
+			canvas.applyFilters(new BrightnessContrastFilter(0, 1.2));
+		} else if (action.getSource() == invert) {
+			canvas.applyFilters(new InvertFilter());
 		} else if (action.getSource() == exit) {
 			System.exit(0);
 		} else if (action.getSource() == cursor) {
@@ -401,7 +665,7 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 				canvas.setPointer(c);
 			}
 		} else if (action.getSource() == changeBackground) {
-			colorChooser.setColor(canvas.getBackground());
+			getColorChooser().setColor(canvas.getBackground());
 			changingBackground = true;
 			colorDialog.setVisible(true);
 		} else {
@@ -429,6 +693,18 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 		} else if (e.getSource() == antialiasing) {
 			canvas.setPretty(antialiasing.isSelected());
 			canvas.redrawImage();
+		} else if (e.getSource() == adaptive) {
+			// change events also come from the mouse passing over the box
+			if (adaptive.isSelected() != canvas.isAdaptive()) {
+				canvas.setAdaptive(adaptive.isSelected());
+				if (antialiasing.isSelected()) {
+					canvas.redrawImage();
+				}
+			}
+		} else if (e.getSource() == activeRendering) {
+			if (activeRendering.isSelected() != canvas.isActiveRendering()) {
+				canvas.setActiveRendering(activeRendering.isSelected());
+			}
 		} else if (e.getSource() == sizePicker) {
 			if (!sizePicker.getValueIsAdjusting()) {
 				int brushSize = sizePicker.getValue();
@@ -443,6 +719,10 @@ public final class PaintFrame extends JFrame implements ActionListener, ChangeLi
 			canvas.setFilledRects(fillRects.isSelected());
 		} else if (e.getSource() == fillOvals) {
 			canvas.setFilledOvals(fillOvals.isSelected());
+		} else if (e.getSource() == select) {
+			canvas.setSelecting(select.isSelected());
+		} else if (e.getSource() == eraser) {
+			canvas.setErasing(eraser.isSelected());
 		}
 	}
 	
@@ -0,0 +1,60 @@
+package gui;
+
+import java.awt.Rectangle;
+
+import shapes.CanvasEntity;
+
+/**
+ * Class <code>RemoveEdit</code> is the edit of removing a group of
+ * entities from a <code>PaintCanvas</code>, either by deleting the
+ * selected entity or by sweeping the eraser over them. The whole group
+ * is put back by one undo, and the region they covered is redrawn once.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+class RemoveEdit implements CanvasEdit {
+	// the canvas the entities were removed from, the entities, and the
+	// region that they covered
+	private final PaintCanvas canvas;
+	private final CanvasEntity[] removed;
+	private final Rectangle damage;
+
+	/**
+	 * Creates the edit of removing the given entities from the canvas
+	 * @param canvas the canvas the entities are removed from
+	 * @param removed the entities that are removed, of which there is
+	 * at least one
+	 */
+	public RemoveEdit(PaintCanvas canvas, CanvasEntity[] removed) {
+		this.canvas = canvas;
+		this.removed = removed;
+		damage = removed[0].getBounds();
+		for (int i = 1; i < removed.length; i++) {
+			damage.add(removed[i].getBounds());
+		}
+	}
+
+	@Override
+	public void undo() {
+		for (int i = 0; i < removed.length; i++) {
+			canvas.restoreEntity(removed[i]);
+		}
+		canvas.redrawRegion(damage);
+	}
+
+	@Override
+	public void redo() {
+		for (int i = 0; i < removed.length; i++) {
+			canvas.removeEntity(removed[i]);
+		}
+		canvas.redrawRegion(damage);
+	}
+}
@@ -0,0 +1,205 @@
+package gui;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Class <code>RenderLoop</code> paints a canvas actively, at a steady
+ * frame rate, instead of waiting for Swing to get around to repainting
+ * it. A thread of its own wakes up at the start of every frame and has
+ * the event thread render one frame of the canvas: the canvas paints
+ * the damaged parts of its image that it has queued up until the frame
+ * budget runs out, leaves the rest for the next frame, and shows
+ * whatever changed.
+ *
+ * A frame that takes longer than the frame period is late. When the
+ * loop wakes up more than a whole period after a frame should have
+ * started, because the event thread was busy or the machine was, the
+ * frames it missed are skipped rather than rendered back to back, so
+ * the loop never tries to catch up. The counts of frames, late frames
+ * and skipped frames and the longest frame so far can be read from any
+ * thread.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class RenderLoop {
+	/**
+	 * The frame rate the loop aims for unless it is given another
+	 */
+	public static final int DEFAULT_FRAME_RATE = 60;
+
+	// the canvas rendered by this loop
+	private PaintCanvas canvas;
+
+	// the length of a frame and the part of it the canvas may spend
+	// painting its image, in nanoseconds
+	private long period, budget;
+
+	// the thread the loop runs on, or null if it isn't running. A
+	// thread that is no longer this one stops after its frame.
+	private volatile Thread thread;
+
+	// the statistics of the loop
+	private volatile long frames, lateFrames, skippedFrames, longestFrame;
+
+	// the frame handed to the event thread
+	private Runnable frame;
+	private volatile long frameDeadline;
+
+	/**
+	 * Constructs a new loop for the given canvas that renders at the
+	 * default frame rate
+	 * @param canvas the canvas to render
+	 */
+	public RenderLoop(PaintCanvas canvas) {
+		this(canvas, DEFAULT_FRAME_RATE);
+	}
+
+	/**
+	 * Constructs a new loop for the given canvas that renders at the
+	 * given frame rate. Half of every frame is left for painting the
+	 * canvas image, and the rest for showing it and for everything else
+	 * the event thread does.
+	 * @param canvas the canvas to render
+	 * @param frameRate the amount of frames per second
+	 * @throws IllegalArgumentException if the frame rate isn't positive
+	 */
+	public RenderLoop(PaintCanvas canvas, int frameRate) {
+		if (frameRate <= 0) {
+			throw new IllegalArgumentException("frame rate must be positive: " + frameRate);
+		}
+		this.canvas = canvas;
+		period = 1000000000L / frameRate;
+		budget = period / 2;
+		frame = new Runnable() {
+			@Override
+			public void run() {
+				canvas.renderFrame(frameDeadline);
+			}
+		};
+	}
+
+	/**
+	 * Starts the loop if it isn't already running
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				loop();
+			}
+		}, "render loop");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the loop after the frame it is on
+	 */
+	public synchronized void stop() {
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			thread = null;
+		}
+	}
+
+	/**
+	 * Gets whether the loop is running
+	 * @return true if the loop is running, false otherwise
+	 */
+	public boolean isRunning() {
+		return thread != null;
+	}
+
+	/**
+	 * Gets the length of a frame
+	 * @return the length of a frame in nanoseconds
+	 */
+	public long getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Gets the amount of frames rendered so far
+	 * @return the amount of frames rendered
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Gets the amount of frames that took longer than a frame period
+	 * @return the amount of late frames
+	 */
+	public long getLateFrames() {
+		return lateFrames;
+	}
+
+	/**
+	 * Gets the amount of frames that were skipped because the loop fell
+	 * behind
+	 * @return the amount of skipped frames
+	 */
+	public long getSkippedFrames() {
+		return skippedFrames;
+	}
+
+	/**
+	 * Gets the time the longest frame so far took
+	 * @return the length of the longest frame in nanoseconds
+	 */
+	public long getLongestFrame() {
+		return longestFrame;
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// renders a frame at the start of every period until the loop is
+	// stopped, skipping the frames that it is too late for
+	private void loop() {
+		Thread self = Thread.currentThread();
+		long next = System.nanoTime();
+		while (thread == self) {
+			long now = System.nanoTime();
+			if (now < next) {
+				LockSupport.parkNanos(next - now);
+				continue;
+			}
+			long missed = (now - next) / period;
+			if (missed > 0) {
+				skippedFrames += missed;
+				next += missed * period;
+			}
+			frameDeadline = now + budget;
+			try {
+				SwingUtilities.invokeAndWait(frame);
+			} catch (InterruptedException ex) {
+				return;
+			} catch (InvocationTargetException ex) {
+				ex.getCause().printStackTrace();
+			}
+			long time = System.nanoTime() - now;
+			if (time > period) {
+				lateFrames++;
+			}
+			longestFrame = Math.max(longestFrame, time);
+			frames++;
+			next += period;
+		}
+	}
+}
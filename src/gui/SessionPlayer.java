@@ -0,0 +1,353 @@
+package gui;
+
+import java.awt.Color;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Class <code>SessionPlayer</code> replays a session that was recorded
+ * by a <code>SessionRecorder</code> on a <code>PaintCanvas</code>. The
+ * whole session is read when the player is created. Mouse records are
+ * replayed by dispatching synthetic <code>MouseEvent</code>s to the
+ * canvas, so they go through the same listeners as real ones, and every
+ * other record calls the canvas method that it was recorded from. No
+ * window is needed, so sessions can be replayed headlessly.
+ *
+ * A session is replayed either at the speed it was recorded at, with
+ * every record handed to the canvas when it is due, or as fast as the
+ * canvas can take it. Either way the time each record took is returned:
+ * at recorded speed it is the time from when the record was due until
+ * the canvas was done with it, including any time it spent waiting for
+ * the event thread, and as fast as possible it is the time the canvas
+ * spent on it.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class SessionPlayer {
+	// the size of the canvas the session was recorded on
+	private int width, height;
+
+	// the records of the session: their types, their times in
+	// nanoseconds since the start of the session, and their values,
+	// which are the position of the mouse for mouse records, 0 or 1 for
+	// flags, and the value itself for values
+	private int[] types;
+	private long[] times;
+	private int[] xs, ys;
+	private int count;
+
+	/**
+	 * Constructs a new player for the session recorded in the given
+	 * file
+	 * @param file the file the session was recorded to
+	 * @throws IOException if the file can't be read or isn't a session
+	 * that this player can replay
+	 */
+	public SessionPlayer(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != SessionRecorder.MAGIC) {
+				throw new IOException("not a session file: " + file);
+			}
+			int version = in.readUnsignedByte();
+			if (version != SessionRecorder.VERSION) {
+				throw new IOException("unknown session version: " + version);
+			}
+			width = (int) readVarLong(in);
+			height = (int) readVarLong(in);
+			read(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Gets the width of the canvas the session was recorded on
+	 * @return the width of the canvas
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the canvas the session was recorded on
+	 * @return the height of the canvas
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the amount of records in the session
+	 * @return the amount of records
+	 */
+	public int getRecordCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the amount of mouse events in the session
+	 * @return the amount of mouse records
+	 */
+	public int getMouseEventCount() {
+		int mouseEvents = 0;
+		for (int i = 0; i < count; i++) {
+			if (isMouse(types[i])) {
+				mouseEvents++;
+			}
+		}
+		return mouseEvents;
+	}
+
+	/**
+	 * Gets how long the session took when it was recorded
+	 * @return the time of the last record in nanoseconds
+	 */
+	public long getDuration() {
+		return count == 0 ? 0 : times[count - 1];
+	}
+
+	/**
+	 * Replays the session on the given canvas, which should be blank and
+	 * of the size the session was recorded on. The records are handed to
+	 * the canvas on the event thread, one at a time, so this has to be
+	 * called from another thread.
+	 * @param canvas the canvas to replay the session on
+	 * @param recordedSpeed true to replay the session at the speed it was
+	 * recorded at, false to replay it as fast as possible
+	 * @return the time each record took in nanoseconds
+	 * @throws IllegalStateException if called on the event thread
+	 * @throws InterruptedException if the thread is interrupted while
+	 * replaying
+	 * @throws InvocationTargetException if the canvas throws an exception
+	 * while handling a record
+	 */
+	public long[] play(final PaintCanvas canvas, boolean recordedSpeed) throws InterruptedException,
+			InvocationTargetException {
+		if (SwingUtilities.isEventDispatchThread()) {
+			throw new IllegalStateException("sessions can't be replayed on the event thread");
+		}
+		final MouseEvent[] events = createEvents(canvas);
+		final long[] latencies = new long[count];
+		final long[] sent = new long[1];
+		final int[] next = new int[1];
+		Runnable handler = new Runnable() {
+			@Override
+			public void run() {
+				int i = next[0];
+				replay(canvas, i, events[i]);
+				latencies[i] = System.nanoTime() - sent[0];
+			}
+		};
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			if (recordedSpeed) {
+				long due = start + times[i];
+				long now = System.nanoTime();
+				while (now < due) {
+					LockSupport.parkNanos(due - now);
+					now = System.nanoTime();
+				}
+				sent[0] = due;
+			} else {
+				sent[0] = System.nanoTime();
+			}
+			next[0] = i;
+			SwingUtilities.invokeAndWait(handler);
+		}
+		return latencies;
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ***************************************************************/
+
+	// reads the records of the session until the end of the file
+	private void read(DataInputStream in) throws IOException {
+		types = new int[1024];
+		times = new long[1024];
+		xs = new int[1024];
+		ys = new int[1024];
+		long time = 0;
+		int x = 0;
+		int y = 0;
+		int type;
+		while ((type = in.read()) != -1) {
+			if (count == types.length) {
+				types = Arrays.copyOf(types, count * 2);
+				times = Arrays.copyOf(times, count * 2);
+				xs = Arrays.copyOf(xs, count * 2);
+				ys = Arrays.copyOf(ys, count * 2);
+			}
+			time += readVarLong(in) * 1000;
+			types[count] = type;
+			times[count] = time;
+			if (isMouse(type)) {
+				x += unZigZag((int) readVarLong(in));
+				y += unZigZag((int) readVarLong(in));
+				xs[count] = x;
+				ys[count] = y;
+			} else if (isFlag(type)) {
+				xs[count] = in.readBoolean() ? 1 : 0;
+			} else if (isValue(type)) {
+				xs[count] = in.readInt();
+			} else if (!isAction(type)) {
+				throw new IOException("unknown session record: " + type);
+			}
+			count++;
+		}
+	}
+
+	// creates the mouse events of the session for the given canvas,
+	// leaving the other records empty. The canvas isn't necessarily on
+	// screen, so the events are given their screen positions instead of
+	// asking the canvas for them.
+	private MouseEvent[] createEvents(PaintCanvas canvas) {
+		MouseEvent[] events = new MouseEvent[count];
+		for (int i = 0; i < count; i++) {
+			int id;
+			int modifiers = 0;
+			int clicks = 0;
+			switch (types[i]) {
+			case SessionRecorder.MOUSE_PRESSED:
+				id = MouseEvent.MOUSE_PRESSED;
+				modifiers = InputEvent.BUTTON1_DOWN_MASK;
+				clicks = 1;
+				break;
+			case SessionRecorder.MOUSE_RELEASED:
+				id = MouseEvent.MOUSE_RELEASED;
+				clicks = 1;
+				break;
+			case SessionRecorder.MOUSE_CLICKED:
+				id = MouseEvent.MOUSE_CLICKED;
+				clicks = 1;
+				break;
+			case SessionRecorder.MOUSE_MOVED:
+				id = MouseEvent.MOUSE_MOVED;
+				break;
+			case SessionRecorder.MOUSE_DRAGGED:
+				id = MouseEvent.MOUSE_DRAGGED;
+				modifiers = InputEvent.BUTTON1_DOWN_MASK;
+				break;
+			default:
+				continue;
+			}
+			events[i] = new MouseEvent(canvas, id, times[i] / 1000000, modifiers, xs[i], ys[i],
+					xs[i], ys[i], clicks, false, MouseEvent.BUTTON1);
+		}
+		return events;
+	}
+
+	// hands the record at the given index to the given canvas
+	private void replay(PaintCanvas canvas, int i, MouseEvent evt) {
+		boolean flag = xs[i] != 0;
+		switch (types[i]) {
+		case SessionRecorder.DRAW_LINES:
+			canvas.setDrawLines(flag);
+			break;
+		case SessionRecorder.DRAW_RECTANGLES:
+			canvas.setDrawRectangles(flag);
+			break;
+		case SessionRecorder.DRAW_OVALS:
+			canvas.setDrawOvals(flag);
+			break;
+		case SessionRecorder.SELECTING:
+			canvas.setSelecting(flag);
+			break;
+		case SessionRecorder.ERASING:
+			canvas.setErasing(flag);
+			break;
+		case SessionRecorder.FILLED_RECTS:
+			canvas.setFilledRects(flag);
+			break;
+		case SessionRecorder.FILLED_OVALS:
+			canvas.setFilledOvals(flag);
+			break;
+		case SessionRecorder.PRETTY:
+			canvas.setPretty(flag);
+			break;
+		case SessionRecorder.ADAPTIVE:
+			canvas.setAdaptive(flag);
+			break;
+		case SessionRecorder.PAINT_COLOR:
+			canvas.setPaintColor(new Color(xs[i], true));
+			break;
+		case SessionRecorder.BRUSH_SIZE:
+			canvas.setBrushSize(xs[i]);
+			break;
+		case SessionRecorder.BACKGROUND_COLOR:
+			canvas.setBackgroundColor(new Color(xs[i], true));
+			break;
+		case SessionRecorder.UNDO:
+			canvas.undo();
+			break;
+		case SessionRecorder.REDO:
+			canvas.redo();
+			break;
+		case SessionRecorder.CLEAR:
+			canvas.clear();
+			break;
+		case SessionRecorder.DELETE_SELECTION:
+			canvas.deleteSelection();
+			break;
+		case SessionRecorder.REDRAW:
+			canvas.redrawImage();
+			break;
+		default:
+			canvas.dispatchEvent(evt);
+		}
+	}
+
+	private static boolean isMouse(int type) {
+		return type >= SessionRecorder.MOUSE_PRESSED && type <= SessionRecorder.MOUSE_DRAGGED;
+	}
+
+	private static boolean isFlag(int type) {
+		return type >= SessionRecorder.DRAW_LINES && type <= SessionRecorder.ADAPTIVE;
+	}
+
+	private static boolean isValue(int type) {
+		return type >= SessionRecorder.PAINT_COLOR && type <= SessionRecorder.BACKGROUND_COLOR;
+	}
+
+	private static boolean isAction(int type) {
+		return type >= SessionRecorder.UNDO && type <= SessionRecorder.REDRAW;
+	}
+
+	// reads a number written seven bits at a time
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("malformed number in session");
+	}
+
+	// undoes the mapping of small negative and positive numbers to small
+	// positive ones
+	private static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
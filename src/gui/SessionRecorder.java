@@ -0,0 +1,221 @@
+package gui;
+
+import java.awt.event.MouseEvent;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Class <code>SessionRecorder</code> writes what the user does on a
+ * <code>PaintCanvas</code> to a file, so the session can be replayed
+ * later by a <code>SessionPlayer</code> without anybody having to draw.
+ * Every raw mouse event is recorded, along with every change to the
+ * tool, the fill, the paint and background colors, the brush size and
+ * the anti-aliasing, and every undo, redo, clear, delete and redraw.
+ *
+ * The file is kept small. It starts with a header holding the size of
+ * the canvas, and every record after that is a type byte followed by
+ * the time since the record before it in microseconds and the record's
+ * own values. Times and mouse positions are written as differences
+ * from the ones before them in variable-length integers, so most mouse
+ * events take five bytes or less.
+ *
+ * Records are written on the event thread as they happen. If the file
+ * can't be written, the recording stops and the session recorded so
+ * far is kept.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class SessionRecorder {
+	// the first bytes of every session file, "PSES", and the version of
+	// the format
+	static final int MAGIC = 0x50534553;
+	static final int VERSION = 1;
+
+	// the types of records. Mouse records hold the position of the
+	// mouse, flag records a boolean, value records an int, and action
+	// records nothing.
+	static final int MOUSE_PRESSED = 1;
+	static final int MOUSE_RELEASED = 2;
+	static final int MOUSE_CLICKED = 3;
+	static final int MOUSE_MOVED = 4;
+	static final int MOUSE_DRAGGED = 5;
+	static final int DRAW_LINES = 10;
+	static final int DRAW_RECTANGLES = 11;
+	static final int DRAW_OVALS = 12;
+	static final int SELECTING = 13;
+	static final int ERASING = 14;
+	static final int FILLED_RECTS = 15;
+	static final int FILLED_OVALS = 16;
+	static final int PRETTY = 17;
+	static final int ADAPTIVE = 18;
+	static final int PAINT_COLOR = 20;
+	static final int BRUSH_SIZE = 21;
+	static final int BACKGROUND_COLOR = 22;
+	static final int UNDO = 30;
+	static final int REDO = 31;
+	static final int CLEAR = 32;
+	static final int DELETE_SELECTION = 33;
+	static final int REDRAW = 34;
+
+	// the file being written, or null once the recording has stopped
+	private DataOutputStream out;
+
+	// the time of the last record, in nanoseconds, and the last position
+	// of the mouse
+	private long lastTime;
+	private int lastX, lastY;
+
+	/**
+	 * Constructs a new recorder that writes a session on a canvas of
+	 * the given size to the given file, replacing anything in it
+	 * @param file the file to write the session to
+	 * @param width the width of the canvas
+	 * @param height the height of the canvas
+	 * @throws IOException if the file can't be written
+	 */
+	public SessionRecorder(File file, int width, int height) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		writeVarInt(width);
+		writeVarInt(height);
+		lastTime = System.nanoTime();
+	}
+
+	/**
+	 * Gets whether the recorder is still recording
+	 * @return true if records are still written, false if the recording
+	 * has been closed or failed
+	 */
+	public synchronized boolean isRecording() {
+		return out != null;
+	}
+
+	/**
+	 * Finishes the recording and closes the file. Nothing more is
+	 * recorded after it is closed.
+	 */
+	public synchronized void close() {
+		if (out == null) {
+			return;
+		}
+		try {
+			out.close();
+		} catch (IOException ex) {
+			System.err.println("the session could not be saved");
+		}
+		out = null;
+	}
+
+	/****************************************************************
+	 * RECORDING
+	 ***************************************************************/
+
+	// records the given mouse event as the given type of record
+	synchronized void recordMouse(int type, MouseEvent evt) {
+		if (startRecord(type)) {
+			int x = evt.getX();
+			int y = evt.getY();
+			try {
+				writeVarInt(zigZag(x - lastX));
+				writeVarInt(zigZag(y - lastY));
+			} catch (IOException ex) {
+				fail();
+			}
+			lastX = x;
+			lastY = y;
+		}
+	}
+
+	// records the given flag as the given type of record
+	synchronized void recordFlag(int type, boolean flag) {
+		if (startRecord(type)) {
+			try {
+				out.writeBoolean(flag);
+			} catch (IOException ex) {
+				fail();
+			}
+		}
+	}
+
+	// records the given value as the given type of record
+	synchronized void recordValue(int type, int value) {
+		if (startRecord(type)) {
+			try {
+				out.writeInt(value);
+			} catch (IOException ex) {
+				fail();
+			}
+		}
+	}
+
+	// records an action of the given type
+	synchronized void recordAction(int type) {
+		startRecord(type);
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ***************************************************************/
+
+	// writes the type and time of a new record, returning whether the
+	// rest of the record should be written. The time is kept in whole
+	// microseconds so that rounding doesn't add up over the session.
+	private boolean startRecord(int type) {
+		if (out == null) {
+			return false;
+		}
+		long delta = (System.nanoTime() - lastTime) / 1000;
+		lastTime += delta * 1000;
+		try {
+			out.writeByte(type);
+			writeVarLong(delta);
+		} catch (IOException ex) {
+			fail();
+			return false;
+		}
+		return true;
+	}
+
+	// stops recording after the file could not be written
+	private void fail() {
+		System.err.println("the session could not be recorded");
+		try {
+			out.close();
+		} catch (IOException ex) {
+			// the file is given up on either way
+		}
+		out = null;
+	}
+
+	// writes the bits of the given value as an unsigned number, seven
+	// bits at a time
+	private void writeVarInt(int value) throws IOException {
+		writeVarLong(value & 0xFFFFFFFFL);
+	}
+
+	// writes the given value, which isn't negative, seven bits at a time
+	private void writeVarLong(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	// maps small negative and positive numbers to small positive ones
+	private static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+}
@@ -0,0 +1,190 @@
+package gui;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * Class <code>StatusLine</code> shows the coordinates of the mouse on a
+ * canvas along with a few statistics about it: how many entities it
+ * has, how many points its lines have, roughly how much memory it is
+ * using, and how long it last took to render.
+ *
+ * Mouse events only store the coordinates, so they cost next to
+ * nothing however fast they come in. At most every
+ * <code>REFRESH_INTERVAL</code> milliseconds, and only if something has
+ * changed, the line is written into a character buffer that is reused
+ * every time and painted straight from it. A label would make a new
+ * string for every event and lay out the whole window again whenever
+ * its text changed.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class StatusLine extends JComponent implements ActionListener {
+	private static final long serialVersionUID = -3342419640958862467L;
+
+	/**
+	 * The shortest time, in milliseconds, between two refreshes of the
+	 * line
+	 */
+	public static final int REFRESH_INTERVAL = 40;
+
+	// the space left on either side of the text, in pixels
+	private static final int MARGIN = 2;
+
+	// the canvas whose statistics are shown
+	private PaintCanvas canvas;
+
+	// the latest coordinates of the mouse and whether they have changed
+	// since the last refresh
+	private int mouseX, mouseY;
+	private boolean moved;
+
+	// the statistics that the line shows right now
+	private int shownEntities, shownPoints;
+	private long shownMemory, shownRender;
+
+	// the text of the line
+	private char[] text;
+	private int length;
+
+	// refreshes the line while it is on screen
+	private Timer refreshTimer;
+
+	/**
+	 * Constructs a new status line for the given canvas
+	 * @param canvas the canvas whose statistics are shown
+	 */
+	public StatusLine(PaintCanvas canvas) {
+		this.canvas = canvas;
+		text = new char[160];
+		setFont(new Font(Font.MONOSPACED, Font.ITALIC, 12));
+		FontMetrics metrics = getFontMetrics(getFont());
+		setPreferredSize(new Dimension(0, metrics.getHeight() + 2 * MARGIN));
+		refreshTimer = new Timer(REFRESH_INTERVAL, this);
+		moved = true;
+		refresh();
+	}
+
+	/**
+	 * Sets the coordinates of the mouse, which are shown on the next
+	 * refresh
+	 * @param x the x coordinate of the mouse
+	 * @param y the y coordinate of the mouse
+	 */
+	public void setCoordinates(int x, int y) {
+		mouseX = x;
+		mouseY = y;
+		moved = true;
+	}
+
+	/**
+	 * Rewrites the line if the coordinates or any of the statistics have
+	 * changed since it was last written
+	 */
+	public void refresh() {
+		int entities = canvas.getEntityCount();
+		int points = canvas.getPointCount();
+		long memory = canvas.getMemoryEstimate();
+		long render = canvas.getLastRenderTime();
+		if (!moved && entities == shownEntities && points == shownPoints
+				&& memory == shownMemory && render == shownRender) {
+			return;
+		}
+		moved = false;
+		shownEntities = entities;
+		shownPoints = points;
+		shownMemory = memory;
+		shownRender = render;
+		length = 0;
+		append(mouseX);
+		append(" x ");
+		append(mouseY);
+		append("    entities ");
+		append(entities);
+		append("  points ");
+		append(points);
+		append("  memory ");
+		appendTenths(memory * 10 / (1024 * 1024));
+		append(" MB  render ");
+		appendTenths(render / 100000);
+		append(" ms");
+		repaint();
+	}
+
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		refresh();
+	}
+
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		refreshTimer.start();
+	}
+
+	@Override
+	public void removeNotify() {
+		refreshTimer.stop();
+		super.removeNotify();
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		g.setColor(getForeground());
+		g.setFont(getFont());
+		FontMetrics metrics = g.getFontMetrics();
+		int baseline = (getHeight() + metrics.getAscent() - metrics.getDescent()) / 2;
+		g.drawChars(text, 0, length, MARGIN, baseline);
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// adds the characters of the given string to the end of the text
+	private void append(String s) {
+		s.getChars(0, s.length(), text, length);
+		length += s.length();
+	}
+
+	// adds the digits of the given number to the end of the text
+	private void append(long number) {
+		if (number < 0) {
+			text[length++] = '-';
+			number = -number;
+		}
+		int start = length;
+		do {
+			text[length++] = (char) ('0' + number % 10);
+			number /= 10;
+		} while (number > 0);
+		for (int i = start, j = length - 1; i < j; i++, j--) {
+			char digit = text[i];
+			text[i] = text[j];
+			text[j] = digit;
+		}
+	}
+
+	// adds the given amount of tenths to the end of the text as a
+	// number with one decimal place
+	private void appendTenths(long tenths) {
+		append(tenths / 10);
+		text[length++] = '.';
+		text[length++] = (char) ('0' + tenths % 10);
+	}
+}
@@ -0,0 +1,218 @@
+package gui;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Vector;
+
+/**
+ * Class <code>StripedImage</code> is an RGB image that is only painted
+ * a strip of rows at a time, as its pixels are asked for, so an image
+ * far larger than the heap can be handed to an <code>ImageWriter</code>.
+ * The PNG and BMP writers ask for the image a few rows at a time, so
+ * only one strip is kept on the heap while they write it. Writers that
+ * ask for the whole raster at once, like the JPEG writer, still get it
+ * in one piece.
+ *
+ * Each strip is painted by <code>paintStrip</code>, and the last strip
+ * painted is kept, since writers tend to ask for the rows in order.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+abstract class StripedImage implements RenderedImage {
+	/**
+	 * The height of a strip in rows
+	 */
+	public static final int STRIP_HEIGHT = 256;
+
+	// the size of the image
+	private final int width;
+	private final int height;
+
+	// the image that strips are painted into and the pixels behind it
+	private final BufferedImage strip;
+	private final int[] stripPixels;
+
+	// the top row of the strip that was painted last, or -1 if no strip
+	// has been painted yet
+	private int stripTop = -1;
+
+	// a row of pixels that is handed to rasters as they are copied into
+	private final int[] row;
+
+	/**
+	 * Creates a new striped image of the given size
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 */
+	public StripedImage(int width, int height) {
+		this.width = width;
+		this.height = height;
+		strip = new BufferedImage(width, STRIP_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		stripPixels = ((DataBufferInt) strip.getRaster().getDataBuffer()).getData();
+		row = new int[width];
+	}
+
+	/**
+	 * Paints the given rows of the image, covering every pixel of them
+	 * @param g the graphics that paint the strip, which take the
+	 * coordinates of the whole image and are clipped to the strip
+	 * @param bounds the part of the image that is painted
+	 */
+	protected abstract void paintStrip(Graphics2D g, Rectangle bounds);
+
+	@Override
+	public WritableRaster copyData(WritableRaster raster) {
+		if (raster == null) {
+			raster = createRaster(new Rectangle(0, 0, width, height));
+		}
+		Rectangle bounds = raster.getBounds().intersection(new Rectangle(0, 0, width, height));
+		for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+			if (stripTop < 0 || y < stripTop || y >= stripTop + STRIP_HEIGHT) {
+				paintStripAt(y - y % STRIP_HEIGHT);
+			}
+			System.arraycopy(stripPixels, (y - stripTop) * width + bounds.x, row, 0, bounds.width);
+			raster.setDataElements(bounds.x, y, bounds.width, 1, row);
+		}
+		return raster;
+	}
+
+	@Override
+	public Raster getData() {
+		return getData(new Rectangle(0, 0, width, height));
+	}
+
+	@Override
+	public Raster getData(Rectangle rect) {
+		return copyData(createRaster(rect));
+	}
+
+	@Override
+	public Raster getTile(int tileX, int tileY) {
+		return getData(new Rectangle(0, tileY * STRIP_HEIGHT, width,
+				Math.min(STRIP_HEIGHT, height - tileY * STRIP_HEIGHT)));
+	}
+
+	@Override
+	public ColorModel getColorModel() {
+		return strip.getColorModel();
+	}
+
+	@Override
+	public SampleModel getSampleModel() {
+		return strip.getSampleModel();
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getMinX() {
+		return 0;
+	}
+
+	@Override
+	public int getMinY() {
+		return 0;
+	}
+
+	@Override
+	public int getNumXTiles() {
+		return 1;
+	}
+
+	@Override
+	public int getNumYTiles() {
+		return (height + STRIP_HEIGHT - 1) / STRIP_HEIGHT;
+	}
+
+	@Override
+	public int getMinTileX() {
+		return 0;
+	}
+
+	@Override
+	public int getMinTileY() {
+		return 0;
+	}
+
+	@Override
+	public int getTileWidth() {
+		return width;
+	}
+
+	@Override
+	public int getTileHeight() {
+		return STRIP_HEIGHT;
+	}
+
+	@Override
+	public int getTileGridXOffset() {
+		return 0;
+	}
+
+	@Override
+	public int getTileGridYOffset() {
+		return 0;
+	}
+
+	@Override
+	public Vector<RenderedImage> getSources() {
+		return null;
+	}
+
+	@Override
+	public Object getProperty(String name) {
+		return Image.UndefinedProperty;
+	}
+
+	@Override
+	public String[] getPropertyNames() {
+		return null;
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// paints the strip that starts at the given row
+	private void paintStripAt(int top) {
+		Rectangle bounds = new Rectangle(0, top, width, Math.min(STRIP_HEIGHT, height - top));
+		Graphics2D g = strip.createGraphics();
+		g.translate(0, -top);
+		g.clip(bounds);
+		paintStrip(g, bounds);
+		g.dispose();
+		stripTop = top;
+	}
+
+	// creates a raster for the given part of the image
+	private WritableRaster createRaster(Rectangle rect) {
+		return Raster.createWritableRaster(
+				strip.getSampleModel().createCompatibleSampleModel(rect.width, rect.height),
+				new Point(rect.x, rect.y));
+	}
+}
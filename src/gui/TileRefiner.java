@@ -0,0 +1,273 @@
+package gui;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import shapes.CanvasEntity;
+import shapes.StylePalette;
+
+/**
+ * Class <code>TileRefiner</code> adds the anti-aliasing that a
+ * <code>PaintCanvas</code> leaves out while the user is drawing with
+ * adaptive anti-aliasing. The canvas marks every part of its image
+ * that it paints without anti-aliasing as rough, and once the input
+ * has been idle for <code>PaintCanvas.REFINE_DELAY</code> milliseconds
+ * the rough region is painted again with anti-aliasing, a piece at a
+ * time, on a background thread.
+ *
+ * The entities of each piece are copied on the event thread before the
+ * piece is painted, since they may be moved while it is, and each
+ * finished piece is handed back to the event thread to be swapped into
+ * the image. A piece painted from an image that has changed since is
+ * out of date and stays rough. When the image is about to be read, the
+ * rough region and every piece still in flight are refined right away
+ * on the event thread instead, and the pieces in flight are dropped
+ * when they come back.
+ *
+ * @version 0.1.1 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ * 		-- the pieces in flight keep the palette of their entities
+ */
+final class TileRefiner {
+	// the width and height of the pieces the image is refined in
+	private static final int REFINE_TILE = 512;
+
+	// the canvas whose image is refined
+	private final PaintCanvas canvas;
+
+	// the part of the image that was painted without the anti-aliasing
+	// it should have, or null if there is none
+	private Rectangle roughRegion;
+
+	// the part of the image whose refined pieces are still being painted
+	// on the background thread, or null if none are, how many of those
+	// pieces there are, and the round of refining they belong to
+	private Rectangle refiningRegion;
+	private int refiningPieces;
+	private int refineRound;
+
+	// starts refining the rough region once the input is idle
+	private final Timer timer;
+
+	// when the user last drew or moved something, in nanoseconds
+	private long lastInputTime;
+
+	// refines the image off the event thread with its own renderer
+	private final ExecutorService executor;
+	private final BatchRenderer renderer;
+
+	/**
+	 * Creates a refiner for the image of the given canvas. It is only
+	 * used from the event thread.
+	 * @param canvas the canvas whose image is refined
+	 */
+	public TileRefiner(PaintCanvas canvas) {
+		this.canvas = canvas;
+		timer = new Timer(PaintCanvas.REFINE_DELAY, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				refine();
+			}
+		});
+		timer.setRepeats(false);
+		renderer = new BatchRenderer();
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "anti-aliasing refiner");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Adds the given region to the rough region and waits for the
+	 * input to be idle again before refining it
+	 * @param region the part of the image painted without anti-aliasing
+	 */
+	public void roughen(Rectangle region) {
+		roughRegion = roughRegion == null ? new Rectangle(region) : roughRegion.union(region);
+		timer.setInitialDelay(PaintCanvas.REFINE_DELAY);
+		timer.restart();
+	}
+
+	/**
+	 * Puts off refining while the user is working. Only the time of the
+	 * input is noted, since restarting the timer on every event would
+	 * allocate; the timer puts itself off when it goes off.
+	 */
+	public void inputReceived() {
+		lastInputTime = System.nanoTime();
+	}
+
+	/**
+	 * Forgets the rough region, for when the image is replaced by a new
+	 * one. Pieces still in flight come back out of date.
+	 */
+	public void discard() {
+		roughRegion = null;
+	}
+
+	/**
+	 * Refines the rough region right away on this thread, for when the
+	 * image is about to be read. Pieces that are still being painted in
+	 * the background are painted again here and dropped when they come
+	 * back, since the image can't wait for them.
+	 */
+	public void refineNow() {
+		timer.stop();
+		if (refiningRegion != null) {
+			roughRegion = roughRegion == null ? refiningRegion : roughRegion.union(refiningRegion);
+			refiningRegion = null;
+			refiningPieces = 0;
+			refineRound++;
+		}
+		if (roughRegion == null || !canvas.needsRefining()) {
+			return;
+		}
+		Rectangle region = roughRegion;
+		roughRegion = null;
+		BatchRenderer tileRenderer = new BatchRenderer();
+		for (Rectangle tile : canvas.tiles(region, REFINE_TILE, false)) {
+			ArrayList<CanvasEntity> painted = new ArrayList<CanvasEntity>();
+			canvas.queryEntities(tile, painted);
+			swapIn(paintTile(tileRenderer, tile, painted), tile, canvas.getImageVersion());
+		}
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// refines the rough region on the background thread, one piece at
+	// a time. The entities in each piece are gathered and copied here,
+	// since they may be moved while the piece is painted.
+	private void refine() {
+		if (roughRegion == null || !canvas.needsRefining()) {
+			return;
+		}
+		long idle = (System.nanoTime() - lastInputTime) / 1000000;
+		if (idle < PaintCanvas.REFINE_DELAY) {
+			timer.setInitialDelay((int) (PaintCanvas.REFINE_DELAY - idle));
+			timer.start();
+			return;
+		}
+		Rectangle region = roughRegion;
+		roughRegion = null;
+		for (Rectangle tile : canvas.tiles(region, REFINE_TILE, false)) {
+			ArrayList<CanvasEntity> painted = new ArrayList<CanvasEntity>();
+			canvas.queryEntities(tile, painted);
+			for (int i = 0; i < painted.size(); i++) {
+				painted.set(i, painted.get(i).snapshot());
+			}
+			refiningRegion = refiningRegion == null ? new Rectangle(tile)
+					: refiningRegion.union(tile);
+			refiningPieces++;
+			executor.execute(new RefineTask(tile, painted, canvas.getPalette(),
+					canvas.getImageVersion(), refineRound));
+		}
+	}
+
+	// paints the given entities into a new image of the given piece of
+	// the canvas with anti-aliasing. The renderer targets the piece, so
+	// it paints each entity the same way it would into the canvas image.
+	private static BufferedImage paintTile(BatchRenderer tileRenderer, Rectangle tile,
+			ArrayList<CanvasEntity> painted) {
+		BufferedImage refined = new BufferedImage(tile.width, tile.height,
+				BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g2 = refined.createGraphics();
+		g2.translate(-tile.x, -tile.y);
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		tileRenderer.setTarget(refined, tile.x, tile.y);
+		tileRenderer.paint(g2, painted);
+		tileRenderer.setTarget(null);
+		g2.dispose();
+		return refined;
+	}
+
+	// takes a piece that was refined in the background, unless it is from
+	// a round of refining that was since finished on this thread
+	private void pieceRefined(BufferedImage refined, Rectangle tile, int version, int round) {
+		if (round != refineRound) {
+			return;
+		}
+		if (--refiningPieces == 0) {
+			refiningRegion = null;
+		}
+		swapIn(refined, tile, version);
+	}
+
+	// copies a refined piece into the image. If the image changed while
+	// the piece was being painted, the piece is out of date and is
+	// still rough.
+	private void swapIn(BufferedImage refined, Rectangle tile, int version) {
+		if (!canvas.needsRefining()) {
+			return;
+		}
+		if (version != canvas.getImageVersion()) {
+			roughen(tile);
+			return;
+		}
+		canvas.drawRefined(refined, tile);
+	}
+
+	/****************************************************************
+	 * HELPER CLASSES
+	 ****************************************************************/
+
+	// paints a piece of the image with anti-aliasing on the background
+	// thread and hands it back to the event thread to be swapped in
+	private class RefineTask implements Runnable {
+		private Rectangle tile;
+		private ArrayList<CanvasEntity> painted;
+		private int version;
+		private int round;
+
+		// the palette of the copied entities, which their style ids only
+		// hold weakly, so it is kept until they are painted even if the
+		// canvas is cleared in the meantime
+		@SuppressWarnings("unused")
+		private StylePalette palette;
+
+		public RefineTask(Rectangle tile, ArrayList<CanvasEntity> painted, StylePalette palette,
+				int version, int round) {
+			this.tile = tile;
+			this.painted = painted;
+			this.palette = palette;
+			this.version = version;
+			this.round = round;
+		}
+
+		@Override
+		public void run() {
+			final BufferedImage refined = paintTile(renderer, tile, painted);
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					pieceRefined(refined, tile, version, round);
+				}
+			});
+		}
+	}
+}
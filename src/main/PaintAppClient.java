@@ -10,7 +10,10 @@ import gui.PaintFrame;
  * This program creates a window that open and runs an application
  * that allows the user to draw on a blank canvas
  * 
- * @version 0.4.1 [8/25/15]
+ * The size of the canvas can be given as two arguments, the width
+ * then the height. Canvases larger than the window are scrolled.
+ * 
+ * @version 0.5.0 [10/19/26]
  * 
  * @author Michael Davis
  *
@@ -20,16 +23,29 @@ import gui.PaintFrame;
  * Version Notes:
  * 		-- the brush size can be a max of 10px
  * 		-- minor cosmetic changes
+ * 		-- the canvas size can be given on the command line
  */
 public class PaintAppClient {
 	public static void main(String[] args) {
 		Toolkit kit = Toolkit.getDefaultToolkit();
 		final Dimension screenSize = kit.getScreenSize();
+		final Dimension canvasSize = new Dimension(screenSize.width / 2,
+				screenSize.height / 2);
+		if (args.length >= 2) {
+			try {
+				canvasSize.width = Integer.parseInt(args[0]);
+				canvasSize.height = Integer.parseInt(args[1]);
+			} catch (NumberFormatException ex) {
+				System.err.println("usage: PaintAppClient [width height]");
+				return;
+			}
+		}
 
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
 				PaintFrame frame = new PaintFrame(screenSize.width / 2, 
-						screenSize.height / 2, "Doodler");
+						screenSize.height / 2, "Doodler",
+						canvasSize.width, canvasSize.height);
 				frame.start();
 			}
 		});
@@ -2,8 +2,12 @@ package shapes;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Shape;
 import java.awt.Stroke;
 
+import utilities.GeometryUtilities;
+import utilities.HashUtilities;
+
 /**
  * Abstract class <code>AbstractRectangle</code> is an abstract
  * representation of a rectangular shape that specifies an area in a
@@ -16,9 +20,12 @@ import java.awt.Stroke;
  * 
  * Classes utilizing this abstract class should be aware that this
  * particular rectangle only uses integer precision when storing
- * location and size data.
+ * location and size data. The location, size and flags are public,
+ * but once a rectangle is frozen it should only be changed through its
+ * methods so that its cached content hash stays up to date. The style
+ * can only be changed through its methods.
  * 
- * @version 0.4.1 [8/24/15]
+ * @version 0.7.3 [10/19/26]
  * 
  * @author Michael Davis
  *
@@ -30,14 +37,31 @@ import java.awt.Stroke;
  * 		serve as the underlying class that represents Ellipses and
  * 		Rectangles that are drawn on the PaintCanvas.
  * 		-- Updated documentation and methods
+ * 		-- added bounds, hit-testing, swept intersection, and
+ * 		translation. Subclasses describe their geometry with an
+ * 		outline shape that the tests are run against.
+ * 		-- replaced the hash codes of the subclasses, which summed the
+ * 		location and size, with a cached 64-bit hash of the kind,
+ * 		geometry, fill, color and brush, and made equality compare the
+ * 		actual contents
+ * 		-- the brush and paint color are kept as a style id in the
+ * 		palette instead of as their own objects
+ * 		-- the style id is private, and is kept along with the palette
+ * 		it belongs to
+ * 		-- subclasses can copy everything but their kind and geometry
+ * 		from here when a snapshot is taken
+ * 		-- the style id says which palette it belongs to, so the palette
+ * 		isn't kept next to it
  */
 public abstract class AbstractRectangle implements CanvasEntity {
 	public int x, y; // the x/y coordinate of the upper left corner
 	public int width, height; // the height and width of this rectangle
-	public Stroke brushType; // the type of brushed used to paint
-	public Color paintColor; // the color of paint
+	private int styleId; // the id of the brush, paint color and palette
 	public boolean active; // whether this entity is active
 	public boolean isFilled; // whether this entity should be filled
+	public long id; // the id assigned by the canvas
+	private boolean frozen; // whether this entity is finished
+	private long contentHash; // the hash cached when frozen
 	
 	/**
 	 * Constructs a basic <code>AbstractRectangle<code> located at the
@@ -49,21 +73,35 @@ public abstract class AbstractRectangle implements CanvasEntity {
 	
 	/**
 	 * Constructs a new <code>AbstractRectangle</code> with the given
-	 * dimensions. It initiates the paint color to black and the brush
-	 * type to null.
+	 * dimensions whose style is kept in the default palette. It
+	 * initiates the paint color to black and the brush type to null.
 	 * @param x the x-coordinate of the upper-left corner
 	 * @param y the y-coordinate of the upper-left corner
 	 * @param width the width of the Rectangle
 	 * @param height the height of the Rectangle
 	 */
 	public AbstractRectangle(int x, int y, int width, int height) {
+		this(StylePalette.getDefault(), x, y, width, height);
+	}
+	
+	/**
+	 * Constructs a new <code>AbstractRectangle</code> with the given
+	 * dimensions whose style is kept in the given palette. It initiates
+	 * the paint color to black and the brush type to null.
+	 * @param palette the palette of the document the rectangle is in
+	 * @param x the x-coordinate of the upper-left corner
+	 * @param y the y-coordinate of the upper-left corner
+	 * @param width the width of the Rectangle
+	 * @param height the height of the Rectangle
+	 */
+	public AbstractRectangle(StylePalette palette, int x, int y, int width, int height) {
 		this.x = x;
 		this.y = y;
 		this.width = width;
 		this.height = height;
-		brushType = null;
-		paintColor = Color.BLACK;
+		styleId = palette.internStyle(null, Color.BLACK);
 		active = true;
+		id = -1;
 	}
 	
 	/**
@@ -115,6 +153,7 @@ public abstract class AbstractRectangle implements CanvasEntity {
 		this.y = y;
 		this.width = width;
 		this.height = height;
+		contentChanged();
 	}
 	
 	/**
@@ -125,6 +164,7 @@ public abstract class AbstractRectangle implements CanvasEntity {
 	public void setSize(int width, int height) {
 		this.width = width;
 		this.height = height;
+		contentChanged();
 	}
 	
 	/**
@@ -138,26 +178,39 @@ public abstract class AbstractRectangle implements CanvasEntity {
 	public void setLocation(int x, int y) {
 		this.x = x;
 		this.y = y;
+		contentChanged();
 	}
 
 	@Override
 	public Color getColor() {
-		return this.paintColor;
+		return getPalette().getStyleColor(styleId);
 	}
 
 	@Override
 	public Stroke getBrushType() {
-		return this.brushType;
+		return getPalette().getStyleStroke(styleId);
+	}
+
+	@Override
+	public int getStyleId() {
+		return styleId;
+	}
+
+	@Override
+	public StylePalette getPalette() {
+		return StylePalette.forStyle(styleId);
 	}
 
 	@Override
 	public void setColor(Color c) {
-		this.paintColor = c;
+		this.styleId = getPalette().withColor(styleId, c);
+		contentChanged();
 	}
 
 	@Override
 	public void setBrushStyle(Stroke brushStyle) {
-		this.brushType = brushStyle;
+		this.styleId = getPalette().withStroke(styleId, brushStyle);
+		contentChanged();
 	}
 
 	@Override
@@ -170,11 +223,93 @@ public abstract class AbstractRectangle implements CanvasEntity {
 		this.active = active;
 	}
 
+	@Override
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	@Override
+	public java.awt.Rectangle getBounds() {
+		int pad = GeometryUtilities.getStrokePadding(getBrushType());
+		return new java.awt.Rectangle(x - pad, y - pad,
+				width + 2 * pad + 1, height + 2 * pad + 1);
+	}
+
+	@Override
+	public boolean hitTest(int px, int py, int tolerance) {
+		return intersects(px, py, px, py, tolerance);
+	}
+
+	@Override
+	public boolean intersects(int x1, int y1, int x2, int y2, int radius) {
+		return GeometryUtilities.outlineIntersects(getOutline(), isFilled, getBrushType(),
+				x1, y1, x2, y2, radius);
+	}
+
+	@Override
+	public void translate(int dx, int dy) {
+		setLocation(x + dx, y + dy);
+	}
+
+	@Override
+	public void freeze() {
+		frozen = true;
+		contentHash = computeContentHash();
+	}
+
+	/**
+	 * Copies the style, flags, id and cached hash of this rectangle into
+	 * the given rectangle, which subclasses make with the same location
+	 * and size when they are asked for a snapshot
+	 * @param copy the new rectangle of the same kind as this one
+	 * @return the copy
+	 */
+	protected CanvasEntity copyInto(AbstractRectangle copy) {
+		copy.styleId = styleId;
+		copy.isFilled = isFilled;
+		copy.active = active;
+		copy.id = id;
+		copy.frozen = frozen;
+		copy.contentHash = contentHash;
+		return copy;
+	}
+
+	@Override
+	public long getContentHash() {
+		return frozen ? contentHash : computeContentHash();
+	}
+
 	@Override
 	public boolean equals(CanvasEntity other) {
+		if (other != null && other.isActive() && other.getClass().equals(getClass())) {
+			AbstractRectangle rectangle = (AbstractRectangle) other;
+			return getContentHash() == rectangle.getContentHash()
+					&& x == rectangle.x && y == rectangle.y
+					&& width == rectangle.width && height == rectangle.height
+					&& isFilled == rectangle.isFilled
+					&& StylePalette.sameStyle(this, rectangle);
+		}
 		return false;
 	}
 
+	@Override
+	public int hashCode() {
+		return HashUtilities.fold(getContentHash());
+	}
+
+	/**
+	 * Gets the outline of this entity in the coordinate space. The
+	 * outline is the path that is stroked when the entity is not
+	 * filled, and the area that is painted when it is.
+	 * @return the outline of this entity
+	 */
+	protected abstract Shape getOutline();
+
 	@Override
 	public void paintShape(Graphics2D g) {
 		return; // the paint shape method must be implemented by class
@@ -195,5 +330,24 @@ public abstract class AbstractRectangle implements CanvasEntity {
 	 */
 	public void setFilled(boolean filled) {
 		this.isFilled = filled;
+		contentChanged();
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// hashes the kind of shape along with its geometry, fill, color and
+	// brush
+	private long computeContentHash() {
+		return HashUtilities.hashBox(getClass().getName(), x, y, width, height, isFilled,
+				getColor(), getBrushType());
+	}
+
+	// updates the cached hash after this entity has been changed
+	private void contentChanged() {
+		if (frozen) {
+			contentHash = computeContentHash();
+		}
 	}
 }
\ No newline at end of file
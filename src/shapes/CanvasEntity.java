@@ -12,7 +12,7 @@ import java.awt.Stroke;
  * setBrushStyle. These methods are used in order to help the canvas
  * know how the entity will display when it is rendered.
  * 
- * @version 0.1.5 [7/15/15]
+ * @version 0.3.2 [10/19/26]
  * 
  * @author Michael Davis
  *
@@ -21,6 +21,15 @@ import java.awt.Stroke;
 /*
  * Version Notes:
  * 		-- added equals function
+ * 		-- added ids, bounds, hit-testing, and translation so entities
+ * 		can be selected and moved after they have been drawn
+ * 		-- added swept intersection tests for the eraser
+ * 		-- added a cached 64-bit hash of the contents of an entity
+ * 		-- added style ids from the style palette
+ * 		-- entities keep the palette their style ids belong to
+ * 		-- entities can be copied so they can be painted off the event
+ * 		thread
+ * 		-- the palette of an entity is found from its style id
  */
 public interface CanvasEntity {
 	/**
@@ -37,6 +46,22 @@ public interface CanvasEntity {
 	 */
 	public Stroke getBrushType();
 	
+	/**
+	 * Gets the id of the brush and color this entity is painted with in
+	 * its <code>StylePalette</code>. The id also says which palette that
+	 * is, so entities with the same style id are painted with the same
+	 * brush and the same color.
+	 * @return the style id of this entity
+	 */
+	public int getStyleId();
+	
+	/**
+	 * Gets the palette that the style id of this entity belongs to,
+	 * which is looked up from the id
+	 * @return the palette of this entity
+	 */
+	public StylePalette getPalette();
+	
 	/**
 	 * Defines how this entity is to appear on the <code>PaintCanvas</code>
 	 * @param g the <code>Graphics2D</code> object that will draw the
@@ -72,6 +97,86 @@ public interface CanvasEntity {
 	 * @param active whether or not this entity is active
 	 */
 	public void setActive(boolean active);
+	
+	/**
+	 * Gets the id that the canvas assigned to this entity when it was
+	 * drawn. Ids increase in the order entities are drawn, so an entity
+	 * with a larger id is painted on top of one with a smaller id.
+	 * @return the id of this entity, or -1 if it has not been assigned
+	 */
+	public long getId();
+	
+	/**
+	 * Sets the id of this entity to the given value
+	 * @param id the id assigned to this entity by the canvas
+	 */
+	public void setId(long id);
+	
+	/**
+	 * Gets the smallest rectangle that contains every pixel this entity
+	 * can touch when it is painted, including the width of its brush
+	 * @return the bounding rectangle of this entity in canvas
+	 * coordinates
+	 */
+	public java.awt.Rectangle getBounds();
+	
+	/**
+	 * Checks whether or not the given point lies on this entity. Points
+	 * within the given tolerance of the painted geometry count as hits.
+	 * @param x the x-coordinate of the point
+	 * @param y the y-coordinate of the point
+	 * @param tolerance how far away from the painted geometry, in
+	 * pixels, a point can be and still count as a hit
+	 * @return true if the point hits this entity, false otherwise
+	 */
+	public boolean hitTest(int x, int y, int tolerance);
+	
+	/**
+	 * Checks whether or not a round brush of the given radius swept
+	 * along the given segment would touch this entity. A segment that
+	 * starts and ends at the same point tests a single dab of the brush.
+	 * @param x1 the x-coordinate of the start of the segment
+	 * @param y1 the y-coordinate of the start of the segment
+	 * @param x2 the x-coordinate of the end of the segment
+	 * @param y2 the y-coordinate of the end of the segment
+	 * @param radius the radius of the brush in pixels
+	 * @return true if the swept brush touches this entity, false
+	 * otherwise
+	 */
+	public boolean intersects(int x1, int y1, int x2, int y2, int radius);
+	
+	/**
+	 * Moves this entity by the given amounts in the coordinate space
+	 * @param dx the distance to move along the x-axis
+	 * @param dy the distance to move along the y-axis
+	 */
+	public void translate(int dx, int dy);
+
+	/**
+	 * Gets a copy of this entity as it is now, which another thread can
+	 * paint while this entity goes on changing. The copy may share data
+	 * with this entity that neither of them changes in place.
+	 * @return a copy of this entity
+	 */
+	public CanvasEntity snapshot();
+
+	/**
+	 * Marks this entity as finished. Its content hash is computed once
+	 * here and kept, and is only computed again if the entity is
+	 * changed through one of its own methods afterwards.
+	 */
+	public void freeze();
+
+	/**
+	 * Gets a 64-bit hash of everything that affects how this entity is
+	 * painted: its kind, its geometry, its color and its brush. Entities
+	 * that paint the same pixels in the same place have the same hash.
+	 * The hash is cached once the entity has been frozen, and computed
+	 * on every call before then. A frozen entity that has been changed
+	 * may put off working out its hash again until it is asked for.
+	 * @return the content hash of this entity
+	 */
+	public long getContentHash();
 
 	/**
 	 * Indicates whether or not this CanvasEntity is equal to the
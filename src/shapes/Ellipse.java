@@ -1,5 +1,7 @@
 package shapes;
 import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
 
 /**
  * Class <code>Ellipse</code> represents an elliptical shape in a
@@ -11,7 +13,7 @@ import java.awt.Graphics2D;
  * coordinate space. Essentially the resulting ellipse is the largest
  * that can fit into the objects bounding rectangle
  * 
- * @version 0.4.1 [8/24/15]
+ * @version 0.4.4 [10/19/26]
  * 
  * @author Michael Davis
  *
@@ -21,6 +23,10 @@ import java.awt.Graphics2D;
  * Version Notes:
  * 		-- Ellipses and Rectangles now share the same abstract class
  * 		which allows for a lot of the code to be shared as well.
+ * 		-- the hash code and equality now come from AbstractRectangle
+ * 		-- the brush and color are looked up from the style palette
+ * 		-- can be made with the palette of the document it is drawn in
+ * 		-- can be copied to be painted off the event thread
  */
 public class Ellipse extends AbstractRectangle {
 	
@@ -38,11 +44,37 @@ public class Ellipse extends AbstractRectangle {
 	public Ellipse(int x, int y, int width, int height) {
 		super(x, y, width, height);
 	}
+
+	/**
+	 * Constructs a new <code>Ellipse</code> whose bounding rectangle
+	 * is defined by the given xy coordinates and the given width and
+	 * height, and whose style is kept in the given palette
+	 * @param palette the palette of the document the ellipse is in
+	 * @param x the x coordinate of the left corner of this object's 
+	 * bounding rectangle
+	 * @param y the y coordinate of the left corner of this object's
+	 * bounding rectangle
+	 * @param width the width of the bounding rectangle
+	 * @param height the height of the bounding rectangle
+	 */
+	public Ellipse(StylePalette palette, int x, int y, int width, int height) {
+		super(palette, x, y, width, height);
+	}
 	
+	@Override
+	protected Shape getOutline() {
+		return new Ellipse2D.Double(x, y, width, height);
+	}
+
+	@Override
+	public CanvasEntity snapshot() {
+		return copyInto(new Ellipse(getPalette(), x, y, width, height));
+	}
+
 	@Override
 	public void paintShape(Graphics2D g) {
-		g.setColor(paintColor);
-		g.setStroke(brushType);
+		g.setColor(getColor());
+		g.setStroke(getBrushType());
 		if (isFilled) {
 			g.fillOval(x, y, width, height);
 		} else {
@@ -50,19 +82,6 @@ public class Ellipse extends AbstractRectangle {
 		}
 	}
 	
-	@Override
-	public boolean equals(CanvasEntity other) {
-		if (other != null && other.isActive()) {
-			return this.hashCode() == other.hashCode() && this.getClass().equals(other.getClass());
-		}
-		return false;
-	}
-	
-	@Override
-	public int hashCode() {
-		return x + y + height + width + paintColor.hashCode() + brushType.hashCode();
-	}
-	
 	/**
 	 * Returns a String representation of this Ellipse with the xy
 	 * coordinates, height, and width of the bounding rectangle in a
@@ -2,15 +2,24 @@ package shapes;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Stroke;
+import java.awt.geom.Line2D;
+import java.util.Arrays;
+
+import utilities.GeometryUtilities;
+import utilities.HashUtilities;
 
 /**
  * Class <code>Line</code> represents a line that is drawn on a
  * <code>PaintCanvas</code>. It is represented by lists of xy coordinates
- * that make it up, the color of the paint that was used to draw it,
- * and the type of brush that was used to draw it. Lines determine how
+ * that make it up and the style it was drawn with, which is the color
+ * of the paint and the type of brush from the <code>StylePalette</code>. Lines determine how
  * to draw themselves on the canvas and are thusly considered
  * canvas entities
- * @version 0.1.3 [7/15/15]
+ * 
+ * Lines that are exactly the same can share one set of coordinate
+ * arrays with <code>shareGeometry</code>. A line with shared arrays
+ * copies them before it changes any of its points.
+ * @version 0.4.6 [10/19/26]
  * 
  * @author Michael Davis
  *
@@ -19,16 +28,32 @@ import java.awt.Stroke;
 /*
  * Version Notes:
  * 		-- added equals and hashCode functions
+ * 		-- added bounds, hit-testing, swept intersection, and
+ * 		translation. The extent of the points is tracked as they are
+ * 		added so the bounds never need to scan the whole line.
+ * 		-- replaced the hash code, which only summed the first half of
+ * 		the points, with a cached 64-bit hash of every point, the color
+ * 		and the brush, and made equality compare the actual contents
+ * 		-- added sharing coordinate arrays between identical lines
+ * 		-- the color and brush are kept as a style id in the palette
+ * 		-- the amount of points can be read so that lines can be drawn
+ * 		in batches
+ * 		-- the coordinate lists only grow once they are full, and are
+ * 		copied in bulk when they do
+ * 		-- moving a finished line only marks its hash as out of date,
+ * 		and the hash is worked out again the next time it is needed
+ * 		-- lines keep the palette of the document they are drawn in
+ * 		-- copies of a line share its points until either one changes
+ * 		-- the style id says which palette it belongs to, so the line
+ * 		doesn't keep a reference to the palette as well
  */
 public class Line implements CanvasEntity {
 	// The default capacity for the internal array of points
 	private static final int DEFAULT_CAPACITY = 100;
 	
-	// the color of this particular line
-	private Color lineColor;
-	
-	// the type of brush used to paint this line
-	private Stroke brushType;
+	// the id of the color and brush used to paint this line, which
+	// also says which palette they are kept in
+	private int styleId;
 	
 	// the set of xy coordinate points that compose this line
 	private int[] xCoordinates, yCoordinates;
@@ -42,18 +67,67 @@ public class Line implements CanvasEntity {
 	// whether or not this entity is active
 	private boolean active;
 	
+	// the id assigned by the canvas
+	private long id;
+	
+	// the extent of the points that make up this line
+	private int minX, minY, maxX, maxY;
+	
+	// whether or not this line is finished, its cached hash, and
+	// whether the line has changed since the hash was cached
+	private boolean frozen;
+	private long contentHash;
+	private boolean hashStale;
+	
+	// whether or not the coordinate arrays may be shared with another
+	// line
+	private boolean sharedGeometry;
+	
 	/**
-	 * Constructs a new <code>Line</code>. It does not associate a paint
-	 * color or a brush type to the line and does not add any coordinates
-	 * to the lines internal lists.
+	 * Constructs a new <code>Line</code> whose style is kept in the
+	 * default palette. It does not associate a paint color or a brush
+	 * type to the line and does not add any coordinates to the lines
+	 * internal lists.
 	 */
 	public Line() {
-		this.lineColor = null;
-		this.brushType = null;
+		this(StylePalette.getDefault());
+	}
+	
+	/**
+	 * Constructs a new <code>Line</code> whose style is kept in the
+	 * given palette. It does not associate a paint color or a brush type
+	 * to the line and does not add any coordinates to the lines internal
+	 * lists.
+	 * @param palette the palette of the document the line is in
+	 */
+	public Line(StylePalette palette) {
+		this.styleId = palette.getEmptyStyle();
 		xCoordinates = new int[DEFAULT_CAPACITY];
 		yCoordinates = new int[DEFAULT_CAPACITY];
 		capacity = DEFAULT_CAPACITY;
 		active = true;
+		id = -1;
+	}
+	
+	// makes a copy of the given line that shares its points with it
+	// until either of them is changed
+	private Line(Line other) {
+		styleId = other.styleId;
+		xCoordinates = other.xCoordinates;
+		yCoordinates = other.yCoordinates;
+		size = other.size;
+		capacity = other.capacity;
+		active = other.active;
+		id = other.id;
+		minX = other.minX;
+		minY = other.minY;
+		maxX = other.maxX;
+		maxY = other.maxY;
+		frozen = other.frozen;
+		contentHash = other.contentHash;
+		hashStale = other.hashStale;
+		sharedGeometry = true;
+		other.sharedGeometry = true;
 	}
 	
 	/**
@@ -64,28 +138,33 @@ public class Line implements CanvasEntity {
 	 * @param y the y-coordinate of the line at this instance
 	 */
 	public void add(int x, int y) {
+		unshareGeometry();
 		ensureCapacity();
 		xCoordinates[size] = x;
 		yCoordinates[size] = y;
+		if (size == 0) {
+			minX = maxX = x;
+			minY = maxY = y;
+		} else {
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
 		size++;
+		contentChanged();
 	}
 	
 	/*
 	 * Ensures the capacity of the lists that keep track of the line's
 	 * x and y coordinates by doubling the size of the list whenever 
-	 * it's size is close to its current capacity.
+	 * it is full.
 	 */
 	private void ensureCapacity() {
-		if (size == capacity / 2) {
+		if (size == capacity) {
 			capacity *= 2;
-			int[] tempX = new int[capacity];
-			int[] tempY = new int[capacity];
-			for (int i = 0; i < size; i++) {
-				tempX[i] = xCoordinates[i];
-				tempY[i] = yCoordinates[i];
-			}
-			xCoordinates = tempX;
-			yCoordinates = tempY;
+			xCoordinates = Arrays.copyOf(xCoordinates, capacity);
+			yCoordinates = Arrays.copyOf(yCoordinates, capacity);
 		}
 	}
 		
@@ -95,7 +174,8 @@ public class Line implements CanvasEntity {
 	 * line
 	 */
 	public void setColor(Color color) {
-		lineColor = color;
+		styleId = getPalette().withColor(styleId, color);
+		contentChanged();
 	}
 	
 	/**
@@ -104,11 +184,13 @@ public class Line implements CanvasEntity {
 	 * line
 	 */
 	public void setBrushStyle(Stroke brushStyle) {
-		brushType = brushStyle;
+		styleId = getPalette().withStroke(styleId, brushStyle);
+		contentChanged();
 	}
 	
 	/**
-	 * Gets all of the x-coordinate values that make up this line
+	 * Gets all of the x-coordinate values that make up this line. The
+	 * array may be shared with other lines and must not be changed.
 	 * @return the x-coordinates of this line
 	 */
 	public int[] getXCoordinates() {
@@ -116,19 +198,29 @@ public class Line implements CanvasEntity {
 	}
 	
 	/**
-	 * Gets all of the y-coordinate values that make up this line
+	 * Gets all of the y-coordinate values that make up this line. The
+	 * array may be shared with other lines and must not be changed.
 	 * @return the y-coordinates of this line
 	 */
 	public int[] getYCoordinates() {
 		return yCoordinates;
 	}
 	
+	/**
+	 * Gets the amount of points that make up this line. Only this many
+	 * entries of the coordinate arrays are part of the line.
+	 * @return the amount of points in this line
+	 */
+	public int getSize() {
+		return size;
+	}
+	
 	/**
 	 * Gets the color of the paint that was used to draw this line
 	 * @return the paint color used when drawing this line
 	 */
 	public Color getColor() {
-		return lineColor;
+		return getPalette().getStyleColor(styleId);
 	}
 	
 	/**
@@ -136,13 +228,24 @@ public class Line implements CanvasEntity {
 	 * @return the brush style used when drawing this line
 	 */
 	public Stroke getBrushType() {
-		return brushType;
+		return getPalette().getStyleStroke(styleId);
+	}
+	
+	@Override
+	public int getStyleId() {
+		return styleId;
+	}
+	
+	@Override
+	public StylePalette getPalette() {
+		return StylePalette.forStyle(styleId);
 	}
 
 	@Override
 	public void paintShape(Graphics2D g) {
-		g.setStroke(brushType);
-		g.setColor(lineColor);
+		StylePalette palette = getPalette();
+		g.setStroke(palette.getStyleStroke(styleId));
+		g.setColor(palette.getStyleColor(styleId));
 		g.drawPolyline(xCoordinates, yCoordinates, size);
 	}
 
@@ -156,20 +259,170 @@ public class Line implements CanvasEntity {
 		this.active = active;
 	}
 
+	@Override
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	@Override
+	public java.awt.Rectangle getBounds() {
+		int pad = GeometryUtilities.getStrokePadding(getBrushType());
+		return new java.awt.Rectangle(minX - pad, minY - pad,
+				maxX - minX + 2 * pad + 1, maxY - minY + 2 * pad + 1);
+	}
+
+	@Override
+	public boolean hitTest(int x, int y, int tolerance) {
+		return intersects(x, y, x, y, tolerance);
+	}
+
+	@Override
+	public boolean intersects(int x1, int y1, int x2, int y2, int radius) {
+		if (size == 0) {
+			return false;
+		}
+		double reach = GeometryUtilities.getStrokeWidth(getBrushType()) / 2 + radius;
+		double reachSq = reach * reach;
+		if (size == 1) {
+			return Line2D.ptSegDistSq(x1, y1, x2, y2,
+					xCoordinates[0], yCoordinates[0]) <= reachSq;
+		}
+		for (int i = 1; i < size; i++) {
+			if (GeometryUtilities.segmentDistanceSq(xCoordinates[i - 1], yCoordinates[i - 1],
+					xCoordinates[i], yCoordinates[i], x1, y1, x2, y2) <= reachSq) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void translate(int dx, int dy) {
+		unshareGeometry();
+		for (int i = 0; i < size; i++) {
+			xCoordinates[i] += dx;
+			yCoordinates[i] += dy;
+		}
+		minX += dx;
+		maxX += dx;
+		minY += dy;
+		maxY += dy;
+		contentChanged();
+	}
+
+	@Override
+	public CanvasEntity snapshot() {
+		return new Line(this);
+	}
+
+	@Override
+	public void freeze() {
+		frozen = true;
+		contentHash = computeContentHash();
+		hashStale = false;
+	}
+
+	@Override
+	public long getContentHash() {
+		if (!frozen) {
+			return computeContentHash();
+		}
+		if (hashStale) {
+			contentHash = computeContentHash();
+			hashStale = false;
+		}
+		return contentHash;
+	}
+
+	/**
+	 * Makes this line use the same coordinate arrays as the given line,
+	 * if the two are exactly the same. Both lines copy the arrays
+	 * before changing any of their points afterwards.
+	 * @param other the line to share coordinates with
+	 * @return true if the coordinates are now shared, false if the
+	 * lines aren't the same
+	 */
+	public boolean shareGeometry(Line other) {
+		if (other == this || !sameContent(other)) {
+			return false;
+		}
+		xCoordinates = other.xCoordinates;
+		yCoordinates = other.yCoordinates;
+		capacity = other.capacity;
+		sharedGeometry = true;
+		other.sharedGeometry = true;
+		return true;
+	}
+
 	@Override
 	public boolean equals(CanvasEntity other) {
-		if (other != null && other.isActive()) {
-			return this.hashCode() == other.hashCode() && this.getClass().equals(other.getClass());
+		if (other != null && other.isActive() && other instanceof Line) {
+			return getContentHash() == other.getContentHash() && sameContent((Line) other);
 		}
 		return false;
 	}
 	
 	@Override
 	public int hashCode() {
-		int coordinateValues = 0;
-		for (int i = 0; i < size / 2; i++) {
-			coordinateValues += (xCoordinates[i] + yCoordinates[i]);
+		return HashUtilities.fold(getContentHash());
+	}
+	
+	/*
+	 * Checks whether or not the given line has exactly the same points,
+	 * color and brush as this one
+	 */
+	private boolean sameContent(Line other) {
+		if (size != other.size || !StylePalette.sameStyle(this, other)) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (xCoordinates[i] != other.xCoordinates[i] || yCoordinates[i] != other.yCoordinates[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/*
+	 * Hashes every point of this line along with its color and brush
+	 */
+	private long computeContentHash() {
+		long hash = HashUtilities.mix(HashUtilities.SEED, getClass().getName().hashCode());
+		hash = HashUtilities.mix(hash, size);
+		hash = HashUtilities.mixColor(hash, getColor());
+		hash = HashUtilities.mixStroke(hash, getBrushType());
+		for (int i = 0; i < size; i++) {
+			hash = HashUtilities.mixPoint(hash, xCoordinates[i], yCoordinates[i]);
+		}
+		return HashUtilities.finish(hash);
+	}
+	
+	/*
+	 * Marks the cached hash as out of date after this line has been
+	 * changed. Hashing visits every point, so a line that is dragged
+	 * across the canvas is only hashed again once something asks for
+	 * its hash, instead of on every step of the drag.
+	 */
+	private void contentChanged() {
+		if (frozen) {
+			hashStale = true;
+		}
+	}
+	
+	/*
+	 * Gives this line its own copy of its coordinates if they might be
+	 * shared with another line
+	 */
+	private void unshareGeometry() {
+		if (sharedGeometry) {
+			xCoordinates = xCoordinates.clone();
+			yCoordinates = yCoordinates.clone();
+			sharedGeometry = false;
 		}
-		return lineColor.hashCode() + brushType.hashCode() + coordinateValues + size;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,204 @@
+package shapes;
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+import java.awt.image.BufferedImage;
+
+import utilities.HashUtilities;
+
+/**
+ * Class <code>RasterPatch</code> represents a block of pixels that
+ * replaces what was painted under it on the <code>PaintCanvas</code>.
+ * Patches are made when a filter is run over the canvas, and hold the
+ * filtered pixels so that the result survives when the canvas is
+ * redrawn and can be undone like any other entity.
+ * 
+ * Patches are part of the picture rather than things that were drawn,
+ * so they can't be selected or erased. Two patches are only equal if
+ * they are the same patch, but a patch still has a content hash over
+ * its pixels and location.
+ * 
+ * @version 0.1.2 [10/19/26]
+ * 
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ * 		-- added a content hash, where the pixels are hashed once when
+ * 		the patch is frozen
+ * 		-- patches can be copied to be painted off the event thread
+ */
+public class RasterPatch implements CanvasEntity {
+	// the pixels of the patch
+	private BufferedImage pixels;
+	
+	// the location of the upper-left corner of the patch
+	private int x, y;
+	
+	// whether or not this entity is active
+	private boolean active;
+	
+	// the id assigned by the canvas
+	private long id;
+	
+	// whether or not the pixels have been hashed, and their hash
+	private boolean frozen;
+	private long pixelHash;
+	
+	/**
+	 * Constructs a new <code>RasterPatch</code> with the given pixels
+	 * whose upper-left corner is at the given location
+	 * @param pixels the pixels of the patch
+	 * @param x the x-coordinate of the upper-left corner
+	 * @param y the y-coordinate of the upper-left corner
+	 */
+	public RasterPatch(BufferedImage pixels, int x, int y) {
+		this.pixels = pixels;
+		this.x = x;
+		this.y = y;
+		active = true;
+		id = -1;
+	}
+	
+	/**
+	 * Gets the pixels of this patch
+	 * @return the image holding the pixels of this patch
+	 */
+	public BufferedImage getPixels() {
+		return pixels;
+	}
+
+	@Override
+	public Color getColor() {
+		return null;
+	}
+
+	@Override
+	public Stroke getBrushType() {
+		return null;
+	}
+
+	@Override
+	public int getStyleId() {
+		return StylePalette.NONE;
+	}
+
+	@Override
+	public StylePalette getPalette() {
+		return StylePalette.getDefault();
+	}
+
+	@Override
+	public void paintShape(Graphics2D g) {
+		Composite old = g.getComposite();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(pixels, x, y, null);
+		g.setComposite(old);
+	}
+
+	@Override
+	public void setColor(Color c) {
+		return; // patches have no paint color
+	}
+
+	@Override
+	public void setBrushStyle(Stroke brushStyle) {
+		return; // patches have no brush
+	}
+
+	@Override
+	public boolean isActive() {
+		return active;
+	}
+
+	@Override
+	public void setActive(boolean active) {
+		this.active = active;
+	}
+
+	@Override
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	@Override
+	public java.awt.Rectangle getBounds() {
+		return new java.awt.Rectangle(x, y, pixels.getWidth(), pixels.getHeight());
+	}
+
+	@Override
+	public boolean hitTest(int x, int y, int tolerance) {
+		return false;
+	}
+
+	@Override
+	public boolean intersects(int x1, int y1, int x2, int y2, int radius) {
+		return false;
+	}
+
+	@Override
+	public void translate(int dx, int dy) {
+		x += dx;
+		y += dy;
+	}
+
+	@Override
+	public CanvasEntity snapshot() {
+		// the pixels are never changed once the patch is made
+		RasterPatch copy = new RasterPatch(pixels, x, y);
+		copy.active = active;
+		copy.id = id;
+		copy.frozen = frozen;
+		copy.pixelHash = pixelHash;
+		return copy;
+	}
+
+	@Override
+	public void freeze() {
+		frozen = true;
+		pixelHash = hashPixels();
+	}
+
+	@Override
+	public long getContentHash() {
+		long hash = frozen ? pixelHash : hashPixels();
+		return HashUtilities.finish(HashUtilities.mixPoint(hash, x, y));
+	}
+
+	@Override
+	public boolean equals(CanvasEntity other) {
+		return this == other;
+	}
+	
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(this);
+	}
+	
+	// hashes the size of the patch and every pixel in it, a row at a
+	// time
+	private long hashPixels() {
+		int width = pixels.getWidth();
+		int height = pixels.getHeight();
+		long hash = HashUtilities.mix(HashUtilities.SEED, getClass().getName().hashCode());
+		hash = HashUtilities.mixPoint(hash, width, height);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			pixels.getRGB(0, y, width, 1, row, 0, width);
+			for (int x = 0; x < width; x++) {
+				hash = HashUtilities.mix(hash, row[x]);
+			}
+		}
+		return hash;
+	}
+}
@@ -1,5 +1,7 @@
 package shapes;
 import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
 
 /**
  * Class <code>Rectangle</code> represents a rectangular shape which
@@ -11,7 +13,7 @@ import java.awt.Graphics2D;
  * they store the paint color they were painted with and the brush type
  * they were drawn with.
  * 
- * @version 0.4.1 [8/24/15]
+ * @version 0.4.4 [10/19/26]
  * 
  * @author Michael Davis
  * 
@@ -21,6 +23,10 @@ import java.awt.Graphics2D;
  * Version Notes:
  * 		-- Rectangles and ellipses now share the same abstract class
  * 		allowing them to share a lot of the same code.
+ * 		-- the hash code and equality now come from AbstractRectangle
+ * 		-- the brush and color are looked up from the style palette
+ * 		-- can be made with the palette of the document it is drawn in
+ * 		-- can be copied to be painted off the event thread
  */
 public class Rectangle extends AbstractRectangle {
 	
@@ -36,10 +42,33 @@ public class Rectangle extends AbstractRectangle {
 		super(x, y, width, height);
 	}
 
+	/**
+	 * Constructs a new <code>Rectangle</code> with the given location, width
+	 * and height whose style is kept in the given palette
+	 * @param palette the palette of the document the rectangle is in
+	 * @param x the x-coordinate of the upper-left corner
+	 * @param y the y-coordinate of the upper-left corner
+	 * @param width the width of the Rectangle
+	 * @param height the height of the Rectangle
+	 */
+	public Rectangle(StylePalette palette, int x, int y, int width, int height) {
+		super(palette, x, y, width, height);
+	}
+
+	@Override
+	protected Shape getOutline() {
+		return new Rectangle2D.Double(x, y, width, height);
+	}
+
+	@Override
+	public CanvasEntity snapshot() {
+		return copyInto(new Rectangle(getPalette(), x, y, width, height));
+	}
+
 	@Override
 	public void paintShape(Graphics2D g) {
-		g.setStroke(brushType);
-		g.setColor(paintColor);
+		g.setStroke(getBrushType());
+		g.setColor(getColor());
 		if (isFilled) {
 			g.fillRect(x, y, width, height);
 		} else {
@@ -55,17 +84,4 @@ public class Rectangle extends AbstractRectangle {
 	public String toString() {
 		return ("rect (" + x + "," +  y + "," + height + "," + width +")");
 	}
-	
-	@Override
-	public int hashCode() {
-		return x + y + height + width + paintColor.hashCode() + brushType.hashCode();
-	}
-
-	@Override
-	public boolean equals(CanvasEntity other) {
-		if (other != null && other.isActive()) {
-			return this.hashCode() == other.hashCode() && this.getClass().equals(other.getClass());
-		}
-		return false;
-	}
 }
\ No newline at end of file
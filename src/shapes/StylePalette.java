@@ -0,0 +1,393 @@
+package shapes;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Stroke;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Class <code>StylePalette</code> interns the brushes and paint colors
+ * used by the entities of one document. Every
+ * distinct brush and every distinct ARGB color is given a small integer
+ * id and one canonical instance, and every pair of a brush and a color
+ * that is used together is given a style id. Entities keep only their
+ * style id, so thousands of entities drawn with the same brush share a
+ * single <code>Stroke</code> and <code>Color</code>, and checking if
+ * two entities are painted the same way is a single int compare.
+ *
+ * Id 0 is always the missing brush and the missing color. Brush and
+ * color ids are never reused, and are only meaningful within the
+ * palette that handed them out. A style id also says which palette it
+ * belongs to: its top bits hold the index the palette was given when
+ * it was made, and the rest hold the style within the palette. An
+ * entity only needs to keep that one int to find its palette, its
+ * brush and its color, and two entities are painted with the same
+ * style of the same palette exactly when their style ids are equal.
+ *
+ * Each canvas owns a palette and starts a new one when it is cleared,
+ * so the styles of a document are let go along with it. A palette is
+ * only held weakly by its index, so whoever owns the entities has to
+ * keep their palette as well, and the index of a palette that has been
+ * let go is given to a new one. Entities made outside of a canvas
+ * share the default palette, which always has index 0, so its missing
+ * style has id 0.
+ *
+ * @version 0.3.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ * 		-- palettes belong to a document instead of being shared by the
+ * 		whole program, so that they don't keep growing for as long as
+ * 		the program runs
+ * 		-- style ids carry the index of their palette, so entities keep
+ * 		the id alone instead of the id and a reference to the palette
+ */
+public class StylePalette {
+	/**
+	 * The id of the missing brush and the missing color, and of the
+	 * style with neither in the default palette
+	 */
+	public static final int NONE = 0;
+
+	// how many of the low bits of a style id hold the style within its
+	// palette. The bits above them hold the index of the palette, and
+	// the top bit is left clear so that style ids can be shifted left by
+	// one and stay positive.
+	private static final int STYLE_BITS = 21;
+	private static final int STYLE_MASK = (1 << STYLE_BITS) - 1;
+
+	// the most palettes that can be in use at once
+	private static final int MAX_PALETTES = 1 << (30 - STYLE_BITS);
+
+	// the palettes in use by their index
+	private static final Registration[] PALETTES = new Registration[MAX_PALETTES];
+
+	// the palette of entities that aren't made by a canvas
+	private static final StylePalette DEFAULT = new StylePalette();
+
+	// the index of this palette shifted into place in a style id
+	private final int base;
+
+	// the canonical brushes and colors by id. The arrays are replaced
+	// whenever an entry is added so that they can be read without
+	// locking.
+	private volatile Stroke[] strokes;
+	private volatile Color[] colors;
+
+	// the brush and color ids of each style, packed into one long
+	private volatile long[] styles;
+
+	// the amount of ids handed out for each table
+	private int strokeCount, colorCount, styleCount;
+
+	// the ids of the colors by ARGB value and of the styles by their
+	// packed brush and color ids
+	private final HashMap<Integer, Integer> colorIds;
+	private final HashMap<Long, Integer> styleIds;
+
+	/**
+	 * Constructs a new, empty <code>StylePalette</code> that only holds
+	 * the missing brush, color and style
+	 * @throws IllegalStateException if there are already as many
+	 * palettes in use as style ids can tell apart
+	 */
+	public StylePalette() {
+		base = register(this) << STYLE_BITS;
+		strokes = new Stroke[16];
+		colors = new Color[64];
+		styles = new long[64];
+		strokeCount = 1;
+		colorCount = 1;
+		styleCount = 1;
+		colorIds = new HashMap<Integer, Integer>();
+		styleIds = new HashMap<Long, Integer>();
+	}
+
+	/**
+	 * Gets the palette shared by entities that aren't made by a canvas
+	 * @return the default palette
+	 */
+	public static StylePalette getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Gets the palette that the given style id belongs to
+	 * @param styleId the id of a style
+	 * @return the palette of the style
+	 * @throws IllegalStateException if the palette has been let go
+	 */
+	public static StylePalette forStyle(int styleId) {
+		StylePalette palette = PALETTES[styleId >>> STYLE_BITS].get();
+		if (palette == null) {
+			throw new IllegalStateException("the palette of style " + styleId + " is gone");
+		}
+		return palette;
+	}
+
+	/**
+	 * Checks whether two entities are painted with the same brush and
+	 * color. Entities from the same palette only need their style ids
+	 * compared.
+	 * @param first the first entity
+	 * @param second the second entity
+	 * @return true if both have equal brushes and equal colors
+	 */
+	public static boolean sameStyle(CanvasEntity first, CanvasEntity second) {
+		int firstStyle = first.getStyleId();
+		int secondStyle = second.getStyleId();
+		if (firstStyle == secondStyle) {
+			return true;
+		}
+		if ((firstStyle ^ secondStyle) >>> STYLE_BITS == 0) {
+			return false; // different styles of the same palette
+		}
+		return Objects.equals(first.getColor(), second.getColor())
+				&& Objects.equals(first.getBrushType(), second.getBrushType());
+	}
+
+	/**
+	 * Gets the canonical round brush of the given width, the brush that
+	 * the canvas paints with. Brushes are looked up without creating a
+	 * new one once the width has been seen.
+	 * @param width the width of the brush
+	 * @param cap the decoration of the ends of the brush
+	 * @param join the decoration where segments meet
+	 * @return the canonical brush with the given attributes
+	 */
+	public synchronized BasicStroke getBrush(float width, int cap, int join) {
+		Stroke[] table = strokes;
+		for (int id = 1; id < strokeCount; id++) {
+			if (table[id] instanceof BasicStroke) {
+				BasicStroke brush = (BasicStroke) table[id];
+				if (brush.getLineWidth() == width && brush.getEndCap() == cap
+						&& brush.getLineJoin() == join && brush.getDashArray() == null
+						&& brush.getMiterLimit() == 10f) {
+					return brush;
+				}
+			}
+		}
+		return (BasicStroke) getStroke(internStroke(new BasicStroke(width, cap, join)));
+	}
+
+	/**
+	 * Gets the id of the given brush, adding it to the palette if no
+	 * equal brush has been seen before. There are only ever a handful of
+	 * brushes, so they are searched in order.
+	 * @param stroke the brush to intern, which may be null
+	 * @return the id of the brush
+	 */
+	public synchronized int internStroke(Stroke stroke) {
+		if (stroke == null) {
+			return NONE;
+		}
+		Stroke[] table = strokes;
+		for (int id = 1; id < strokeCount; id++) {
+			if (table[id].equals(stroke)) {
+				return id;
+			}
+		}
+		if (strokeCount == table.length) {
+			table = Arrays.copyOf(table, table.length * 2);
+		}
+		table[strokeCount] = stroke;
+		strokes = table;
+		return strokeCount++;
+	}
+
+	/**
+	 * Gets the id of the given color, adding it to the palette if no
+	 * color with the same ARGB value has been seen before
+	 * @param color the color to intern, which may be null
+	 * @return the id of the color
+	 */
+	public synchronized int internColor(Color color) {
+		if (color == null) {
+			return NONE;
+		}
+		Integer id = colorIds.get(color.getRGB());
+		if (id != null) {
+			return id;
+		}
+		Color[] table = colors;
+		if (colorCount == table.length) {
+			table = Arrays.copyOf(table, table.length * 2);
+		}
+		// subclasses such as system colors are stored as plain colors
+		table[colorCount] = color.getClass() == Color.class ? color : new Color(color.getRGB(), true);
+		colors = table;
+		colorIds.put(color.getRGB(), colorCount);
+		return colorCount++;
+	}
+
+	/**
+	 * Gets the id of the style made of the given brush and color ids
+	 * @param strokeId the id of the brush
+	 * @param colorId the id of the color
+	 * @return the id of the style
+	 * @throws IllegalArgumentException if either id isn't in the palette
+	 * @throws IllegalStateException if the palette has no room for
+	 * another style
+	 */
+	public synchronized int internStyle(int strokeId, int colorId) {
+		if (strokeId < 0 || strokeId >= strokeCount || colorId < 0 || colorId >= colorCount) {
+			throw new IllegalArgumentException("unknown brush or color: " + strokeId + ", " + colorId);
+		}
+		long packed = ((long) strokeId << 32) | colorId;
+		Integer id = styleIds.get(packed);
+		if (id != null) {
+			return base | id;
+		}
+		if (styleCount > STYLE_MASK) {
+			throw new IllegalStateException("too many styles in one palette");
+		}
+		long[] table = styles;
+		if (styleCount == table.length) {
+			table = Arrays.copyOf(table, table.length * 2);
+		}
+		table[styleCount] = packed;
+		styles = table;
+		styleIds.put(packed, styleCount);
+		return base | styleCount++;
+	}
+
+	/**
+	 * Gets the id of the style made of the given brush and color
+	 * @param stroke the brush, which may be null
+	 * @param color the color, which may be null
+	 * @return the id of the style
+	 */
+	public int internStyle(Stroke stroke, Color color) {
+		return internStyle(internStroke(stroke), internColor(color));
+	}
+
+	/**
+	 * Gets the id of the style that has the given style's color with
+	 * another brush
+	 * @param styleId the style to start from
+	 * @param stroke the new brush
+	 * @return the id of the changed style
+	 */
+	public int withStroke(int styleId, Stroke stroke) {
+		return internStyle(internStroke(stroke), getColorId(styleId));
+	}
+
+	/**
+	 * Gets the id of the style that has the given style's brush with
+	 * another color
+	 * @param styleId the style to start from
+	 * @param color the new color
+	 * @return the id of the changed style
+	 */
+	public int withColor(int styleId, Color color) {
+		return internStyle(getStrokeId(styleId), internColor(color));
+	}
+
+	/**
+	 * Gets the canonical brush with the given id
+	 * @param strokeId the id of the brush
+	 * @return the brush, or null for the missing brush
+	 */
+	public Stroke getStroke(int strokeId) {
+		return strokes[strokeId];
+	}
+
+	/**
+	 * Gets the canonical color with the given id
+	 * @param colorId the id of the color
+	 * @return the color, or null for the missing color
+	 */
+	public Color getColor(int colorId) {
+		return colors[colorId];
+	}
+
+	/**
+	 * Gets the id of the brush of the given style
+	 * @param styleId the id of the style
+	 * @return the id of the style's brush
+	 */
+	public int getStrokeId(int styleId) {
+		return (int) (styles[styleId & STYLE_MASK] >>> 32);
+	}
+
+	/**
+	 * Gets the id of the color of the given style
+	 * @param styleId the id of the style
+	 * @return the id of the style's color
+	 */
+	public int getColorId(int styleId) {
+		return (int) styles[styleId & STYLE_MASK];
+	}
+
+	/**
+	 * Gets the canonical brush of the given style
+	 * @param styleId the id of the style
+	 * @return the style's brush, or null if it has none
+	 */
+	public Stroke getStyleStroke(int styleId) {
+		return strokes[(int) (styles[styleId & STYLE_MASK] >>> 32)];
+	}
+
+	/**
+	 * Gets the canonical color of the given style
+	 * @param styleId the id of the style
+	 * @return the style's color, or null if it has none
+	 */
+	public Color getStyleColor(int styleId) {
+		return colors[(int) styles[styleId & STYLE_MASK]];
+	}
+
+	/**
+	 * Gets the id of the style with neither a brush nor a color in this
+	 * palette, which new entities start out with
+	 * @return the id of the missing style
+	 */
+	public int getEmptyStyle() {
+		return base;
+	}
+
+	/**
+	 * Gets the amount of distinct brushes, colors and styles in the
+	 * palette, not counting the missing ones
+	 * @return the sizes of the brush, color and style tables
+	 */
+	public synchronized int[] getSizes() {
+		return new int[] {strokeCount - 1, colorCount - 1, styleCount - 1};
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// gives the palette the first index that no palette in use holds
+	private static int register(StylePalette palette) {
+		synchronized (PALETTES) {
+			for (int index = 0; index < MAX_PALETTES; index++) {
+				if (PALETTES[index] == null || PALETTES[index].get() == null) {
+					PALETTES[index] = new Registration(palette);
+					return index;
+				}
+			}
+		}
+		throw new IllegalStateException("too many palettes in use");
+	}
+
+	/****************************************************************
+	 * HELPER CLASSES
+	 ****************************************************************/
+
+	// the weak reference a palette is held by at its index
+	private static class Registration extends WeakReference<StylePalette> {
+		public Registration(StylePalette palette) {
+			super(palette);
+		}
+	}
+}
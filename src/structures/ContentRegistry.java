@@ -0,0 +1,124 @@
+package structures;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+
+import shapes.CanvasEntity;
+import shapes.Line;
+
+/**
+ * Class <code>ContentRegistry</code> finds entities that are exact
+ * copies of ones that have already been drawn. The first entity with
+ * a given content hash becomes the canonical one, and any entity that
+ * is registered later with the same contents is matched to it. A line
+ * that matches takes the coordinate arrays of the canonical line, so
+ * any amount of identical lines only keep one copy of their points.
+ *
+ * Entities must be frozen before they are registered so that their
+ * content hashes are cached. The registry only holds weak references,
+ * so it never keeps an entity alive that has been thrown away.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class ContentRegistry {
+	// the canonical entity for each content hash
+	private HashMap<Long, Entry> canonical;
+
+	// where entries go once their entity has been collected
+	private ReferenceQueue<CanvasEntity> collected;
+
+	// the amount of entities that matched a canonical entity
+	private int duplicates;
+
+	/**
+	 * Constructs a new empty <code>ContentRegistry</code>
+	 */
+	public ContentRegistry() {
+		canonical = new HashMap<Long, Entry>();
+		collected = new ReferenceQueue<CanvasEntity>();
+	}
+
+	/**
+	 * Registers the given entity, sharing the geometry of an identical
+	 * entity that was registered before it when there is one
+	 * @param entity the frozen entity to register
+	 * @return the canonical entity with the same contents, which is the
+	 * given entity if it is the first of its kind
+	 */
+	public CanvasEntity intern(CanvasEntity entity) {
+		removeCollected();
+		Long hash = entity.getContentHash();
+		Entry entry = canonical.get(hash);
+		CanvasEntity existing = entry == null ? null : entry.get();
+		if (existing == null) {
+			canonical.put(hash, new Entry(hash, entity, collected));
+			return entity;
+		}
+		if (existing == entity || !existing.equals(entity)) {
+			// the entity is already canonical, or two different entities
+			// have the same hash and the new one is left on its own
+			return entity;
+		}
+		if (entity instanceof Line) {
+			((Line) entity).shareGeometry((Line) existing);
+		}
+		duplicates++;
+		return existing;
+	}
+
+	/**
+	 * Gets the amount of registered entities that turned out to be
+	 * copies of an earlier one
+	 * @return the amount of duplicates found
+	 */
+	public int getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * Gets the amount of distinct contents that are registered
+	 * @return the amount of canonical entities
+	 */
+	public int getSize() {
+		removeCollected();
+		return canonical.size();
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// drops the entries whose entities have been collected
+	private void removeCollected() {
+		Entry entry = (Entry) collected.poll();
+		while (entry != null) {
+			if (canonical.get(entry.hash) == entry) {
+				canonical.remove(entry.hash);
+			}
+			entry = (Entry) collected.poll();
+		}
+	}
+
+	/****************************************************************
+	 * HELPER CLASSES
+	 ***************************************************************/
+
+	// a weak reference to a canonical entity that remembers its hash
+	private static class Entry extends WeakReference<CanvasEntity> {
+		private Long hash;
+
+		public Entry(Long hash, CanvasEntity entity, ReferenceQueue<CanvasEntity> queue) {
+			super(entity, queue);
+			this.hash = hash;
+		}
+	}
+}
@@ -0,0 +1,364 @@
+package structures;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+import shapes.CanvasEntity;
+
+/**
+ * Class <code>EntityGrid</code> represents a spatial index over the
+ * <code>CanvasEntity</code> objects on a canvas. The coordinate space
+ * is divided into square cells and every entity is stored in each of
+ * the cells its bounds overlap, so finding the entities near a point
+ * or inside a region only has to look at a handful of cells rather
+ * than every entity on the canvas.
+ *
+ * The cells are kept in an open addressing table keyed by their packed
+ * column and row as a primitive <code>long</code>, so looking a cell up
+ * boxes nothing. Each cell keeps the bounds every entity had when it
+ * was inserted next to the entity, so a query tests those instead of
+ * asking every candidate for its bounds. An entity that is reported by
+ * several cells is only added to the results by the cell that holds the
+ * top-left corner of where it overlaps the region.
+ *
+ * Entities that would span more than <code>LARGE_CELLS</code> cells,
+ * like a long stroke across the canvas or a big filled rectangle, are
+ * kept in a list of their own instead of being copied into every cell,
+ * and that list is checked by every query.
+ *
+ * Entities must not change their bounds while they are stored in the
+ * grid. To move an entity, remove it, move it, and then insert it
+ * again.
+ *
+ * @version 0.2.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ * 		-- cells are kept in a table keyed by primitive longs, hold the
+ * 		bounds of their entities, and large entities are kept apart
+ */
+public class EntityGrid {
+	/**
+	 * The default width and height of a cell in pixels
+	 */
+	public static final int DEFAULT_CELL_SIZE = 64;
+
+	/**
+	 * The most cells an entity is stored in. Entities that span more
+	 * are kept in the list of large entities.
+	 */
+	public static final int LARGE_CELLS = 16;
+
+	// the capacity the cell table starts with
+	private static final int DEFAULT_CAPACITY = 64;
+
+	// 2^64 divided by the golden ratio, used to spread out the keys
+	private static final long FIBONACCI = 0x9E3779B97F4A7C15L;
+
+	// the packed column and row of each cell, and the cells. A null
+	// cell marks an empty slot.
+	private long[] keys;
+	private Cell[] cells;
+
+	// the amount of cells in the table, the capacity minus one, how far
+	// a hash is shifted to give a slot, and the amount of cells at which
+	// the table grows
+	private int cellCount;
+	private int mask, shift;
+	private int threshold;
+
+	// the entities that span too many cells to be stored in them
+	private Cell large;
+
+	// the width and height of each cell
+	private int cellSize;
+
+	/**
+	 * Constructs a new empty <code>EntityGrid</code> with the default
+	 * cell size
+	 */
+	public EntityGrid() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * Constructs a new empty <code>EntityGrid</code> with the given
+	 * cell size
+	 * @param cellSize the width and height of a cell in pixels
+	 * @throws IllegalArgumentException if the cell size is not positive
+	 */
+	public EntityGrid(int cellSize) {
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("invalid cell size: " + cellSize);
+		}
+		this.cellSize = cellSize;
+		allocate(DEFAULT_CAPACITY);
+		large = new Cell();
+	}
+
+	/**
+	 * Inserts the given entity into every cell that its bounds overlap,
+	 * or into the list of large entities if there are too many of them
+	 * @param entity the entity to insert into the grid
+	 */
+	public void insert(CanvasEntity entity) {
+		Rectangle bounds = entity.getBounds();
+		int minX = bounds.x;
+		int minY = bounds.y;
+		int maxX = bounds.x + bounds.width;
+		int maxY = bounds.y + bounds.height;
+		int firstCol = cellOf(minX);
+		int firstRow = cellOf(minY);
+		int lastCol = cellOf(maxX - 1);
+		int lastRow = cellOf(maxY - 1);
+		if (isLarge(firstCol, firstRow, lastCol, lastRow)) {
+			large.add(entity, minX, minY, maxX, maxY);
+			return;
+		}
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int col = firstCol; col <= lastCol; col++) {
+				long key = key(col, row);
+				int slot = find(key);
+				Cell cell;
+				if (slot >= 0) {
+					cell = cells[slot];
+				} else {
+					cell = new Cell();
+					put(key, cell);
+				}
+				cell.add(entity, minX, minY, maxX, maxY);
+			}
+		}
+	}
+
+	/**
+	 * Removes the given entity from every cell that its bounds overlap.
+	 * The bounds of the entity must be the same as when it was
+	 * inserted.
+	 * @param entity the entity to remove from the grid
+	 */
+	public void remove(CanvasEntity entity) {
+		Rectangle bounds = entity.getBounds();
+		int firstCol = cellOf(bounds.x);
+		int firstRow = cellOf(bounds.y);
+		int lastCol = cellOf(bounds.x + bounds.width - 1);
+		int lastRow = cellOf(bounds.y + bounds.height - 1);
+		if (isLarge(firstCol, firstRow, lastCol, lastRow)) {
+			large.remove(entity);
+			return;
+		}
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int col = firstCol; col <= lastCol; col++) {
+				int slot = find(key(col, row));
+				if (slot >= 0) {
+					Cell cell = cells[slot];
+					cell.remove(entity);
+					if (cell.size == 0) {
+						removeSlot(slot);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the entities whose bounds overlap the given region and adds
+	 * them to the given list ordered by id, so the entity that is
+	 * painted on top comes last. Every entity is only added once. The
+	 * candidates still need to be tested against their actual geometry.
+	 * @param region the region to search in
+	 * @param results the list the candidates are added to
+	 */
+	public void query(Rectangle region, List<CanvasEntity> results) {
+		if (region.width <= 0 || region.height <= 0) {
+			return;
+		}
+		int start = results.size();
+		int left = region.x;
+		int top = region.y;
+		int right = region.x + region.width;
+		int bottom = region.y + region.height;
+		int lastCol = cellOf(right - 1);
+		int lastRow = cellOf(bottom - 1);
+		for (int row = cellOf(top); row <= lastRow; row++) {
+			for (int col = cellOf(left); col <= lastCol; col++) {
+				int slot = find(key(col, row));
+				if (slot < 0) {
+					continue;
+				}
+				Cell cell = cells[slot];
+				int[] boxes = cell.boxes;
+				for (int i = 0, b = 0; i < cell.size; i++, b += 4) {
+					int minX = boxes[b];
+					int minY = boxes[b + 1];
+					if (minX < right && left < boxes[b + 2] && minY < bottom && top < boxes[b + 3]
+							&& cellOf(Math.max(minX, left)) == col
+							&& cellOf(Math.max(minY, top)) == row) {
+						results.add(cell.entities[i]);
+					}
+				}
+			}
+		}
+		int[] boxes = large.boxes;
+		for (int i = 0, b = 0; i < large.size; i++, b += 4) {
+			if (boxes[b] < right && left < boxes[b + 2] && boxes[b + 1] < bottom && top < boxes[b + 3]) {
+				results.add(large.entities[i]);
+			}
+		}
+		if (results.size() - start > 1) {
+			results.subList(start, results.size()).sort(EntityScene.PAINT_ORDER);
+		}
+	}
+
+	/**
+	 * Empties all of the entities out of this grid
+	 */
+	public void empty() {
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = null;
+		}
+		cellCount = 0;
+		large = new Cell();
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// gets the column or row of the cell that contains the given
+	// coordinate
+	private int cellOf(int coordinate) {
+		return Math.floorDiv(coordinate, cellSize);
+	}
+
+	// whether an entity spanning the given cells is kept with the large
+	// entities
+	private static boolean isLarge(int firstCol, int firstRow, int lastCol, int lastRow) {
+		return (long) (lastCol - firstCol + 1) * (lastRow - firstRow + 1) > LARGE_CELLS;
+	}
+
+	// packs the given column and row into a single key
+	private static long key(int col, int row) {
+		return ((long) col << 32) | (row & 0xFFFFFFFFL);
+	}
+
+	// finds the slot holding the cell with the given key, or -1 if the
+	// cell is empty
+	private int find(long key) {
+		int slot = home(key);
+		while (cells[slot] != null) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	// adds a cell whose key isn't in the table yet
+	private void put(long key, Cell cell) {
+		if (cellCount >= threshold) {
+			long[] oldKeys = keys;
+			Cell[] oldCells = cells;
+			allocate(cells.length * 2);
+			for (int i = 0; i < oldCells.length; i++) {
+				if (oldCells[i] != null) {
+					insert(oldKeys[i], oldCells[i]);
+				}
+			}
+		}
+		insert(key, cell);
+		cellCount++;
+	}
+
+	// puts a cell in the first empty slot from its home slot on
+	private void insert(long key, Cell cell) {
+		int slot = home(key);
+		while (cells[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		cells[slot] = cell;
+	}
+
+	// empties the given slot, shifting back each later cell of the same
+	// run that the empty slot would otherwise cut off from its home
+	private void removeSlot(int slot) {
+		int next = (slot + 1) & mask;
+		while (cells[next] != null) {
+			int home = home(keys[next]);
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				keys[slot] = keys[next];
+				cells[slot] = cells[next];
+				slot = next;
+			}
+			next = (next + 1) & mask;
+		}
+		cells[slot] = null;
+		cellCount--;
+	}
+
+	// creates an empty table with the given power of two capacity
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		cells = new Cell[capacity];
+		mask = capacity - 1;
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+		threshold = capacity / 2;
+	}
+
+	// gets the slot the given key hashes to
+	private int home(long key) {
+		return (int) ((key * FIBONACCI) >>> shift);
+	}
+
+	/****************************************************************
+	 * HELPER CLASSES
+	 ****************************************************************/
+
+	// the entities stored in one cell, each with the bounds it had when
+	// it was inserted as its left, top, right and bottom edges
+	private static class Cell {
+		private CanvasEntity[] entities = new CanvasEntity[4];
+		private int[] boxes = new int[16];
+		private int size;
+
+		// adds an entity with the given bounds to the cell
+		private void add(CanvasEntity entity, int minX, int minY, int maxX, int maxY) {
+			if (size == entities.length) {
+				CanvasEntity[] grown = new CanvasEntity[size * 2];
+				System.arraycopy(entities, 0, grown, 0, size);
+				entities = grown;
+				int[] grownBoxes = new int[size * 8];
+				System.arraycopy(boxes, 0, grownBoxes, 0, size * 4);
+				boxes = grownBoxes;
+			}
+			entities[size] = entity;
+			int b = size * 4;
+			boxes[b] = minX;
+			boxes[b + 1] = minY;
+			boxes[b + 2] = maxX;
+			boxes[b + 3] = maxY;
+			size++;
+		}
+
+		// removes the given entity from the cell by moving the last
+		// entity into its place, since the order of a cell doesn't matter
+		private void remove(CanvasEntity entity) {
+			for (int i = 0; i < size; i++) {
+				if (entities[i] == entity) {
+					size--;
+					entities[i] = entities[size];
+					System.arraycopy(boxes, size * 4, boxes, i * 4, 4);
+					entities[size] = null;
+					return;
+				}
+			}
+		}
+	}
+}
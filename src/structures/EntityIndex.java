@@ -0,0 +1,257 @@
+package structures;
+
+import shapes.CanvasEntity;
+
+/**
+ * Class <code>EntityIndex</code> represents a hash table that maps the
+ * ids given out by an <code>EntityScene</code> to their entities. The
+ * ids are kept in a primitive <code>long</code> array next to an array
+ * of entities, so nothing is boxed and an entity is never asked for its
+ * hash code or compared with <code>equals</code>.
+ *
+ * The table uses Robin Hood open addressing: an entry that is further
+ * from its home slot takes the place of one that is closer to its own,
+ * which keeps every probe short even when the table is nearly full. A
+ * lookup can stop as soon as it passes an entry that is closer to home
+ * than it would be. Removing an entry shifts the entries after it back
+ * by one slot instead of leaving a tombstone, so the table never fills
+ * up with deleted entries. The capacity is always a power of two and
+ * ids are spread over it with Fibonacci hashing.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class EntityIndex {
+	/**
+	 * The capacity of an index that isn't given an expected size
+	 */
+	public static final int DEFAULT_CAPACITY = 16;
+
+	// the largest capacity the arrays can have
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	// 2^64 divided by the golden ratio, used to spread out the ids
+	private static final long FIBONACCI = 0x9E3779B97F4A7C15L;
+
+	// the ids, and the entities they map to. A null entity marks an
+	// empty slot.
+	private long[] keys;
+	private CanvasEntity[] values;
+
+	// the amount of entries in the index
+	private int size;
+
+	// the capacity minus one, and how far a hash is shifted to give a
+	// slot in the capacity
+	private int mask, shift;
+
+	// the size at which the index grows, 7/8 of the capacity
+	private int threshold;
+
+	/**
+	 * Constructs a new empty <code>EntityIndex</code>
+	 */
+	public EntityIndex() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new empty <code>EntityIndex</code> that can hold the
+	 * given amount of entities without growing
+	 * @param expectedSize the amount of entities expected
+	 * @throws IllegalArgumentException if the expected size is negative
+	 * or too large
+	 */
+	public EntityIndex(int expectedSize) {
+		if (expectedSize < 0 || expectedSize > MAXIMUM_CAPACITY - MAXIMUM_CAPACITY / 8) {
+			throw new IllegalArgumentException("invalid expected size: " + expectedSize);
+		}
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity - capacity / 8 < expectedSize) {
+			capacity *= 2;
+		}
+		allocate(capacity);
+	}
+
+	/**
+	 * Maps the given id to the given entity, replacing any entity the
+	 * id was already mapped to
+	 * @param id the id of the entity
+	 * @param entity the entity to map the id to
+	 * @return the entity the id was mapped to before, or null if there
+	 * was none
+	 * @throws IllegalArgumentException if the entity is null
+	 */
+	public CanvasEntity put(long id, CanvasEntity entity) {
+		if (entity == null) {
+			throw new IllegalArgumentException("can't index a null entity");
+		}
+		int slot = find(id);
+		if (slot >= 0) {
+			CanvasEntity old = values[slot];
+			values[slot] = entity;
+			return old;
+		}
+		if (size >= threshold) {
+			grow();
+		}
+		insert(id, entity);
+		size++;
+		return null;
+	}
+
+	/**
+	 * Gets the entity that the given id is mapped to
+	 * @param id the id to look up
+	 * @return the entity with the id, or null if there is none
+	 */
+	public CanvasEntity get(long id) {
+		int slot = find(id);
+		return slot >= 0 ? values[slot] : null;
+	}
+
+	/**
+	 * Returns whether or not the given id is mapped to an entity
+	 * @param id the id to look up
+	 * @return true if the id is in this index, false otherwise
+	 */
+	public boolean contains(long id) {
+		return find(id) >= 0;
+	}
+
+	/**
+	 * Removes the given id from the index
+	 * @param id the id to remove
+	 * @return the entity the id was mapped to, or null if there was
+	 * none
+	 */
+	public CanvasEntity remove(long id) {
+		int slot = find(id);
+		if (slot < 0) {
+			return null;
+		}
+		CanvasEntity old = values[slot];
+		// shift the entries after it back until one is already home
+		int next = (slot + 1) & mask;
+		while (values[next] != null && probeDistance(next) > 0) {
+			keys[slot] = keys[next];
+			values[slot] = values[next];
+			slot = next;
+			next = (next + 1) & mask;
+		}
+		values[slot] = null;
+		size--;
+		return old;
+	}
+
+	/**
+	 * Gets the amount of entities in this index
+	 * @return the amount of entries in the index
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets whether or not this index is empty
+	 * @return true if the index is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Empties all of the entries from this index. The capacity is kept.
+	 */
+	public void empty() {
+		for (int i = 0; i < values.length; i++) {
+			values[i] = null;
+		}
+		size = 0;
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// finds the slot holding the given id, or -1 if it isn't in the
+	// index. The search stops at an empty slot or at an entry closer
+	// to its home than the id would be, since the id would have taken
+	// that entry's slot.
+	private int find(long id) {
+		int slot = home(id);
+		for (int distance = 0; ; distance++) {
+			if (values[slot] == null || probeDistance(slot) < distance) {
+				return -1;
+			}
+			if (keys[slot] == id) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	// inserts an id that isn't in the index yet, swapping it with any
+	// entry it passes that is closer to home than it is
+	private void insert(long id, CanvasEntity entity) {
+		int slot = home(id);
+		int distance = 0;
+		while (values[slot] != null) {
+			int existing = probeDistance(slot);
+			if (existing < distance) {
+				long swappedId = keys[slot];
+				CanvasEntity swappedEntity = values[slot];
+				keys[slot] = id;
+				values[slot] = entity;
+				id = swappedId;
+				entity = swappedEntity;
+				distance = existing;
+			}
+			slot = (slot + 1) & mask;
+			distance++;
+		}
+		keys[slot] = id;
+		values[slot] = entity;
+	}
+
+	// doubles the capacity and reinserts every entry
+	private void grow() {
+		if (values.length == MAXIMUM_CAPACITY) {
+			throw new IllegalStateException("entity index is full");
+		}
+		long[] oldKeys = keys;
+		CanvasEntity[] oldValues = values;
+		allocate(values.length * 2);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				insert(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	// creates empty arrays with the given power of two capacity
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new CanvasEntity[capacity];
+		mask = capacity - 1;
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+		threshold = capacity - capacity / 8;
+	}
+
+	// gets the slot the given id hashes to
+	private int home(long id) {
+		return (int) ((id * FIBONACCI) >>> shift);
+	}
+
+	// gets how far the entry in the given slot is from its home slot
+	private int probeDistance(int slot) {
+		return (slot - home(keys[slot])) & mask;
+	}
+}
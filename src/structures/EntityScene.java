@@ -0,0 +1,586 @@
+package structures;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import shapes.AbstractRectangle;
+import shapes.CanvasEntity;
+import shapes.Line;
+import shapes.RasterPatch;
+
+/**
+ * Class <code>EntityScene</code> represents all of the entities that
+ * have been drawn on a canvas, in the order that they are painted.
+ * Each entity is given an id when it is added to the scene, and the
+ * scene is kept sorted by that id so an entity that is removed can
+ * later be restored to the exact same depth.
+ *
+ * Removing an entity only leaves a hole where it was, next to its id,
+ * so removing and restoring are a binary search and not a shift of
+ * every entity above it. The holes are squeezed out the next time the
+ * scene is read by depth, or once they make up half of the scene.
+ *
+ * The scene also keeps an <code>EntityGrid</code> over its entities so
+ * that hit-testing a point or finding the entities inside a damaged
+ * region doesn't need to look at every entity on the canvas, and an
+ * <code>EntityIndex</code> so an entity can be found from its id. It
+ * keeps running totals of the points in its lines and of the memory
+ * its entities take, which are updated as entities come and go.
+ *
+ * Plain rectangles and ellipses aren't kept as objects at all. They
+ * are copied into the columns of a <code>ShapeStore</code> when they
+ * are added, and the scene hands back a view of the stored shape to
+ * be used in place of the shape that was added. Stored shapes are
+ * kept in the order of their ids, so they are merged back in with the
+ * other entities by id wherever the scene is read in paint order, and
+ * they are found in a region by scanning the columns instead of
+ * through the grid. <code>paint</code> walks the scene with a
+ * <code>Painter</code> that is given the runs of stored shapes
+ * between the other entities, so they can be painted straight from
+ * the columns.
+ *
+ * @version 0.1.5 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- added erasing along a path, which only tests the exact
+ * 		geometry of entities whose bounds are near the path
+ * 		-- added finding entities by id through an EntityIndex
+ * 		-- keeps the amount of points and the estimated memory of its
+ * 		entities as it changes instead of counting them when asked
+ * 		-- removing an entity leaves a hole instead of shifting the
+ * 		rest of the scene down
+ * 		-- rectangles and ellipses are kept in a ShapeStore and can be
+ * 		painted a run at a time from its columns
+ */
+public class EntityScene {
+	/**
+	 * Orders entities by their ids, which is the order that they are
+	 * painted on the canvas
+	 */
+	public static final Comparator<CanvasEntity> PAINT_ORDER = new Comparator<CanvasEntity>() {
+		@Override
+		public int compare(CanvasEntity first, CanvasEntity second) {
+			return Long.compare(first.getId(), second.getId());
+		}
+	};
+
+	// The default capacity for the internal array of entities
+	private static final int DEFAULT_CAPACITY = 100;
+
+	// the entities in the scene sorted by id, and their ids. A removed
+	// entity leaves a null behind, but its id stays.
+	private CanvasEntity[] entities;
+	private long[] ids;
+
+	// the amount of entities in the scene, the amount of slots used by
+	// them and by the holes they left, and the amount of holes
+	private int size;
+	private int used;
+	private int holes;
+
+	// the id that will be given to the next entity that is added
+	private long nextId;
+
+	// the spatial index over the entities in the scene
+	private EntityGrid grid;
+
+	// the rectangles and ellipses in the scene
+	private ShapeStore shapes;
+
+	// the depth of the next entity read by depth, and where it will be
+	// looked for in the entities and among the stored shapes, so that
+	// reading the scene from the bottom up doesn't merge it from the
+	// start for every entity
+	private int readDepth;
+	private int readPosition;
+	private int readSlot;
+
+	// the entities in the scene by id
+	private EntityIndex index;
+
+	// scratch lists used when hit-testing and when painting
+	private ArrayList<CanvasEntity> candidates;
+	private ArrayList<CanvasEntity> painted;
+
+	// the amount of points in every line in the scene, and a rough
+	// amount of memory taken by the entities
+	private int pointCount;
+	private long entityBytes;
+
+	/**
+	 * Constructs a new empty <code>EntityScene</code>
+	 */
+	public EntityScene() {
+		entities = new CanvasEntity[DEFAULT_CAPACITY];
+		ids = new long[DEFAULT_CAPACITY];
+		grid = new EntityGrid();
+		shapes = new ShapeStore();
+		index = new EntityIndex();
+		candidates = new ArrayList<CanvasEntity>();
+		painted = new ArrayList<CanvasEntity>();
+	}
+
+	/**
+	 * Adds the given entity to the top of the scene, giving it the next
+	 * available id. A plain rectangle or ellipse is copied into the
+	 * store of shapes, and the view of the copy is what is kept in the
+	 * scene from then on.
+	 * @param entity the entity to add to the scene
+	 * @return the entity as it is kept in the scene, which is the given
+	 * entity unless it was stored as a shape
+	 */
+	public CanvasEntity add(CanvasEntity entity) {
+		entity.setId(nextId);
+		nextId++;
+		readDepth = 0;
+		size++;
+		if (ShapeStore.canStore(entity)) {
+			int slot = shapes.add((AbstractRectangle) entity);
+			entityBytes += ShapeStore.BYTES_PER_SHAPE;
+			return shapes.getView(slot);
+		}
+		ensureCapacity();
+		entities[used] = entity;
+		ids[used] = entity.getId();
+		used++;
+		grid.insert(entity);
+		index.put(entity.getId(), entity);
+		count(entity, 1);
+		return entity;
+	}
+
+	/**
+	 * Puts an entity that was previously removed from this scene back
+	 * into it at the depth given by its id
+	 * @param entity the entity to restore
+	 * @throws IllegalArgumentException if the entity was never given
+	 * an id by this scene
+	 */
+	public void restore(CanvasEntity entity) {
+		if (entity.getId() < 0 || entity.getId() >= nextId) {
+			throw new IllegalArgumentException("entity was not part of this scene");
+		}
+		readDepth = 0;
+		int slot = shapes.slotOf(entity);
+		if (slot >= 0) {
+			if (!shapes.isActive(slot)) {
+				shapes.setActive(slot, true);
+				size++;
+				entityBytes += ShapeStore.BYTES_PER_SHAPE;
+			}
+			return;
+		}
+		int position = indexOf(entity.getId());
+		if (position >= 0) {
+			if (entities[position] != null) {
+				return; // already in the scene
+			}
+			holes--; // fill the hole it left
+		} else {
+			compact();
+			position = -(indexOf(entity.getId()) + 1);
+			ensureCapacity();
+			System.arraycopy(entities, position, entities, position + 1, used - position);
+			System.arraycopy(ids, position, ids, position + 1, used - position);
+			ids[position] = entity.getId();
+			used++;
+		}
+		entities[position] = entity;
+		size++;
+		grid.insert(entity);
+		index.put(entity.getId(), entity);
+		count(entity, 1);
+	}
+
+	/**
+	 * Removes the given entity from the scene
+	 * @param entity the entity to remove
+	 * @return true if the entity was in the scene, false otherwise
+	 */
+	public boolean remove(CanvasEntity entity) {
+		int slot = shapes.slotOf(entity);
+		if (slot >= 0) {
+			if (!shapes.isActive(slot)) {
+				return false;
+			}
+			shapes.setActive(slot, false);
+			size--;
+			entityBytes -= ShapeStore.BYTES_PER_SHAPE;
+			readDepth = 0;
+			return true;
+		}
+		if (index.get(entity.getId()) != entity) {
+			return false;
+		}
+		readDepth = 0;
+		entities[indexOf(entity.getId())] = null;
+		size--;
+		holes++;
+		grid.remove(entity);
+		index.remove(entity.getId());
+		count(entity, -1);
+		if (holes > size) {
+			compact();
+		}
+		return true;
+	}
+
+	/**
+	 * Moves the given entity, which must be in this scene, by the given
+	 * amounts while keeping the spatial index up to date
+	 * @param entity the entity to move
+	 * @param dx the distance to move along the x-axis
+	 * @param dy the distance to move along the y-axis
+	 */
+	public void translate(CanvasEntity entity, int dx, int dy) {
+		if (shapes.slotOf(entity) >= 0) {
+			entity.translate(dx, dy);
+			return;
+		}
+		grid.remove(entity);
+		entity.translate(dx, dy);
+		grid.insert(entity);
+	}
+
+	/**
+	 * Finds the top-most entity whose geometry is hit by the given
+	 * point
+	 * @param x the x-coordinate of the point
+	 * @param y the y-coordinate of the point
+	 * @param tolerance how far from an entity's geometry the point may
+	 * be and still count as a hit
+	 * @return the entity that was hit, or null if there is none
+	 */
+	public CanvasEntity hitTest(int x, int y, int tolerance) {
+		Rectangle region = new Rectangle(x - tolerance, y - tolerance,
+				2 * tolerance + 1, 2 * tolerance + 1);
+		candidates.clear();
+		grid.query(region, candidates);
+		CanvasEntity hit = null;
+		for (int i = candidates.size() - 1; i >= 0 && hit == null; i--) {
+			CanvasEntity entity = candidates.get(i);
+			if (entity.hitTest(x, y, tolerance)) {
+				hit = entity;
+			}
+		}
+		candidates.clear();
+		int top = -1;
+		for (int slot = shapes.nextOverlapping(0, region); slot >= 0;
+				slot = shapes.nextOverlapping(slot + 1, region)) {
+			if (shapes.intersects(slot, x, y, x, y, tolerance)) {
+				top = slot;
+			}
+		}
+		if (top >= 0 && (hit == null || shapes.getId(top) > hit.getId())) {
+			return shapes.getView(top);
+		}
+		return hit;
+	}
+
+	/**
+	 * Removes every entity that a round eraser of the given radius
+	 * would touch when swept along the given segment. Only the entities
+	 * whose bounds overlap the swept area are tested against their
+	 * exact geometry.
+	 * @param x1 the x-coordinate of the start of the segment
+	 * @param y1 the y-coordinate of the start of the segment
+	 * @param x2 the x-coordinate of the end of the segment
+	 * @param y2 the y-coordinate of the end of the segment
+	 * @param radius the radius of the eraser in pixels
+	 * @param removed the list the removed entities are added to
+	 * @return the amount of entities that were removed
+	 */
+	public int erase(int x1, int y1, int x2, int y2, int radius, List<CanvasEntity> removed) {
+		candidates.clear();
+		int left = Math.min(x1, x2) - radius;
+		int top = Math.min(y1, y2) - radius;
+		Rectangle region = new Rectangle(left, top, Math.abs(x2 - x1) + 2 * radius + 1,
+				Math.abs(y2 - y1) + 2 * radius + 1);
+		grid.query(region, candidates);
+		int count = 0;
+		for (int i = 0; i < candidates.size(); i++) {
+			CanvasEntity entity = candidates.get(i);
+			if (entity.intersects(x1, y1, x2, y2, radius)) {
+				remove(entity);
+				removed.add(entity);
+				count++;
+			}
+		}
+		candidates.clear();
+		for (int slot = shapes.nextOverlapping(0, region); slot >= 0;
+				slot = shapes.nextOverlapping(slot + 1, region)) {
+			if (shapes.intersects(slot, x1, y1, x2, y2, radius)) {
+				CanvasEntity shape = shapes.getView(slot);
+				remove(shape);
+				removed.add(shape);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Adds the entities whose bounds overlap the given region to the
+	 * given list in the order that they are painted
+	 * @param region the region to search in
+	 * @param results the list the entities are added to
+	 */
+	public void query(Rectangle region, List<CanvasEntity> results) {
+		int start = results.size();
+		grid.query(region, results);
+		int found = results.size();
+		for (int slot = shapes.nextOverlapping(0, region); slot >= 0;
+				slot = shapes.nextOverlapping(slot + 1, region)) {
+			results.add(shapes.getView(slot));
+		}
+		if (found > start && results.size() > found) {
+			results.subList(start, results.size()).sort(PAINT_ORDER);
+		}
+	}
+
+	/**
+	 * Walks every entity that overlaps the given region in the order
+	 * they are painted, handing the stored shapes to the painter as runs
+	 * of slots between the other entities. The runs may hold shapes
+	 * that are inactive or outside the region, which the painter skips.
+	 * @param region the region to paint, or null to walk the whole scene
+	 * @param painter what the entities and runs of shapes are handed to
+	 */
+	public void paint(Rectangle region, Painter painter) {
+		List<CanvasEntity> walked;
+		if (region == null) {
+			compact();
+			walked = null;
+		} else {
+			grid.query(region, painted);
+			walked = painted;
+		}
+		int count = walked == null ? used : walked.size();
+		int slot = 0;
+		for (int i = 0; i < count; i++) {
+			CanvasEntity entity = walked == null ? entities[i] : walked.get(i);
+			if (slot < shapes.getSize()) {
+				int end = -(shapes.find(entity.getId()) + 1);
+				if (end > slot) {
+					painter.paintShapes(shapes, slot, end);
+					slot = end;
+				}
+			}
+			painter.paintEntity(entity);
+		}
+		if (slot < shapes.getSize()) {
+			painter.paintShapes(shapes, slot, shapes.getSize());
+		}
+		painted.clear();
+	}
+
+	/**
+	 * Finds the entity in this scene with the given id
+	 * @param id the id of the entity
+	 * @return the entity with the id, or null if it isn't in the scene
+	 */
+	public CanvasEntity find(long id) {
+		CanvasEntity entity = index.get(id);
+		if (entity == null) {
+			int slot = shapes.find(id);
+			if (slot >= 0 && shapes.isActive(slot)) {
+				return shapes.getView(slot);
+			}
+		}
+		return entity;
+	}
+
+	/**
+	 * Gets the entity at the given depth in the scene, where depth 0 is
+	 * the first entity that is painted. The holes left by removed
+	 * entities are squeezed out first if there are any. Stored shapes
+	 * are merged in by id, from where the last entity read was found
+	 * if it is below the given depth, so reading the whole scene from
+	 * the bottom up takes one pass.
+	 * @param index the depth of the entity
+	 * @return the entity at the given depth
+	 * @throws IndexOutOfBoundsException if the index is not in the scene
+	 */
+	public CanvasEntity get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index);
+		}
+		compact();
+		if (shapes.getSize() == 0) {
+			return entities[index];
+		}
+		if (index < readDepth) {
+			readDepth = 0;
+		}
+		if (readDepth == 0) {
+			readPosition = 0;
+			readSlot = 0;
+		}
+		CanvasEntity entity = null;
+		while (readDepth <= index) {
+			while (readSlot < shapes.getSize() && !shapes.isActive(readSlot)) {
+				readSlot++;
+			}
+			boolean stored = readSlot < shapes.getSize()
+					&& (readPosition == used || shapes.getId(readSlot) < ids[readPosition]);
+			entity = stored ? shapes.getView(readSlot++) : entities[readPosition++];
+			readDepth++;
+		}
+		return entity;
+	}
+
+	/**
+	 * Gets the amount of entities in this scene
+	 * @return the amount of entities in the scene
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the amount of points in all of the lines in this scene
+	 * @return the amount of points
+	 */
+	public int getPointCount() {
+		return pointCount;
+	}
+
+	/**
+	 * Gets a rough estimate of the memory the entities in this scene
+	 * take on the heap. Lines that share their points are counted as if
+	 * they each had their own.
+	 * @return the estimated amount of bytes
+	 */
+	public long getEntityBytes() {
+		return entityBytes;
+	}
+
+	/**
+	 * Gets whether or not this scene is empty
+	 * @return true if the scene is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Empties all of the entities out of this scene
+	 */
+	public void empty() {
+		for (int i = 0; i < used; i++) {
+			entities[i] = null;
+		}
+		size = 0;
+		used = 0;
+		holes = 0;
+		readDepth = 0;
+		grid.empty();
+		shapes = new ShapeStore();
+		index.empty();
+		pointCount = 0;
+		entityBytes = 0;
+	}
+
+	/**
+	 * Interface <code>Painter</code> is handed the entities of an
+	 * <code>EntityScene</code> in the order that they are painted
+	 */
+	public interface Painter {
+		/**
+		 * Paints one entity that isn't a stored shape
+		 * @param entity the entity to paint
+		 */
+		public void paintEntity(CanvasEntity entity);
+
+		/**
+		 * Paints a run of stored shapes, skipping those that are
+		 * inactive
+		 * @param shapes the store the shapes are kept in
+		 * @param from the first slot of the run
+		 * @param to the slot after the last one of the run
+		 */
+		public void paintShapes(ShapeStore shapes, int from, int to);
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// grows the internal arrays when they are full
+	private void ensureCapacity() {
+		if (used == entities.length) {
+			CanvasEntity[] temp = new CanvasEntity[entities.length * 2];
+			System.arraycopy(entities, 0, temp, 0, used);
+			entities = temp;
+			long[] tempIds = new long[ids.length * 2];
+			System.arraycopy(ids, 0, tempIds, 0, used);
+			ids = tempIds;
+		}
+	}
+
+	// squeezes out the holes left by removed entities, keeping the rest
+	// in order
+	private void compact() {
+		if (holes == 0) {
+			return;
+		}
+		int kept = 0;
+		for (int i = 0; i < used; i++) {
+			if (entities[i] != null) {
+				entities[kept] = entities[i];
+				ids[kept] = ids[i];
+				kept++;
+			}
+		}
+		for (int i = kept; i < used; i++) {
+			entities[i] = null;
+		}
+		used = kept;
+		holes = 0;
+		readDepth = 0;
+	}
+
+	// adds an entity that came into the scene to the totals, or takes
+	// one that left out of them when the sign is negative. The points
+	// of a line aren't added to or taken away while it is in the scene,
+	// so it is taken out of the totals with what it was added with.
+	private void count(CanvasEntity entity, int sign) {
+		if (entity instanceof Line) {
+			Line line = (Line) entity;
+			pointCount += sign * line.getSize();
+			entityBytes += sign * (64 + 8L * line.getXCoordinates().length);
+		} else if (entity instanceof RasterPatch) {
+			BufferedImage pixels = ((RasterPatch) entity).getPixels();
+			entityBytes += sign * (64 + 4L * pixels.getWidth() * pixels.getHeight());
+		} else {
+			entityBytes += sign * 56;
+		}
+	}
+
+	// binary searches for the position of the given id, which may be a
+	// hole, returning -(insertion point) - 1 if it isn't in the scene
+	private int indexOf(long id) {
+		int low = 0;
+		int high = used - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long midId = ids[mid];
+			if (midId < id) {
+				low = mid + 1;
+			} else if (midId > id) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+}
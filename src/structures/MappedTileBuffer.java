@@ -0,0 +1,392 @@
+package structures;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Class <code>MappedTileBuffer</code> represents the pixels of a very
+ * large ARGB image stored outside of the Java heap. The image is split
+ * into square tiles that live in a memory-mapped scratch file, and a
+ * tile is only mapped the first time a pixel in it is written. Reading
+ * a tile that has never been written gives transparent pixels without
+ * mapping anything. Which tiles are actually in memory is left up to
+ * the operating system's page cache, so the size of the image has no
+ * effect on the size of the heap or on garbage collection.
+ *
+ * The buffer can be wrapped in a <code>BufferedImage</code> with
+ * <code>createImage</code>, which lets Java2D draw on it and draw it
+ * like any other image. Scanlines are padded to a power of two so a
+ * pixel's tile can be found with shifts and masks alone. Java2D goes
+ * through that image pixel by pixel, so for showing the image on
+ * screen <code>drawTiles</code> copies whole tiles at once instead,
+ * <code>paintTiles</code> lets Java2D paint on a copy of each tile on
+ * the heap, and <code>getPixels</code> reads a region in bulk.
+ *
+ * If a scratch file can't be created, the tiles are kept in direct
+ * buffers instead, which are still outside of the heap.
+ *
+ * @version 0.1.1 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ * 		-- tiles can be painted through a copy on the heap and regions
+ * 		read in bulk, so drawing never goes a pixel at a time
+ */
+public class MappedTileBuffer extends DataBuffer {
+	/**
+	 * The width and height of a tile in pixels
+	 */
+	public static final int TILE_SIZE = 256;
+
+	// the base 2 log of the tile size
+	private static final int TILE_SHIFT = 8;
+
+	// the amount of bytes in a tile
+	private static final int TILE_BYTES = TILE_SIZE * TILE_SIZE * 4;
+
+	// the size of the image
+	private int width, height;
+
+	// the padded width of a scanline and its base 2 log
+	private int stride, strideShift;
+
+	// the amount of tiles across one row of tiles
+	private int tilesAcross;
+
+	// the tiles that have been mapped so far
+	private IntBuffer[] tiles;
+
+	// the amount of tiles that have been mapped
+	private int mappedTiles;
+
+	// a heap image the size of one tile that tiles are copied into
+	// when they are drawn or painted
+	private BufferedImage tileImage;
+
+	// the scratch file and its channel, or null if the tiles are
+	// kept in direct buffers
+	private File scratchFile;
+	private RandomAccessFile scratch;
+
+	/**
+	 * Constructs a new transparent buffer for an image of the given
+	 * size backed by a scratch file in the default temporary directory
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @throws IllegalArgumentException if either dimension isn't
+	 * positive or the image is too large to address
+	 */
+	public MappedTileBuffer(int width, int height) {
+		super(DataBuffer.TYPE_INT, checkedSize(width, height));
+		this.width = width;
+		this.height = height;
+		stride = paddedStride(width);
+		strideShift = Integer.numberOfTrailingZeros(stride);
+		tilesAcross = (width + TILE_SIZE - 1) >> TILE_SHIFT;
+		int tilesDown = (height + TILE_SIZE - 1) >> TILE_SHIFT;
+		tiles = new IntBuffer[tilesAcross * tilesDown];
+		try {
+			scratchFile = File.createTempFile("canvas", ".tiles");
+			scratchFile.deleteOnExit();
+			scratch = new RandomAccessFile(scratchFile, "rw");
+			scratch.setLength((long) tiles.length * TILE_BYTES);
+		} catch (IOException ex) {
+			System.err.println("no scratch file for the canvas, using direct memory");
+			closeScratch();
+		}
+	}
+
+	@Override
+	public int getElem(int bank, int i) {
+		IntBuffer tile = tiles[tileOf(i)];
+		if (tile == null) {
+			return 0;
+		}
+		return tile.get(offsetOf(i));
+	}
+
+	@Override
+	public void setElem(int bank, int i, int val) {
+		int index = tileOf(i);
+		IntBuffer tile = tiles[index];
+		if (tile == null) {
+			tile = mapTile(index);
+		}
+		tile.put(offsetOf(i), val);
+	}
+
+	/**
+	 * Creates an ARGB image that draws on and is drawn from this buffer
+	 * @return an image backed by this buffer
+	 */
+	public BufferedImage createImage() {
+		ColorModel model = ColorModel.getRGBdefault();
+		int[] masks = ((DirectColorModel) model).getMasks();
+		SinglePixelPackedSampleModel sampleModel = new SinglePixelPackedSampleModel(
+				DataBuffer.TYPE_INT, width, height, stride, masks);
+		WritableRaster raster = Raster.createWritableRaster(sampleModel, this, new Point(0, 0));
+		return new BufferedImage(model, raster, false, null);
+	}
+
+	/**
+	 * Draws the tiles that overlap the given region of the image with
+	 * the given graphics, at the same coordinates that they have in the
+	 * image. Tiles that have never been written are transparent and are
+	 * skipped.
+	 * @param g the graphics to draw with
+	 * @param region the region of the image to draw, or null to draw
+	 * the whole image
+	 */
+	public void drawTiles(Graphics2D g, Rectangle region) {
+		if (region == null) {
+			region = new Rectangle(0, 0, width, height);
+		}
+		int[] pixels = getTilePixels();
+		int firstCol = Math.max(0, region.x >> TILE_SHIFT);
+		int firstRow = Math.max(0, region.y >> TILE_SHIFT);
+		int lastCol = Math.min(tilesAcross - 1, (region.x + region.width - 1) >> TILE_SHIFT);
+		int lastRow = Math.min(tiles.length / tilesAcross - 1, (region.y + region.height - 1) >> TILE_SHIFT);
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int col = firstCol; col <= lastCol; col++) {
+				IntBuffer tile = tiles[row * tilesAcross + col];
+				if (tile != null) {
+					tile.position(0);
+					tile.get(pixels);
+					g.drawImage(tileImage, col << TILE_SHIFT, row << TILE_SHIFT, null);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Paints the given region of the image one tile at a time. Each tile
+	 * that overlaps the region is copied into an image on the heap,
+	 * painted there, and copied back, so Java2D never reaches this
+	 * buffer a pixel at a time. The painter is given graphics that take
+	 * the coordinates of the whole image and are clipped to the part of
+	 * the region on the tile. A tile that has never been written and is
+	 * still transparent once it is painted is left unmapped.
+	 * @param region the region of the image to paint
+	 * @param painter paints each tile
+	 */
+	public void paintTiles(Rectangle region, TilePainter painter) {
+		int[] pixels = getTilePixels();
+		Rectangle bounds = region.intersection(new Rectangle(0, 0, width, height));
+		if (bounds.isEmpty()) {
+			return;
+		}
+		int firstCol = bounds.x >> TILE_SHIFT;
+		int firstRow = bounds.y >> TILE_SHIFT;
+		int lastCol = (bounds.x + bounds.width - 1) >> TILE_SHIFT;
+		int lastRow = (bounds.y + bounds.height - 1) >> TILE_SHIFT;
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int col = firstCol; col <= lastCol; col++) {
+				int index = row * tilesAcross + col;
+				IntBuffer tile = tiles[index];
+				if (tile == null) {
+					Arrays.fill(pixels, 0);
+				} else {
+					tile.get(0, pixels);
+				}
+				int x = col << TILE_SHIFT;
+				int y = row << TILE_SHIFT;
+				Graphics2D g = tileImage.createGraphics();
+				g.translate(-x, -y);
+				g.clip(bounds.intersection(new Rectangle(x, y, TILE_SIZE, TILE_SIZE)));
+				painter.paintTile(g, tileImage, x, y);
+				g.dispose();
+				if (tile == null) {
+					if (isTransparent(pixels)) {
+						continue;
+					}
+					tile = mapTile(index);
+				}
+				tile.put(0, pixels);
+			}
+		}
+	}
+
+	/**
+	 * Copies the pixels of the given region of the image into the given
+	 * array, a row of the region after another, a run of each tile at a
+	 * time
+	 * @param region the region of the image to read, which must be
+	 * inside of the image
+	 * @param pixels the array to copy into, which must hold the region
+	 */
+	public void getPixels(Rectangle region, int[] pixels) {
+		for (int y = region.y; y < region.y + region.height; y++) {
+			int x = region.x;
+			while (x < region.x + region.width) {
+				int run = Math.min(region.x + region.width, ((x >> TILE_SHIFT) + 1) << TILE_SHIFT) - x;
+				int target = (y - region.y) * region.width + x - region.x;
+				IntBuffer tile = tiles[(y >> TILE_SHIFT) * tilesAcross + (x >> TILE_SHIFT)];
+				if (tile == null) {
+					Arrays.fill(pixels, target, target + run, 0);
+				} else {
+					tile.get(((y & (TILE_SIZE - 1)) << TILE_SHIFT) | (x & (TILE_SIZE - 1)), pixels, target, run);
+				}
+				x += run;
+			}
+		}
+	}
+
+	/**
+	 * Gets the amount of tiles that have been written to and are mapped
+	 * @return the amount of mapped tiles
+	 */
+	public int getMappedTiles() {
+		return mappedTiles;
+	}
+
+	/**
+	 * Gets the total amount of tiles in the image
+	 * @return the amount of tiles
+	 */
+	public int getTotalTiles() {
+		return tiles.length;
+	}
+
+	/**
+	 * Lets go of every tile and deletes the scratch file. The buffer
+	 * reads as transparent and must not be written to afterwards.
+	 */
+	public void dispose() {
+		for (int i = 0; i < tiles.length; i++) {
+			tiles[i] = null;
+		}
+		mappedTiles = 0;
+		closeScratch();
+	}
+
+	/**
+	 * Interface <code>TilePainter</code> paints the tiles of a
+	 * <code>MappedTileBuffer</code> through their copies on the heap
+	 */
+	public interface TilePainter {
+		/**
+		 * Paints one tile of the image
+		 * @param g the graphics that paint the tile, which take the
+		 * coordinates of the whole image
+		 * @param tile the image on the heap holding the pixels of the tile
+		 * @param x the x-coordinate of the tile in the image
+		 * @param y the y-coordinate of the tile in the image
+		 */
+		public void paintTile(Graphics2D g, BufferedImage tile, int x, int y);
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// gets the pixels of the heap image that tiles are copied into,
+	// creating the image the first time
+	private int[] getTilePixels() {
+		if (tileImage == null) {
+			tileImage = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+		}
+		return ((DataBufferInt) tileImage.getRaster().getDataBuffer()).getData();
+	}
+
+	// checks whether every pixel of a tile is fully transparent
+	private static boolean isTransparent(int[] pixels) {
+		for (int i = 0; i < pixels.length; i++) {
+			if (pixels[i] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// maps the tile at the given index, or allocates it when there is
+	// no scratch file
+	private IntBuffer mapTile(int index) {
+		ByteBuffer bytes;
+		if (scratch != null) {
+			try {
+				bytes = scratch.getChannel().map(FileChannel.MapMode.READ_WRITE,
+						(long) index * TILE_BYTES, TILE_BYTES);
+			} catch (IOException ex) {
+				throw new IllegalStateException("could not map a tile of the canvas", ex);
+			}
+		} else {
+			bytes = ByteBuffer.allocateDirect(TILE_BYTES);
+		}
+		IntBuffer tile = bytes.order(ByteOrder.nativeOrder()).asIntBuffer();
+		tiles[index] = tile;
+		mappedTiles++;
+		return tile;
+	}
+
+	// gets the index of the tile holding the given element
+	private int tileOf(int i) {
+		int x = i & (stride - 1);
+		int y = i >>> strideShift;
+		return (y >> TILE_SHIFT) * tilesAcross + (x >> TILE_SHIFT);
+	}
+
+	// gets the position of the given element inside of its tile
+	private int offsetOf(int i) {
+		int x = i & (TILE_SIZE - 1);
+		int y = (i >>> strideShift) & (TILE_SIZE - 1);
+		return (y << TILE_SHIFT) | x;
+	}
+
+	// closes and deletes the scratch file, if there is one
+	private void closeScratch() {
+		if (scratch != null) {
+			try {
+				scratch.close();
+			} catch (IOException ex) {
+				System.err.println("the canvas scratch file could not be closed");
+			}
+			scratch = null;
+		}
+		if (scratchFile != null) {
+			scratchFile.delete();
+			scratchFile = null;
+		}
+	}
+
+	// gets the padded scanline width for an image of the given width
+	private static int paddedStride(int width) {
+		return Math.max(TILE_SIZE, Integer.highestOneBit(width - 1) << 1);
+	}
+
+	// gets the amount of elements in the padded image, making sure
+	// they can be addressed with an int
+	private static int checkedSize(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("invalid dimensions: "
+					+ "w-" + width + "h-" + height);
+		}
+		long size = (long) paddedStride(width) * height;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("canvas is too large: "
+					+ "w-" + width + "h-" + height);
+		}
+		return (int) size;
+	}
+}
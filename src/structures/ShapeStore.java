@@ -0,0 +1,657 @@
+package structures;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+import shapes.AbstractRectangle;
+import shapes.CanvasEntity;
+import shapes.Ellipse;
+import shapes.StylePalette;
+import utilities.GeometryUtilities;
+import utilities.HashUtilities;
+
+/**
+ * Class <code>ShapeStore</code> keeps rectangles and ellipses in
+ * columns instead of as separate objects. Each shape is a slot in a set
+ * of parallel primitive arrays holding its location, size, style id,
+ * flags and canvas id, which takes <code>BYTES_PER_SHAPE</code> bytes
+ * a shape instead of the 56 or so of an <code>AbstractRectangle</code>
+ * plus the reference to it. Painting a run of shapes is a single loop
+ * down the arrays that only changes the brush and color when the style
+ * changes, and finding the shapes in a region is a scan down the same
+ * arrays that never touches an object.
+ *
+ * Code that works with entities can still get at a stored shape
+ * through <code>getView</code>, which gives a small
+ * <code>CanvasEntity</code> that reads and writes the shape's slot.
+ * Views hold nothing but their slot, so they can be made whenever they
+ * are needed and thrown away, and two views of the same slot are equal.
+ * Slots are never reused; a shape that is removed is only marked
+ * inactive, so views and slot numbers stay valid for as long as the
+ * store exists.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class ShapeStore {
+	/**
+	 * The flag for a shape that is filled instead of outlined
+	 */
+	public static final int FILLED = 1;
+
+	/**
+	 * The flag for a shape that is an ellipse instead of a rectangle
+	 */
+	public static final int ELLIPSE = 2;
+
+	/**
+	 * The bytes each shape takes in the columns: five ints, a byte of
+	 * flags and a long id
+	 */
+	public static final int BYTES_PER_SHAPE = 5 * 4 + 1 + 8;
+
+	// the flag for a shape that is still part of the store
+	private static final int ACTIVE = 4;
+
+	// The default capacity for the columns
+	private static final int DEFAULT_CAPACITY = 256;
+
+	// the names that stored shapes hash under, the same as the classes
+	// of the equivalent entities
+	private static final String RECTANGLE_KIND = shapes.Rectangle.class.getName();
+	private static final String ELLIPSE_KIND = Ellipse.class.getName();
+
+	// the columns of the store
+	private int[] xs, ys, widths, heights, styles;
+	private byte[] flags;
+	private long[] ids;
+
+	// the amount of slots that have been used
+	private int size;
+
+	/**
+	 * Constructs a new empty <code>ShapeStore</code>
+	 */
+	public ShapeStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new empty <code>ShapeStore</code> with room for the
+	 * given amount of shapes before it grows
+	 * @param capacity the amount of shapes to make room for
+	 */
+	public ShapeStore(int capacity) {
+		capacity = Math.max(1, capacity);
+		xs = new int[capacity];
+		ys = new int[capacity];
+		widths = new int[capacity];
+		heights = new int[capacity];
+		styles = new int[capacity];
+		flags = new byte[capacity];
+		ids = new long[capacity];
+	}
+
+	/**
+	 * Checks whether the given entity is a plain rectangle or ellipse,
+	 * which can be kept in a store without changing how it looks
+	 * @param entity the entity to check
+	 * @return true if the entity can be stored, false otherwise
+	 */
+	public static boolean canStore(CanvasEntity entity) {
+		return entity.getClass() == shapes.Rectangle.class || entity.getClass() == Ellipse.class;
+	}
+
+	/**
+	 * Adds a shape to the store
+	 * @param x the x-coordinate of the upper-left corner
+	 * @param y the y-coordinate of the upper-left corner
+	 * @param width the width of the shape
+	 * @param height the height of the shape
+	 * @param styleId the palette id of the brush and color
+	 * @param shapeFlags <code>FILLED</code> and <code>ELLIPSE</code>
+	 * combined as needed
+	 * @return the slot of the new shape
+	 */
+	public int add(int x, int y, int width, int height, int styleId, int shapeFlags) {
+		ensureCapacity();
+		xs[size] = x;
+		ys[size] = y;
+		widths[size] = width;
+		heights[size] = height;
+		styles[size] = styleId;
+		flags[size] = (byte) ((shapeFlags & (FILLED | ELLIPSE)) | ACTIVE);
+		ids[size] = -1;
+		size++;
+		return size - 1;
+	}
+
+	/**
+	 * Copies the given rectangle or ellipse into the store along with
+	 * its id
+	 * @param shape the shape to copy
+	 * @return the slot of the copy
+	 */
+	public int add(AbstractRectangle shape) {
+		int shapeFlags = (shape.isFilled() ? FILLED : 0) | (shape instanceof Ellipse ? ELLIPSE : 0);
+		int slot = add(shape.getX(), shape.getY(), shape.getWidth(), shape.getHeight(),
+				shape.getStyleId(), shapeFlags);
+		ids[slot] = shape.getId();
+		return slot;
+	}
+
+	/**
+	 * Gets an entity that reads and writes the shape in the given slot
+	 * @param slot the slot of the shape
+	 * @return a view of the shape
+	 * @throws IndexOutOfBoundsException if the slot isn't in the store
+	 */
+	public CanvasEntity getView(int slot) {
+		if (slot < 0 || slot >= size) {
+			throw new IndexOutOfBoundsException("slot: " + slot);
+		}
+		return new View(slot);
+	}
+
+	/**
+	 * Gets the slot that the given entity is a view of
+	 * @param entity the entity to look up
+	 * @return the slot of the shape, or -1 if the entity isn't a view
+	 * of this store
+	 */
+	public int slotOf(CanvasEntity entity) {
+		if (entity instanceof View && ((View) entity).getStore() == this) {
+			return ((View) entity).slot;
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the slot of the shape with the given id. Only works when
+	 * the shapes were added in the order of their ids, the way a scene
+	 * adds them.
+	 * @param id the id of the shape
+	 * @return the slot of the shape, active or not, or -(insertion
+	 * point) - 1 if no shape has the id
+	 */
+	public int find(long id) {
+		return Arrays.binarySearch(ids, 0, size, id);
+	}
+
+	/**
+	 * Makes a separate rectangle or ellipse that looks the same as the
+	 * shape in the given slot, which can be painted on another thread
+	 * while the store goes on changing
+	 * @param slot the slot of the shape
+	 * @return a copy of the shape as an entity
+	 */
+	public AbstractRectangle toEntity(int slot) {
+		int style = styles[slot];
+		StylePalette palette = StylePalette.forStyle(style);
+		AbstractRectangle shape;
+		if ((flags[slot] & ELLIPSE) != 0) {
+			shape = new Ellipse(palette, xs[slot], ys[slot], widths[slot], heights[slot]);
+		} else {
+			shape = new shapes.Rectangle(palette, xs[slot], ys[slot], widths[slot], heights[slot]);
+		}
+		shape.setFilled((flags[slot] & FILLED) != 0);
+		shape.setBrushStyle(palette.getStyleStroke(style));
+		shape.setColor(palette.getStyleColor(style));
+		shape.setActive(isActive(slot));
+		shape.setId(ids[slot]);
+		shape.freeze();
+		return shape;
+	}
+
+	/**
+	 * Paints every active shape in the store through the graphics, in
+	 * the order they were added
+	 * @param g the graphics to paint with
+	 */
+	public void paint(Graphics2D g) {
+		paint(g, 0, size, null, null);
+	}
+
+	/**
+	 * Paints the active shapes in the given slots that can touch the
+	 * given region, in the order they were added. Filled shapes are
+	 * offered to the filler first, and only painted through the
+	 * graphics if it doesn't take them.
+	 * @param g the graphics to paint with
+	 * @param from the first slot to paint
+	 * @param to the slot after the last one to paint
+	 * @param region the region to paint, or null to paint every shape
+	 * @param filler what fills shapes some faster way, or null to
+	 * paint every shape through the graphics
+	 * @return the amount of times the brush and color were looked up
+	 */
+	public int paint(Graphics2D g, int from, int to, Rectangle region, Filler filler) {
+		int style = -1;
+		int styleChanges = 0;
+		int pad = 0;
+		Color color = null;
+		Stroke brush = null;
+		for (int i = from; i < to; i++) {
+			int shapeFlags = flags[i];
+			if ((shapeFlags & ACTIVE) == 0) {
+				continue;
+			}
+			if (styles[i] != style) {
+				style = styles[i];
+				StylePalette palette = StylePalette.forStyle(style);
+				brush = palette.getStyleStroke(style);
+				color = palette.getStyleColor(style);
+				pad = GeometryUtilities.getStrokePadding(brush);
+				if (brush != null) {
+					g.setStroke(brush);
+				}
+				g.setColor(color);
+				styleChanges++;
+			}
+			int x = xs[i];
+			int y = ys[i];
+			int width = widths[i];
+			int height = heights[i];
+			if (region != null && !overlaps(i, pad, region)) {
+				continue;
+			}
+			switch (shapeFlags & (FILLED | ELLIPSE)) {
+			case 0:
+				g.drawRect(x, y, width, height);
+				break;
+			case FILLED:
+				if (filler == null || !filler.fill(x, y, width, height, false, color, brush)) {
+					g.fillRect(x, y, width, height);
+				}
+				break;
+			case ELLIPSE:
+				g.drawOval(x, y, width, height);
+				break;
+			default:
+				if (filler == null || !filler.fill(x, y, width, height, true, color, brush)) {
+					g.fillOval(x, y, width, height);
+				}
+				break;
+			}
+		}
+		return styleChanges;
+	}
+
+	/**
+	 * Offers the given entity to the filler if it is a filled shape
+	 * viewed from any store
+	 * @param entity the entity to fill
+	 * @param filler what fills the shape
+	 * @return true if the filler filled the shape, false if it must be
+	 * painted some other way
+	 */
+	public static boolean fill(CanvasEntity entity, Filler filler) {
+		if (!(entity instanceof View)) {
+			return false;
+		}
+		View view = (View) entity;
+		ShapeStore store = view.getStore();
+		int slot = view.slot;
+		int shapeFlags = store.flags[slot];
+		return (shapeFlags & FILLED) != 0 && filler.fill(store.xs[slot], store.ys[slot],
+				store.widths[slot], store.heights[slot], (shapeFlags & ELLIPSE) != 0,
+				view.getColor(), view.getBrushType());
+	}
+
+	/**
+	 * Finds the first active shape from the given slot on whose bounds,
+	 * padded for its brush the same as the bounds of its view, overlap
+	 * the given region
+	 * @param from the slot to start looking from
+	 * @param region the region to look in
+	 * @return the slot of the shape, or -1 if there is none
+	 */
+	public int nextOverlapping(int from, Rectangle region) {
+		int style = -1;
+		int pad = 0;
+		for (int i = from; i < size; i++) {
+			if ((flags[i] & ACTIVE) == 0) {
+				continue;
+			}
+			if (styles[i] != style) {
+				style = styles[i];
+				pad = GeometryUtilities.getStrokePadding(StylePalette.forStyle(style).getStyleStroke(style));
+			}
+			if (overlaps(i, pad, region)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks whether a round eraser of the given radius swept along the
+	 * given segment touches the shape in the given slot
+	 * @param slot the slot of the shape
+	 * @param x1 the x-coordinate of the start of the segment
+	 * @param y1 the y-coordinate of the start of the segment
+	 * @param x2 the x-coordinate of the end of the segment
+	 * @param y2 the y-coordinate of the end of the segment
+	 * @param radius the radius of the eraser in pixels
+	 * @return true if the shape is touched, false otherwise
+	 */
+	public boolean intersects(int slot, int x1, int y1, int x2, int y2, int radius) {
+		Shape outline;
+		if ((flags[slot] & ELLIPSE) != 0) {
+			outline = new Ellipse2D.Double(xs[slot], ys[slot], widths[slot], heights[slot]);
+		} else {
+			outline = new Rectangle2D.Double(xs[slot], ys[slot], widths[slot], heights[slot]);
+		}
+		int style = styles[slot];
+		return GeometryUtilities.outlineIntersects(outline, (flags[slot] & FILLED) != 0,
+				StylePalette.forStyle(style).getStyleStroke(style), x1, y1, x2, y2, radius);
+	}
+
+	/**
+	 * Gets the amount of slots that have been used, including the slots
+	 * of shapes that were removed
+	 * @return the amount of slots in the store
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets whether or not the shape in the given slot is still active
+	 * @param slot the slot of the shape
+	 * @return true if the shape is active, false otherwise
+	 */
+	public boolean isActive(int slot) {
+		return (flags[slot] & ACTIVE) != 0;
+	}
+
+	/**
+	 * Sets whether or not the shape in the given slot is still part of
+	 * the store. Inactive shapes are skipped when painting and searching.
+	 * @param slot the slot of the shape
+	 * @param active whether the shape is active
+	 */
+	public void setActive(int slot, boolean active) {
+		if (active) {
+			flags[slot] |= ACTIVE;
+		} else {
+			flags[slot] &= ~ACTIVE;
+		}
+	}
+
+	/**
+	 * Gets the x-coordinate of the shape in the given slot
+	 * @param slot the slot of the shape
+	 * @return the x-coordinate of its upper-left corner
+	 */
+	public int getX(int slot) {
+		return xs[slot];
+	}
+
+	/**
+	 * Gets the y-coordinate of the shape in the given slot
+	 * @param slot the slot of the shape
+	 * @return the y-coordinate of its upper-left corner
+	 */
+	public int getY(int slot) {
+		return ys[slot];
+	}
+
+	/**
+	 * Gets the width of the shape in the given slot
+	 * @param slot the slot of the shape
+	 * @return the width of the shape
+	 */
+	public int getWidth(int slot) {
+		return widths[slot];
+	}
+
+	/**
+	 * Gets the height of the shape in the given slot
+	 * @param slot the slot of the shape
+	 * @return the height of the shape
+	 */
+	public int getHeight(int slot) {
+		return heights[slot];
+	}
+
+	/**
+	 * Gets the style id of the shape in the given slot
+	 * @param slot the slot of the shape
+	 * @return the palette id of its brush and color
+	 */
+	public int getStyleId(int slot) {
+		return styles[slot];
+	}
+
+	/**
+	 * Gets the flags of the shape in the given slot
+	 * @param slot the slot of the shape
+	 * @return <code>FILLED</code> and <code>ELLIPSE</code> as they
+	 * apply to the shape
+	 */
+	public int getFlags(int slot) {
+		return flags[slot] & (FILLED | ELLIPSE);
+	}
+
+	/**
+	 * Gets the id of the shape in the given slot
+	 * @param slot the slot of the shape
+	 * @return the id the canvas gave the shape, or -1 if it has none
+	 */
+	public long getId(int slot) {
+		return ids[slot];
+	}
+
+	/**
+	 * Interface <code>Filler</code> fills the filled shapes of a
+	 * <code>ShapeStore</code> some faster way than through the graphics
+	 */
+	public interface Filler {
+		/**
+		 * Fills one shape if it can be filled exactly the way the
+		 * graphics would fill it
+		 * @param x the x-coordinate of the upper-left corner
+		 * @param y the y-coordinate of the upper-left corner
+		 * @param width the width of the shape
+		 * @param height the height of the shape
+		 * @param ellipse whether the shape is an ellipse
+		 * @param color the color of the shape
+		 * @param brush the brush of the shape
+		 * @return true if the shape was filled, false if it must be
+		 * painted through the graphics instead
+		 */
+		public boolean fill(int x, int y, int width, int height, boolean ellipse, Color color,
+				Stroke brush);
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// doubles every column when they are full
+	private void ensureCapacity() {
+		if (size == xs.length) {
+			int capacity = xs.length * 2;
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			widths = Arrays.copyOf(widths, capacity);
+			heights = Arrays.copyOf(heights, capacity);
+			styles = Arrays.copyOf(styles, capacity);
+			flags = Arrays.copyOf(flags, capacity);
+			ids = Arrays.copyOf(ids, capacity);
+		}
+	}
+
+	// checks whether the shape in the given slot, padded by the given
+	// amount, overlaps the given region
+	private boolean overlaps(int slot, int pad, Rectangle region) {
+		int x = xs[slot];
+		int y = ys[slot];
+		return x - pad < region.x + region.width && region.x < x + widths[slot] + pad + 1
+				&& y - pad < region.y + region.height && region.y < y + heights[slot] + pad + 1;
+	}
+
+	/****************************************************************
+	 * HELPER CLASSES
+	 ***************************************************************/
+
+	// an entity that reads and writes one slot of the store
+	private class View implements CanvasEntity {
+		private int slot;
+
+		public View(int slot) {
+			this.slot = slot;
+		}
+
+		@Override
+		public Color getColor() {
+			return getPalette().getStyleColor(styles[slot]);
+		}
+
+		@Override
+		public Stroke getBrushType() {
+			return getPalette().getStyleStroke(styles[slot]);
+		}
+
+		@Override
+		public int getStyleId() {
+			return styles[slot];
+		}
+
+		@Override
+		public StylePalette getPalette() {
+			return StylePalette.forStyle(styles[slot]);
+		}
+
+		@Override
+		public void paintShape(Graphics2D g) {
+			paint(g, slot, slot + 1, null, null);
+		}
+
+		@Override
+		public void setColor(Color c) {
+			styles[slot] = getPalette().withColor(styles[slot], c);
+		}
+
+		@Override
+		public void setBrushStyle(Stroke brushStyle) {
+			styles[slot] = getPalette().withStroke(styles[slot], brushStyle);
+		}
+
+		@Override
+		public boolean isActive() {
+			return ShapeStore.this.isActive(slot);
+		}
+
+		@Override
+		public void setActive(boolean active) {
+			ShapeStore.this.setActive(slot, active);
+		}
+
+		@Override
+		public long getId() {
+			return ids[slot];
+		}
+
+		@Override
+		public void setId(long id) {
+			ids[slot] = id;
+		}
+
+		@Override
+		public Rectangle getBounds() {
+			int pad = GeometryUtilities.getStrokePadding(getBrushType());
+			return new Rectangle(xs[slot] - pad, ys[slot] - pad,
+					widths[slot] + 2 * pad + 1, heights[slot] + 2 * pad + 1);
+		}
+
+		@Override
+		public boolean hitTest(int x, int y, int tolerance) {
+			return ShapeStore.this.intersects(slot, x, y, x, y, tolerance);
+		}
+
+		@Override
+		public boolean intersects(int x1, int y1, int x2, int y2, int radius) {
+			return ShapeStore.this.intersects(slot, x1, y1, x2, y2, radius);
+		}
+
+		@Override
+		public void translate(int dx, int dy) {
+			xs[slot] += dx;
+			ys[slot] += dy;
+		}
+
+		@Override
+		public CanvasEntity snapshot() {
+			return toEntity(slot);
+		}
+
+		@Override
+		public void freeze() {
+			return; // the hash of a box is cheap enough to not be cached
+		}
+
+		@Override
+		public long getContentHash() {
+			String kind = (flags[slot] & ELLIPSE) != 0 ? ELLIPSE_KIND : RECTANGLE_KIND;
+			return HashUtilities.hashBox(kind, xs[slot], ys[slot], widths[slot], heights[slot],
+					(flags[slot] & FILLED) != 0, getColor(), getBrushType());
+		}
+
+		@Override
+		public boolean equals(CanvasEntity other) {
+			if (other instanceof View && other.isActive()) {
+				View view = (View) other;
+				ShapeStore store = view.getStore();
+				int i = view.slot;
+				return xs[slot] == store.xs[i] && ys[slot] == store.ys[i]
+						&& widths[slot] == store.widths[i] && heights[slot] == store.heights[i]
+						&& ((flags[slot] ^ store.flags[i]) & (FILLED | ELLIPSE)) == 0
+						&& StylePalette.sameStyle(this, view);
+			}
+			if (other instanceof AbstractRectangle && other.isActive()) {
+				AbstractRectangle shape = (AbstractRectangle) other;
+				String kind = (flags[slot] & ELLIPSE) != 0 ? ELLIPSE_KIND : RECTANGLE_KIND;
+				return kind.equals(shape.getClass().getName())
+						&& xs[slot] == shape.getX() && ys[slot] == shape.getY()
+						&& widths[slot] == shape.getWidth() && heights[slot] == shape.getHeight()
+						&& ((flags[slot] & FILLED) != 0) == shape.isFilled()
+						&& StylePalette.sameStyle(this, shape);
+			}
+			return false;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (other instanceof View) {
+				View view = (View) other;
+				return view.slot == slot && view.getStore() == getStore();
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return HashUtilities.fold(getContentHash());
+		}
+
+		// gets the store this view reads from
+		private ShapeStore getStore() {
+			return ShapeStore.this;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package tests;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import gui.BackgroundLayer;
+import gui.PaintCanvas;
+
+/*
+ * a simple test program that opens an image with two halves of
+ * different colors as the background of a canvas, draws a filled
+ * rectangle over it, saves the canvas and reads the saved file back.
+ * The drawing, both halves of the background and the bare canvas past
+ * the background have to be in the saved file. It is run on a canvas
+ * that keeps its image on the heap and on one that keeps it in
+ * off-heap tiles, which is saved a strip at a time.
+ *
+ * It then loads an image of one pixel wide stripes with a loader of its
+ * own, checking that the loader reports its progress up to 100, and
+ * paints the layer at full size. The preview is read at a quarter of
+ * the size, which only keeps one color of the stripes, so the stripes
+ * only show once the tiles under the clip have been read in the
+ * background and painted over the preview.
+ */
+public class BackgroundLayerTest {
+	private static final int IMAGE_WIDTH = 2000;
+	private static final int IMAGE_HEIGHT = 1500;
+	private static final Color LEFT = new Color(0x3366CC);
+	private static final Color RIGHT = new Color(0xCC9933);
+	private static final Color PAINT = new Color(0x22AA44);
+
+	public static void main(String[] args) throws Exception {
+		File image = File.createTempFile("background", ".png");
+		BufferedImage halves = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = halves.createGraphics();
+		g.setColor(LEFT);
+		g.fillRect(0, 0, IMAGE_WIDTH / 2, IMAGE_HEIGHT);
+		g.setColor(RIGHT);
+		g.fillRect(IMAGE_WIDTH / 2, 0, IMAGE_WIDTH / 2, IMAGE_HEIGHT);
+		g.dispose();
+		ImageIO.write(halves, "png", image);
+		check("heap canvas", image, 500, 400);
+		check("off-heap canvas", image, 4352, 4096);
+		image.delete();
+		checkTiles();
+		System.out.println("test complete...");
+	}
+
+	private static void check(String name, final File image, final int width, final int height)
+			throws Exception {
+		final PaintCanvas canvas = new PaintCanvas(width, height);
+		final CountDownLatch opened = new CountDownLatch(1);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				canvas.setSize(width, height);
+				canvas.redrawImage();
+				// the layer is set before the loader says it is done
+				canvas.openBackground(image, new PropertyChangeListener() {
+					@Override
+					public void propertyChange(PropertyChangeEvent event) {
+						if (event.getNewValue() == SwingWorker.StateValue.DONE) {
+							opened.countDown();
+						}
+					}
+				});
+			}
+		});
+		opened.await();
+		final File saved = File.createTempFile("saved", ".png");
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				canvas.setFilledRects(true);
+				canvas.setPaintColor(PAINT);
+				canvas.dispatchEvent(event(canvas, MouseEvent.MOUSE_PRESSED, 20, 20));
+				canvas.dispatchEvent(event(canvas, MouseEvent.MOUSE_DRAGGED, 60, 60));
+				canvas.dispatchEvent(event(canvas, MouseEvent.MOUSE_RELEASED, 60, 60));
+				canvas.save(saved, "png");
+			}
+		});
+		BufferedImage read = ImageIO.read(saved);
+		saved.delete();
+		// the background is drawn at the largest scale, up to 1, that fits it
+		double scale = Math.min(1, Math.min((double) width / IMAGE_WIDTH, (double) height / IMAGE_HEIGHT));
+		int drawnWidth = (int) Math.round(IMAGE_WIDTH * scale);
+		int drawnHeight = (int) Math.round(IMAGE_HEIGHT * scale);
+		boolean drawing = read.getRGB(40, 40) == PAINT.getRGB();
+		boolean left = read.getRGB(drawnWidth / 4, drawnHeight / 2) == LEFT.getRGB();
+		boolean right = read.getRGB(drawnWidth * 3 / 4, drawnHeight / 2) == RIGHT.getRGB();
+		boolean bare = drawnHeight >= height
+				|| read.getRGB(width / 2, (drawnHeight + height) / 2) == canvas.getBackground().getRGB();
+		System.out.println(name + " saved with the drawing " + drawing + ", the background "
+				+ (left && right) + ", the bare canvas " + bare);
+	}
+
+	// loads an image of stripes and paints it at full size, before and
+	// after the tiles under the clip have been read
+	private static void checkTiles() throws Exception {
+		File image = File.createTempFile("stripes", ".png");
+		BufferedImage stripes = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		for (int x = 1; x < IMAGE_WIDTH; x += 2) {
+			for (int y = 0; y < IMAGE_HEIGHT; y++) {
+				stripes.setRGB(x, y, 0xFFFFFF);
+			}
+		}
+		ImageIO.write(stripes, "png", image);
+		// the owner is told to repaint where each tile is drawn once it
+		// has been read
+		final CountDownLatch read = new CountDownLatch(1);
+		JComponent owner = new JComponent() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void repaint(Rectangle r) {
+				read.countDown();
+			}
+		};
+		final int[] progress = new int[1];
+		BackgroundLayer.Loader loader = new BackgroundLayer.Loader(image,
+				IMAGE_WIDTH / 4, IMAGE_HEIGHT / 4, owner);
+		loader.addPropertyChangeListener(new PropertyChangeListener() {
+			@Override
+			public void propertyChange(PropertyChangeEvent event) {
+				if ("progress".equals(event.getPropertyName())) {
+					progress[0] = Math.max(progress[0], (Integer) event.getNewValue());
+				}
+			}
+		});
+		loader.execute();
+		final BackgroundLayer layer = loader.get();
+		final BufferedImage before = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				paint(layer, before);
+			}
+		});
+		boolean arrived = read.await(10, TimeUnit.SECONDS);
+		final BufferedImage after = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				paint(layer, after);
+				layer.dispose();
+			}
+		});
+		image.delete();
+		boolean preview = (before.getRGB(0, 50) & 0xFFFFFF) == (before.getRGB(1, 50) & 0xFFFFFF);
+		boolean tiles = arrived && (after.getRGB(0, 50) & 0xFFFFFF) == 0
+				&& (after.getRGB(1, 50) & 0xFFFFFF) == 0xFFFFFF;
+		System.out.println("stripes loaded with progress " + progress[0] + ", preview without the stripes "
+				+ preview + ", tiles read with the stripes " + tiles);
+	}
+
+	// paints the corner of the layer that fits in the image at full size
+	private static void paint(BackgroundLayer layer, BufferedImage image) {
+		Graphics2D g = image.createGraphics();
+		g.setClip(0, 0, image.getWidth(), image.getHeight());
+		layer.paint(g, 1);
+		g.dispose();
+	}
+
+	// the canvas isn't on screen, so the events are given their screen
+	// coordinates rather than asking the canvas for them
+	private static MouseEvent event(PaintCanvas canvas, int id, int x, int y) {
+		return new MouseEvent(canvas, id, 0, id == MouseEvent.MOUSE_RELEASED ? 0
+				: MouseEvent.BUTTON1_DOWN_MASK, x, y, x, y, 1, false, MouseEvent.BUTTON1);
+	}
+}
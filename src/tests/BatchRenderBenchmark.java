@@ -0,0 +1,277 @@
+package tests;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Random;
+
+import gui.BatchRenderer;
+import shapes.AbstractRectangle;
+import shapes.CanvasEntity;
+import shapes.Ellipse;
+import shapes.Line;
+import shapes.RasterPatch;
+import shapes.Rectangle;
+import shapes.StylePalette;
+import structures.EntityScene;
+
+/*
+ * a simple benchmark that repaints scenes of 200,000 entities one at a
+ * time with paintShape and with the BatchRenderer. One scene is drawn
+ * in long runs of the same brush and color, the way a user draws, and
+ * the other switches color on every entity but keeps entities of each
+ * color apart so they can be grouped out of order. Every scene is also
+ * painted with anti-aliasing on and checked to give the same pixels
+ * both ways, with filled shapes written straight into the image
+ * whenever the renderer can, and patches copied straight into the
+ * image when its pixels are premultiplied. Scenes are also painted in
+ * pieces the way the canvas refines its image, with a renderer that
+ * targets each piece, and checked against the scene painted whole.
+ * That is done with anti-aliasing, as the canvas refines, and for
+ * filled shapes without it, which are written straight into the
+ * pieces. Java2D itself moves the odd pixel of a wide stroke drawn
+ * without anti-aliasing when the stroke is translated, so those aren't
+ * painted in pieces. The renderer only writes
+ * pixels itself when it can match Java2D exactly, so no pixel may
+ * differ.
+ */
+public class BatchRenderBenchmark {
+	private static final int NUM_ENTITIES = 200000;
+	private static final int SIZE = 2000;
+	private static final int PIECE = 250;
+
+	// the amount of pixels that may differ between the two ways of
+	// painting a scene
+	private static final int ALLOWED_DIFFERENCES = 0;
+
+	// the palette that entities made outside of a canvas are kept in
+	private static final StylePalette PALETTE = StylePalette.getDefault();
+
+	public static void main(String[] args) throws Exception {
+		final EntityScene runs = createRuns();
+		final EntityScene interleaved = createInterleaved();
+		check("runs", runs, false, BufferedImage.TYPE_INT_ARGB);
+		check("runs with anti-aliasing", runs, true, BufferedImage.TYPE_INT_ARGB);
+		check("runs on premultiplied pixels", runs, false, BufferedImage.TYPE_INT_ARGB_PRE);
+		check("interleaved", interleaved, false, BufferedImage.TYPE_INT_ARGB);
+		check("interleaved with anti-aliasing", interleaved, true, BufferedImage.TYPE_INT_ARGB);
+		checkPieces("runs in pieces with anti-aliasing", runs, true);
+		checkPieces("filled shapes in pieces", createFilled(), false);
+		BenchmarkRuns.measure(new BenchmarkRuns.Measurement() {
+			@Override
+			public void run() {
+				benchmark("runs", runs);
+				benchmark("interleaved", interleaved);
+			}
+		});
+	}
+
+	// checks that both ways of painting the scene give the same pixels,
+	// with the renderer writing straight into the image where it can
+	public static void check(String name, EntityScene scene, boolean antialias, int type) {
+		BufferedImage expected = new BufferedImage(SIZE, SIZE, type);
+		BufferedImage actual = new BufferedImage(SIZE, SIZE, type);
+		Graphics2D g = createGraphics(expected, antialias);
+		for (int i = 0; i < scene.getSize(); i++) {
+			scene.get(i).paintShape(g);
+		}
+		g.dispose();
+		g = createGraphics(actual, antialias);
+		BatchRenderer renderer = new BatchRenderer();
+		renderer.setTarget(actual);
+		renderer.paint(g, scene);
+		g.dispose();
+		int[] want = expected.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+		int[] got = actual.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+		int differences = 0;
+		for (int i = 0; i < want.length; i++) {
+			if (want[i] != got[i]) {
+				differences++;
+			}
+		}
+		System.out.println(name + ": pixels match " + (differences <= ALLOWED_DIFFERENCES) + " ("
+				+ differences + " differ), " + renderer.getStyleChanges() + " style changes");
+	}
+
+	// checks that painting the scene in pieces of the image, the way
+	// the canvas refines it, gives the same pixels as painting it whole
+	// into the canvas image, with the renderer targeting each piece
+	public static void checkPieces(String name, EntityScene scene, boolean antialias) {
+		BufferedImage expected = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g = createGraphics(expected, antialias);
+		BatchRenderer renderer = new BatchRenderer();
+		renderer.setTarget(expected);
+		renderer.paint(g, scene);
+		g.dispose();
+		BufferedImage actual = paintPieces(scene, antialias, renderer);
+		int[] want = expected.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+		int[] got = actual.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+		int differences = 0;
+		for (int i = 0; i < want.length; i++) {
+			if (want[i] != got[i]) {
+				differences++;
+			}
+		}
+		System.out.println(name + ": pixels match " + (differences <= ALLOWED_DIFFERENCES) + " ("
+				+ differences + " differ)");
+	}
+
+	// paints the scene one piece at a time into pieces that are put
+	// together into one image, with the renderer targeting each piece
+	private static BufferedImage paintPieces(EntityScene scene, boolean antialias, BatchRenderer renderer) {
+		BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D whole = image.createGraphics();
+		ArrayList<CanvasEntity> painted = new ArrayList<CanvasEntity>();
+		for (int y = 0; y < SIZE; y += PIECE) {
+			for (int x = 0; x < SIZE; x += PIECE) {
+				BufferedImage pixels = new BufferedImage(PIECE, PIECE, BufferedImage.TYPE_INT_ARGB_PRE);
+				Graphics2D g = createGraphics(pixels, antialias);
+				g.translate(-x, -y);
+				painted.clear();
+				scene.query(new java.awt.Rectangle(x, y, PIECE, PIECE), painted);
+				renderer.setTarget(pixels, x, y);
+				renderer.paint(g, painted);
+				g.dispose();
+				whole.drawImage(pixels, x, y, null);
+			}
+		}
+		whole.dispose();
+		return image;
+	}
+
+	public static void benchmark(String name, EntityScene scene) {
+		BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = createGraphics(image, false);
+		long start = System.nanoTime();
+		for (int i = 0; i < scene.getSize(); i++) {
+			scene.get(i).paintShape(g);
+		}
+		long single = System.nanoTime() - start;
+		g.dispose();
+		g = createGraphics(image, false);
+		BatchRenderer renderer = new BatchRenderer();
+		start = System.nanoTime();
+		renderer.paint(g, scene);
+		long batched = System.nanoTime() - start;
+		g.dispose();
+		System.out.println(name + ": one at a time " + (single / 1000000) + "ms, batched "
+				+ (batched / 1000000) + "ms");
+	}
+
+	// draws strokes, rectangles and ellipses in runs of 50 to 500 with
+	// the same brush and color, with the odd translucent shape and patch
+	private static EntityScene createRuns() {
+		Random r = new Random(42);
+		EntityScene scene = new EntityScene();
+		int style = randomStyle(r);
+		int left = 0;
+		while (scene.getSize() < NUM_ENTITIES) {
+			if (left == 0) {
+				style = randomStyle(r);
+				left = 50 + r.nextInt(450);
+			}
+			left--;
+			int kind = r.nextInt(100);
+			if (kind == 0) {
+				scene.add(createPatch(r));
+				continue;
+			}
+			CanvasEntity entity = kind < 60 ? createLine(r) : createBox(r);
+			entity.setBrushStyle(PALETTE.getStyleStroke(style));
+			entity.setColor(kind == 1 ? new Color(0x80FF0000, true) : PALETTE.getStyleColor(style));
+			scene.add(entity);
+		}
+		return scene;
+	}
+
+	// cycles through four colors, giving each color its own quarter of
+	// the image so that entities of one color never overlap another
+	private static EntityScene createInterleaved() {
+		Random r = new Random(7);
+		Color[] colors = {Color.BLACK, Color.RED, Color.BLUE, Color.GREEN};
+		BasicStroke brush = PALETTE.getBrush(4, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+		EntityScene scene = new EntityScene();
+		for (int i = 0; i < NUM_ENTITIES; i++) {
+			int quarter = i % colors.length;
+			int x = (quarter % 2) * SIZE / 2 + 20 + r.nextInt(SIZE / 2 - 80);
+			int y = (quarter / 2) * SIZE / 2 + 20 + r.nextInt(SIZE / 2 - 80);
+			Line line = new Line();
+			line.add(x, y);
+			line.add(x + r.nextInt(40), y + r.nextInt(40));
+			line.setBrushStyle(brush);
+			line.setColor(colors[quarter]);
+			scene.add(line);
+		}
+		return scene;
+	}
+
+	// scatters filled rectangles and ellipses with the odd patch, all
+	// of which the renderer writes straight into the image
+	private static EntityScene createFilled() {
+		Random r = new Random(11);
+		EntityScene scene = new EntityScene();
+		while (scene.getSize() < NUM_ENTITIES / 4) {
+			if (r.nextInt(50) == 0) {
+				scene.add(createPatch(r));
+				continue;
+			}
+			AbstractRectangle box = createBox(r);
+			box.setFilled(true);
+			box.setBrushStyle(PALETTE.getBrush(2 + r.nextInt(9), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+			box.setColor(new Color(0xFF000000 | r.nextInt()));
+			scene.add(box);
+		}
+		return scene;
+	}
+
+	private static int randomStyle(Random r) {
+		Color[] colors = {Color.BLACK, Color.RED, Color.BLUE, new Color(0x336699)};
+		BasicStroke brush = PALETTE.getBrush(1 + r.nextInt(10), BasicStroke.CAP_ROUND,
+				BasicStroke.JOIN_ROUND);
+		return PALETTE.internStyle(brush, colors[r.nextInt(colors.length)]);
+	}
+
+	private static Line createLine(Random r) {
+		Line line = new Line();
+		int x = r.nextInt(SIZE);
+		int y = r.nextInt(SIZE);
+		int points = 1 + r.nextInt(20);
+		for (int i = 0; i < points; i++) {
+			line.add(x, y);
+			x += r.nextInt(31) - 15;
+			y += r.nextInt(31) - 15;
+		}
+		return line;
+	}
+
+	private static AbstractRectangle createBox(Random r) {
+		int x = r.nextInt(SIZE);
+		int y = r.nextInt(SIZE);
+		int width = r.nextInt(60);
+		int height = r.nextInt(60);
+		AbstractRectangle box = r.nextBoolean() ? new Rectangle(x, y, width, height)
+				: new Ellipse(x, y, width, height);
+		box.setFilled(r.nextBoolean());
+		return box;
+	}
+
+	private static RasterPatch createPatch(Random r) {
+		BufferedImage pixels = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = pixels.createGraphics();
+		g.setColor(new Color(r.nextInt(), true));
+		g.fillRect(0, 0, 16, 16);
+		g.dispose();
+		return new RasterPatch(pixels, r.nextInt(SIZE), r.nextInt(SIZE));
+	}
+
+	private static Graphics2D createGraphics(BufferedImage image, boolean antialias) {
+		Graphics2D g = image.createGraphics();
+		if (antialias) {
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		}
+		return g;
+	}
+}
@@ -0,0 +1,32 @@
+package tests;
+
+/*
+ * runs the measured part of a benchmark more than once, numbering the
+ * runs, so the numbers of the last run come from code that the JIT has
+ * already compiled, and then ends the benchmark the way every benchmark
+ * here ends. Checks that the benchmark makes before it is measured stay
+ * in its main method, ahead of the runs.
+ */
+public final class BenchmarkRuns {
+	// how many times the measured part is run; only the last run is
+	// measured with a warm JIT
+	private static final int RUNS = 2;
+
+	private BenchmarkRuns() {}
+
+	/*
+	 * the part of a benchmark that is measured on every run
+	 */
+	public interface Measurement {
+		public void run() throws Exception;
+	}
+
+	// runs the given measurement RUNS times and ends the benchmark
+	public static void measure(Measurement measurement) throws Exception {
+		for (int run = 0; run < RUNS; run++) {
+			System.out.println("run " + (run + 1) + (run < RUNS - 1 ? " (warming up)" : ""));
+			measurement.run();
+		}
+		System.out.println("benchmark complete...");
+	}
+}
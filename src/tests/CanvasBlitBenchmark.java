@@ -0,0 +1,144 @@
+package tests;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.VolatileImage;
+import java.util.Random;
+
+import utilities.PixelKernels;
+
+/*
+ * a simple benchmark that measures what it costs to show and to save a
+ * canvas image kept as plain ARGB pixels and as premultiplied ARGB
+ * pixels. Both images have their pixels grabbed, the way the canvas
+ * does for drawing straight into them. Showing the image is measured
+ * as a blit onto an RGB image, which is what the screen is without
+ * acceleration, and when there is a screen also as a blit onto a
+ * volatile image, from the image itself and from a copy in the
+ * screen's format that is only brought up to date in a small dirty
+ * region. Saving is measured as drawing the image onto an RGB image
+ * with Java2D and as flattening it with the pixel kernels.
+ */
+public class CanvasBlitBenchmark {
+	private static final int WIDTH = 1600;
+	private static final int HEIGHT = 1000;
+	private static final int BLITS = 100;
+
+	public static void main(String[] args) throws Exception {
+		final BufferedImage plain = createCanvas(BufferedImage.TYPE_INT_ARGB);
+		final BufferedImage premultiplied = createCanvas(BufferedImage.TYPE_INT_ARGB_PRE);
+		BenchmarkRuns.measure(new BenchmarkRuns.Measurement() {
+			@Override
+			public void run() throws Exception {
+				benchmarkSoftware(plain, premultiplied);
+				benchmarkSave(plain, premultiplied);
+				if (GraphicsEnvironment.isHeadless()) {
+					System.out.println("headless, no screen blits measured");
+				} else {
+					benchmarkScreen(plain, premultiplied);
+				}
+			}
+		});
+	}
+
+	// blits both images onto an RGB image
+	public static void benchmarkSoftware(BufferedImage plain, BufferedImage premultiplied) {
+		BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		System.out.println("blit onto RGB: argb " + blit(plain, screen) + "us, argb pre "
+				+ blit(premultiplied, screen) + "us");
+	}
+
+	// saves both images through Java2D and through the pixel kernels
+	public static void benchmarkSave(BufferedImage plain, BufferedImage premultiplied) {
+		BufferedImage saved = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		int[] rgb = ((DataBufferInt) saved.getRaster().getDataBuffer()).getData();
+		int[] plainPixels = ((DataBufferInt) plain.getRaster().getDataBuffer()).getData();
+		int[] premultipliedPixels = ((DataBufferInt) premultiplied.getRaster().getDataBuffer()).getData();
+		PixelKernels kernels = PixelKernels.getInstance();
+		long start = System.nanoTime();
+		for (int i = 0; i < BLITS; i++) {
+			kernels.toRGB(plainPixels, 0, rgb, 0, rgb.length, 0xFFFFFFFF);
+		}
+		long flattenPlain = (System.nanoTime() - start) / BLITS / 1000;
+		start = System.nanoTime();
+		for (int i = 0; i < BLITS; i++) {
+			kernels.toRGBPremultiplied(premultipliedPixels, 0, rgb, 0, rgb.length, 0xFFFFFFFF);
+		}
+		long flattenPremultiplied = (System.nanoTime() - start) / BLITS / 1000;
+		System.out.println("save: java2d argb " + blit(plain, saved) + "us, java2d argb pre "
+				+ blit(premultiplied, saved) + "us, flatten argb " + flattenPlain
+				+ "us, flatten argb pre " + flattenPremultiplied + "us");
+	}
+
+	// blits onto a volatile image, from both images and from a display
+	// copy that has a 64x64 region brought up to date before each blit
+	public static void benchmarkScreen(BufferedImage plain, BufferedImage premultiplied) {
+		GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getDefaultScreenDevice().getDefaultConfiguration();
+		VolatileImage screen = config.createCompatibleVolatileImage(WIDTH, HEIGHT);
+		BufferedImage copy = config.createCompatibleImage(WIDTH, HEIGHT, Transparency.TRANSLUCENT);
+		Graphics2D g = copy.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(premultiplied, 0, 0, null);
+		g.dispose();
+		Random r = new Random(7);
+		blit(copy, screen);
+		long start = System.nanoTime();
+		for (int i = 0; i < BLITS; i++) {
+			Rectangle dirty = new Rectangle(r.nextInt(WIDTH - 64), r.nextInt(HEIGHT - 64), 64, 64);
+			g = copy.createGraphics();
+			g.setComposite(AlphaComposite.Src);
+			g.clip(dirty);
+			g.drawImage(premultiplied, 0, 0, null);
+			g.dispose();
+			g = screen.createGraphics();
+			g.drawImage(copy, 0, 0, null);
+			g.dispose();
+		}
+		long updated = (System.nanoTime() - start) / BLITS / 1000;
+		System.out.println("blit onto screen: argb " + blit(plain, screen) + "us, argb pre "
+				+ blit(premultiplied, screen) + "us, display copy " + blit(copy, screen)
+				+ "us, display copy with dirty region " + updated + "us");
+	}
+
+	// the average time of a blit in microseconds
+	private static long blit(BufferedImage image, Image screen) {
+		Graphics2D g = (Graphics2D) screen.getGraphics();
+		g.drawImage(image, 0, 0, null);
+		long start = System.nanoTime();
+		for (int i = 0; i < BLITS; i++) {
+			g.drawImage(image, 0, 0, null);
+		}
+		Toolkit.getDefaultToolkit().sync();
+		long time = (System.nanoTime() - start) / BLITS / 1000;
+		g.dispose();
+		return time;
+	}
+
+	// makes an image that is mostly transparent with some strokes of
+	// opaque and translucent paint, like a canvas, and grabs its pixels
+	private static BufferedImage createCanvas(int type) {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		Random r = new Random(5);
+		for (int i = 0; i < 4000; i++) {
+			int start = r.nextInt(pixels.length - 200);
+			int argb = (r.nextInt(3) == 0 ? r.nextInt(256) : 255) << 24 | r.nextInt(0x1000000);
+			for (int j = start; j < start + 200; j++) {
+				pixels[j] = argb;
+			}
+		}
+		if (image.isAlphaPremultiplied()) {
+			PixelKernels.getInstance().premultiply(pixels, 0, pixels.length);
+		}
+		return image;
+	}
+}
@@ -0,0 +1,138 @@
+package tests;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.util.HashSet;
+import java.util.Random;
+
+import shapes.CanvasEntity;
+import shapes.Line;
+import shapes.Rectangle;
+import shapes.StylePalette;
+import structures.ContentRegistry;
+
+/*
+ * a simple test program that counts how many of 100,000 random
+ * rectangles and strokes collide under the old summed hash codes and
+ * under the content hashes, and checks that the content registry
+ * shares the points of strokes that are drawn twice, that strokes
+ * which have been moved are given the hash of where they ended up, and
+ * that equal brushes and colors share one palette entry, and that
+ * strokes kept in different palettes are still equal
+ */
+public class ContentHashTest {
+	private static final int NUM_ENTITIES = 100000;
+
+	public static void main(String[] args) {
+		Random r = new Random(42);
+		BasicStroke brush = new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+		HashSet<Integer> oldRectHashes = new HashSet<Integer>();
+		HashSet<Integer> oldLineHashes = new HashSet<Integer>();
+		HashSet<Long> rectHashes = new HashSet<Long>();
+		HashSet<Long> lineHashes = new HashSet<Long>();
+		for (int i = 0; i < NUM_ENTITIES; i++) {
+			Rectangle rect = new Rectangle(r.nextInt(2000), r.nextInt(2000), r.nextInt(200), r.nextInt(200));
+			rect.setBrushStyle(brush);
+			rect.freeze();
+			oldRectHashes.add(rect.x + rect.y + rect.width + rect.height
+					+ rect.getColor().hashCode() + brush.hashCode());
+			rectHashes.add(rect.getContentHash());
+
+			Line line = createStroke(r, brush);
+			line.freeze();
+			int coordinateValues = 0;
+			for (int j = 0; j < 10; j++) {
+				coordinateValues += line.getXCoordinates()[j] + line.getYCoordinates()[j];
+			}
+			oldLineHashes.add(Color.BLACK.hashCode() + brush.hashCode() + coordinateValues + 20);
+			lineHashes.add(line.getContentHash());
+		}
+		System.out.println("distinct rectangle hashes: old " + oldRectHashes.size()
+				+ ", content " + rectHashes.size() + " of " + NUM_ENTITIES);
+		System.out.println("distinct stroke hashes:    old " + oldLineHashes.size()
+				+ ", content " + lineHashes.size() + " of " + NUM_ENTITIES);
+
+		ContentRegistry registry = new ContentRegistry();
+		Random first = new Random(7);
+		Random second = new Random(7);
+		boolean shared = true;
+		for (int i = 0; i < 1000; i++) {
+			Line original = createStroke(first, brush);
+			Line copy = createStroke(second, brush);
+			original.freeze();
+			copy.freeze();
+			CanvasEntity canonical = registry.intern(original);
+			shared &= canonical == original && registry.intern(copy) == original
+					&& copy.getXCoordinates() == original.getXCoordinates();
+		}
+		System.out.println("copies share points: " + shared + " (" + registry.getDuplicates()
+				+ " duplicates, " + registry.getSize() + " distinct)");
+		Random moving = new Random(3);
+		Random moved = new Random(3);
+		boolean rehashed = true;
+		for (int i = 0; i < 100; i++) {
+			Line line = createStroke(moving, brush);
+			Line copy = createStroke(moved, brush);
+			line.freeze();
+			long before = line.getContentHash();
+			for (int step = 0; step < 50; step++) {
+				line.translate(1, 2);
+			}
+			copy.translate(50, 100);
+			copy.freeze();
+			rehashed &= line.getContentHash() == copy.getContentHash() && line.getContentHash() != before;
+		}
+		System.out.println("moved strokes hashed again: " + rehashed);
+		StylePalette palette = new StylePalette();
+		boolean interned = true;
+		for (int size = 1; size <= 10; size++) {
+			BasicStroke canonical = palette.getBrush(size, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+			interned &= canonical == palette.getBrush(size, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND)
+					&& canonical == palette.getStroke(palette.internStroke(
+							new BasicStroke(size, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND)));
+		}
+		Line red = createStroke(r, palette, brush);
+		Line otherRed = createStroke(r, palette,
+				new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+		red.setColor(new Color(255, 0, 0));
+		otherRed.setColor(Color.RED);
+		interned &= red.getStyleId() == otherRed.getStyleId() && red.getColor() == otherRed.getColor();
+		int[] sizes = palette.getSizes();
+		System.out.println("palette interns brushes and colors: " + interned + " (" + sizes[0]
+				+ " brushes, " + sizes[1] + " colors, " + sizes[2] + " styles)");
+		Random drawn = new Random(13);
+		Random redrawn = new Random(13);
+		StylePalette other = new StylePalette();
+		boolean matched = true;
+		for (int i = 0; i < 100; i++) {
+			Line line = createStroke(drawn, palette, brush);
+			Line copy = createStroke(redrawn, other, brush);
+			line.freeze();
+			copy.freeze();
+			matched &= line.equals(copy) && line.getPalette() != copy.getPalette()
+					&& line.getStyleId() != copy.getStyleId();
+		}
+		System.out.println("strokes from different palettes are equal: " + matched);
+		System.out.println("test complete...");
+	}
+
+	// creates a random walk stroke of 20 points in the default palette
+	private static Line createStroke(Random r, BasicStroke brush) {
+		return createStroke(r, StylePalette.getDefault(), brush);
+	}
+
+	// creates a random walk stroke of 20 points in the given palette
+	private static Line createStroke(Random r, StylePalette palette, BasicStroke brush) {
+		Line line = new Line(palette);
+		line.setBrushStyle(brush);
+		line.setColor(Color.BLACK);
+		int x = r.nextInt(2000);
+		int y = r.nextInt(2000);
+		for (int j = 0; j < 20; j++) {
+			line.add(x, y);
+			x += r.nextInt(11) - 5;
+			y += r.nextInt(11) - 5;
+		}
+		return line;
+	}
+}
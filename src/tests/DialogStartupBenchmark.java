@@ -0,0 +1,57 @@
+package tests;
+
+import java.io.File;
+
+import javax.swing.JColorChooser;
+import javax.swing.JFileChooser;
+import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileSystemView;
+
+/*
+ * a simple benchmark that measures what the file chooser and the color
+ * chooser cost to create for the first time, which is what the paint
+ * frame used to spend on them before its window appeared. It only means
+ * something in a fresh virtual machine, so it is meant to be run twice:
+ * once as it is, and once with the argument "warm", which first looks
+ * at the file system on another thread the way the paint frame does
+ * once its window is up, and then measures what is left for the event
+ * thread.
+ */
+public class DialogStartupBenchmark {
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && "warm".equals(args[0])) {
+			long start = System.nanoTime();
+			Thread warmer = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					FileSystemView view = FileSystemView.getFileSystemView();
+					File home = view.getDefaultDirectory();
+					view.getFiles(home, true);
+					view.getRoots();
+				}
+			});
+			warmer.start();
+			warmer.join();
+			System.out.println("file system looked at in the background in "
+					+ (System.nanoTime() - start) / 1000000 + "ms");
+		}
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				long start = System.nanoTime();
+				new JFileChooser();
+				long fileChooser = System.nanoTime() - start;
+				start = System.nanoTime();
+				new JColorChooser();
+				long colorChooser = System.nanoTime() - start;
+				start = System.nanoTime();
+				new JFileChooser();
+				long again = System.nanoTime() - start;
+				System.out.println("first file chooser " + fileChooser / 1000000
+						+ "ms, first color chooser " + colorChooser / 1000000
+						+ "ms, second file chooser " + again / 1000000 + "ms");
+			}
+		});
+		System.out.println("benchmark complete...");
+	}
+}
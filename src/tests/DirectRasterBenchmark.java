@@ -0,0 +1,120 @@
+package tests;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+
+import gui.DirectRasterizer;
+import shapes.AbstractRectangle;
+import shapes.Ellipse;
+
+/*
+ * a simple benchmark that fills rectangles and ellipses of a few sizes
+ * through Java2D and through the DirectRasterizer, after checking that
+ * both paint exactly the same pixels for 20,000 random shapes of each
+ * kind, inside the image, across its edges, and under a clip
+ */
+public class DirectRasterBenchmark {
+	private static final int SIZE = 2000;
+	private static final int NUM_SHAPES = 200000;
+
+	public static void main(String[] args) throws Exception {
+		check(false, null);
+		check(true, null);
+		check(false, new Rectangle(300, 200, 900, 700));
+		check(true, new Rectangle(300, 200, 900, 700));
+		BenchmarkRuns.measure(new BenchmarkRuns.Measurement() {
+			@Override
+			public void run() {
+				for (int size : new int[] {4, 16, 64, 256}) {
+					benchmark(false, size);
+					benchmark(true, size);
+				}
+			}
+		});
+	}
+
+	// fills random shapes one by one both ways and compares the images
+	// after each one
+	public static void check(boolean ovals, Rectangle clip) {
+		Random r = new Random(11);
+		BufferedImage expected = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		BufferedImage actual = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		int[] expectedPixels = ((DataBufferInt) expected.getRaster().getDataBuffer()).getData();
+		int[] actualPixels = ((DataBufferInt) actual.getRaster().getDataBuffer()).getData();
+		DirectRasterizer raster = new DirectRasterizer();
+		raster.setTarget(actual);
+		Graphics2D g = expected.createGraphics();
+		Graphics2D direct = actual.createGraphics();
+		if (clip != null) {
+			g.clip(clip);
+			direct.clip(clip);
+		}
+		boolean accepted = raster.accepts(direct);
+		int filled = 0;
+		int mismatches = 0;
+		for (int i = 0; i < 20000; i++) {
+			int width = 1 + r.nextInt(i % 10 == 0 ? 600 : 80);
+			int height = 1 + r.nextInt(i % 10 == 0 ? 600 : 80);
+			AbstractRectangle shape = createShape(ovals, r.nextInt(SIZE + 200) - 100 - width / 2,
+					r.nextInt(SIZE + 200) - 100 - height / 2, width, height,
+					2 + r.nextInt(9), new Color(0xFF000000 | r.nextInt()));
+			shape.paintShape(g);
+			if (raster.fill(shape)) {
+				filled++;
+			} else {
+				shape.paintShape(direct);
+			}
+			if (!Arrays.equals(expectedPixels, actualPixels)) {
+				mismatches++;
+				System.arraycopy(expectedPixels, 0, actualPixels, 0, actualPixels.length);
+			}
+		}
+		g.dispose();
+		direct.dispose();
+		System.out.println((ovals ? "ellipses" : "rectangles") + (clip == null ? "" : " under a clip")
+				+ ": accepted " + accepted + ", filled directly " + filled + ", mismatches " + mismatches);
+	}
+
+	public static void benchmark(boolean ovals, int size) {
+		Random r = new Random(3);
+		AbstractRectangle[] shapes = new AbstractRectangle[NUM_SHAPES];
+		for (int i = 0; i < shapes.length; i++) {
+			shapes[i] = createShape(ovals, r.nextInt(SIZE - size), r.nextInt(SIZE - size),
+					size, size, 3, i % 2 == 0 ? Color.RED : Color.BLUE);
+		}
+		BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		long start = System.nanoTime();
+		for (int i = 0; i < shapes.length; i++) {
+			shapes[i].paintShape(g);
+		}
+		long java2d = System.nanoTime() - start;
+		DirectRasterizer raster = new DirectRasterizer();
+		raster.setTarget(image);
+		raster.accepts(g);
+		start = System.nanoTime();
+		for (int i = 0; i < shapes.length; i++) {
+			raster.fill(shapes[i]);
+		}
+		long direct = System.nanoTime() - start;
+		g.dispose();
+		System.out.println((ovals ? "ellipses " : "rectangles ") + size + "x" + size + ": java2d "
+				+ (java2d / NUM_SHAPES) + "ns, direct " + (direct / NUM_SHAPES) + "ns per shape");
+	}
+
+	private static AbstractRectangle createShape(boolean oval, int x, int y, int width, int height,
+			int brush, Color color) {
+		AbstractRectangle shape = oval ? new Ellipse(x, y, width, height)
+				: new shapes.Rectangle(x, y, width, height);
+		shape.setFilled(true);
+		shape.setBrushStyle(new BasicStroke(brush));
+		shape.setColor(color);
+		return shape;
+	}
+}
@@ -0,0 +1,179 @@
+package tests;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.event.MouseEvent;
+import java.lang.management.ManagementFactory;
+
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+
+import gui.PaintCanvas;
+import gui.StatusLine;
+
+/*
+ * a simple test program that drags out a rectangle, an ellipse, and a
+ * line on a canvas with a status line, and a rectangle again while the
+ * canvas is waiting to refine its anti-aliasing, and checks with the
+ * memory allocated on the event thread that none of the drag events
+ * allocate anything once the code is warm. The events are created up
+ * front so only the canvas is measured. A line that is still growing
+ * has to make room for its points now and then, so the line is warmed
+ * up until it has room for every round of the measured events.
+ *
+ * Each shape is dragged out over and over until a whole drag allocates
+ * nothing, which is when the code it runs has been compiled, or until
+ * it has had WARM_UP_DRAGS tries. Then it is dragged out once more,
+ * and every round of that drag must allocate nothing.
+ *
+ * When there is a screen, the canvas is put in a frame that is shown
+ * off the edge of the screen, so that its repaints go through the
+ * RepaintManager the way they do in the program. In a headless
+ * environment the canvas can't be shown, its repaints stop before they
+ * reach the RepaintManager, and the test says so.
+ */
+public class DragAllocationTest {
+	private static final int SIZE = 1000;
+	private static final int WARM_UP = 20000;
+	private static final int EVENTS = 20000;
+
+	// the most times a shape is dragged out to warm up the code, and the
+	// amount of times the measured events are fed in once it is warm
+	private static final int WARM_UP_DRAGS = 10;
+	private static final int ROUNDS = 3;
+
+	// a line grows to room for 3,200 points after 1,700 points, and
+	// every round of the measured events fits in it without growing it
+	private static final int LINE_WARM_UP = 1700;
+	private static final int LINE_EVENTS = 450;
+
+	private static boolean allocationFree = true;
+
+	public static void main(String[] args) throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				test();
+			}
+		});
+		System.out.println("drags allocate nothing: " + allocationFree);
+		System.out.println("test complete...");
+		if (!allocationFree) {
+			System.exit(1);
+		}
+	}
+
+	public static void test() {
+		PaintCanvas canvas = new PaintCanvas(SIZE, SIZE);
+		JFrame frame = null;
+		if (GraphicsEnvironment.isHeadless()) {
+			System.out.println("headless: the canvas isn't shown, so the RepaintManager isn't measured");
+			canvas.setSize(SIZE, SIZE);
+		} else {
+			frame = new JFrame();
+			frame.setUndecorated(true);
+			frame.add(canvas);
+			frame.pack();
+			frame.setLocation(-2 * SIZE, -2 * SIZE);
+			frame.setVisible(true);
+		}
+		canvas.redrawImage();
+		canvas.associateStatusLine(new StatusLine(canvas));
+		MouseEvent[] warmUp = createDrag(canvas, WARM_UP);
+		MouseEvent[] drag = createDrag(canvas, EVENTS);
+
+		// the canvas starts out drawing lines
+		canvas.setDrawLines(false);
+		canvas.setDrawRectangles(true);
+		check("rectangle", canvas, warmUp, drag);
+		canvas.setDrawRectangles(false);
+		canvas.setDrawOvals(true);
+		check("ellipse", canvas, warmUp, drag);
+		canvas.setDrawOvals(false);
+		canvas.setDrawLines(true);
+		check("line", canvas, createDrag(canvas, LINE_WARM_UP), createDrag(canvas, LINE_EVENTS));
+		canvas.setDrawLines(false);
+
+		// a finished shape leaves a rough region behind that waits for
+		// the input to be idle
+		canvas.setPretty(true);
+		canvas.setAdaptive(true);
+		canvas.setDrawRectangles(true);
+		canvas.mousePressed(event(canvas, MouseEvent.MOUSE_PRESSED, 10, 10));
+		canvas.mouseDragged(event(canvas, MouseEvent.MOUSE_DRAGGED, 50, 50));
+		canvas.mouseReleased(event(canvas, MouseEvent.MOUSE_RELEASED, 50, 50));
+		check("rectangle waiting to refine", canvas, warmUp, drag);
+		canvas.setDrawRectangles(false);
+		if (frame != null) {
+			frame.dispose();
+		}
+	}
+
+	// drags the shape out until the code is warm, then drags it out
+	// again and prints the bytes allocated per measured event in each
+	// round
+	private static void check(String name, PaintCanvas canvas, MouseEvent[] warmUp,
+			MouseEvent[] drag) {
+		int drags = 1;
+		while (dragOut(canvas, warmUp, drag, 1)[0] > 0 && drags < WARM_UP_DRAGS) {
+			drags++;
+		}
+		long[] bytes = dragOut(canvas, warmUp, drag, ROUNDS);
+		StringBuilder line = new StringBuilder(name + " (warm after " + drags + " drags):");
+		for (int round = 0; round < ROUNDS; round++) {
+			line.append(' ').append((double) bytes[round] / drag.length);
+			allocationFree &= bytes[round] <= 0;
+		}
+		System.out.println(line + " bytes per event");
+	}
+
+	// drags out a shape with the given warm-up events and then feeds in
+	// the measured events the given amount of times, and gives the bytes
+	// allocated by each round of the measured events
+	private static long[] dragOut(PaintCanvas canvas, MouseEvent[] warmUp, MouseEvent[] drag,
+			int rounds) {
+		canvas.mousePressed(event(canvas, MouseEvent.MOUSE_PRESSED, SIZE / 2, SIZE / 2));
+		for (MouseEvent evt : warmUp) {
+			canvas.mouseDragged(evt);
+		}
+		// what reading the allocated bytes costs by itself
+		long overhead = allocatedBytes();
+		overhead = allocatedBytes() - overhead;
+		long[] bytes = new long[rounds];
+		for (int round = 0; round < rounds; round++) {
+			long allocated = allocatedBytes();
+			for (MouseEvent evt : drag) {
+				canvas.mouseDragged(evt);
+			}
+			bytes[round] = allocatedBytes() - allocated - overhead;
+		}
+		MouseEvent last = drag[drag.length - 1];
+		canvas.mouseReleased(event(canvas, MouseEvent.MOUSE_RELEASED, last.getX(), last.getY()));
+		return bytes;
+	}
+
+	// creates drag events that wander around the canvas on every side of
+	// the point the drag starts at, so shapes are flipped as well
+	private static MouseEvent[] createDrag(PaintCanvas canvas, int count) {
+		MouseEvent[] events = new MouseEvent[count];
+		for (int i = 0; i < count; i++) {
+			int x = 1 + (i * 7) % (SIZE - 2);
+			int y = 1 + (i * 13) % (SIZE - 2);
+			events[i] = event(canvas, MouseEvent.MOUSE_DRAGGED, x, y);
+		}
+		return events;
+	}
+
+	// the canvas is off screen or not shown at all, so the events are
+	// given their screen coordinates rather than asking the canvas for
+	// them
+	private static MouseEvent event(PaintCanvas canvas, int id, int x, int y) {
+		return new MouseEvent(canvas, id, System.currentTimeMillis(), 0, x, y, x, y, 1, false,
+				MouseEvent.BUTTON1);
+	}
+
+	// the bytes allocated by this thread so far
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -1,7 +1,7 @@
 package tests;
 
 import shapes.CanvasEntity;
-import utilities.PrimesGenerator;
+import utilities.PrimeCapacities;
 
 /**
  * Class <code>EntityHashTable</code> represents a simple hash table
@@ -14,7 +14,7 @@ import utilities.PrimesGenerator;
  * This class should not be used for instances where the order of the
  * <code>CanvasEntity</code> objects does not matter.
  * 
- * @version 0.1.3 [7/15/15]
+ * @version 0.1.4 [10/19/26]
  * 
  * @author Michael Davis
  *
@@ -25,21 +25,19 @@ import utilities.PrimesGenerator;
  * 		-- minor fixes to make code work properly
  * 		-- added isEmpty function
  * 		-- moved to 'tests' package
+ * 		-- capacities come from PrimeCapacities instead of sieving
+ * 		every prime below 100 million in the constructor
  */
 public class EntityHashTable {
 	public static final int DEFAULT_CAPACITY = 10;
 	private CanvasEntity[] hashTable;
 	private int size;
-	private int[] primes;
-	private int primeIndex;
 	
 	/**
 	 * Constructs a new <code>EntityHashTable</code> with no elements
 	 */
 	public EntityHashTable() {
-		primes = PrimesGenerator.getDoubles(PrimesGenerator.eratosthenesSieveRaw(PrimesGenerator.MAXIMUM_NUMBER), DEFAULT_CAPACITY);
-		hashTable = new CanvasEntity[primes[primeIndex]];
-		primeIndex++;
+		hashTable = new CanvasEntity[PrimeCapacities.capacityAtLeast(DEFAULT_CAPACITY)];
 	}
 	
 	/**
@@ -154,8 +152,7 @@ public class EntityHashTable {
 	 */
 	private void enforceLoadFactor() {
 		if (size >= hashTable.length * .5) {
-			CanvasEntity[] newTable = new CanvasEntity[primes[primeIndex]];
-			primeIndex++;
+			CanvasEntity[] newTable = new CanvasEntity[PrimeCapacities.grow(hashTable.length)];
 			for (int i = 0; i < hashTable.length; i++) {
 				if (hashTable[i] != null) {
 					newTable[rehash(newTable, hashTable[i])] = hashTable[i];
@@ -0,0 +1,128 @@
+package tests;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.util.Random;
+
+import shapes.CanvasEntity;
+import shapes.Rectangle;
+import structures.EntityIndex;
+
+/*
+ * a simple benchmark that inserts, looks up and removes 1,000,000
+ * entities with the EntityIndex and with the EntityHashTable, after
+ * checking that the index keeps the right entity for every id through
+ * a mix of puts and removes
+ */
+public class EntityIndexBenchmark {
+	private static final int NUM_ENTITIES = 1000000;
+
+	public static void main(String[] args) throws Exception {
+		checkIndex();
+		BenchmarkRuns.measure(new BenchmarkRuns.Measurement() {
+			@Override
+			public void run() {
+				benchmarkIndex();
+				benchmarkHashTable();
+			}
+		});
+	}
+
+	public static void benchmarkIndex() {
+		CanvasEntity[] entities = createEntities();
+		EntityIndex index = new EntityIndex();
+		long start = System.nanoTime();
+		for (int i = 0; i < entities.length; i++) {
+			index.put(entities[i].getId(), entities[i]);
+		}
+		long insert = System.nanoTime() - start;
+		start = System.nanoTime();
+		int found = 0;
+		for (int i = 0; i < entities.length; i++) {
+			if (index.get(entities[i].getId()) != null) {
+				found++;
+			}
+		}
+		long lookup = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < entities.length; i += 2) {
+			index.remove(entities[i].getId());
+		}
+		long remove = System.nanoTime() - start;
+		print("entity index:", insert, lookup, remove, found, index.getSize());
+	}
+
+	public static void benchmarkHashTable() {
+		CanvasEntity[] entities = createEntities();
+		EntityHashTable table = new EntityHashTable();
+		long start = System.nanoTime();
+		for (int i = 0; i < entities.length; i++) {
+			table.insert(entities[i]);
+		}
+		long insert = System.nanoTime() - start;
+		start = System.nanoTime();
+		int found = 0;
+		for (int i = 0; i < entities.length; i++) {
+			if (table.contains(entities[i])) {
+				found++;
+			}
+		}
+		long lookup = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < entities.length; i += 2) {
+			table.remove(entities[i]);
+		}
+		long remove = System.nanoTime() - start;
+		print("hash table:  ", insert, lookup, remove, found, table.getSize());
+	}
+
+	// checks the index against a plain array of entities by id through
+	// random puts and removes
+	public static void checkIndex() {
+		Random r = new Random(7);
+		CanvasEntity[] expected = new CanvasEntity[5000];
+		EntityIndex index = new EntityIndex();
+		CanvasEntity entity = new Rectangle(0, 0, 1, 1);
+		boolean correct = true;
+		for (int step = 0; step < 200000; step++) {
+			int id = r.nextInt(expected.length);
+			if (r.nextInt(3) == 0) {
+				correct &= index.remove(id) == expected[id];
+				expected[id] = null;
+			} else {
+				correct &= index.put(id, entity) == expected[id];
+				expected[id] = entity;
+			}
+		}
+		int size = 0;
+		for (int id = 0; id < expected.length; id++) {
+			correct &= index.get(id) == expected[id];
+			if (expected[id] != null) {
+				size++;
+			}
+		}
+		correct &= index.getSize() == size;
+		System.out.println("index matches: " + correct);
+	}
+
+	// creates entities with distinct ids, spread far enough apart that
+	// the hash table's hash codes rarely collide
+	private static CanvasEntity[] createEntities() {
+		Random r = new Random(42);
+		BasicStroke brush = new BasicStroke(3);
+		CanvasEntity[] entities = new CanvasEntity[NUM_ENTITIES];
+		for (int i = 0; i < entities.length; i++) {
+			entities[i] = new Rectangle(r.nextInt(1 << 28), r.nextInt(1 << 28), 10, 10);
+			entities[i].setBrushStyle(brush);
+			entities[i].setColor(Color.BLACK);
+			entities[i].setId(i);
+		}
+		return entities;
+	}
+
+	private static void print(String name, long insert, long lookup, long remove, int found, int left) {
+		System.out.println(name + " insert " + (insert / NUM_ENTITIES) + "ns, lookup "
+				+ (lookup / NUM_ENTITIES) + "ns, remove " + (remove * 2 / NUM_ENTITIES)
+				+ "ns per entity (found " + found + ", " + left + " left)");
+	}
+}
@@ -0,0 +1,138 @@
+package tests;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Random;
+
+import shapes.CanvasEntity;
+import shapes.Line;
+import structures.EntityScene;
+
+/*
+ * a simple benchmark that sweeps the eraser across a dense scene of
+ * 50,000 freehand strokes, comparing the grid broad phase against
+ * testing every stroke, and including the redraw of the damaged region
+ */
+public class EraserBenchmark {
+	private static final int NUM_STROKES = 50000;
+	private static final int CANVAS_SIZE = 2000;
+	private static final int POINTS_PER_STROKE = 20;
+	private static final int ERASER_RADIUS = 5;
+	private static final int STEPS = 400;
+
+	public static void main(String[] args) throws Exception {
+		BenchmarkRuns.measure(new BenchmarkRuns.Measurement() {
+			@Override
+			public void run() {
+				benchmarkScene();
+				benchmarkLinearScan();
+			}
+		});
+	}
+
+	public static void benchmarkScene() {
+		EntityScene scene = new EntityScene();
+		CanvasEntity[] strokes = createStrokes();
+		for (int i = 0; i < strokes.length; i++) {
+			scene.add(strokes[i]);
+		}
+		BufferedImage doodle = new BufferedImage(CANVAS_SIZE, CANVAS_SIZE, BufferedImage.TYPE_INT_ARGB);
+		ArrayList<CanvasEntity> removed = new ArrayList<CanvasEntity>();
+		ArrayList<CanvasEntity> damaged = new ArrayList<CanvasEntity>();
+		long worst = 0;
+		long start = System.nanoTime();
+		int oldX = 0, oldY = 0;
+		for (int step = 1; step <= STEPS; step++) {
+			int x = step * CANVAS_SIZE / STEPS;
+			int y = x;
+			long eventStart = System.nanoTime();
+			int first = removed.size();
+			if (scene.erase(oldX, oldY, x, y, ERASER_RADIUS, removed) > 0) {
+				Rectangle damage = removed.get(first).getBounds();
+				for (int i = first + 1; i < removed.size(); i++) {
+					damage.add(removed.get(i).getBounds());
+				}
+				redrawRegion(doodle, scene, damage, damaged);
+			}
+			worst = Math.max(worst, System.nanoTime() - eventStart);
+			oldX = x;
+			oldY = y;
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println("grid scene:  erased " + removed.size() + " of " + NUM_STROKES
+				+ " strokes, " + (elapsed / STEPS / 1000) + "us per event, worst "
+				+ (worst / 1000) + "us");
+	}
+
+	public static void benchmarkLinearScan() {
+		ArrayList<CanvasEntity> strokes = new ArrayList<CanvasEntity>();
+		CanvasEntity[] created = createStrokes();
+		for (int i = 0; i < created.length; i++) {
+			strokes.add(created[i]);
+		}
+		int erased = 0;
+		long worst = 0;
+		long start = System.nanoTime();
+		int oldX = 0, oldY = 0;
+		for (int step = 1; step <= STEPS; step++) {
+			int x = step * CANVAS_SIZE / STEPS;
+			int y = x;
+			long eventStart = System.nanoTime();
+			for (int i = strokes.size() - 1; i >= 0; i--) {
+				if (strokes.get(i).intersects(oldX, oldY, x, y, ERASER_RADIUS)) {
+					strokes.remove(i);
+					erased++;
+				}
+			}
+			worst = Math.max(worst, System.nanoTime() - eventStart);
+			oldX = x;
+			oldY = y;
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println("linear scan: erased " + erased + " of " + NUM_STROKES
+				+ " strokes, " + (elapsed / STEPS / 1000) + "us per event, worst "
+				+ (worst / 1000) + "us (no redraw)");
+	}
+
+	// creates the same random walk strokes every time
+	private static CanvasEntity[] createStrokes() {
+		Random r = new Random(42);
+		BasicStroke brush = new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+		CanvasEntity[] strokes = new CanvasEntity[NUM_STROKES];
+		for (int i = 0; i < strokes.length; i++) {
+			Line line = new Line();
+			line.setBrushStyle(brush);
+			line.setColor(Color.BLACK);
+			int x = r.nextInt(CANVAS_SIZE);
+			int y = r.nextInt(CANVAS_SIZE);
+			for (int j = 0; j < POINTS_PER_STROKE; j++) {
+				line.add(x, y);
+				x += r.nextInt(11) - 5;
+				y += r.nextInt(11) - 5;
+			}
+			strokes[i] = line;
+		}
+		return strokes;
+	}
+
+	// redraws the damaged region the same way the canvas does
+	private static void redrawRegion(BufferedImage doodle, EntityScene scene, Rectangle region,
+			ArrayList<CanvasEntity> damaged) {
+		Graphics2D g2 = doodle.createGraphics();
+		g2.setComposite(AlphaComposite.Clear);
+		g2.fill(region);
+		g2.setComposite(AlphaComposite.SrcOver);
+		g2.clip(region);
+		scene.query(region, damaged);
+		for (int i = 0; i < damaged.size(); i++) {
+			damaged.get(i).paintShape(g2);
+		}
+		damaged.clear();
+		g2.dispose();
+	}
+}
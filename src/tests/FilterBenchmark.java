@@ -0,0 +1,115 @@
+package tests;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import filters.BoxBlurFilter;
+import filters.BrightnessContrastFilter;
+import filters.FilterPipeline;
+import filters.GaussianBlurFilter;
+import filters.ImageFilter;
+import filters.InvertFilter;
+import filters.SharpenFilter;
+
+/*
+ * a simple benchmark that measures the throughput of each filter in
+ * MPixel/s on pools with more and more threads, after checking that
+ * filtering in tiles gives the same result as running the filters over
+ * the whole image one after another
+ */
+public class FilterBenchmark {
+	private static final int SIZE = 2048;
+	private static final int RUNS = 3;
+
+	public static void main(String[] args) {
+		int[] image = createImage();
+		checkTiling(image);
+		String[] names = {"gaussian blur", "box blur", "sharpen", "brightness/contrast",
+				"invert", "blur+sharpen+invert"};
+		ImageFilter[][] chains = {
+				{new GaussianBlurFilter(2)},
+				{new BoxBlurFilter(2)},
+				{new SharpenFilter(1)},
+				{new BrightnessContrastFilter(20, 1.2)},
+				{new InvertFilter()},
+				{new GaussianBlurFilter(2), new SharpenFilter(1), new InvertFilter()}};
+		int cores = Runtime.getRuntime().availableProcessors();
+		int[] result = new int[image.length];
+		for (int i = 0; i < chains.length; i++) {
+			FilterPipeline pipeline = new FilterPipeline(chains[i]);
+			for (int threads = 1; threads <= cores; threads *= 2) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				pipeline.apply(image, SIZE, SIZE, result, pool); // warm up
+				long best = Long.MAX_VALUE;
+				for (int run = 0; run < RUNS; run++) {
+					long start = System.nanoTime();
+					pipeline.apply(image, SIZE, SIZE, result, pool);
+					best = Math.min(best, System.nanoTime() - start);
+				}
+				pool.shutdown();
+				double mpixels = (double) SIZE * SIZE / best * 1000;
+				System.out.printf("%-20s %2d threads: %8.1f MPixel/s%n", names[i], threads, mpixels);
+			}
+		}
+		System.out.println("benchmark complete...");
+	}
+
+	// checks that the tiled pipeline gives the same pixels as running
+	// the filters over the whole image one after another, each with
+	// the edges of its own input clamped, on images that are and aren't
+	// a whole amount of tiles
+	public static void checkTiling(int[] image) {
+		ImageFilter[][] chains = {
+				{new GaussianBlurFilter(1.5), new SharpenFilter(1), new InvertFilter()},
+				{new BoxBlurFilter(2), new GaussianBlurFilter(2), new SharpenFilter(1)}};
+		int[] sizes = {300, FilterPipeline.TILE_SIZE * 2};
+		boolean matches = true;
+		for (ImageFilter[] chain : chains) {
+			for (int size : sizes) {
+				int[] small = new int[size * size];
+				for (int y = 0; y < size; y++) {
+					System.arraycopy(image, y * SIZE, small, y * size, size);
+				}
+				int[] tiled = new int[small.length];
+				new FilterPipeline(chain).apply(small, size, size, tiled);
+				matches &= Arrays.equals(tiled, applySequentially(chain, small, size));
+			}
+		}
+		System.out.println("tiled result matches the filters run one after another: " + matches);
+	}
+
+	// runs each filter over the whole image, padded by its own halo with
+	// copies of the edge pixels, and gives the last result
+	private static int[] applySequentially(ImageFilter[] chain, int[] image, int size) {
+		int[] current = image;
+		for (int i = 0; i < chain.length; i++) {
+			int filterHalo = chain[i].getHalo();
+			int width = size + 2 * filterHalo;
+			int[] buffer = new int[width * width];
+			for (int y = 0; y < width; y++) {
+				for (int x = 0; x < width; x++) {
+					int sourceX = Math.max(0, Math.min(size - 1, x - filterHalo));
+					int sourceY = Math.max(0, Math.min(size - 1, y - filterHalo));
+					buffer[y * width + x] = current[sourceY * size + sourceX];
+				}
+			}
+			current = new int[size * size];
+			chain[i].filter(buffer, width, width, current);
+		}
+		return current;
+	}
+
+	// creates an opaque image with random blocks of color
+	private static int[] createImage() {
+		Random r = new Random(42);
+		int[] image = new int[SIZE * SIZE];
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				int block = ((y / 16) * 131 + (x / 16) * 17) & 0xFFFFFF;
+				image[y * SIZE + x] = 0xFF000000 | (block ^ r.nextInt(32));
+			}
+		}
+		return image;
+	}
+}
@@ -0,0 +1,399 @@
+package tests;
+
+import java.awt.Color;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+import gui.PaintCanvas;
+import gui.SessionPlayer;
+import utilities.PixelKernels;
+
+/*
+ * a test suite that renders a set of scenes on headless canvases and
+ * compares each final image with a golden image stored in
+ * src/tests/golden, or in the directory given as the argument. The
+ * synthetic scenes draw random lines, rectangles and ellipses, filled
+ * and unfilled, with anti-aliasing off and on, through the mouse
+ * listeners of the canvas like a user would. The adaptive scenes draw
+ * the same shapes as one of the anti-aliased scenes with adaptive
+ * anti-aliasing, so the image is drawn rough and refined afterwards,
+ * and are checked against that scene's golden image. They are left
+ * idle long enough after drawing to be refined in the background, and
+ * are flattened right after redrawing, which refines them on the spot.
+ * The direct line scenes draw the same lines as the line scenes with
+ * the canvas drawing finished lines straight into its image, which is
+ * only asked for with the paint.lines system property, and since those
+ * lines only come close to Java2D's they are checked against the line
+ * golden images with a tolerance of their own.
+ * The recorded scenes replay
+ * every session file (.pses) in the golden directory. Every scene is
+ * rendered as it is drawn and again after redrawing the whole image,
+ * and both have to match the golden image: a pixel matches when none
+ * of its channels are off by more than TOLERANCE, and a scene passes
+ * when no more than MAX_DIFFERENT of its pixels don't match. Images
+ * that don't match are written next to the system's temporary files.
+ *
+ * Every scene also has a time and an allocation budget for drawing it,
+ * redrawing it and flattening it, measured on the event thread after
+ * every scene has been rendered once to warm up. The vector kernels
+ * allocate until the JIT has compiled them, so warming up one scene at
+ * a time isn't enough for the first scenes. A scene that goes over either
+ * budget fails the suite as well. The budgets leave room for slower
+ * machines, so only a real regression goes over them.
+ *
+ * Run with the argument "update" to write the golden images from the
+ * current rendering instead of checking it.
+ */
+public class GoldenImageSuite {
+	private static final int WIDTH = 400;
+	private static final int HEIGHT = 300;
+	private static final int SHAPES = 120;
+
+	// the amount of points each line is dragged through
+	private static final int LINE_POINTS = 30;
+
+	// the largest difference allowed in a channel of a matching pixel,
+	// and the fraction of pixels of a scene that may not match
+	private static final int TOLERANCE = 8;
+	private static final double MAX_DIFFERENT = 0.001;
+
+	// the same for the scenes whose lines are drawn directly, which
+	// differ from Java2D's on the odd pixel along their edges without
+	// anti-aliasing and by a few levels with it
+	private static final int DIRECT_TOLERANCE = 24;
+	private static final double DIRECT_MAX_DIFFERENT = 0.01;
+
+	// the kinds of synthetic scenes
+	private static final int LINES = 0;
+	private static final int RECTANGLES = 1;
+	private static final int OVALS = 2;
+	private static final int MIXED = 3;
+
+	private static int failures;
+
+	public static void main(String[] args) throws Exception {
+		boolean update = false;
+		File directory = new File("src/tests/golden");
+		for (String arg : args) {
+			if ("update".equals(arg)) {
+				update = true;
+			} else {
+				directory = new File(arg);
+			}
+		}
+		ArrayList<Scene> scenes = new ArrayList<Scene>();
+		scenes.add(new Scene("lines", LINES, false, false, 150, 4));
+		scenes.add(new Scene("lines-aa", LINES, false, true, 300, 4));
+		scenes.add(new Scene("rectangles", RECTANGLES, false, false, 150, 4));
+		scenes.add(new Scene("rectangles-aa", RECTANGLES, false, true, 300, 4));
+		scenes.add(new Scene("filled-rectangles", RECTANGLES, true, false, 150, 4));
+		scenes.add(new Scene("filled-rectangles-aa", RECTANGLES, true, true, 300, 4));
+		scenes.add(new Scene("ellipses", OVALS, false, false, 150, 4));
+		scenes.add(new Scene("ellipses-aa", OVALS, false, true, 300, 4));
+		scenes.add(new Scene("filled-ellipses", OVALS, true, false, 150, 4));
+		scenes.add(new Scene("filled-ellipses-aa", OVALS, true, true, 300, 4));
+		scenes.add(new Scene("mixed-aa", MIXED, false, true, 300, 4));
+		scenes.add(new Scene("lines-adaptive", scenes.get(1), 300, 4));
+		scenes.add(new Scene("filled-ellipses-adaptive", scenes.get(9), 300, 4));
+		scenes.add(new Scene("mixed-adaptive", scenes.get(10), 300, 4));
+		scenes.add(new Scene("lines-direct", scenes.get(0), DIRECT_TOLERANCE, DIRECT_MAX_DIFFERENT, 150, 4));
+		scenes.add(new Scene("lines-aa-direct", scenes.get(1), DIRECT_TOLERANCE, DIRECT_MAX_DIFFERENT,
+				300, 4));
+		File[] sessions = directory.listFiles();
+		if (sessions != null) {
+			for (File session : sessions) {
+				String name = session.getName();
+				if (name.endsWith(".pses")) {
+					scenes.add(new Scene(name.substring(0, name.length() - 5), session, 600, 32));
+				}
+			}
+		}
+		// render every scene once before any is measured, so that the
+		// kernels the scenes share are compiled by the time they are
+		for (Scene scene : scenes) {
+			render(scene);
+		}
+		for (Scene scene : scenes) {
+			run(scene, directory, update);
+		}
+		System.out.println(update ? "golden images written..." : failures + " of " + scenes.size()
+				+ " scenes failed");
+		System.out.println("suite complete...");
+		System.exit(failures == 0 ? 0 : 1);
+	}
+
+	// renders the given scene, checks it against its golden image and
+	// its budgets, or writes its golden image when updating
+	private static void run(Scene scene, File directory, boolean update) throws Exception {
+		File golden = new File(directory, scene.golden + ".png");
+		Rendering rendering = render(scene);
+		if (update && !scene.golden.equals(scene.name)) {
+			System.out.println(scene.name + ": checked against " + golden.getName() + ", not written");
+			return;
+		}
+		if (update) {
+			ImageIO.write(rendering.drawn, "png", golden);
+			System.out.println(scene.name + ": written");
+			return;
+		}
+		ArrayList<String> problems = new ArrayList<String>();
+		BufferedImage expected = golden.exists() ? ImageIO.read(golden) : null;
+		if (expected == null) {
+			problems.add("no golden image");
+		} else {
+			compare(scene, "drawn", expected, rendering.drawn, problems);
+			compare(scene, "redrawn", expected, rendering.redrawn, problems);
+		}
+		long time = rendering.time / 1000000;
+		long megabytes = rendering.allocated / (1024 * 1024);
+		if (time > scene.timeBudget) {
+			problems.add("took " + time + "ms of " + scene.timeBudget + "ms");
+		}
+		if (megabytes > scene.allocationBudget) {
+			problems.add("allocated " + megabytes + "MB of " + scene.allocationBudget + "MB");
+		}
+		System.out.println(scene.name + ": " + time + "ms, " + megabytes + "MB"
+				+ (problems.isEmpty() ? ", passed" : ", FAILED " + problems));
+		if (!problems.isEmpty()) {
+			failures++;
+		}
+	}
+
+	// compares an image of the given scene with the golden image,
+	// adding what is wrong with it to the given problems
+	private static void compare(Scene scene, String stage, BufferedImage expected,
+			BufferedImage actual, ArrayList<String> problems) throws IOException {
+		if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()) {
+			problems.add(stage + " image is " + actual.getWidth() + "x" + actual.getHeight());
+			return;
+		}
+		int width = actual.getWidth();
+		int height = actual.getHeight();
+		int[] expectedPixels = expected.getRGB(0, 0, width, height, null, 0, width);
+		int[] actualPixels = actual.getRGB(0, 0, width, height, null, 0, width);
+		int different = PixelKernels.getInstance().countDifferences(expectedPixels, 0,
+				actualPixels, 0, actualPixels.length, scene.tolerance);
+		if (different > actualPixels.length * scene.maxDifferent) {
+			File written = new File(System.getProperty("java.io.tmpdir"), scene.name + "-" + stage + ".png");
+			ImageIO.write(actual, "png", written);
+			problems.add(stage + " image has " + different + " different pixels, written to " + written);
+		}
+	}
+
+	// renders the given scene on a new canvas, measuring the time and
+	// the memory the event thread spends on it
+	private static Rendering render(final Scene scene) throws Exception {
+		// sessions are replayed on a canvas of the size they were recorded on
+		SessionPlayer player = scene.session == null ? null : new SessionPlayer(scene.session);
+		final int width = player == null ? WIDTH : player.getWidth();
+		final int height = player == null ? HEIGHT : player.getHeight();
+		// the renderers of the canvas read the property when it makes them
+		if (scene.directLines) {
+			System.setProperty("paint.lines", "direct");
+		}
+		final PaintCanvas canvas = new PaintCanvas(width, height);
+		System.clearProperty("paint.lines");
+		final Rendering rendering = new Rendering();
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				canvas.setSize(width, height);
+				canvas.redrawImage();
+				rendering.eventThread = Thread.currentThread().getId();
+			}
+		});
+		final MouseEvent[] events = player == null ? createEvents(scene, canvas) : null;
+		long allocated = allocatedBytes(rendering.eventThread);
+		long start = System.nanoTime();
+		long idle = 0;
+		if (player != null) {
+			player.play(canvas, false);
+		} else {
+			onEventThread(new Runnable() {
+				@Override
+				public void run() {
+					draw(scene, canvas, events);
+				}
+			});
+		}
+		if (scene.adaptive) {
+			// give the canvas time to refine the image in the background
+			long idleStart = System.nanoTime();
+			Thread.sleep(2 * PaintCanvas.REFINE_DELAY);
+			idle = System.nanoTime() - idleStart;
+		}
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				rendering.drawn = canvas.getFlattenedImage();
+				canvas.redrawImage();
+				rendering.redrawn = canvas.getFlattenedImage();
+			}
+		});
+		rendering.time = System.nanoTime() - start - idle;
+		rendering.allocated = allocatedBytes(rendering.eventThread) - allocated;
+		return rendering;
+	}
+
+	// draws the shapes of a synthetic scene with the given events: a
+	// press, a drag and a release for each shape, except that lines are
+	// dragged through LINE_POINTS points
+	private static void draw(Scene scene, PaintCanvas canvas, MouseEvent[] events) {
+		canvas.setPretty(scene.pretty);
+		canvas.setAdaptive(scene.adaptive);
+		Random r = new Random(scene.golden.hashCode());
+		int next = 0;
+		for (int i = 0; i < SHAPES; i++) {
+			int kind = scene.kind == MIXED ? i % 3 : scene.kind;
+			useTool(canvas, kind, scene.kind == MIXED ? r.nextBoolean() : scene.filled);
+			int alpha = r.nextInt(4) == 0 ? 64 + r.nextInt(128) : 255;
+			canvas.setPaintColor(new Color(r.nextInt(256), r.nextInt(256), r.nextInt(256), alpha));
+			canvas.setBrushSize(1 + r.nextInt(10));
+			int count = kind == LINES ? LINE_POINTS + 2 : 3;
+			for (int j = 0; j < count; j++) {
+				canvas.dispatchEvent(events[next++]);
+			}
+			if (scene.kind == MIXED && i % 10 == 9) {
+				canvas.undo();
+				canvas.undo();
+				canvas.redo();
+			}
+		}
+	}
+
+	// creates the mouse events of a synthetic scene
+	private static MouseEvent[] createEvents(Scene scene, PaintCanvas canvas) {
+		Random r = new Random(scene.golden.hashCode() * 31L);
+		ArrayList<MouseEvent> events = new ArrayList<MouseEvent>();
+		for (int i = 0; i < SHAPES; i++) {
+			int kind = scene.kind == MIXED ? i % 3 : scene.kind;
+			int x = r.nextInt(WIDTH);
+			int y = r.nextInt(HEIGHT);
+			events.add(event(canvas, MouseEvent.MOUSE_PRESSED, x, y));
+			if (kind == LINES) {
+				for (int j = 0; j < LINE_POINTS; j++) {
+					x += r.nextInt(31) - 15;
+					y += r.nextInt(31) - 15;
+					events.add(event(canvas, MouseEvent.MOUSE_DRAGGED, x, y));
+				}
+			} else {
+				// shapes can be dragged out in any direction and past the
+				// edges of the canvas
+				x += r.nextInt(161) - 80;
+				y += r.nextInt(161) - 80;
+				events.add(event(canvas, MouseEvent.MOUSE_DRAGGED, x, y));
+			}
+			events.add(event(canvas, MouseEvent.MOUSE_RELEASED, x, y));
+		}
+		return events.toArray(new MouseEvent[events.size()]);
+	}
+
+	// switches the canvas to drawing the given kind of shape
+	private static void useTool(PaintCanvas canvas, int kind, boolean filled) {
+		canvas.setDrawLines(false);
+		canvas.setFilledRects(false);
+		canvas.setFilledOvals(false);
+		if (kind == LINES) {
+			canvas.setDrawLines(true);
+		} else if (kind == RECTANGLES) {
+			if (filled) {
+				canvas.setFilledRects(true);
+			} else {
+				canvas.setDrawRectangles(true);
+			}
+		} else if (filled) {
+			canvas.setFilledOvals(true);
+		} else {
+			canvas.setDrawOvals(true);
+		}
+	}
+
+	// the canvas isn't on screen, so the events are given their screen
+	// coordinates rather than asking the canvas for them
+	private static MouseEvent event(PaintCanvas canvas, int id, int x, int y) {
+		return new MouseEvent(canvas, id, 0, id == MouseEvent.MOUSE_RELEASED ? 0
+				: MouseEvent.BUTTON1_DOWN_MASK, x, y, x, y, 1, false, MouseEvent.BUTTON1);
+	}
+
+	// the bytes allocated by the given thread so far
+	private static long allocatedBytes(long thread) {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(thread);
+	}
+
+	private static void onEventThread(Runnable task) throws Exception {
+		SwingUtilities.invokeAndWait(task);
+	}
+
+	// a scene of the suite and its budgets
+	private static class Scene {
+		private String name;
+		// the name of the golden image the scene is checked against
+		private String golden;
+		private int kind;
+		private boolean filled, pretty, adaptive, directLines;
+		private File session;
+		// the tolerance its pixels are compared with
+		private int tolerance = TOLERANCE;
+		private double maxDifferent = MAX_DIFFERENT;
+		private long timeBudget;
+		private long allocationBudget;
+
+		// a synthetic scene with budgets in milliseconds and megabytes
+		private Scene(String name, int kind, boolean filled, boolean pretty, long timeBudget,
+				long allocationBudget) {
+			this.name = name;
+			this.golden = name;
+			this.kind = kind;
+			this.filled = filled;
+			this.pretty = pretty;
+			this.timeBudget = timeBudget;
+			this.allocationBudget = allocationBudget;
+		}
+
+		// the given anti-aliased scene drawn with adaptive anti-aliasing,
+		// with budgets in milliseconds and megabytes
+		private Scene(String name, Scene smooth, long timeBudget, long allocationBudget) {
+			this(name, smooth.kind, smooth.filled, true, timeBudget, allocationBudget);
+			this.golden = smooth.golden;
+			this.adaptive = true;
+		}
+
+		// the given line scene with its lines drawn directly, compared
+		// with the given tolerance, with budgets in milliseconds and
+		// megabytes
+		private Scene(String name, Scene exact, int tolerance, double maxDifferent, long timeBudget,
+				long allocationBudget) {
+			this(name, exact.kind, exact.filled, exact.pretty, timeBudget, allocationBudget);
+			this.golden = exact.golden;
+			this.directLines = true;
+			this.tolerance = tolerance;
+			this.maxDifferent = maxDifferent;
+		}
+
+		// a recorded scene with budgets in milliseconds and megabytes
+		private Scene(String name, File session, long timeBudget, long allocationBudget) {
+			this.name = name;
+			this.golden = name;
+			this.session = session;
+			this.timeBudget = timeBudget;
+			this.allocationBudget = allocationBudget;
+		}
+	}
+
+	// what rendering a scene produced and cost
+	private static class Rendering {
+		private BufferedImage drawn, redrawn;
+		private long eventThread;
+		private long time;
+		private long allocated;
+	}
+}
@@ -0,0 +1,53 @@
+package tests;
+
+import java.util.Arrays;
+
+import utilities.PrimeCapacities;
+import utilities.PrimesGenerator;
+
+/*
+ * a simple benchmark that compares building an EntityHashTable, which
+ * now gets its capacities from PrimeCapacities, with the sieve the
+ * constructor used to run, after checking that both give the same
+ * capacities
+ */
+public class HashTableConstructionBenchmark {
+	private static final int TABLES = 10000;
+
+	// the limit the constructor used to sieve up to
+	private static final int OLD_MAXIMUM_NUMBER = 99999998;
+
+	public static void main(String[] args) {
+		long start = System.nanoTime();
+		boolean[] sieve = PrimesGenerator.eratosthenesSieveRaw(OLD_MAXIMUM_NUMBER);
+		int[] doubles = PrimesGenerator.getDoubles(sieve, EntityHashTable.DEFAULT_CAPACITY);
+		long sieveTime = System.nanoTime() - start;
+		System.out.println("old constructor (sieve + getDoubles): " + (sieveTime / 1000000) + "ms, "
+				+ (sieve.length / 1000000) + "MB");
+
+		int[] capacities = new int[doubles.length];
+		capacities[0] = PrimeCapacities.capacityAtLeast(EntityHashTable.DEFAULT_CAPACITY);
+		for (int i = 1; i < capacities.length; i++) {
+			capacities[i] = PrimeCapacities.grow(capacities[i - 1]);
+		}
+		System.out.println("capacities match: " + Arrays.equals(doubles, capacities));
+
+		boolean primesMatch = true;
+		for (int i = 0; i < 1000000; i++) {
+			primesMatch &= sieve[i] == PrimeCapacities.isPrime(i) || i < 2;
+		}
+		System.out.println("isPrime matches the sieve below 1,000,000: " + primesMatch);
+		sieve = null;
+
+		for (int run = 0; run < 2; run++) {
+			start = System.nanoTime();
+			EntityHashTable[] tables = new EntityHashTable[TABLES];
+			for (int i = 0; i < tables.length; i++) {
+				tables[i] = new EntityHashTable();
+			}
+			long elapsed = System.nanoTime() - start;
+			System.out.println("new constructor: " + (elapsed / TABLES) + "ns per table");
+		}
+		System.out.println("benchmark complete...");
+	}
+}
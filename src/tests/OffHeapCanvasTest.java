@@ -0,0 +1,158 @@
+package tests;
+
+import java.awt.Color;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+import gui.PaintCanvas;
+import utilities.PixelKernels;
+
+/*
+ * a simple test program that draws the same shapes on a canvas small
+ * enough to keep its image on the heap and on one large enough to keep
+ * it in off-heap tiles, with anti-aliasing off and on. The shapes are
+ * drawn over the corners of the tiles, and the part of the large canvas
+ * they are on is compared with the small canvas, both as drawn and once
+ * it has been redrawn. The large canvas is then saved, which paints it
+ * a strip at a time, and the saved file is compared with the flattened
+ * canvas. The heap is filled before saving until less is left than an
+ * image of the whole canvas would take, so the save only fits if it
+ * doesn't need one.
+ */
+public class OffHeapCanvasTest {
+	private static final int SMALL = 1024;
+	private static final int LARGE_WIDTH = 4352;
+	private static final int LARGE_HEIGHT = 4096;
+	private static final int SHAPES = 60;
+
+	// the bytes of an image of the whole large canvas, and the size of
+	// the pieces the heap is filled with before saving
+	private static final long IMAGE_BYTES = 4L * LARGE_WIDTH * LARGE_HEIGHT;
+	private static final int BALLAST = 1 << 20;
+
+	// the largest difference allowed in a channel of a matching pixel
+	private static final int TOLERANCE = 8;
+
+	public static void main(String[] args) throws Exception {
+		check(false);
+		check(true);
+		System.out.println("test complete...");
+	}
+
+	private static void check(final boolean pretty) throws Exception {
+		final PaintCanvas small = new PaintCanvas(SMALL, SMALL);
+		final PaintCanvas large = new PaintCanvas(LARGE_WIDTH, LARGE_HEIGHT);
+		final BufferedImage[] images = new BufferedImage[3];
+		final boolean[] fitted = new boolean[1];
+		final File saved = File.createTempFile("offheap", ".png");
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				small.setSize(SMALL, SMALL);
+				large.setSize(LARGE_WIDTH, LARGE_HEIGHT);
+				small.redrawImage();
+				large.redrawImage();
+				draw(small, pretty);
+				draw(large, pretty);
+				images[0] = small.getFlattenedImage();
+				saveSqueezed(large, saved, fitted);
+				images[1] = large.getFlattenedImage();
+				large.redrawImage();
+				images[2] = large.getFlattenedImage();
+			}
+		});
+		String name = pretty ? "anti-aliased" : "plain";
+		System.out.println(name + " off-heap canvas like the heap canvas: different pixels "
+				+ differences(images[0], images[1].getSubimage(0, 0, SMALL, SMALL)));
+		System.out.println(name + " redrawn off-heap canvas like the heap canvas: different pixels "
+				+ differences(images[0], images[2].getSubimage(0, 0, SMALL, SMALL)));
+		BufferedImage read = ImageIO.read(saved);
+		saved.delete();
+		System.out.println(name + " saved with less free heap than the image: " + fitted[0]);
+		System.out.println(name + " saved off-heap canvas like the flattened canvas: different pixels "
+				+ differences(read, images[1]));
+	}
+
+	// saves the canvas while so much of the heap is taken that an image
+	// of the whole canvas wouldn't fit in what is left, and notes whether
+	// the save fit
+	private static void saveSqueezed(PaintCanvas canvas, File saved, boolean[] fitted) {
+		ArrayList<byte[]> ballast = new ArrayList<byte[]>();
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long left = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		for (long taken = 0; taken < left - IMAGE_BYTES / 2; taken += BALLAST) {
+			ballast.add(new byte[BALLAST]);
+		}
+		try {
+			canvas.save(saved, "png");
+			fitted[0] = saved.length() > 0;
+		} catch (OutOfMemoryError error) {
+			ballast.clear();
+			fitted[0] = false;
+		}
+		ballast.clear();
+	}
+
+	// draws random lines, rectangles and ellipses over the corners of
+	// the tiles that the small canvas covers
+	private static void draw(PaintCanvas canvas, boolean pretty) {
+		canvas.setPretty(pretty);
+		canvas.setAdaptive(false);
+		Random r = new Random(17);
+		for (int i = 0; i < SHAPES; i++) {
+			boolean filled = r.nextBoolean();
+			canvas.setDrawLines(false);
+			canvas.setFilledRects(false);
+			canvas.setFilledOvals(false);
+			if (i % 3 == 0) {
+				canvas.setDrawLines(true);
+			} else if (i % 3 == 1) {
+				if (filled) {
+					canvas.setFilledRects(true);
+				} else {
+					canvas.setDrawRectangles(true);
+				}
+			} else if (filled) {
+				canvas.setFilledOvals(true);
+			} else {
+				canvas.setDrawOvals(true);
+			}
+			canvas.setPaintColor(new Color(r.nextInt(256), r.nextInt(256), r.nextInt(256),
+					r.nextBoolean() ? 255 : 128));
+			canvas.setBrushSize(1 + r.nextInt(10));
+			int x = 256 * (1 + r.nextInt(3)) + r.nextInt(61) - 30;
+			int y = 256 * (1 + r.nextInt(3)) + r.nextInt(61) - 30;
+			canvas.dispatchEvent(event(canvas, MouseEvent.MOUSE_PRESSED, x, y));
+			for (int j = 0; j < 10; j++) {
+				x += r.nextInt(41) - 20;
+				y += r.nextInt(41) - 20;
+				canvas.dispatchEvent(event(canvas, MouseEvent.MOUSE_DRAGGED, x, y));
+			}
+			canvas.dispatchEvent(event(canvas, MouseEvent.MOUSE_RELEASED, x, y));
+		}
+	}
+
+	// the amount of pixels of the given images that don't match
+	private static int differences(BufferedImage expected, BufferedImage actual) {
+		int width = expected.getWidth();
+		int height = expected.getHeight();
+		int[] expectedPixels = expected.getRGB(0, 0, width, height, null, 0, width);
+		int[] actualPixels = actual.getRGB(0, 0, width, height, null, 0, width);
+		return PixelKernels.getInstance().countDifferences(expectedPixels, 0,
+				actualPixels, 0, actualPixels.length, TOLERANCE);
+	}
+
+	// the canvas isn't on screen, so the events are given their screen
+	// coordinates rather than asking the canvas for them
+	private static MouseEvent event(PaintCanvas canvas, int id, int x, int y) {
+		return new MouseEvent(canvas, id, 0, id == MouseEvent.MOUSE_RELEASED ? 0
+				: MouseEvent.BUTTON1_DOWN_MASK, x, y, x, y, 1, false, MouseEvent.BUTTON1);
+	}
+}
@@ -0,0 +1,129 @@
+package tests;
+
+import java.util.List;
+import java.util.Random;
+
+import utilities.PixelKernels;
+
+/*
+ * a simple benchmark that runs every pixel kernel on rows of random
+ * pixels with every set of kernels that can run on this machine.
+ * PixelKernelsTest checks that they all give the same pixels. Compile
+ * src-vector too and run it with --add-modules jdk.incubator.vector to
+ * include the vector and tuned kernels.
+ */
+public class PixelKernelsBenchmark {
+	private static final int ROW = 2000;
+	private static final int ROWS = 2000;
+
+	public static void main(String[] args) throws Exception {
+		final List<PixelKernels> available = PixelKernels.getAvailable();
+		System.out.println("picked kernels: " + PixelKernels.getInstance().getName());
+		BenchmarkRuns.measure(new BenchmarkRuns.Measurement() {
+			@Override
+			public void run() {
+				benchmark(available);
+			}
+		});
+	}
+
+	public static void benchmark(List<PixelKernels> available) {
+		Random r = new Random(3);
+		int[] source = randomPixels(r, ROW);
+		int[] opaque = new int[ROW];
+		for (int i = 0; i < ROW; i++) {
+			opaque[i] = 0xFF000000 | r.nextInt();
+		}
+		byte[] coverage = new byte[ROW];
+		r.nextBytes(coverage);
+		int[] premultiplied = source.clone();
+		PixelKernels.getScalar().premultiply(premultiplied, 0, ROW);
+		int[] nearby = nearbyPixels(r, source);
+		int[] pixels = new int[ROW];
+		for (PixelKernels kernels : available) {
+			StringBuilder line = new StringBuilder(kernels.getName() + ":");
+			long start = System.nanoTime();
+			for (int i = 0; i < ROWS; i++) {
+				kernels.fill(pixels, 0, ROW, i);
+			}
+			line.append(" fill ").append(perPixel(start));
+			start = System.nanoTime();
+			for (int i = 0; i < ROWS; i++) {
+				System.arraycopy(opaque, 0, pixels, 0, ROW);
+				kernels.blend(source, 0, pixels, 0, ROW);
+			}
+			line.append(", blend ").append(perPixel(start));
+			start = System.nanoTime();
+			for (int i = 0; i < ROWS; i++) {
+				kernels.copyPremultiplied(source, 0, pixels, 0, ROW);
+			}
+			line.append(", copy premultiplied ").append(perPixel(start));
+			start = System.nanoTime();
+			for (int i = 0; i < ROWS; i++) {
+				System.arraycopy(opaque, 0, pixels, 0, ROW);
+				kernels.blendCoverage(coverage, 0, pixels, 0, ROW, 0xFF336699);
+			}
+			line.append(", dab ").append(perPixel(start));
+			start = System.nanoTime();
+			for (int i = 0; i < ROWS; i++) {
+				System.arraycopy(source, 0, pixels, 0, ROW);
+				kernels.premultiply(pixels, 0, ROW);
+			}
+			line.append(", premultiply ").append(perPixel(start));
+			start = System.nanoTime();
+			for (int i = 0; i < ROWS; i++) {
+				System.arraycopy(source, 0, pixels, 0, ROW);
+				kernels.unpremultiply(pixels, 0, ROW);
+			}
+			line.append(", unpremultiply ").append(perPixel(start));
+			start = System.nanoTime();
+			for (int i = 0; i < ROWS; i++) {
+				kernels.toRGB(source, 0, pixels, 0, ROW, 0xFFFFFFFF);
+			}
+			line.append(", to RGB ").append(perPixel(start));
+			start = System.nanoTime();
+			for (int i = 0; i < ROWS; i++) {
+				kernels.toRGBPremultiplied(premultiplied, 0, pixels, 0, ROW, 0xFFFFFFFF);
+			}
+			line.append(", premultiplied to RGB ").append(perPixel(start));
+			start = System.nanoTime();
+			for (int i = 0; i < ROWS; i++) {
+				kernels.countDifferences(source, 0, nearby, 0, ROW, 8);
+			}
+			line.append(", compare ").append(perPixel(start));
+			System.out.println(line + " (ns per 1000 pixels)");
+		}
+	}
+
+	// pixels that are transparent, opaque, or anything in between
+	private static int[] randomPixels(Random r, int length) {
+		int[] pixels = new int[length];
+		for (int i = 0; i < length; i++) {
+			int kind = r.nextInt(4);
+			int rgb = r.nextInt() & 0xFFFFFF;
+			pixels[i] = kind == 0 ? rgb : kind == 1 ? 0xFF000000 | rgb : r.nextInt();
+		}
+		return pixels;
+	}
+
+	// a copy of the given pixels where half of them are the same and
+	// the rest have channels that are up to 16 higher or lower
+	private static int[] nearbyPixels(Random r, int[] pixels) {
+		int[] nearby = pixels.clone();
+		for (int i = 0; i < nearby.length; i++) {
+			if (r.nextBoolean()) {
+				int pixel = 0;
+				for (int shift = 0; shift < 32; shift += 8) {
+					int channel = ((nearby[i] >>> shift) & 0xFF) + r.nextInt(33) - 16;
+					pixel |= Math.max(0, Math.min(255, channel)) << shift;
+				}
+				nearby[i] = pixel;
+			}
+		}
+		return nearby;
+	}
+
+	private static long perPixel(long start) {
+		return (System.nanoTime() - start) * 1000 / ((long) ROW * ROWS);
+	}
+}
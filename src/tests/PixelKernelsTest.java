@@ -0,0 +1,221 @@
+package tests;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import utilities.PixelKernels;
+
+/*
+ * a simple test program that runs every set of pixel kernels that can
+ * run on this machine against the scalar kernels on rows of random
+ * pixels, both on rows where every pixel is opaque and on rows of any
+ * kind of pixel, at every offset and length up to a few vectors so the
+ * ends of the rows are covered, and counts the rows that don't come out
+ * exactly the same. Copying onto premultiplied pixels and flattening
+ * onto a background are also compared with what Java2D draws. Compile
+ * src-vector too and run the test with --add-modules
+ * jdk.incubator.vector to cover the vector and tuned kernels.
+ */
+public class PixelKernelsTest {
+	private static final int ROW = 2000;
+	private static final int ROWS = 200;
+
+	public static void main(String[] args) {
+		List<PixelKernels> available = PixelKernels.getAvailable();
+		PixelKernels scalar = PixelKernels.getScalar();
+		System.out.println("picked kernels: " + PixelKernels.getInstance().getName());
+		for (PixelKernels kernels : available) {
+			if (kernels != scalar) {
+				Random r = new Random(5);
+				int mismatches = 0;
+				for (int i = 0; i < ROWS; i++) {
+					int offset = r.nextInt(100);
+					mismatches += check(r, scalar, kernels, offset, ROW - offset - r.nextInt(100), i % 4 == 0);
+				}
+				for (int length = 0; length <= 4 * kernels.getLanes() + 1; length++) {
+					for (int offset = 0; offset < kernels.getLanes(); offset++) {
+						mismatches += check(r, scalar, kernels, offset, length, length % 2 == 0);
+					}
+				}
+				System.out.println("scalar and " + kernels.getName() + " kernels (" + kernels.getLanes()
+						+ " lanes): mismatched rows " + mismatches);
+			}
+			checkCopy(kernels);
+			checkFlatten(kernels, false);
+			checkFlatten(kernels, true);
+		}
+		System.out.println("test complete...");
+	}
+
+	// runs both sets of kernels on the same span of a row and gives the
+	// amount of kernels that didn't give the same pixels
+	private static int check(Random r, PixelKernels scalar, PixelKernels kernels, int offset, int length,
+			boolean opaque) {
+		int[] source = randomPixels(r, ROW);
+		int[] pixels = opaque ? opaquePixels(r, ROW) : randomPixels(r, ROW);
+		byte[] coverage = new byte[ROW];
+		r.nextBytes(coverage);
+		int argb = r.nextBoolean() ? 0xFF000000 | r.nextInt() : r.nextInt();
+		int mismatches = 0;
+
+		int[] expected = pixels.clone();
+		int[] actual = pixels.clone();
+		scalar.fill(expected, offset, length, argb);
+		kernels.fill(actual, offset, length, argb);
+		mismatches += Arrays.equals(expected, actual) ? 0 : 1;
+
+		expected = pixels.clone();
+		actual = pixels.clone();
+		scalar.blend(source, 0, expected, offset, length);
+		kernels.blend(source, 0, actual, offset, length);
+		mismatches += Arrays.equals(expected, actual) ? 0 : 1;
+
+		expected = pixels.clone();
+		actual = pixels.clone();
+		scalar.blendCoverage(coverage, 0, expected, offset, length, argb);
+		kernels.blendCoverage(coverage, 0, actual, offset, length, argb);
+		mismatches += Arrays.equals(expected, actual) ? 0 : 1;
+
+		int[] premultiplied = pixels.clone();
+		scalar.premultiply(premultiplied, 0, ROW);
+		expected = premultiplied.clone();
+		actual = premultiplied.clone();
+		scalar.copyPremultiplied(source, 0, expected, offset, length);
+		kernels.copyPremultiplied(source, 0, actual, offset, length);
+		mismatches += Arrays.equals(expected, actual) ? 0 : 1;
+
+		expected = pixels.clone();
+		actual = pixels.clone();
+		scalar.premultiply(expected, offset, length);
+		kernels.premultiply(actual, offset, length);
+		mismatches += Arrays.equals(expected, actual) ? 0 : 1;
+		scalar.unpremultiply(expected, offset, length);
+		kernels.unpremultiply(actual, offset, length);
+		mismatches += Arrays.equals(expected, actual) ? 0 : 1;
+
+		expected = new int[ROW];
+		actual = new int[ROW];
+		scalar.toRGB(pixels, offset, expected, offset, length, argb);
+		kernels.toRGB(pixels, offset, actual, offset, length, argb);
+		mismatches += Arrays.equals(expected, actual) ? 0 : 1;
+
+		expected = new int[ROW];
+		actual = new int[ROW];
+		scalar.toRGBPremultiplied(premultiplied, offset, expected, offset, length, argb);
+		kernels.toRGBPremultiplied(premultiplied, offset, actual, offset, length, argb);
+		mismatches += Arrays.equals(expected, actual) ? 0 : 1;
+
+		int[] nearby = nearbyPixels(r, pixels);
+		int tolerance = r.nextInt(20);
+		mismatches += scalar.countDifferences(pixels, offset, nearby, offset, length, tolerance)
+				== kernels.countDifferences(pixels, offset, nearby, offset, length, tolerance) ? 0 : 1;
+		return mismatches;
+	}
+
+	// copies a random layer onto a random premultiplied image and
+	// compares it with the layer drawn over the image by Java2D with
+	// the source rule, the way patches are painted
+	private static void checkCopy(PixelKernels kernels) {
+		Random r = new Random(11);
+		BufferedImage image = new BufferedImage(ROW, ROWS, BufferedImage.TYPE_INT_ARGB_PRE);
+		BufferedImage layer = new BufferedImage(ROW, ROWS, BufferedImage.TYPE_INT_ARGB);
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		int[] source = ((DataBufferInt) layer.getRaster().getDataBuffer()).getData();
+		System.arraycopy(randomPixels(r, pixels.length), 0, pixels, 0, pixels.length);
+		System.arraycopy(randomPixels(r, source.length), 0, source, 0, source.length);
+		PixelKernels.getScalar().premultiply(pixels, 0, pixels.length);
+		int[] actual = pixels.clone();
+		kernels.copyPremultiplied(source, 0, actual, 0, actual.length);
+		Graphics2D g = image.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(layer, 0, 0, null);
+		g.dispose();
+		int different = 0;
+		for (int i = 0; i < pixels.length; i++) {
+			if (pixels[i] != actual[i]) {
+				different++;
+			}
+		}
+		System.out.println(kernels.getName() + " premultiplied copy like Java2D: different pixels "
+				+ different + " of " + pixels.length);
+	}
+
+	// flattens a random image, plain or premultiplied, onto a background
+	// and compares it with the image drawn onto the background by Java2D
+	private static void checkFlatten(PixelKernels kernels, boolean premultiplied) {
+		Random r = new Random(9);
+		BufferedImage image = new BufferedImage(ROW, ROWS,
+				premultiplied ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_ARGB);
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		System.arraycopy(randomPixels(r, pixels.length), 0, pixels, 0, pixels.length);
+		if (premultiplied) {
+			PixelKernels.getScalar().premultiply(pixels, 0, pixels.length);
+		}
+		Color background = new Color(0x4080C0);
+		BufferedImage expected = new BufferedImage(ROW, ROWS, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = expected.createGraphics();
+		g.setColor(background);
+		g.fillRect(0, 0, ROW, ROWS);
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		int[] actual = new int[pixels.length];
+		if (premultiplied) {
+			kernels.toRGBPremultiplied(pixels, 0, actual, 0, pixels.length, background.getRGB());
+		} else {
+			kernels.toRGB(pixels, 0, actual, 0, pixels.length, background.getRGB());
+		}
+		int[] drawn = ((DataBufferInt) expected.getRaster().getDataBuffer()).getData();
+		int different = 0;
+		for (int i = 0; i < drawn.length; i++) {
+			if ((drawn[i] & 0xFFFFFF) != actual[i]) {
+				different++;
+			}
+		}
+		System.out.println(kernels.getName() + (premultiplied ? " premultiplied" : "")
+				+ " flattened like Java2D: different pixels " + different + " of " + drawn.length);
+	}
+
+	// pixels that are transparent, opaque, or anything in between
+	private static int[] randomPixels(Random r, int length) {
+		int[] pixels = new int[length];
+		for (int i = 0; i < length; i++) {
+			int kind = r.nextInt(4);
+			int rgb = r.nextInt() & 0xFFFFFF;
+			pixels[i] = kind == 0 ? rgb : kind == 1 ? 0xFF000000 | rgb : r.nextInt();
+		}
+		return pixels;
+	}
+
+	// pixels that are all opaque, the way the canvas mostly is once it
+	// has been painted on
+	private static int[] opaquePixels(Random r, int length) {
+		int[] pixels = new int[length];
+		for (int i = 0; i < length; i++) {
+			pixels[i] = 0xFF000000 | r.nextInt();
+		}
+		return pixels;
+	}
+
+	// a copy of the given pixels where half of them are the same and
+	// the rest have channels that are up to 16 higher or lower
+	private static int[] nearbyPixels(Random r, int[] pixels) {
+		int[] nearby = pixels.clone();
+		for (int i = 0; i < nearby.length; i++) {
+			if (r.nextBoolean()) {
+				int pixel = 0;
+				for (int shift = 0; shift < 32; shift += 8) {
+					int channel = ((nearby[i] >>> shift) & 0xFF) + r.nextInt(33) - 16;
+					pixel |= Math.max(0, Math.min(255, channel)) << shift;
+				}
+				nearby[i] = pixel;
+			}
+		}
+		return nearby;
+	}
+}
@@ -0,0 +1,206 @@
+package tests;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+import gui.DirectRasterizer;
+import shapes.Line;
+import shapes.StylePalette;
+
+/*
+ * a simple benchmark that draws freehand lines with round brushes of
+ * widths 1 to 10 through drawPolyline and through the DirectRasterizer,
+ * with and without anti-aliasing. The rasterizer only draws lines when
+ * it is asked to, so it is asked to here. Before timing, 2,000 random
+ * lines of each width are drawn both ways and the pixels compared:
+ * without anti-aliasing it prints how many of the lit pixels differ,
+ * and with it how far the colors differ. Lines of width 1 without
+ * anti-aliasing are left to Java2D, so they are only timed one way.
+ */
+public class PolylineBenchmark {
+	private static final int SIZE = 2000;
+	private static final int NUM_LINES = 50000;
+
+	// the palette that lines made outside of a canvas are kept in
+	private static final StylePalette PALETTE = StylePalette.getDefault();
+
+	public static void main(String[] args) throws Exception {
+		for (int width = 1; width <= 10; width++) {
+			check(width, false);
+			check(width, true);
+		}
+		checkSinglePoints();
+		BenchmarkRuns.measure(new BenchmarkRuns.Measurement() {
+			@Override
+			public void run() {
+				for (int width = 1; width <= 10; width++) {
+					benchmark(width, false);
+					benchmark(width, true);
+				}
+			}
+		});
+	}
+
+	// draws the same random lines both ways and compares the pixels
+	public static void check(int width, boolean antialias) {
+		Line[] lines = createLines(new Random(width), 2000, width);
+		BufferedImage expected = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		BufferedImage actual = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = createGraphics(expected, antialias);
+		for (int i = 0; i < lines.length; i++) {
+			lines[i].paintShape(g);
+		}
+		g.dispose();
+		g = createGraphics(actual, antialias);
+		DirectRasterizer raster = createRasterizer(actual, g);
+		int drawn = 0;
+		for (int i = 0; i < lines.length; i++) {
+			if (raster.draw(lines[i])) {
+				drawn++;
+			} else {
+				lines[i].paintShape(g);
+			}
+		}
+		g.dispose();
+		int[] expectedPixels = ((DataBufferInt) expected.getRaster().getDataBuffer()).getData();
+		int[] actualPixels = ((DataBufferInt) actual.getRaster().getDataBuffer()).getData();
+		int lit = 0;
+		int different = 0;
+		int largest = 0;
+		long total = 0;
+		for (int i = 0; i < expectedPixels.length; i++) {
+			if (expectedPixels[i] != 0) {
+				lit++;
+			}
+			int difference = channelDifference(expectedPixels[i], actualPixels[i]);
+			if (difference != 0) {
+				different++;
+				largest = Math.max(largest, difference);
+				total += difference;
+			}
+		}
+		System.out.print("width " + width + (antialias ? " smooth" : "") + ": drawn directly " + drawn
+				+ ", lit pixels " + lit + ", different " + different);
+		if (antialias) {
+			System.out.print(", largest difference " + largest + ", average "
+					+ (different == 0 ? 0 : total / different));
+		}
+		System.out.println();
+	}
+
+	// checks lines of one point and of one point repeated, which Java2D
+	// draws as nothing and as a dot
+	public static void checkSinglePoints() {
+		int[] widths = {3, 6, 9};
+		int[][] counts = {{1}, {2}, {5}};
+		int different = 0;
+		for (int width : widths) {
+			for (int[] count : counts) {
+				Line line = new Line();
+				for (int i = 0; i < count[0]; i++) {
+					line.add(50, 50);
+				}
+				line.setBrushStyle(PALETTE.getBrush(width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+				line.setColor(Color.BLACK);
+				BufferedImage expected = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+				BufferedImage actual = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+				Graphics2D g = expected.createGraphics();
+				line.paintShape(g);
+				g.dispose();
+				g = actual.createGraphics();
+				createRasterizer(actual, g).draw(line);
+				g.dispose();
+				int[] expectedPixels = ((DataBufferInt) expected.getRaster().getDataBuffer()).getData();
+				int[] actualPixels = ((DataBufferInt) actual.getRaster().getDataBuffer()).getData();
+				for (int i = 0; i < expectedPixels.length; i++) {
+					if (expectedPixels[i] != actualPixels[i]) {
+						different++;
+					}
+				}
+			}
+		}
+		System.out.println("single points: different " + different);
+	}
+
+	public static void benchmark(int width, boolean antialias) {
+		Line[] lines = createLines(new Random(3), NUM_LINES, width);
+		BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = createGraphics(image, antialias);
+		long start = System.nanoTime();
+		for (int i = 0; i < lines.length; i++) {
+			lines[i].paintShape(g);
+		}
+		long java2d = System.nanoTime() - start;
+		DirectRasterizer raster = createRasterizer(image, g);
+		start = System.nanoTime();
+		for (int i = 0; i < lines.length; i++) {
+			if (!raster.draw(lines[i])) {
+				lines[i].paintShape(g);
+			}
+		}
+		long direct = System.nanoTime() - start;
+		g.dispose();
+		System.out.println("width " + width + (antialias ? " smooth" : "") + ": java2d "
+				+ (java2d / NUM_LINES) + "ns, direct " + (direct / NUM_LINES) + "ns per line");
+	}
+
+	// makes freehand lines of 2 to 40 points a few pixels apart
+	private static Line[] createLines(Random r, int count, int width) {
+		BasicStroke brush = PALETTE.getBrush(width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+		Color[] colors = {Color.BLACK, Color.RED, Color.BLUE, new Color(0x336699)};
+		Line[] lines = new Line[count];
+		for (int i = 0; i < count; i++) {
+			Line line = new Line();
+			int x = r.nextInt(SIZE + 40) - 20;
+			int y = r.nextInt(SIZE + 40) - 20;
+			int points = 2 + r.nextInt(39);
+			for (int j = 0; j < points; j++) {
+				line.add(x, y);
+				x += r.nextInt(13) - 6;
+				y += r.nextInt(13) - 6;
+			}
+			line.setBrushStyle(brush);
+			line.setColor(colors[r.nextInt(colors.length)]);
+			lines[i] = line;
+		}
+		return lines;
+	}
+
+	// makes a rasterizer that draws lines into the given image with the
+	// given graphics
+	private static DirectRasterizer createRasterizer(BufferedImage image, Graphics2D g) {
+		DirectRasterizer raster = new DirectRasterizer();
+		raster.setDrawingLines(true);
+		raster.setTarget(image);
+		raster.accepts(g);
+		return raster;
+	}
+
+	// the largest difference between the channels of two colors once
+	// they are premultiplied, since the color of a nearly transparent
+	// pixel hardly matters
+	private static int channelDifference(int a, int b) {
+		int alphaA = a >>> 24;
+		int alphaB = b >>> 24;
+		int largest = Math.abs(alphaA - alphaB);
+		for (int shift = 0; shift < 24; shift += 8) {
+			int channelA = ((a >>> shift) & 0xFF) * alphaA / 255;
+			int channelB = ((b >>> shift) & 0xFF) * alphaB / 255;
+			largest = Math.max(largest, Math.abs(channelA - channelB));
+		}
+		return largest;
+	}
+
+	private static Graphics2D createGraphics(BufferedImage image, boolean antialias) {
+		Graphics2D g = image.createGraphics();
+		if (antialias) {
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		}
+		return g;
+	}
+}
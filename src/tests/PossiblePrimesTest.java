@@ -1,15 +1,70 @@
 package tests;
 
-import java.util.Arrays;
+import java.io.File;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
 
+import utilities.PrimeSieve;
+import utilities.PrimeTableCache;
 import utilities.PrimesGenerator;
 
 /*
- * simple test program for EratosthenesSieve class
+ * a simple benchmark of the segmented sieve in PrimesGenerator. It
+ * sieves up to the maximum number on pools with more and more threads,
+ * then counts the same primes with the lazy stream and with a table
+ * cached on disk, and checks that every run finds the same amount of
+ * primes.
  */
 public class PossiblePrimesTest {
+	private static final int RUNS = 3;
+
 	public static void main(String[] args) {
-		int[] primes = PrimesGenerator.eratosthenesSieve(PrimesGenerator.MAXIMUM_NUMBER);
-		System.out.println(Arrays.toString(primes));
+		int n = PrimesGenerator.MAXIMUM_NUMBER;
+		int cores = Runtime.getRuntime().availableProcessors();
+		int expected = -1;
+		long singleThread = 0;
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			long best = Long.MAX_VALUE;
+			PrimeSieve sieve = null;
+			for (int run = 0; run < RUNS; run++) {
+				sieve = null;
+				long start = System.nanoTime();
+				sieve = PrimesGenerator.segmentedSieve(n, pool);
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			pool.shutdown();
+			if (threads == 1) {
+				singleThread = best;
+				expected = sieve.countPrimes();
+				System.out.println("primes up to " + n + ": " + expected);
+			}
+			System.out.printf("sieve %2d threads: %6dms, %4.2fx, count matches: %b%n", threads,
+					best / 1000000, (double) singleThread / best, sieve.countPrimes() == expected);
+		}
+
+		long start = System.nanoTime();
+		long count = PrimesGenerator.primes(2, n).count();
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("stream:          %6dms, count matches: %b%n", elapsed / 1000000, count == expected);
+
+		File directory = new File(System.getProperty("java.io.tmpdir"), "prime-tables-test");
+		PrimeTableCache.getTableFile(n, directory).delete();
+		for (int run = 0; run < 2; run++) {
+			start = System.nanoTime();
+			PrimeSieve cached = PrimesGenerator.cachedSieve(n, directory);
+			elapsed = System.nanoTime() - start;
+			System.out.printf("cached %-8s %6dms, count matches: %b%n", run == 0 ? "(build):" : "(open):",
+					elapsed / 1000000, cached.countPrimes() == expected);
+		}
+		PrimeTableCache.getTableFile(n, directory).delete();
+
+		PrimitiveIterator.OfInt last = PrimesGenerator.primeIterator(n - 100, n);
+		int largest = 0;
+		while (last.hasNext()) {
+			largest = last.nextInt();
+		}
+		System.out.println("largest prime: " + largest);
+		System.out.println("benchmark complete...");
 	}
 }
@@ -0,0 +1,130 @@
+package tests;
+
+import java.awt.event.MouseEvent;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Random;
+
+import javax.swing.SwingUtilities;
+
+import gui.PaintCanvas;
+import gui.RenderLoop;
+
+/*
+ * a simple benchmark that draws 5,000 filled rectangles on a canvas and
+ * then drags a large one around in bursts of mouse events, the way a
+ * replay would feed them in, once with the canvas repainted passively
+ * and once with it rendered actively by a render loop. Passively every
+ * event paints its damage before the next one is handled, so it prints
+ * the longest time the event thread was held up by a burst. Actively
+ * the damage is painted by the loop within its frame budget, so it
+ * prints the frame counts and the longest frame.
+ */
+public class RenderLoopBenchmark {
+	private static final int SIZE = 1600;
+	private static final int NUM_RECTS = 5000;
+	private static final int BURSTS = 40;
+	private static final int BURST = 50;
+
+	public static void main(String[] args) throws Exception {
+		BenchmarkRuns.measure(new BenchmarkRuns.Measurement() {
+			@Override
+			public void run() throws Exception {
+				benchmark(false);
+				benchmark(true);
+			}
+		});
+		System.exit(0);
+	}
+
+	public static void benchmark(final boolean active) throws InterruptedException,
+			InvocationTargetException {
+		final PaintCanvas canvas = createCanvas();
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				canvas.setSelecting(true);
+				canvas.mousePressed(event(canvas, MouseEvent.MOUSE_PRESSED, 10, 10));
+				canvas.setActiveRendering(active);
+			}
+		});
+		long longestBurst = 0;
+		for (int burst = 0; burst < BURSTS; burst++) {
+			final int start = burst * BURST;
+			long time = System.nanoTime();
+			SwingUtilities.invokeAndWait(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = start; i < start + BURST; i++) {
+						int x = 10 + (i * 7) % (SIZE - 400);
+						int y = 10 + (i * 3) % (SIZE - 400);
+						canvas.mouseDragged(event(canvas, MouseEvent.MOUSE_DRAGGED, x, y));
+					}
+				}
+			});
+			longestBurst = Math.max(longestBurst, System.nanoTime() - time);
+			// leave the loop a few frames between bursts
+			Thread.sleep(20);
+		}
+		if (!active) {
+			System.out.println("passive: longest burst " + longestBurst / 1000000 + "ms");
+			return;
+		}
+		RenderLoop loop = canvas.getRenderLoop();
+		while (pendingTiles(canvas) > 0) {
+			Thread.sleep(10);
+		}
+		System.out.println("active: longest burst " + longestBurst / 1000000 + "ms, frames "
+				+ loop.getFrames() + ", late " + loop.getLateFrames() + ", skipped "
+				+ loop.getSkippedFrames() + ", longest frame " + loop.getLongestFrame() / 1000000
+				+ "ms of " + loop.getPeriod() / 1000000 + "ms");
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				canvas.setActiveRendering(false);
+			}
+		});
+	}
+
+	// the amount of damaged tiles the canvas still has to paint
+	private static int pendingTiles(final PaintCanvas canvas) throws InterruptedException,
+			InvocationTargetException {
+		final int[] pending = new int[1];
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				pending[0] = canvas.getPendingTiles();
+			}
+		});
+		return pending[0];
+	}
+
+	// draws random filled rectangles on a new canvas, with a large one
+	// at the top left drawn last so it can be picked up and dragged
+	private static PaintCanvas createCanvas() throws InterruptedException, InvocationTargetException {
+		final PaintCanvas canvas = new PaintCanvas(SIZE, SIZE);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				canvas.setSize(SIZE, SIZE);
+				canvas.redrawImage();
+				canvas.setDrawRectangles(true);
+				canvas.setFilledRects(true);
+				Random r = new Random(3);
+				for (int i = 0; i <= NUM_RECTS; i++) {
+					int x = i == NUM_RECTS ? 0 : r.nextInt(SIZE - 100);
+					int y = i == NUM_RECTS ? 0 : r.nextInt(SIZE - 100);
+					int size = i == NUM_RECTS ? 300 : 10 + r.nextInt(90);
+					canvas.mousePressed(event(canvas, MouseEvent.MOUSE_PRESSED, x, y));
+					canvas.mouseDragged(event(canvas, MouseEvent.MOUSE_DRAGGED, x + size, y + size));
+					canvas.mouseReleased(event(canvas, MouseEvent.MOUSE_RELEASED, x + size, y + size));
+				}
+				canvas.setDrawRectangles(false);
+			}
+		});
+		return canvas;
+	}
+
+	private static MouseEvent event(PaintCanvas canvas, int id, int x, int y) {
+		return new MouseEvent(canvas, id, System.currentTimeMillis(), 0, x, y, 1, false);
+	}
+}
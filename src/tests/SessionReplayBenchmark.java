@@ -0,0 +1,199 @@
+package tests;
+
+import java.awt.Color;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+import javax.swing.SwingUtilities;
+
+import gui.PaintCanvas;
+import gui.SessionPlayer;
+import utilities.HashUtilities;
+
+/*
+ * a simple benchmark that replays a recorded session on a headless
+ * canvas, once as fast as possible and once at the speed it was
+ * recorded at, and prints the latency of its records and a checksum of
+ * the final image of each replay. The checksums have to be the same for
+ * the replay to be repeatable. A session recorded in the paint program
+ * with -Dpaint.record=<file> can be given as the argument. Without one,
+ * a session of about six seconds is recorded first by drawing lines,
+ * rectangles and filled ovals in a few colors and brush sizes, with
+ * undo, redo and anti-aliasing along the way, and the final image of
+ * the recorded canvas is checked against the replays as well.
+ */
+public class SessionReplayBenchmark {
+	private static final int SIZE = 800;
+
+	// the time between two recorded mouse events, in milliseconds
+	private static final int EVENT_INTERVAL = 4;
+
+	public static void main(String[] args) throws Exception {
+		File sessionFile;
+		String recorded = null;
+		if (args.length > 0) {
+			sessionFile = new File(args[0]);
+		} else {
+			sessionFile = File.createTempFile("session", ".pses");
+			sessionFile.deleteOnExit();
+			recorded = checksum(record(sessionFile));
+			System.out.println("recorded " + sessionFile.length() + " bytes, checksum " + recorded);
+		}
+		SessionPlayer player = new SessionPlayer(sessionFile);
+		System.out.println("session: " + player.getRecordCount() + " records, "
+				+ player.getMouseEventCount() + " mouse events, "
+				+ player.getDuration() / 1000000 + "ms");
+		String fast = replay(player, false);
+		String realTime = replay(player, true);
+		boolean repeatable = fast.equals(realTime) && (recorded == null || recorded.equals(fast));
+		System.out.println("checksums match: " + repeatable);
+		System.out.println("benchmark complete...");
+		System.exit(repeatable ? 0 : 1);
+	}
+
+	// replays the session on a new canvas and prints the latencies of
+	// its records, returning the checksum of the final image
+	private static String replay(SessionPlayer player, boolean recordedSpeed) throws Exception {
+		final PaintCanvas canvas = createCanvas(player.getWidth(), player.getHeight());
+		long start = System.nanoTime();
+		long[] latencies = player.play(canvas, recordedSpeed);
+		long time = System.nanoTime() - start;
+		String checksum = checksum(canvas);
+		Arrays.sort(latencies);
+		System.out.println((recordedSpeed ? "recorded speed: " : "as fast as possible: ")
+				+ time / 1000000 + "ms, latency p50 " + percentile(latencies, 50) / 1000
+				+ "us, p95 " + percentile(latencies, 95) / 1000 + "us, p99 "
+				+ percentile(latencies, 99) / 1000 + "us, max "
+				+ latencies[latencies.length - 1] / 1000 + "us, " + canvas.getEntityCount()
+				+ " entities, checksum " + checksum);
+		return checksum;
+	}
+
+	// records a scripted session to the given file, returning the canvas
+	// it was drawn on
+	private static PaintCanvas record(File sessionFile) throws Exception {
+		final PaintCanvas canvas = createCanvas(SIZE, SIZE);
+		final File file = sessionFile;
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					canvas.startRecording(file);
+				} catch (IOException ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+		});
+		for (int i = 0; i < 30; i++) {
+			final int shape = i;
+			onEventThread(new Runnable() {
+				@Override
+				public void run() {
+					canvas.setPaintColor(new Color(shape * 8, 255 - shape * 8, (shape * 50) % 256));
+					canvas.setBrushSize(1 + shape % 10);
+					canvas.setDrawLines(shape % 3 == 0);
+					canvas.setDrawRectangles(shape % 3 == 1);
+					canvas.setFilledOvals(shape % 3 == 2);
+					if (shape == 10) {
+						canvas.setPretty(true);
+						canvas.redrawImage();
+					}
+				}
+			});
+			drag(canvas, 20 + (i * 97) % (SIZE - 200), 20 + (i * 61) % (SIZE - 200), 40);
+			if (i % 7 == 6) {
+				onEventThread(new Runnable() {
+					@Override
+					public void run() {
+						canvas.undo();
+						canvas.undo();
+						canvas.redo();
+					}
+				});
+			}
+		}
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				canvas.stopRecording();
+			}
+		});
+		return canvas;
+	}
+
+	// presses the mouse at the given point, drags it along a curve for
+	// the given amount of events, and releases it, one event every
+	// EVENT_INTERVAL milliseconds
+	private static void drag(final PaintCanvas canvas, int x, int y, int events)
+			throws Exception {
+		dispatch(canvas, MouseEvent.MOUSE_PRESSED, x, y);
+		for (int i = 1; i <= events; i++) {
+			Thread.sleep(EVENT_INTERVAL);
+			dispatch(canvas, MouseEvent.MOUSE_DRAGGED, x + i * 4,
+					y + (int) (60 * Math.sin(i / 6.0)) + i);
+		}
+		Thread.sleep(EVENT_INTERVAL);
+		dispatch(canvas, MouseEvent.MOUSE_RELEASED, x + events * 4,
+				y + (int) (60 * Math.sin(events / 6.0)) + events);
+		Thread.sleep(EVENT_INTERVAL);
+	}
+
+	private static void dispatch(final PaintCanvas canvas, int id, int x, int y) throws Exception {
+		final MouseEvent evt = new MouseEvent(canvas, id, System.currentTimeMillis(),
+				id == MouseEvent.MOUSE_RELEASED ? 0 : MouseEvent.BUTTON1_DOWN_MASK,
+				x, y, x, y, 1, false, MouseEvent.BUTTON1);
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				canvas.dispatchEvent(evt);
+			}
+		});
+	}
+
+	private static PaintCanvas createCanvas(final int width, final int height) throws Exception {
+		final PaintCanvas canvas = new PaintCanvas(width, height);
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				canvas.setSize(width, height);
+				canvas.redrawImage();
+			}
+		});
+		return canvas;
+	}
+
+	// a checksum of the final image of the given canvas
+	private static String checksum(final PaintCanvas canvas) throws Exception {
+		final BufferedImage[] image = new BufferedImage[1];
+		onEventThread(new Runnable() {
+			@Override
+			public void run() {
+				image[0] = canvas.getFlattenedImage();
+			}
+		});
+		int width = image[0].getWidth();
+		int[] row = new int[width];
+		long hash = HashUtilities.SEED;
+		for (int y = 0; y < image[0].getHeight(); y++) {
+			image[0].getRGB(0, y, width, 1, row, 0, width);
+			for (int pixel : row) {
+				hash = HashUtilities.mix(hash, pixel);
+			}
+		}
+		return Long.toHexString(HashUtilities.finish(hash));
+	}
+
+	// the given percentile of the given sorted values
+	private static long percentile(long[] sorted, int percent) {
+		return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+	}
+
+	private static void onEventThread(Runnable task) throws InterruptedException,
+			InvocationTargetException {
+		SwingUtilities.invokeAndWait(task);
+	}
+}
@@ -0,0 +1,216 @@
+package tests;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+import gui.BatchRenderer;
+import shapes.AbstractRectangle;
+import shapes.CanvasEntity;
+import shapes.Ellipse;
+import shapes.Rectangle;
+import shapes.StylePalette;
+import structures.EntityScene;
+import structures.ShapeStore;
+
+/*
+ * a simple benchmark that stamps 500,000 rectangles and ellipses as
+ * separate entities and into a ShapeStore, then compares the heap each
+ * takes per shape, on their own and in an EntityScene, and how long
+ * each takes to paint into a 2000x2000 image. A scene keeps plain
+ * rectangles and ellipses in its store, so the scene of objects is made
+ * of subclasses that it keeps as they are. The images are checked to be
+ * identical, and every view of the store is checked to equal the entity
+ * it was copied from.
+ */
+public class ShapeStoreBenchmark {
+	private static final int NUM_SHAPES = 500000;
+	private static final int SIZE = 2000;
+
+	// the palette that entities made outside of a canvas are kept in
+	private static final StylePalette PALETTE = StylePalette.getDefault();
+
+	public static void main(String[] args) throws Exception {
+		final AbstractRectangle[] shapes = createShapes(false);
+		final ShapeStore store = new ShapeStore();
+		for (int i = 0; i < shapes.length; i++) {
+			store.add(shapes[i]);
+		}
+		final EntityScene stored = new EntityScene();
+		final EntityScene objects = new EntityScene();
+		AbstractRectangle[] kept = createShapes(true);
+		for (int i = 0; i < shapes.length; i++) {
+			stored.add(shapes[i].snapshot());
+			objects.add(kept[i]);
+		}
+		checkViews(shapes, store, stored);
+		measureMemory();
+
+		final BufferedImage expected = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		final BufferedImage actual = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+		final BatchRenderer renderer = new BatchRenderer();
+		BenchmarkRuns.measure(new BenchmarkRuns.Measurement() {
+			@Override
+			public void run() {
+				Graphics2D g = clear(expected);
+				long start = System.nanoTime();
+				for (int i = 0; i < shapes.length; i++) {
+					shapes[i].paintShape(g);
+				}
+				long entityTime = System.nanoTime() - start;
+				g.dispose();
+
+				g = clear(actual);
+				start = System.nanoTime();
+				store.paint(g);
+				long storeTime = System.nanoTime() - start;
+				g.dispose();
+				boolean matched = sameImages(expected, actual);
+
+				g = clear(actual);
+				renderer.setTarget(actual);
+				start = System.nanoTime();
+				renderer.paint(g, objects);
+				long objectSceneTime = System.nanoTime() - start;
+				g.dispose();
+				matched &= sameImages(expected, actual);
+
+				g = clear(actual);
+				start = System.nanoTime();
+				renderer.paint(g, stored);
+				long storedSceneTime = System.nanoTime() - start;
+				g.dispose();
+				renderer.setTarget(null);
+				matched &= sameImages(expected, actual);
+
+				System.out.println("entities:              " + (entityTime / 1000000) + "ms");
+				System.out.println("shape store:           " + (storeTime / 1000000) + "ms");
+				System.out.println("scene of entities:     " + (objectSceneTime / 1000000) + "ms");
+				System.out.println("scene of stored shapes: " + (storedSceneTime / 1000000) + "ms");
+				System.out.println("images match: " + matched);
+			}
+		});
+	}
+
+	// checks that every view equals the entity it was copied from, hashes
+	// the same, and tests hits the same way, and that the scene hands
+	// back views of the shapes in the order they were added
+	public static void checkViews(AbstractRectangle[] shapes, ShapeStore store, EntityScene scene) {
+		boolean correct = store.getSize() == shapes.length && scene.getSize() == shapes.length;
+		for (int i = 0; i < shapes.length; i += 97) {
+			CanvasEntity view = store.getView(i);
+			correct &= view.equals(shapes[i]);
+			correct &= view.getContentHash() == shapes[i].getContentHash();
+			correct &= view.getBounds().equals(shapes[i].getBounds());
+			int px = shapes[i].getX() + shapes[i].getWidth() / 2;
+			int py = shapes[i].getY();
+			correct &= view.hitTest(px, py, 2) == shapes[i].hitTest(px, py, 2);
+			correct &= scene.get(i).equals(shapes[i]) && scene.find(i).equals(shapes[i]);
+		}
+		System.out.println("views match: " + correct);
+	}
+
+	// measures the heap taken by the shapes as entities and in a store,
+	// and in a scene of each
+	public static void measureMemory() {
+		long before = usedMemory();
+		AbstractRectangle[] shapes = createShapes(false);
+		long objectBytes = usedMemory() - before;
+		before = usedMemory();
+		ShapeStore store = new ShapeStore(NUM_SHAPES);
+		for (int i = 0; i < shapes.length; i++) {
+			store.add(shapes[i]);
+		}
+		long storeBytes = usedMemory() - before;
+		before = usedMemory();
+		EntityScene stored = new EntityScene();
+		for (int i = 0; i < shapes.length; i++) {
+			stored.add(shapes[i]);
+		}
+		long storedSceneBytes = usedMemory() - before;
+		shapes = null;
+		AbstractRectangle[] kept = createShapes(true);
+		before = usedMemory();
+		EntityScene objects = new EntityScene();
+		for (int i = 0; i < kept.length; i++) {
+			objects.add(kept[i]);
+		}
+		long objectSceneBytes = usedMemory() - before + objectBytes;
+		kept = null;
+		System.out.println("entities:               " + (objectBytes / NUM_SHAPES) + " bytes per shape");
+		System.out.println("shape store:            " + (storeBytes / store.getSize()) + " bytes per shape");
+		System.out.println("scene of entities:      " + (objectSceneBytes / NUM_SHAPES) + " bytes per shape");
+		System.out.println("scene of stored shapes: " + (storedSceneBytes / NUM_SHAPES) + " bytes per shape");
+		// keeps everything alive until it has been measured
+		if (store.getSize() + stored.getSize() + objects.getSize() < 0) {
+			System.out.println();
+		}
+	}
+
+	// stamps a mix of filled and outlined rectangles and ellipses in a few
+	// brushes and colors, the way a stamping tool would. Kept shapes are
+	// subclasses that a scene keeps as objects instead of storing them.
+	private static AbstractRectangle[] createShapes(boolean kept) {
+		Random r = new Random(42);
+		BasicStroke[] brushes = {
+			PALETTE.getBrush(1, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER),
+			PALETTE.getBrush(3, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER),
+			PALETTE.getBrush(5, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER)
+		};
+		Color[] colors = {Color.BLACK, Color.RED, Color.BLUE, new Color(0x8000FF00, true)};
+		AbstractRectangle[] shapes = new AbstractRectangle[NUM_SHAPES];
+		for (int i = 0; i < shapes.length; i++) {
+			int x = r.nextInt(SIZE);
+			int y = r.nextInt(SIZE);
+			int width = 2 + r.nextInt(20);
+			int height = 2 + r.nextInt(20);
+			if (r.nextBoolean()) {
+				shapes[i] = kept ? new KeptRectangle(x, y, width, height) : new Rectangle(x, y, width, height);
+			} else {
+				shapes[i] = kept ? new KeptEllipse(x, y, width, height) : new Ellipse(x, y, width, height);
+			}
+			shapes[i].setFilled(r.nextBoolean());
+			shapes[i].setBrushStyle(brushes[(i / 1000) % brushes.length]);
+			shapes[i].setColor(colors[(i / 250) % colors.length]);
+			shapes[i].freeze();
+		}
+		return shapes;
+	}
+
+	private static boolean sameImages(BufferedImage expected, BufferedImage actual) {
+		return Arrays.equals(expected.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE),
+				actual.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE));
+	}
+
+	private static Graphics2D clear(BufferedImage image) {
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, SIZE, SIZE);
+		return g;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	// a rectangle that a scene keeps as an object
+	private static class KeptRectangle extends Rectangle {
+		public KeptRectangle(int x, int y, int width, int height) {
+			super(x, y, width, height);
+		}
+	}
+
+	// an ellipse that a scene keeps as an object
+	private static class KeptEllipse extends Ellipse {
+		public KeptEllipse(int x, int y, int width, int height) {
+			super(x, y, width, height);
+		}
+	}
+}
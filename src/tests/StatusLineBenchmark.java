@@ -0,0 +1,145 @@
+package tests;
+
+import java.awt.BorderLayout;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import gui.PaintCanvas;
+import gui.StatusLine;
+import shapes.CanvasEntity;
+import shapes.Line;
+import shapes.RasterPatch;
+import shapes.Rectangle;
+import structures.EntityScene;
+import structures.ShapeStore;
+
+/*
+ * a simple benchmark that feeds 200,000 mouse positions, about a
+ * minute of very fast mouse motion, to a label in a panel the way the
+ * status bar used to be updated, and to a status line that refreshes
+ * every 40 ms of simulated time, and prints the time and the memory
+ * allocated on the event thread for each. It first checks that the
+ * totals a scene keeps for the status line match counting its
+ * entities again through a mix of adds, removes, restores and empties.
+ */
+public class StatusLineBenchmark {
+	private static final int EVENTS = 200000;
+
+	// the events that come in between two refreshes of the status line
+	// when the mouse reports a position every 0.3 ms
+	private static final int EVENTS_PER_REFRESH = StatusLine.REFRESH_INTERVAL * 10 / 3;
+
+	public static void main(String[] args) throws Exception {
+		checkTotals();
+		BenchmarkRuns.measure(new BenchmarkRuns.Measurement() {
+			@Override
+			public void run() throws Exception {
+				SwingUtilities.invokeAndWait(new Runnable() {
+					@Override
+					public void run() {
+						benchmark();
+					}
+				});
+			}
+		});
+	}
+
+	public static void benchmark() {
+		JLabel label = new JLabel("0 x 0");
+		JPanel panel = new JPanel(new BorderLayout());
+		panel.add(label, BorderLayout.SOUTH);
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < EVENTS; i++) {
+			label.setText((i % 1600) + " x " + (i % 900));
+		}
+		long labelTime = System.nanoTime() - start;
+		long labelBytes = allocatedBytes() - allocated;
+
+		StatusLine line = new StatusLine(new PaintCanvas(1600, 900));
+		panel.remove(label);
+		panel.add(line, BorderLayout.SOUTH);
+		allocated = allocatedBytes();
+		start = System.nanoTime();
+		for (int i = 0; i < EVENTS; i++) {
+			line.setCoordinates(i % 1600, i % 900);
+			if (i % EVENTS_PER_REFRESH == 0) {
+				line.refresh();
+			}
+		}
+		long lineTime = System.nanoTime() - start;
+		long lineBytes = allocatedBytes() - allocated;
+		System.out.println("label: " + labelTime / EVENTS + "ns and " + labelBytes / EVENTS
+				+ " bytes per event, status line: " + lineTime / EVENTS + "ns and "
+				+ lineBytes / EVENTS + " bytes per event");
+	}
+
+	// checks the point and memory totals of a scene against counting
+	// every entity in it after each of a series of random changes
+	public static void checkTotals() {
+		Random r = new Random(17);
+		EntityScene scene = new EntityScene();
+		ArrayList<CanvasEntity> removed = new ArrayList<CanvasEntity>();
+		boolean matched = true;
+		for (int i = 0; i < 20000; i++) {
+			int change = r.nextInt(10);
+			if (change < 5) {
+				scene.add(createEntity(r));
+			} else if (change < 8 && !scene.isEmpty()) {
+				CanvasEntity entity = scene.get(r.nextInt(scene.getSize()));
+				scene.remove(entity);
+				removed.add(entity);
+			} else if (change < 9 && !removed.isEmpty()) {
+				scene.restore(removed.remove(r.nextInt(removed.size())));
+			} else if (r.nextInt(100) == 0) {
+				scene.empty();
+				removed.clear();
+			}
+			int points = 0;
+			long bytes = 0;
+			for (int j = 0; j < scene.getSize(); j++) {
+				CanvasEntity entity = scene.get(j);
+				if (entity instanceof Line) {
+					points += ((Line) entity).getSize();
+					bytes += 64 + 8L * ((Line) entity).getXCoordinates().length;
+				} else if (entity instanceof RasterPatch) {
+					bytes += 64 + 4L * 16 * 16;
+				} else {
+					bytes += ShapeStore.BYTES_PER_SHAPE;
+				}
+			}
+			matched &= points == scene.getPointCount() && bytes == scene.getEntityBytes();
+		}
+		System.out.println("scene totals match counting again: " + matched + " ("
+				+ scene.getPointCount() + " points, " + scene.getEntityBytes() + " bytes)");
+	}
+
+	// creates a random line, rectangle or patch
+	private static CanvasEntity createEntity(Random r) {
+		int kind = r.nextInt(3);
+		if (kind == 0) {
+			Line line = new Line();
+			int points = 1 + r.nextInt(300);
+			for (int i = 0; i < points; i++) {
+				line.add(r.nextInt(1600), r.nextInt(900));
+			}
+			return line;
+		} else if (kind == 1) {
+			return new Rectangle(r.nextInt(1600), r.nextInt(900), r.nextInt(100), r.nextInt(100));
+		}
+		return new RasterPatch(new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB),
+				r.nextInt(1600), r.nextInt(900));
+	}
+
+	// the bytes allocated by this thread so far
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
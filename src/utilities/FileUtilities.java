@@ -1,15 +1,30 @@
 package utilities;
 
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.stream.ImageInputStream;
 import javax.swing.filechooser.FileFilter;
 
 /**
  * Class <code>FileUtilities</code> contains a set of static methods
  * that are used for easily manipulating files for the painting
- * application--specifically for saving.
+ * application--specifically for saving and opening images.
  * 
- * @version 0.1.1 [7/17/15]
+ * Images are opened through an <code>ImageReader</code> so that only
+ * the part of the image that is needed is decoded, and at only the
+ * resolution that is needed. A very large photo can be read at the
+ * size of the canvas without ever holding the full image in memory.
+ * 
+ * @version 0.2.0 [10/19/26]
  * 
  * @author Michael
  *
@@ -18,6 +33,8 @@ import javax.swing.filechooser.FileFilter;
 /*
  * VERSION NOTES:
  * 		-- first created :)
+ * 		-- added functions for reading the size of an image and for
+ * 		reading subsampled regions of an image
  */
 public class FileUtilities {
 	public static final String PNG = "png";
@@ -52,6 +69,86 @@ public class FileUtilities {
 		return extension;
 	}
 	
+	/**
+	 * Gets the width and height of the given image without decoding
+	 * any of its pixels
+	 * @param imageFile the image file to read the size of
+	 * @return the size of the image in pixels
+	 * @throws IOException if the file can't be read or isn't an image
+	 */
+	public static Dimension readImageSize(File imageFile) throws IOException {
+		ImageInputStream input = ImageIO.createImageInputStream(imageFile);
+		if (input == null) {
+			throw new IOException("could not open " + imageFile);
+		}
+		try {
+			ImageReader reader = getReader(input);
+			try {
+				return new Dimension(reader.getWidth(0), reader.getHeight(0));
+			} finally {
+				reader.dispose();
+			}
+		} finally {
+			input.close();
+		}
+	}
+	
+	/**
+	 * Reads the given region of an image, keeping only every
+	 * <code>subsampling</code>th pixel in each direction. Pixels that
+	 * are skipped are never stored, so the memory used is only that of
+	 * the resulting image.
+	 * @param imageFile the image file to read
+	 * @param region the region of the image to read in image
+	 * coordinates, or null to read the whole image
+	 * @param subsampling how many source pixels in each direction are
+	 * combined into one pixel of the result
+	 * @param progress a listener told about the progress of the read,
+	 * or null if nobody is interested
+	 * @return the decoded region of the image
+	 * @throws IOException if the file can't be read or isn't an image
+	 * @throws IllegalArgumentException if subsampling is less than 1
+	 */
+	public static BufferedImage readImage(File imageFile, Rectangle region, int subsampling,
+			IIOReadProgressListener progress) throws IOException {
+		if (subsampling < 1) {
+			throw new IllegalArgumentException("invalid subsampling: " + subsampling);
+		}
+		ImageInputStream input = ImageIO.createImageInputStream(imageFile);
+		if (input == null) {
+			throw new IOException("could not open " + imageFile);
+		}
+		try {
+			ImageReader reader = getReader(input);
+			try {
+				ImageReadParam param = reader.getDefaultReadParam();
+				if (region != null) {
+					param.setSourceRegion(region);
+				}
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				if (progress != null) {
+					reader.addIIOReadProgressListener(progress);
+				}
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		} finally {
+			input.close();
+		}
+	}
+	
+	// gets a reader for the image in the given stream
+	private static ImageReader getReader(ImageInputStream input) throws IOException {
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+		if (!readers.hasNext()) {
+			throw new IOException("not a supported image format");
+		}
+		ImageReader reader = readers.next();
+		reader.setInput(input, true, true);
+		return reader;
+	}
+	
 	// a filter for png file types
 	private static class PngFilter extends FileFilter {
 		@Override
@@ -0,0 +1,170 @@
+package utilities;
+
+import java.awt.BasicStroke;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+
+/**
+ * Class <code>GeometryUtilities</code> contains a set of static methods
+ * that are used when testing the geometry of the entities on the
+ * canvas against points and paths in the coordinate space--specifically
+ * for selecting and erasing entities with the mouse.
+ *
+ * @version 0.1.2 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * VERSION NOTES:
+ * 		-- added segment distances for the eraser
+ * 		-- moved the swept intersection test for box-shaped entities
+ * 		here so stored shapes can share it
+ */
+public class GeometryUtilities {
+	/**
+	 * The flatness used when approximating curved outlines with
+	 * straight segments. A quarter of a pixel is well below what can
+	 * be seen on the canvas.
+	 */
+	public static final double FLATNESS = 0.25;
+
+	/**
+	 * Gets the width of the given brush. Brushes that are not
+	 * <code>BasicStroke</code>s, as well as missing brushes, are
+	 * treated as being one pixel wide.
+	 * @param brushType the brush whose width is needed
+	 * @return the width of the brush in pixels
+	 */
+	public static float getStrokeWidth(Stroke brushType) {
+		if (brushType instanceof BasicStroke) {
+			return ((BasicStroke) brushType).getLineWidth();
+		}
+		return 1;
+	}
+
+	/**
+	 * Gets the amount of padding that has to be added around the
+	 * geometry of an entity painted with the given brush so that the
+	 * padded area covers every pixel the brush can touch, including
+	 * pixels that are only partially covered when anti-aliasing.
+	 * @param brushType the brush used to paint the entity
+	 * @return the padding in whole pixels
+	 */
+	public static int getStrokePadding(Stroke brushType) {
+		return (int) Math.ceil(getStrokeWidth(brushType) / 2) + 1;
+	}
+
+	/**
+	 * Gets the squared distance between the closest points of the two
+	 * given segments. Segments that cross are a distance of 0 apart.
+	 * Either segment may have the same start and end point, in which
+	 * case it is treated as a single point.
+	 * @param ax1 the x-coordinate of the start of the first segment
+	 * @param ay1 the y-coordinate of the start of the first segment
+	 * @param ax2 the x-coordinate of the end of the first segment
+	 * @param ay2 the y-coordinate of the end of the first segment
+	 * @param bx1 the x-coordinate of the start of the second segment
+	 * @param by1 the y-coordinate of the start of the second segment
+	 * @param bx2 the x-coordinate of the end of the second segment
+	 * @param by2 the y-coordinate of the end of the second segment
+	 * @return the squared distance between the segments
+	 */
+	public static double segmentDistanceSq(double ax1, double ay1, double ax2, double ay2,
+			double bx1, double by1, double bx2, double by2) {
+		if (Line2D.linesIntersect(ax1, ay1, ax2, ay2, bx1, by1, bx2, by2)) {
+			return 0;
+		}
+		double best = Line2D.ptSegDistSq(ax1, ay1, ax2, ay2, bx1, by1);
+		best = Math.min(best, Line2D.ptSegDistSq(ax1, ay1, ax2, ay2, bx2, by2));
+		best = Math.min(best, Line2D.ptSegDistSq(bx1, by1, bx2, by2, ax1, ay1));
+		return Math.min(best, Line2D.ptSegDistSq(bx1, by1, bx2, by2, ax2, ay2));
+	}
+
+	/**
+	 * Checks whether or not a round brush of the given radius swept
+	 * along the given segment would touch a box-shaped entity with the
+	 * given outline. Filled entities are painted without their brush,
+	 * so the brush only counts for entities that aren't filled.
+	 * @param outline the outline of the entity
+	 * @param filled whether or not the entity is filled
+	 * @param brushType the brush the entity is painted with
+	 * @param x1 the x-coordinate of the start of the segment
+	 * @param y1 the y-coordinate of the start of the segment
+	 * @param x2 the x-coordinate of the end of the segment
+	 * @param y2 the y-coordinate of the end of the segment
+	 * @param radius the radius of the swept brush in pixels
+	 * @return true if the swept brush touches the entity, false
+	 * otherwise
+	 */
+	public static boolean outlineIntersects(Shape outline, boolean filled, Stroke brushType,
+			int x1, int y1, int x2, int y2, int radius) {
+		// a segment that gets into the filled area without crossing the
+		// outline must have its end points inside of it
+		if (filled && (outline.contains(x1, y1) || outline.contains(x2, y2))) {
+			return true;
+		}
+		double reach = radius;
+		if (!filled) {
+			reach += getStrokeWidth(brushType) / 2;
+		}
+		return outlineDistanceSq(outline, x1, y1, x2, y2) <= reach * reach;
+	}
+
+	/**
+	 * Gets the squared distance from the given point to the closest
+	 * point on the outline of the given shape. Curves in the outline
+	 * are flattened to straight segments first.
+	 * @param outline the shape whose outline is measured against
+	 * @param px the x-coordinate of the point
+	 * @param py the y-coordinate of the point
+	 * @return the squared distance from the point to the outline, or
+	 * <code>Double.POSITIVE_INFINITY</code> if the outline is empty
+	 */
+	public static double outlineDistanceSq(Shape outline, double px, double py) {
+		return outlineDistanceSq(outline, px, py, px, py);
+	}
+
+	/**
+	 * Gets the squared distance from the given segment to the closest
+	 * point on the outline of the given shape. Curves in the outline
+	 * are flattened to straight segments first.
+	 * @param outline the shape whose outline is measured against
+	 * @param x1 the x-coordinate of the start of the segment
+	 * @param y1 the y-coordinate of the start of the segment
+	 * @param x2 the x-coordinate of the end of the segment
+	 * @param y2 the y-coordinate of the end of the segment
+	 * @return the squared distance from the segment to the outline, or
+	 * <code>Double.POSITIVE_INFINITY</code> if the outline is empty
+	 */
+	public static double outlineDistanceSq(Shape outline, double x1, double y1,
+			double x2, double y2) {
+		double[] coords = new double[6];
+		double best = Double.POSITIVE_INFINITY;
+		double startX = 0, startY = 0, lastX = 0, lastY = 0;
+		PathIterator path = outline.getPathIterator(null, FLATNESS);
+		while (!path.isDone() && best > 0) {
+			int type = path.currentSegment(coords);
+			if (type == PathIterator.SEG_MOVETO) {
+				startX = lastX = coords[0];
+				startY = lastY = coords[1];
+				best = Math.min(best, Line2D.ptSegDistSq(x1, y1, x2, y2, lastX, lastY));
+			} else if (type == PathIterator.SEG_LINETO) {
+				best = Math.min(best, segmentDistanceSq(lastX, lastY, coords[0], coords[1],
+						x1, y1, x2, y2));
+				lastX = coords[0];
+				lastY = coords[1];
+			} else if (type == PathIterator.SEG_CLOSE) {
+				best = Math.min(best, segmentDistanceSq(lastX, lastY, startX, startY,
+						x1, y1, x2, y2));
+				lastX = startX;
+				lastY = startY;
+			}
+			path.next();
+		}
+		return best;
+	}
+}
@@ -0,0 +1,143 @@
+package utilities;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Stroke;
+
+/**
+ * Class <code>HashUtilities</code> is a collection of static functions
+ * for building 64-bit hashes of the contents of entities. A hash is
+ * started with <code>SEED</code>, has every value mixed into it in
+ * order, and is run through <code>finish</code> at the end so that
+ * every bit of the input affects every bit of the result. Nothing is
+ * summed, so shapes made of the same values in a different order or
+ * in different places get different hashes.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class HashUtilities {
+	/**
+	 * The value every hash starts from
+	 */
+	public static final long SEED = 0x2545F4914F6CDD1DL;
+
+	// 2^64 divided by the golden ratio
+	private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Mixes the given value into the given hash
+	 * @param hash the hash so far
+	 * @param value the value to mix in
+	 * @return the new hash
+	 */
+	public static long mix(long hash, long value) {
+		hash = (hash ^ value) * MULTIPLIER;
+		return hash ^ (hash >>> 29);
+	}
+
+	/**
+	 * Mixes a point into the given hash
+	 * @param hash the hash so far
+	 * @param x the x-coordinate of the point
+	 * @param y the y-coordinate of the point
+	 * @return the new hash
+	 */
+	public static long mixPoint(long hash, int x, int y) {
+		return mix(hash, ((long) x << 32) | (y & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * Mixes a color into the given hash, including its alpha
+	 * @param hash the hash so far
+	 * @param color the color to mix in, which may be null
+	 * @return the new hash
+	 */
+	public static long mixColor(long hash, Color color) {
+		return mix(hash, color == null ? -1L : color.getRGB() & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Mixes a stroke into the given hash. Every attribute of a
+	 * <code>BasicStroke</code> is mixed in, so two strokes that are
+	 * equal give the same hash. Any other kind of stroke is mixed in by
+	 * its own hash code.
+	 * @param hash the hash so far
+	 * @param stroke the stroke to mix in, which may be null
+	 * @return the new hash
+	 */
+	public static long mixStroke(long hash, Stroke stroke) {
+		if (!(stroke instanceof BasicStroke)) {
+			return mix(hash, stroke == null ? -1L : stroke.hashCode());
+		}
+		BasicStroke brush = (BasicStroke) stroke;
+		hash = mix(hash, Float.floatToIntBits(brush.getLineWidth()));
+		hash = mix(hash, ((long) brush.getEndCap() << 32) | brush.getLineJoin());
+		hash = mix(hash, Float.floatToIntBits(brush.getMiterLimit()));
+		float[] dash = brush.getDashArray();
+		if (dash != null) {
+			hash = mix(hash, dash.length);
+			for (int i = 0; i < dash.length; i++) {
+				hash = mix(hash, Float.floatToIntBits(dash[i]));
+			}
+			hash = mix(hash, Float.floatToIntBits(brush.getDashPhase()));
+		}
+		return hash;
+	}
+
+	/**
+	 * Hashes a box-shaped entity such as a rectangle or an ellipse. Any
+	 * two entities of the same kind with the same values get the same
+	 * hash, however they are stored.
+	 * @param kind the name of the kind of entity
+	 * @param x the x-coordinate of the upper-left corner
+	 * @param y the y-coordinate of the upper-left corner
+	 * @param width the width of the entity
+	 * @param height the height of the entity
+	 * @param filled whether or not the entity is filled
+	 * @param color the color of the entity
+	 * @param stroke the brush of the entity
+	 * @return the finished hash
+	 */
+	public static long hashBox(String kind, int x, int y, int width, int height,
+			boolean filled, Color color, Stroke stroke) {
+		long hash = mix(SEED, kind.hashCode());
+		hash = mixPoint(hash, x, y);
+		hash = mixPoint(hash, width, height);
+		hash = mix(hash, filled ? 1 : 0);
+		hash = mixColor(hash, color);
+		hash = mixStroke(hash, stroke);
+		return finish(hash);
+	}
+
+	/**
+	 * Finishes a hash so that every bit of it depends on every value
+	 * that was mixed in
+	 * @param hash the hash so far
+	 * @return the finished hash
+	 */
+	public static long finish(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		return hash ^ (hash >>> 33);
+	}
+
+	/**
+	 * Folds a 64-bit hash down to an <code>int</code> for use as a hash
+	 * code
+	 * @param hash the 64-bit hash
+	 * @return the folded hash
+	 */
+	public static int fold(long hash) {
+		return (int) (hash ^ (hash >>> 32));
+	}
+}
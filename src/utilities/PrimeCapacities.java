@@ -0,0 +1,174 @@
+package utilities;
+
+/**
+ * Class <code>PrimeCapacities</code> is a collection of static
+ * functions that pick prime capacities for hash tables. Tables that
+ * probe quadratically need a prime capacity, and growing by roughly
+ * doubling keeps the cost of rehashing low, so the capacities are
+ * kept in a table of primes where each is the first prime at or after
+ * double the one before it. Looking up a capacity needs no sieve and
+ * no memory beyond the table itself.
+ *
+ * Capacities past the end of the table, as well as any other prime
+ * that is needed, are found with <code>nextPrimeAtLeast</code>, which
+ * uses a Miller-Rabin test with a set of bases known to be exact for
+ * every <code>int</code>.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class PrimeCapacities {
+	/**
+	 * The first prime at or after 10, followed by the first prime at or
+	 * after double each prime before it. This is the same list that
+	 * <code>PrimesGenerator.getDoubles</code> gives for a starting
+	 * number of 10, carried on to the largest such prime that fits in
+	 * an <code>int</code>.
+	 */
+	private static final int[] CAPACITIES = {
+		11, 23, 47, 97, 197, 397, 797, 1597, 3203, 6421, 12853, 25717,
+		51437, 102877, 205759, 411527, 823117, 1646237, 3292489, 6584983,
+		13169977, 26339969, 52679969, 105359939, 210719881, 421439783,
+		842879579, 1685759167
+	};
+
+	// bases for which Miller-Rabin is exact below 4,759,123,141
+	private static final int[] WITNESSES = {2, 7, 61};
+
+	/**
+	 * Gets the smallest capacity that is at least the given number. The
+	 * capacity comes from the table when it can, so that a table that
+	 * keeps doubling its capacity walks down the table.
+	 * @param n the smallest acceptable capacity
+	 * @return the smallest table prime at least n, or the smallest
+	 * prime at least n when n is past the end of the table
+	 * @throws IllegalArgumentException if no prime that large fits in
+	 * an <code>int</code>
+	 */
+	public static int capacityAtLeast(int n) {
+		int low = 0;
+		int high = CAPACITIES.length - 1;
+		if (n > CAPACITIES[high]) {
+			return nextPrimeAtLeast(n);
+		}
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (CAPACITIES[mid] < n) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return CAPACITIES[low];
+	}
+
+	/**
+	 * Gets the capacity that comes after the given capacity when a
+	 * table doubles in size
+	 * @param capacity the current capacity
+	 * @return the smallest capacity at least double the given one
+	 * @throws IllegalArgumentException if no prime that large fits in
+	 * an <code>int</code>
+	 */
+	public static int grow(int capacity) {
+		if (capacity > Integer.MAX_VALUE / 2) {
+			throw new IllegalArgumentException("capacity can't grow past " + capacity);
+		}
+		return capacityAtLeast(capacity * 2);
+	}
+
+	/**
+	 * Gets the smallest prime that is at least the given number
+	 * @param n the number to start from
+	 * @return the smallest prime at least n
+	 * @throws IllegalArgumentException if no prime that large fits in
+	 * an <code>int</code>
+	 */
+	public static int nextPrimeAtLeast(int n) {
+		if (n <= 2) {
+			return 2;
+		}
+		long candidate = n | 1; // even numbers past 2 aren't prime
+		while (candidate <= Integer.MAX_VALUE) {
+			if (isPrime((int) candidate)) {
+				return (int) candidate;
+			}
+			candidate += 2;
+		}
+		throw new IllegalArgumentException("no prime fits in an int past " + n);
+	}
+
+	/**
+	 * Checks whether or not the given number is prime. The answer is
+	 * exact for every <code>int</code>.
+	 * @param n the number to check
+	 * @return true if n is prime, false otherwise
+	 */
+	public static boolean isPrime(int n) {
+		if (n < 2) {
+			return false;
+		}
+		if (n % 2 == 0) {
+			return n == 2;
+		}
+		for (int i = 0; i < WITNESSES.length; i++) {
+			if (n == WITNESSES[i]) {
+				return true;
+			}
+			if (n % WITNESSES[i] == 0) {
+				return false;
+			}
+		}
+		// write n - 1 as d * 2^s with d odd
+		long d = n - 1;
+		int s = Long.numberOfTrailingZeros(d);
+		d >>= s;
+		for (int i = 0; i < WITNESSES.length; i++) {
+			if (!passesRound(WITNESSES[i], d, s, n)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// runs one round of Miller-Rabin with the given witness. Since n
+	// fits in an int, every product fits in a long.
+	private static boolean passesRound(long witness, long d, int s, long n) {
+		long x = modPow(witness, d, n);
+		if (x == 1 || x == n - 1) {
+			return true;
+		}
+		for (int r = 1; r < s; r++) {
+			x = x * x % n;
+			if (x == n - 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// raises the base to the given power modulo m
+	private static long modPow(long base, long exponent, long m) {
+		long result = 1;
+		base %= m;
+		while (exponent > 0) {
+			if ((exponent & 1) == 1) {
+				result = result * base % m;
+			}
+			base = base * base % m;
+			exponent >>= 1;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,186 @@
+package utilities;
+
+import java.nio.LongBuffer;
+
+/**
+ * Class <code>PrimeSieve</code> represents the result of sieving the
+ * numbers from 2 to a limit for primes. Only odd numbers are stored,
+ * one bit each, so the sieve takes a sixteenth of the memory of a
+ * <code>boolean</code> for every number. Bit i of the sieve is set when
+ * the number 2i + 1 is prime; 2 is the only even prime and is handled
+ * on its own.
+ *
+ * Sieves are made by <code>PrimesGenerator</code>. The bits are kept
+ * in a <code>LongBuffer</code>, which is either a plain array or a
+ * table that <code>PrimeTableCache</code> has mapped from a file, so a
+ * cached sieve is read straight from the page cache.
+ *
+ * @version 0.2.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ * 		-- kept the bits in a buffer so they can be mapped from a file
+ */
+public class PrimeSieve {
+	// the bits for the odd numbers, set when the number is prime
+	private LongBuffer bits;
+
+	// the largest number that was sieved
+	private int limit;
+
+	/**
+	 * Constructs a sieve from the given bits. Bit i of the bits must be
+	 * set exactly when 2i + 1 is a prime no larger than the limit.
+	 * @param limit the largest number that was sieved
+	 * @param bits the sieved bits for the odd numbers
+	 */
+	PrimeSieve(int limit, long[] bits) {
+		this(limit, LongBuffer.wrap(bits));
+	}
+
+	/**
+	 * Constructs a sieve that reads its bits from the given buffer,
+	 * starting at the first element of the buffer
+	 * @param limit the largest number that was sieved
+	 * @param bits the sieved bits for the odd numbers
+	 */
+	PrimeSieve(int limit, LongBuffer bits) {
+		this.limit = limit;
+		this.bits = bits;
+	}
+
+	/**
+	 * Gets the largest number that was sieved
+	 * @return the limit of the sieve
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Checks whether or not the given number is prime
+	 * @param n the number to check
+	 * @return true if n is prime, false otherwise
+	 * @throws IllegalArgumentException if n is larger than the limit
+	 */
+	public boolean isPrime(int n) {
+		if (n > limit) {
+			throw new IllegalArgumentException("n is past the limit: " + n);
+		}
+		if (n < 2) {
+			return false;
+		}
+		if ((n & 1) == 0) {
+			return n == 2;
+		}
+		return isBitSet(n >>> 1);
+	}
+
+	/**
+	 * Gets the amount of primes from 2 to the limit inclusive
+	 * @return the amount of primes in the sieve
+	 */
+	public int countPrimes() {
+		int count = limit >= 2 ? 1 : 0;
+		for (int i = 0; i < bits.limit(); i++) {
+			count += Long.bitCount(bits.get(i));
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the smallest prime that is at least the given number
+	 * @param n the number to start from
+	 * @return the smallest prime at least n, or -1 if there are no
+	 * primes from n to the limit
+	 */
+	public int nextPrime(int n) {
+		if (n <= 2) {
+			return limit >= 2 ? 2 : -1;
+		}
+		if (n > limit) {
+			return -1;
+		}
+		int bit = nextSetBit(n >>> 1);
+		if (bit < 0) {
+			return -1;
+		}
+		return 2 * bit + 1;
+	}
+
+	/**
+	 * Creates a list of bits with one entry for every number from 0 to
+	 * the limit inclusive, where an entry is true if the number at that
+	 * index is prime. This is the same form that
+	 * <code>PrimesGenerator.eratosthenesSieveRaw</code> returns.
+	 * @return the primes as a list of bits
+	 */
+	public boolean[] toBooleanArray() {
+		boolean[] possiblePrimes = new boolean[limit + 1];
+		if (limit >= 2) {
+			possiblePrimes[2] = true;
+		}
+		for (int bit = nextSetBit(0); bit >= 0; bit = nextSetBit(bit + 1)) {
+			possiblePrimes[2 * bit + 1] = true;
+		}
+		return possiblePrimes;
+	}
+
+	/**
+	 * Creates a list of every prime from 2 to the limit inclusive in
+	 * increasing order
+	 * @return the primes as a list of integers
+	 */
+	public int[] toIntArray() {
+		int[] primes = new int[countPrimes()];
+		int j = 0;
+		if (limit >= 2) {
+			primes[j] = 2;
+			j++;
+		}
+		for (int bit = nextSetBit(0); bit >= 0; bit = nextSetBit(bit + 1)) {
+			primes[j] = 2 * bit + 1;
+			j++;
+		}
+		return primes;
+	}
+
+	/**
+	 * Gets the buffer holding the bits for the odd numbers
+	 * @return a read-only view of the bits
+	 */
+	LongBuffer getBits() {
+		return bits.asReadOnlyBuffer();
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// checks whether or not the given bit is set
+	private boolean isBitSet(int bit) {
+		return (bits.get(bit >>> 6) & (1L << bit)) != 0;
+	}
+
+	// finds the first set bit at or after the given bit, or -1
+	private int nextSetBit(int bit) {
+		int word = bit >>> 6;
+		if (word >= bits.limit()) {
+			return -1;
+		}
+		long remaining = bits.get(word) & (-1L << bit);
+		while (remaining == 0) {
+			word++;
+			if (word >= bits.limit()) {
+				return -1;
+			}
+			remaining = bits.get(word);
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(remaining);
+	}
+}
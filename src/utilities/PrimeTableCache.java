@@ -0,0 +1,162 @@
+package utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * Class <code>PrimeTableCache</code> is a collection of static
+ * functions that keep sieved primes in files so that they don't have
+ * to be sieved again on the next run. A table holds the bits of a
+ * <code>PrimeSieve</code> behind a small header with the format
+ * version, the limit that was sieved and a checksum of the bits. Each
+ * limit gets its own file, named after the range and the version.
+ *
+ * Tables are opened with <code>FileChannel.map</code>, and the sieve
+ * that is returned reads its bits straight from the mapping, so
+ * looking up a prime is a read from the page cache and several JVMs on
+ * one machine share the same pages. A table that is missing, is from
+ * another version or doesn't match its checksum is sieved again and
+ * rewritten. New tables are written to a temporary file and then
+ * moved into place, so a table is never seen half written.
+ *
+ * @version 0.1.0 [10/19/26]
+ *
+ * @author Michael Davis
+ *
+ */
+
+/*
+ * Version Notes:
+ * 		-- first created :)
+ */
+public class PrimeTableCache {
+	/**
+	 * The version of the table format. Tables from any other version
+	 * are sieved again.
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	// marks the start of a table, "PRMT"
+	private static final int MAGIC = 0x50524D54;
+
+	// the header holds the magic number, the version, the limit, the
+	// amount of words and the checksum
+	private static final int HEADER_BYTES = 32;
+
+	/**
+	 * Gets the file that the table of primes from 2 to n is kept in
+	 * @param n the max number in the table
+	 * @param directory the directory that tables are kept in
+	 * @return the file for the table
+	 */
+	public static File getTableFile(int n, File directory) {
+		return new File(directory, "primes-2-" + n + ".v" + FORMAT_VERSION + ".bits");
+	}
+
+	/**
+	 * Opens the table of primes from 2 to n kept in the given
+	 * directory, sieving it and writing it first if there is no valid
+	 * table yet
+	 * @param n the max number in the table
+	 * @param directory the directory that tables are kept in
+	 * @return a sieve that reads its bits from the table
+	 * @throws IOException if the table can't be read or written
+	 * @throws IllegalArgumentException if n < 2 or n > MAXIMUM_NUMBER
+	 */
+	public static PrimeSieve open(int n, File directory) throws IOException {
+		if (n < 2 || n > PrimesGenerator.MAXIMUM_NUMBER) {
+			throw new IllegalArgumentException("problem with n");
+		}
+		File table = getTableFile(n, directory);
+		if (table.isFile()) {
+			PrimeSieve sieve = map(table, n);
+			if (sieve != null) {
+				return sieve;
+			}
+			System.err.println("rebuilding invalid prime table " + table);
+		}
+		write(PrimesGenerator.segmentedSieve(n), directory, table);
+		PrimeSieve sieve = map(table, n);
+		if (sieve == null) {
+			throw new IOException("prime table could not be verified: " + table);
+		}
+		return sieve;
+	}
+
+	/****************************************************************
+	 * HELPER FUNCTIONS
+	 ****************************************************************/
+
+	// maps the given table, or gives null if it isn't a valid table for
+	// the given limit
+	private static PrimeSieve map(File table, int n) throws IOException {
+		long words = (((n + 1L) >>> 1) + 63) >>> 6;
+		try (RandomAccessFile file = new RandomAccessFile(table, "r")) {
+			if (file.length() != HEADER_BYTES + words * 8) {
+				return null;
+			}
+			// the mapping stays valid after the file is closed
+			MappedByteBuffer bytes = file.getChannel().map(FileChannel.MapMode.READ_ONLY,
+					0, file.length());
+			bytes.order(ByteOrder.LITTLE_ENDIAN);
+			if (bytes.getInt(0) != MAGIC || bytes.getInt(4) != FORMAT_VERSION
+					|| bytes.getLong(8) != n || bytes.getLong(16) != words) {
+				return null;
+			}
+			bytes.position(HEADER_BYTES);
+			if (checksum(bytes) != bytes.getLong(24)) {
+				return null;
+			}
+			bytes.position(HEADER_BYTES);
+			LongBuffer bits = bytes.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+			return new PrimeSieve(n, bits);
+		}
+	}
+
+	// writes the given sieve to a temporary file in the directory and
+	// then moves it into place as the given table
+	private static void write(PrimeSieve sieve, File directory, File table) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("could not create " + directory);
+		}
+		LongBuffer bits = sieve.getBits();
+		long words = bits.limit();
+		File temp = File.createTempFile("primes", ".tmp", directory);
+		try {
+			try (RandomAccessFile file = new RandomAccessFile(temp, "rw")) {
+				MappedByteBuffer bytes = file.getChannel().map(FileChannel.MapMode.READ_WRITE,
+						0, HEADER_BYTES + words * 8);
+				bytes.order(ByteOrder.LITTLE_ENDIAN);
+				bytes.putInt(0, MAGIC);
+				bytes.putInt(4, FORMAT_VERSION);
+				bytes.putLong(8, sieve.getLimit());
+				bytes.putLong(16, words);
+				bytes.position(HEADER_BYTES);
+				bytes.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(bits);
+				bytes.position(HEADER_BYTES);
+				bytes.putLong(24, checksum(bytes));
+				bytes.force();
+			}
+			Files.move(temp.toPath(), table.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	// computes the checksum of the bytes from the position of the
+	// buffer to its limit
+	private static long checksum(MappedByteBuffer bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return crc.getValue();
+	}
+}
@@ -1,5 +1,17 @@
 package utilities;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
 /**
  * Class <code>PrimesGenerator</code> is a collection of static 
  * functions that create and return a list of prime numbers from
@@ -7,7 +19,24 @@ package utilities;
  * each function, when given the same parameters, returns the
  * exact same results.
  * 
- * @version 0.1.3 [7/13/15]
+ * Every sieve is run by <code>segmentedSieve</code>, which only keeps
+ * the odd numbers, one bit each, and crosses them off one segment at a
+ * time. A segment is small enough to stay in the processor's cache
+ * while every base prime up to the square root of n crosses off its
+ * multiples in it, starting from the square of the prime. Segments
+ * don't depend on each other, so they are sieved in parallel on a
+ * <code>ForkJoinPool</code>. The older functions that give a list of
+ * bits or a list of integers are built from the result of that sieve.
+ * 
+ * Primes can also be read lazily with <code>primes</code>, which sieves
+ * a segment at a time as the stream is read instead of keeping every
+ * prime in the range in memory.
+ * 
+ * Sieves that are needed on every run can be kept on disk with
+ * <code>cachedSieve</code>, which maps a table of primes written by an
+ * earlier run instead of sieving again.
+ * 
+ * @version 0.4.0 [10/19/26]
  * 
  * @author Michael Davis
  *
@@ -20,119 +49,222 @@ package utilities;
  *		-- added function for finding primes using Sieve of Eratosthenes
  *		-- added function for getting raw prime bit array used in Sieve of Eratosthenes function
  *		-- added function for getting a set of primes that are double a given number
+ *		-- added a segmented sieve over odd numbers stored as bits
+ *		-- made the bit array and integer sieves use the segmented sieve
+ *		-- raised the maximum number past one billion
+ *		-- made the segmented sieve run its segments in parallel
+ *		-- added a lazy stream of the primes in a range
+ *		-- added sieves cached in memory-mapped tables on disk
  */
 public class PrimesGenerator {
 	/**
 	 * The maximum number of that can be used in the range of numbers
 	 * in the set that is sifted for primes.
 	 */
-	public static final int MAXIMUM_NUMBER = 99999998;
+	public static final int MAXIMUM_NUMBER = 2000000000;
+
+	/**
+	 * The amount of odd numbers crossed off at a time by the segmented
+	 * sieve. A segment of 2^20 bits takes 128KB, which fits in the L2
+	 * cache of most processors.
+	 */
+	public static final int SEGMENT_BITS = 1 << 20;
+
+	/**
+	 * The directory that <code>cachedSieve</code> keeps tables of
+	 * primes in when no other directory is given
+	 */
+	public static final File TABLE_DIRECTORY = new File(System.getProperty("java.io.tmpdir"),
+			"prime-tables");
+
+	/**
+	 * Sieves the numbers from 2 to n inclusive for primes using the
+	 * given pool. Only odd numbers are kept, as one bit each, so the
+	 * sieve takes about n / 16 bytes. Once the base primes up to the
+	 * square root of n are known, every segment can be crossed off on
+	 * its own, so the segments are sieved in parallel. Each base prime
+	 * starts crossing off at its own square, since every smaller
+	 * multiple has a smaller factor.
+	 * @param n the max number in the set
+	 * @param pool the pool that the segments are sieved on
+	 * @return the sieved primes between 2 and n inclusive
+	 * @throw IllegalArgumentException if n < 2 or n > MAXIMUM_NUMBER
+	 */
+	public static PrimeSieve segmentedSieve(int n, ForkJoinPool pool) {
+		if (n < 2 || n > MAXIMUM_NUMBER) {
+			throw new IllegalArgumentException("problem with n");
+		}
+		// bit i stands for 2i + 1, for every odd number up to n
+		int numBits = (n + 1) >>> 1;
+		long[] bits = new long[(numBits + 63) >>> 6];
+		int[] basePrimes = oddPrimesUpTo((int) Math.sqrt(n));
+		int segments = (numBits + SEGMENT_BITS - 1) / SEGMENT_BITS;
+		pool.invoke(new SegmentTask(bits, basePrimes, numBits, 0, segments));
+		bits[0] &= ~1L; // 1 isn't prime
+		if ((numBits & 63) != 0) {
+			bits[bits.length - 1] &= (1L << numBits) - 1;
+		}
+		return new PrimeSieve(n, bits);
+	}
+
+	/**
+	 * Sieves the numbers from 2 to n inclusive for primes using the
+	 * common pool
+	 * @param n the max number in the set
+	 * @return the sieved primes between 2 and n inclusive
+	 * @throw IllegalArgumentException if n < 2 or n > MAXIMUM_NUMBER
+	 */
+	public static PrimeSieve segmentedSieve(int n) {
+		return segmentedSieve(n, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Gets the sieved primes from 2 to n inclusive from the table kept
+	 * in the given directory, sieving and writing the table first if
+	 * there isn't one. The sieve reads its bits straight from the
+	 * mapped table. If the table can't be read or written, the primes
+	 * are sieved in memory instead.
+	 * @param n the max number in the set
+	 * @param directory the directory that tables are kept in
+	 * @return the sieved primes between 2 and n inclusive
+	 * @throw IllegalArgumentException if n < 2 or n > MAXIMUM_NUMBER
+	 */
+	public static PrimeSieve cachedSieve(int n, File directory) {
+		try {
+			return PrimeTableCache.open(n, directory);
+		} catch (IOException ex) {
+			System.err.println("prime table unavailable, sieving in memory: " + ex.getMessage());
+			return segmentedSieve(n);
+		}
+	}
+
+	/**
+	 * Gets the sieved primes from 2 to n inclusive from the table kept
+	 * in the default table directory
+	 * @param n the max number in the set
+	 * @return the sieved primes between 2 and n inclusive
+	 * @throw IllegalArgumentException if n < 2 or n > MAXIMUM_NUMBER
+	 */
+	public static PrimeSieve cachedSieve(int n) {
+		return cachedSieve(n, TABLE_DIRECTORY);
+	}
+
+	/**
+	 * Creates a stream of the primes from one number to another
+	 * inclusive in increasing order. The primes are sieved lazily, one
+	 * segment at a time, as the stream is read, so only a single
+	 * segment is ever kept in memory no matter how large the range is.
+	 * @param from the smallest number in the range
+	 * @param to the largest number in the range
+	 * @return a stream of the primes in the range, which is empty if
+	 * from is larger than to
+	 * @throw IllegalArgumentException if to doesn't fit in an int
+	 */
+	public static IntStream primes(long from, long to) {
+		int characteristics = Spliterator.ORDERED | Spliterator.DISTINCT
+				| Spliterator.SORTED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+		return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(
+				primeIterator(from, to), characteristics), false);
+	}
+
+	/**
+	 * Creates an iterator over the primes from one number to another
+	 * inclusive in increasing order. Like <code>primes</code>, the
+	 * primes are sieved one segment at a time as they are needed.
+	 * @param from the smallest number in the range
+	 * @param to the largest number in the range
+	 * @return an iterator over the primes in the range
+	 * @throw IllegalArgumentException if to doesn't fit in an int
+	 */
+	public static PrimitiveIterator.OfInt primeIterator(long from, long to) {
+		if (to > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("problem with to");
+		}
+		return new PrimeIterator(from, to);
+	}
 
 	/**
 	 * Enumerates primes from a set of numbers between 2 and n
 	 * inclusive. This set of primes is the result that is returned.
 	 * If n is negative or too large (arbitrarily chosen large number),
 	 * an exception is thrown. This function may not be the best for
-	 * producing large quantities of prime numbers not only because of
-	 * issues with runtime, but also issues with space. The result is 
-	 * in raw form meaning that it is the original list of bits used 
-	 * rather than packaged integers. If the implementation calls for
-	 * integer values, use the eratosthenesSieve function instead.
-	 * It can be assumed that a bit of 1 means that the number
-	 * corresponding to the index in the set is prime.
+	 * producing large quantities of prime numbers because it takes
+	 * a byte for every number, where <code>segmentedSieve</code> takes
+	 * a bit for every odd number. The result is in raw form meaning
+	 * that it is a list of bits rather than packaged integers. If the
+	 * implementation calls for integer values, use the eratosthenesSieve
+	 * function instead. It can be assumed that a bit of 1 means that
+	 * the number corresponding to the index in the set is prime.
 	 * @param n the max number in the set
 	 * @return a list of prime numbers between 2 and n inclusive as
 	 * a list of bits
-	 * @throw IllegalArgumentException if n < 2 or n > 99999998
+	 * @throw IllegalArgumentException if n < 2 or n > MAXIMUM_NUMBER
 	 */
 	public static boolean[] eratosthenesSieveRaw(int n) {
-		/*
-		 * create list of numbers from 2 to n inclusive
-		 * let p = 2
-		 * from p, count up to n by p increments and mark true
-		 * first number greater than p not marked, if none stop, set p to number
-		 * lather, rinse, repeat...
-		 */
-		if (n < 2 || n > MAXIMUM_NUMBER) {
-			throw new IllegalArgumentException("problem with n");
-		}
-		boolean[] possiblePrimes = new boolean[n + 1];
-		for (int i = 0; i < possiblePrimes.length; i++) {
-			possiblePrimes[i] = true;
-		}
-		int p = 2;
-		while (p < possiblePrimes.length) {
-			//			System.out.print(Arrays.toString(possiblePrimes));
-			for (int i = p + p; i < possiblePrimes.length; i += p) {
-				possiblePrimes[i] = false;
-			}
-			int oldP = p + 1;
-			while (oldP < possiblePrimes.length && !possiblePrimes[oldP]) {
-				oldP++;
-			}
-			p = oldP;
-		}
-		return possiblePrimes;
+		return segmentedSieve(n).toBooleanArray();
 	}
 
 	/**
 	 * Enumerates primes from a set of numbers between 2 and n
 	 * inclusive. This set of primes is the result that is returned.
 	 * If n is negative or too large (arbitrarily chosen large number),
-	 * an exception is thrown. This function may not be the best for
-	 * producing large quantities of prime numbers not only because of
-	 * issues with runtime, but also issues with space. The result is 
-	 * a set of integers rather than a list of bits and is suitable for
-	 * direct manipulation for those needing prime numbers.
-	 * corresponding to the index in the set is prime.
+	 * an exception is thrown. The result is a set of integers rather
+	 * than a list of bits and is suitable for direct manipulation for
+	 * those needing prime numbers.
 	 * @param n the max number in the set
 	 * @return a list of prime numbers between 2 and n inclusive as
 	 * a list of integers
-	 * @throw IllegalArgumentException if n < 2 or n > 99999998
+	 * @throw IllegalArgumentException if n < 2 or n > MAXIMUM_NUMBER
 	 */
 	public static int[] eratosthenesSieve(int n) {
-		/*
-		 * create list of numbers from 2 to n inclusive
-		 * let p = 2
-		 * from p, count up to n by p increments and mark true
-		 * first number greater than p not marked, if none stop, set p to number
-		 * lather, rinse, repeat...
-		 */
-		if (n < 2 || n > MAXIMUM_NUMBER) {
-			throw new IllegalArgumentException("problem with n");
-		}
-		int numPrimes = 1;
-		boolean[] possiblePrimes = new boolean[n + 1];
-		for (int i = 0; i < possiblePrimes.length; i++) {
-			possiblePrimes[i] = true;
-		}
-		int p = 2;
-		while (p < possiblePrimes.length) {
-			//			System.out.print(Arrays.toString(possiblePrimes));
-			//			System.out.println("\tnum: " + numPrimes);
-			for (int i = p + p; i < possiblePrimes.length; i += p) {
-				possiblePrimes[i] = false;
+		return segmentedSieve(n).toIntArray();
+	}
+
+	// sieves the bits from low to high, where bit j stands for 2j + 1
+	// and is kept at position j - base in the words. The base must be a
+	// multiple of 64 so that bits keep their place in a word, and the
+	// whole words holding the range are set before crossing off, so
+	// bits past high are left set.
+	private static void sieveSegment(long[] words, long base, int[] basePrimes,
+			long low, long high) {
+		Arrays.fill(words, (int) ((low - base) >>> 6), (int) ((high - base + 63) >>> 6), -1L);
+		for (int k = 0; k < basePrimes.length; k++) {
+			int p = basePrimes[k];
+			long j = ((long) p * p) >>> 1;
+			if (j >= high) {
+				break; // so are the squares of the rest
+			}
+			if (j < low) {
+				// 2j + 1 is a multiple of p exactly when j = p / 2 mod p
+				long offset = (p >>> 1) - low % p;
+				j = low + (offset < 0 ? offset + p : offset);
 			}
-			int oldP = p + 1;
-			while (oldP < possiblePrimes.length && !possiblePrimes[oldP]) {
-				oldP++;
+			// odd multiples of p are 2p apart, which is p bits
+			for (; j < high; j += p) {
+				words[(int) ((j - base) >>> 6)] &= ~(1L << j);
 			}
-			p = oldP;
-			numPrimes++;
 		}
-		int[] result = createPrimeSet(possiblePrimes, numPrimes);
-		return result;
 	}
 
-	// takes in a set of possible primes (as a list of bits) and
-	// creates a properly formed set of integers with just the 
-	// prime numbers that have been enumerated in it.
-	private static int[] createPrimeSet(boolean[] possiblePrimes, int numPrimes) {
-		int[] result = new int[numPrimes - 1];
+	// finds the odd primes up to n inclusive with a plain sieve. These
+	// are the base primes for the segmented sieve, so n is at most the
+	// square root of the largest int.
+	private static int[] oddPrimesUpTo(int n) {
+		boolean[] composite = new boolean[n + 1];
+		int numPrimes = 0;
+		for (int p = 3; p <= n; p += 2) {
+			if (!composite[p]) {
+				numPrimes++;
+				for (int i = p * p; i <= n; i += 2 * p) {
+					composite[i] = true;
+				}
+			}
+		}
+		int[] result = new int[numPrimes];
 		int j = 0;
-		for (int i = 2; i < possiblePrimes.length; i++) {
-			if (possiblePrimes[i]) {
-				result[j] = i;
+		for (int p = 3; p <= n; p += 2) {
+			if (!composite[p]) {
+				result[j] = p;
 				j++;
 			}
 		}
@@ -186,4 +318,115 @@ public class PrimesGenerator {
 		}
 		return numPrimes;
 	}
+
+	/****************************************************************
+	 * HELPER CLASSES
+	 ***************************************************************/
+
+	// sieves a range of segments, splitting it in half until only one
+	// segment is left
+	private static class SegmentTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private long[] bits;
+		private int[] basePrimes;
+		private int numBits;
+		private int first, last;
+
+		public SegmentTask(long[] bits, int[] basePrimes, int numBits, int first, int last) {
+			this.bits = bits;
+			this.basePrimes = basePrimes;
+			this.numBits = numBits;
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected void compute() {
+			if (last - first == 1) {
+				long low = (long) first * SEGMENT_BITS;
+				sieveSegment(bits, 0, basePrimes, low, Math.min(low + SEGMENT_BITS, numBits));
+			} else {
+				int middle = (first + last) >>> 1;
+				invokeAll(new SegmentTask(bits, basePrimes, numBits, first, middle),
+						new SegmentTask(bits, basePrimes, numBits, middle, last));
+			}
+		}
+	}
+
+	// walks over the primes in a range, sieving a segment whenever it
+	// runs out of bits
+	private static class PrimeIterator implements PrimitiveIterator.OfInt {
+		private int[] basePrimes;
+		private long[] words = new long[SEGMENT_BITS >>> 6];
+
+		// whether or not 2 still has to be given
+		private boolean two;
+
+		// the next bit to look at and the end of the range in bits
+		private long cursor, end;
+
+		// the bits that the current segment covers
+		private long low, high;
+
+		// the next prime, 0 if it hasn't been found, or -1 if there are
+		// no primes left
+		private int next;
+
+		public PrimeIterator(long from, long to) {
+			two = from <= 2 && to >= 2;
+			cursor = Math.max(from, 3) >>> 1;
+			end = to < 3 ? 0 : ((to - 1) >>> 1) + 1;
+			basePrimes = oddPrimesUpTo((int) Math.sqrt(Math.max(to, 0)));
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == 0) {
+				next = findNext();
+			}
+			return next > 0;
+		}
+
+		@Override
+		public int nextInt() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int prime = next;
+			next = 0;
+			return prime;
+		}
+
+		// finds the next prime, or -1 if there are none left
+		private int findNext() {
+			if (two) {
+				two = false;
+				return 2;
+			}
+			while (cursor < end) {
+				if (cursor >= high) {
+					low = cursor & ~63L;
+					high = Math.min(low + SEGMENT_BITS, end);
+					sieveSegment(words, low, basePrimes, low, high);
+					if (low == 0) {
+						words[0] &= ~1L; // 1 isn't prime
+					}
+				}
+				int word = (int) ((cursor - low) >>> 6);
+				int lastWord = (int) ((high - low - 1) >>> 6);
+				long remaining = words[word] & (-1L << cursor);
+				while (remaining == 0 && word < lastWord) {
+					word++;
+					remaining = words[word];
+				}
+				long bit = low + ((long) word << 6) + Long.numberOfTrailingZeros(remaining);
+				if (remaining != 0 && bit < high) {
+					cursor = bit + 1;
+					return (int) (2 * bit + 1);
+				}
+				cursor = high;
+			}
+			return -1;
+		}
+	}
 }